@@ -0,0 +1,57 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+/**
+ * Creates the worlds used by benchmarks. Worlds are always created from a
+ * seed, so that all runs of a benchmark measure the same simulation.
+ */
+final class BenchmarkWorlds {
+	/**
+	 * Organisms per million square pixels in benchmark worlds. It is similar
+	 * to the density of a default world after some time.
+	 */
+	private static final int DENSITY = 100;
+
+	private BenchmarkWorlds() {
+	}
+	/**
+	 * Creates a headless world with approximately the given number of
+	 * organisms. The size of the world is scaled with the population so that
+	 * all populations have the same density, but it is never smaller than
+	 * a default world, and the amount of gases so
+	 * that every organism has the same energy as in a default world.
+	 *
+	 * @param population  Number of organisms to create.
+	 * @param seed  Seed of the random number generator.
+	 * @return  The new world.
+	 */
+	static World create(int population, long seed) {
+		double area = Math.max(population, DENSITY) / (double) DENSITY;
+		double gases = Math.max(population, 1) / (double) Utils.DEF_INITIAL_ORGANISMS;
+		Utils.WORLD_WIDTH = (int) (Utils.DEF_WORLD_WIDTH * Math.sqrt(area));
+		Utils.WORLD_HEIGHT = (int) (Utils.DEF_WORLD_HEIGHT * Math.sqrt(area));
+		Utils.INITIAL_O2 = Utils.DEF_INITIAL_O2 * gases;
+		Utils.INITIAL_CO2 = Utils.DEF_INITIAL_CO2 * gases;
+		Utils.INITIAL_ORGANISMS = population;
+		World world = new World();
+		world.setSeed(seed);
+		world.genesis();
+		return world;
+	}
+}
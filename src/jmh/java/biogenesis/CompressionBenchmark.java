@@ -0,0 +1,117 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures compressing and uncompressing a saved world with every
+ * {@link BlockCompression.Codec} and number of threads. The size of the
+ * compressed world is printed when each trial starts, so that it can be
+ * compared with the time it takes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+	@Param({"1000", "10000"})
+	int population;
+
+	@Param({"NONE", "DEFLATE_FAST", "DEFLATE", "DEFLATE_BEST"})
+	BlockCompression.Codec codec;
+
+	@Param({"1", "4"})
+	int threads;
+
+	@Param({"42"})
+	long seed;
+
+	byte[] snapshot;
+
+	byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		World world = BenchmarkWorlds.create(population, seed);
+		// Let organisms move and grow a bit
+		for (int i = 0; i < 100; i++)
+			world.time();
+		snapshot = WorldSnapshot.toByteArray(world);
+		compressed = compress(snapshot, codec, threads);
+		System.out.println(String.format(Locale.ROOT, "%n%s: %d bytes, %d compressed (%.1f%%)", //$NON-NLS-1$
+				codec.getName(), snapshot.length, compressed.length, 100.0 * compressed.length / snapshot.length));
+	}
+
+	@Benchmark
+	public byte[] compress() throws IOException {
+		return compress(snapshot, codec, threads);
+	}
+
+	@Benchmark
+	public long uncompress() throws IOException {
+		return uncompress(compressed);
+	}
+
+	@Benchmark
+	public World load() throws IOException {
+		return WorldSnapshot.read(BlockCompression.reader(Channels.newChannel(new ByteArrayInputStream(compressed))));
+	}
+
+	private static byte[] compress(byte[] data, BlockCompression.Codec codec, int threads) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+		BlockCompression.Writer writer = new BlockCompression.Writer(Channels.newChannel(bytes), codec, threads);
+		writer.write(ByteBuffer.wrap(data));
+		writer.finish();
+		return bytes.toByteArray();
+	}
+
+	private static long uncompress(byte[] data) throws IOException {
+		ReadableByteChannel reader = BlockCompression.reader(Channels.newChannel(new ByteArrayInputStream(data)));
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		long total = 0;
+		int n;
+		while ((n = reader.read(buffer)) >= 0) {
+			total += n;
+			buffer.clear();
+		}
+		return total;
+	}
+}
@@ -0,0 +1,115 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations that every organism executes during a frame or
+ * when it is born: collision between two organisms, rotation of its
+ * segments, calculation of its segments from the genetic code and
+ * mutation of the genetic code.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrganismBenchmark {
+	@Param({"42"})
+	long seed;
+
+	@Param({"0", "1", "2"})
+	int rotationMode;
+
+	World world;
+
+	Organism organism;
+
+	Organism other;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Utils.ROTATION_MODE = rotationMode;
+		world = BenchmarkWorlds.create(0, seed);
+		organism = createOrganism(new GeneticCode(world.getRandom()));
+	}
+
+	/**
+	 * Places a new organism with the same genetic code on top of the
+	 * measured one, so that they touch. Collisions change both organisms,
+	 * so this is done before every call.
+	 */
+	@Setup(Level.Invocation)
+	public void setUpContact() {
+		if (other != null)
+			other.releaseSegments();
+		other = createOrganism(organism.getGeneticCode());
+	}
+
+	@Benchmark
+	public boolean contact() {
+		return organism.contact(other);
+	}
+
+	@Benchmark
+	public Organism calculateBounds() {
+		organism._theta += 0.01;
+		organism.calculateBounds(true);
+		return organism;
+	}
+
+	@Benchmark
+	public Organism symmetric() {
+		organism.symmetric();
+		return organism;
+	}
+
+	@Benchmark
+	public GeneticCode mutate() {
+		return new GeneticCode(organism.getGeneticCode(), world.getRandom());
+	}
+
+	/**
+	 * Creates an adult organism in the center of the world, without adding
+	 * it to the world.
+	 */
+	private Organism createOrganism(GeneticCode code) {
+		Organism org = new Organism(world, code);
+		if (!org.pasteOrganism(world.getWidth() / 2, world.getHeight() / 2))
+			throw new IllegalStateException("Organism can't be placed"); //$NON-NLS-1$
+		org._growthRatio = 1;
+		org.symmetric();
+		org.calculateBounds(true);
+		return org;
+	}
+}
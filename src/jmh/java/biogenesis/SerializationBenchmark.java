@@ -0,0 +1,123 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures saving a world and loading it again, in the {@link WorldSnapshot}
+ * format used by the program to save games and in the Java serialization
+ * format used by previous versions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+	@Param({"100", "1000", "10000"})
+	int population;
+
+	@Param({"42"})
+	long seed;
+
+	World world;
+
+	byte[] saved;
+
+	byte[] serialized;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		world = BenchmarkWorlds.create(population, seed);
+		// Let organisms move and grow a bit
+		for (int i = 0; i < 100; i++)
+			world.time();
+		saved = save(world);
+		serialized = serialize(world);
+	}
+
+	@Benchmark
+	public byte[] save() throws IOException {
+		return save(world);
+	}
+
+	@Benchmark
+	public World load() throws IOException {
+		return load(saved);
+	}
+
+	@Benchmark
+	public World roundTrip() throws IOException, ClassNotFoundException {
+		return load(save(world));
+	}
+
+	@Benchmark
+	public byte[] serializedSave() throws IOException {
+		return serialize(world);
+	}
+
+	@Benchmark
+	public World serializedLoad() throws IOException, ClassNotFoundException {
+		return deserialize(serialized);
+	}
+
+	private static byte[] save(World world) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSnapshot.write(world, Channels.newChannel(bytes));
+		return bytes.toByteArray();
+	}
+
+	private static World load(byte[] data) throws IOException {
+		return WorldSnapshot.read(Channels.newChannel(new ByteArrayInputStream(data)));
+	}
+
+	private static byte[] serialize(World world) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(world);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static World deserialize(byte[] data) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			return (World) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time needed to execute a frame of a world with different
+ * populations. Every invocation executes the same {@link #FRAMES} frames
+ * on a fresh copy of the world, thawed from a copy made when the trial
+ * starts, so the population doesn't drift from the one being measured.
+ * Results are given per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldBenchmark {
+	/**
+	 * Frames executed by every invocation.
+	 */
+	static final int FRAMES = 10;
+
+	@Param({"100", "1000", "10000", "50000"})
+	int population;
+
+	@Param({"42"})
+	long seed;
+
+	@Param({"0"})
+	int threads;
+
+	WorldSnapshot.Frozen frozen;
+
+	WorldMemory memory;
+
+	World world;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Utils.TICK_THREADS = threads;
+		World original = BenchmarkWorlds.create(population, seed);
+		frozen = WorldSnapshot.freeze(original);
+		memory = original.getWorldMemory();
+	}
+
+	@Setup(Level.Invocation)
+	public void thaw() throws IOException {
+		world = WorldSnapshot.thaw(frozen, memory);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public World time() {
+		for (int i = 0; i < FRAMES; i++)
+			world.time();
+		return world;
+	}
+}
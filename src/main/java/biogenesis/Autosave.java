@@ -0,0 +1,250 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves worlds in a background thread, so that the simulation doesn't stop
+ * while a file is being written.
+ *
+ * A save has two steps. First, the world is copied to memory with
+ * {@link WorldSnapshot#capture(World)}. This must be done between two
+ * frames, in the thread that runs the world, so the copy is always
+ * consistent, and it is fast: the history of the world is not copied,
+ * only marked, so it takes the same time for a long history. Then a single
+ * worker thread writes the copy, reading the history from the world's
+ * memory, compresses it with {@link BlockCompression}, using all
+ * processors, writes it to a temporary file in the same directory and
+ * renames it to its final name once it is complete. If the program
+ * crashes while writing, the previous file is still there.
+ *
+ * Periodic autosaves keep several generations of the same file:
+ * <code>autosave.bgw</code> is the newest one, <code>autosave.1.bgw</code>
+ * the previous one, and so on. An autosave is skipped if the previous one
+ * hasn't been written yet, so a slow disk never slows down the simulation.
+ */
+public class Autosave {
+	/**
+	 * Name of the autosave files, without extension.
+	 */
+	public static final String AUTOSAVE_NAME = "autosave"; //$NON-NLS-1$
+	/**
+	 * Maximum number of copies waiting to be written. Saves requested when
+	 * this number is reached wait for the oldest one to be written, so that
+	 * a slow disk can't fill the memory with copies.
+	 */
+	private static final int MAX_PENDING = 2;
+	/**
+	 * Notified in the worker thread when a file has been written.
+	 */
+	public interface Callback {
+		/**
+		 * Called after trying to write a file.
+		 *
+		 * @param f  The file.
+		 * @param error  The error found, or null if the file was written.
+		 */
+		void written(File f, IOException error);
+	}
+
+	private final ExecutorService _writer = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Biogenesis autosave"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+	private final Semaphore _pending = new Semaphore(MAX_PENDING);
+	/**
+	 * True while a periodic autosave is waiting to be written.
+	 */
+	private final AtomicBoolean _autosaving = new AtomicBoolean(false);
+
+	/**
+	 * Copies the world and writes it to a file in the background. It must be
+	 * called from the thread that runs the world, between two frames.
+	 *
+	 * @param world  The world to save.
+	 * @param f  The file. It is replaced if it exists.
+	 * @param callback  Notified when the file is written, or null.
+	 */
+	public void save(World world, File f, Callback callback) {
+		save(world, f, 1, callback);
+	}
+	/**
+	 * Copies the world and writes it in the background to the autosave file
+	 * in the given directory, keeping the given number of generations. If
+	 * the previous autosave hasn't been written yet, nothing is done.
+	 *
+	 * @param world  The world to save.
+	 * @param directory  The directory where autosave files are kept. It is
+	 * created if it doesn't exist.
+	 * @param generations  The number of autosave files to keep.
+	 * @param callback  Notified when the file is written, or null.
+	 * @return  true if the world has been copied, false if it has been skipped.
+	 */
+	public boolean autosave(World world, File directory, int generations, Callback callback) {
+		if (!_autosaving.compareAndSet(false, true))
+			return false;
+		File f = autosaveFile(directory);
+		try {
+			save(world, f, generations, (file, error) -> {
+				_autosaving.set(false);
+				if (callback != null)
+					callback.written(file, error);
+			});
+		} catch (RuntimeException e) {
+			_autosaving.set(false);
+			throw e;
+		}
+		return true;
+	}
+	/**
+	 * Returns the newest autosave file in a directory.
+	 *
+	 * @param directory  The directory where autosave files are kept.
+	 * @return  The file.
+	 */
+	public static File autosaveFile(File directory) {
+		return new File(directory, AUTOSAVE_NAME + "." + BioFileFilter.WORLD_EXTENSION); //$NON-NLS-1$
+	}
+	/**
+	 * Waits until all saves requested so far have been written.
+	 */
+	public void flush() {
+		try {
+			_writer.submit(() -> { /* all previous writes are done */ }).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Nothing to do: the task is empty
+		}
+	}
+	/**
+	 * Writes all pending saves and stops the worker thread. No more saves
+	 * can be requested after this.
+	 */
+	public void close() {
+		_writer.shutdown();
+		try {
+			_writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void save(World world, File f, int generations, Callback callback) {
+		_pending.acquireUninterruptibly();
+		BlockCompression.Codec codec = Utils.COMPRESSION;
+		WorldSnapshot.Capture capture;
+		try {
+			capture = WorldSnapshot.capture(world);
+		} catch (RuntimeException e) {
+			_pending.release();
+			throw e;
+		}
+		_writer.execute(() -> {
+			IOException error = null;
+			try {
+				write(capture, f, generations, codec);
+			} catch (IOException | SecurityException e) {
+				error = e instanceof IOException ? (IOException) e : new IOException(e);
+			} finally {
+				capture.release();
+				_pending.release();
+			}
+			if (callback != null)
+				callback.written(f, error);
+		});
+	}
+	/**
+	 * Writes a snapshot to a file atomically. The data is written to a
+	 * temporary file that replaces the target only when it is complete.
+	 * If more than one generation is kept, existing files are renamed
+	 * before: <code>name.ext</code> to <code>name.1.ext</code>,
+	 * <code>name.1.ext</code> to <code>name.2.ext</code> and so on, and the
+	 * oldest one is deleted.
+	 *
+	 * @param capture  The world, copied by {@link WorldSnapshot#capture(World)}.
+	 * @param f  The file.
+	 * @param generations  The number of generations to keep.
+	 * @param codec  How the file is compressed.
+	 * @throws IOException  if the file can't be written.
+	 */
+	static void write(WorldSnapshot.Capture capture, File f, int generations, BlockCompression.Codec codec) throws IOException {
+		Path target = f.getAbsoluteFile().toPath();
+		Path directory = target.getParent();
+		Files.createDirectories(directory);
+		// Not createTempFile, that would make the file readable only by its owner
+		Path temp = target.resolveSibling(target.getFileName() + "." + //$NON-NLS-1$
+				Long.toHexString(System.nanoTime()) + ".tmp"); //$NON-NLS-1$
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				if (codec == BlockCompression.Codec.NONE) {
+					capture.write(channel);
+				} else {
+					BlockCompression.Writer writer = new BlockCompression.Writer(channel, codec,
+							Runtime.getRuntime().availableProcessors());
+					capture.write(writer);
+					writer.finish();
+				}
+				channel.force(true);
+			}
+			if (generations > 1) {
+				Files.deleteIfExists(generation(target, generations - 1));
+				for (int i = generations - 2; i >= 0; i--) {
+					Path older = generation(target, i);
+					if (Files.exists(older))
+						Files.move(older, generation(target, i + 1), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+	/**
+	 * Returns the name of a generation of a file: the file itself for
+	 * generation 0, and the number inserted before the extension for the others.
+	 */
+	static Path generation(Path f, int i) {
+		if (i == 0)
+			return f;
+		String name = f.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String numbered = dot == -1 ? name + "." + i : //$NON-NLS-1$
+			name.substring(0, dot) + "." + i + name.substring(dot); //$NON-NLS-1$
+		return f.resolveSibling(numbered);
+	}
+}
@@ -23,6 +23,10 @@ import javax.swing.filechooser.FileFilter;
 
 public class BioFileFilter extends FileFilter {
 	private String validExtension = ""; //$NON-NLS-1$
+	/**
+	 * Other extensions that are accepted but not used to save files.
+	 */
+	private String[] otherExtensions = new String[0];
 	public static final String WORLD_EXTENSION = "bgw"; //$NON-NLS-1$
 	public static final String GENETIC_CODE_EXTENSION = "bgg"; //$NON-NLS-1$
 	
@@ -31,6 +35,17 @@ public class BioFileFilter extends FileFilter {
 		validExtension = ext;
 	}
 	
+	/**
+	 * Creates a filter that accepts several extensions.
+	 *
+	 * @param ext  The extension added to the files saved.
+	 * @param others  Other extensions accepted.
+	 */
+	public BioFileFilter(String ext, String... others) {
+		this(ext);
+		otherExtensions = others;
+	}
+	
 	public String getValidExtension() {
 		return validExtension;
 	}
@@ -58,7 +73,15 @@ public class BioFileFilter extends FileFilter {
 			extension = s.substring(i + 1).toLowerCase();
 		}
 
-		return extension != null && extension.equals(validExtension);
+		if (extension == null)
+			return false;
+		if (extension.equals(validExtension))
+			return true;
+		for (String other : otherExtensions) {
+			if (extension.equals(other))
+				return true;
+		}
+		return false;
 	}
 
 	@Override
@@ -66,7 +89,8 @@ public class BioFileFilter extends FileFilter {
 		if (validExtension.equals(WORLD_EXTENSION))
 			return Messages.getString("T_BIOGENESIS_WORLD_FILES"); //$NON-NLS-1$
 		if (validExtension.equals(GENETIC_CODE_EXTENSION))
-			return Messages.getString("T_BIOGENESIS_GENETIC_CODE_FILES"); //$NON-NLS-1$
+			return Messages.getString(otherExtensions.length == 0 ? "T_BIOGENESIS_GENETIC_CODE_FILES" : //$NON-NLS-1$
+				"T_BIOGENESIS_GENETIC_CODE_COLLECTIONS"); //$NON-NLS-1$
 		if (validExtension.equals("png")) //$NON-NLS-1$
 			return Messages.getString("T_PNG_IMAGE_FILES"); //$NON-NLS-1$
 		return null;
@@ -20,6 +20,7 @@ package biogenesis;
 import java.awt.Color;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,6 +28,10 @@ import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -36,6 +41,16 @@ import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
 public class BioXMLParser implements ErrorHandler {
+	/**
+	 * Factory for the readers used by {@link #readGeneticCode(InputStream)}.
+	 * The DTD in the files is not processed: values are checked while reading.
+	 */
+	private static final XMLInputFactory STREAM_FACTORY = XMLInputFactory.newInstance();
+	static {
+		STREAM_FACTORY.setProperty(XMLInputFactory.IS_VALIDATING, Boolean.FALSE);
+		STREAM_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		STREAM_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
 	protected DocumentBuilder builder = null;
 	protected Document doc = null;
 	
@@ -51,64 +66,107 @@ public class BioXMLParser implements ErrorHandler {
 	}
 	
 	public static void writeGeneticCode(PrintStream ps, GeneticCode geneticCode) {
-		ps.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"); //$NON-NLS-1$
-		ps.println("<!DOCTYPE genetic_code ["); //$NON-NLS-1$
-		ps.println("<!ELEMENT genetic_code (gene+)>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST genetic_code symmetry (1|2|3|4|5|6|7|8) #REQUIRED>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST genetic_code mirror (yes|no) #REQUIRED>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST genetic_code disperse (yes|no) #REQUIRED>"); //$NON-NLS-1$
-		ps.println("<!ELEMENT gene EMPTY>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST gene length CDATA #REQUIRED>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST gene theta CDATA #REQUIRED>"); //$NON-NLS-1$
-		ps.println("<!ATTLIST gene color (red|green|blue|cyan|yellow|gray|white) #REQUIRED>"); //$NON-NLS-1$
-		ps.println("]>"); //$NON-NLS-1$
-		ps.println("<genetic_code symmetry=\""+Integer.toString(geneticCode.getSymmetry())+ //$NON-NLS-1$
-				"\" mirror=\""+(geneticCode.getMirror()==0?"no":"yes")+ //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-				"\" disperse=\""+(geneticCode.getDisperseChildren()?"yes":"no")+  //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$
-				"\">"); //$NON-NLS-1$
-		for (int i=0; i<geneticCode.getNGenes(); i++)
-			writeGene(ps,geneticCode.getGene(i));
-		ps.println("</genetic_code>"); //$NON-NLS-1$
+		ps.print(toXML(geneticCode));
+		ps.flush();
 	}
 	
 	public static void writeGene(PrintStream ps, Gene gene) {
-		ps.println("\t<gene length=\""+Double.toString(gene.getLength())+"\" theta=\""+ //$NON-NLS-1$ //$NON-NLS-2$
-				Double.toString(gene.getTheta())+"\" color=\""+ //$NON-NLS-1$
-				colorToString(gene.getColor())+"\" />"); //$NON-NLS-1$
+		StringBuilder sb = new StringBuilder();
+		appendGene(sb, gene);
+		ps.print(sb);
+	}
+	/**
+	 * Returns the contents of a genetic code file, so that it can be written
+	 * at once.
+	 *
+	 * @param geneticCode  The genetic code.
+	 * @return  The XML document with the genetic code.
+	 */
+	public static String toXML(GeneticCode geneticCode) {
+		String nl = System.lineSeparator();
+		StringBuilder sb = new StringBuilder(1024 + 80 * geneticCode.getNGenes());
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>").append(nl); //$NON-NLS-1$
+		sb.append("<!DOCTYPE genetic_code [").append(nl); //$NON-NLS-1$
+		sb.append("<!ELEMENT genetic_code (gene+)>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST genetic_code symmetry (1|2|3|4|5|6|7|8) #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST genetic_code mirror (yes|no) #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST genetic_code disperse (yes|no) #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("<!ELEMENT gene EMPTY>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST gene length CDATA #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST gene theta CDATA #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("<!ATTLIST gene color (red|green|blue|cyan|yellow|gray|white) #REQUIRED>").append(nl); //$NON-NLS-1$
+		sb.append("]>").append(nl); //$NON-NLS-1$
+		sb.append("<genetic_code symmetry=\"").append(geneticCode.getSymmetry()) //$NON-NLS-1$
+			.append("\" mirror=\"").append(geneticCode.getMirror()==0?"no":"yes") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			.append("\" disperse=\"").append(geneticCode.getDisperseChildren()?"yes":"no") //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$
+			.append("\">").append(nl); //$NON-NLS-1$
+		for (int i=0; i<geneticCode.getNGenes(); i++)
+			appendGene(sb, geneticCode.getGene(i));
+		sb.append("</genetic_code>").append(nl); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	private static void appendGene(StringBuilder sb, Gene gene) {
+		sb.append("\t<gene length=\"").append(gene.getLength()).append("\" theta=\"") //$NON-NLS-1$ //$NON-NLS-2$
+			.append(gene.getTheta()).append("\" color=\"") //$NON-NLS-1$
+			.append(colorToString(gene.getColor())).append("\" />").append(System.lineSeparator()); //$NON-NLS-1$
+	}
+	/**
+	 * Reads a genetic code file with a streaming parser that doesn't build a
+	 * document nor validate it against its DTD, but checks the same values.
+	 * It is much faster than {@link #parseGeneticCode(File)} and can be used
+	 * by several threads at the same time. The stream is not closed.
+	 *
+	 * @param in  The contents of the file.
+	 * @return  The genetic code.
+	 * @throws SAXException  if it isn't a valid genetic code.
+	 * @throws IOException  if it can't be read.
+	 */
+	public static GeneticCode readGeneticCode(InputStream in) throws SAXException, IOException {
+		try {
+			XMLStreamReader reader = STREAM_FACTORY.createXMLStreamReader(in);
+			try {
+				// Skip the prologue and the DTD
+				int event;
+				while ((event = reader.next()) != XMLStreamConstants.START_ELEMENT) {
+					if (event == XMLStreamConstants.END_DOCUMENT)
+						throw new SAXException("This file does not contain a genetic_code."); //$NON-NLS-1$
+				}
+				if (!reader.getLocalName().equals("genetic_code")) //$NON-NLS-1$
+					throw new SAXException("This file does not contain a genetic_code."); //$NON-NLS-1$
+				int symmetry = parseSymmetry(reader.getAttributeValue(null, "symmetry")); //$NON-NLS-1$
+				int mirror = parseYesNo(reader.getAttributeValue(null, "mirror"), "Mirror") ? 1 : 0; //$NON-NLS-1$ //$NON-NLS-2$
+				boolean disperse = parseYesNo(reader.getAttributeValue(null, "disperse"), "Disperse"); //$NON-NLS-1$ //$NON-NLS-2$
+				List<Gene> genes = new ArrayList<>();
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (!reader.getLocalName().equals("gene")) //$NON-NLS-1$
+						throw new SAXException("Parse error. "+reader.getLocalName()+" found but gene expected.");  //$NON-NLS-1$//$NON-NLS-2$
+					genes.add(parseGene(reader.getAttributeValue(null, "length"), //$NON-NLS-1$
+							reader.getAttributeValue(null, "theta"), reader.getAttributeValue(null, "color"))); //$NON-NLS-1$ //$NON-NLS-2$
+					if (reader.nextTag() != XMLStreamConstants.END_ELEMENT)
+						throw new SAXException("Parse error. gene must be empty."); //$NON-NLS-1$
+				}
+				if (genes.isEmpty())
+					throw new SAXException("This genetic_code has no genes."); //$NON-NLS-1$
+				return new GeneticCode(genes, symmetry, mirror, disperse);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
 	}
 	
 	public GeneticCode parseGeneticCode(File f) throws SAXException, IOException {
 		int symmetry, mirror;
 		boolean disperse;
 		List<Gene> genes = new ArrayList<>();
-		String s;
 		doc = builder.parse(f);
 		Element geneticCode = doc.getDocumentElement();
 		if (geneticCode.getNodeName().equals("genetic_code")) { //$NON-NLS-1$
-			s = geneticCode.getAttribute("symmetry"); //$NON-NLS-1$
-			try {
-				symmetry = Integer.parseInt(s); //$NON-NLS-1$
-			} catch (NumberFormatException e) {
-				throw new SAXException("Symmetry has not an allowed value."); //$NON-NLS-1$
-			}
-			if (symmetry<1 || symmetry>8)
-				throw new SAXException("Symmetry has not an allowed value."); //$NON-NLS-1$
-			s = geneticCode.getAttribute("mirror"); //$NON-NLS-1$
-			if (s.equals("yes")) //$NON-NLS-1$
-				mirror = 1;
-			else
-				if (s.equals("no")) //$NON-NLS-1$
-					mirror = 0;
-				else
-					throw new SAXException("Mirror has not an allowed value."); //$NON-NLS-1$
-			s = geneticCode.getAttribute("disperse"); //$NON-NLS-1$
-			if (s.equals("yes")) //$NON-NLS-1$
-				disperse = true;
-			else
-				if (s.equals("no")) //$NON-NLS-1$
-					disperse = false;
-				else
-					throw new SAXException("Disperse has not an allowed value."); //$NON-NLS-1$
+			symmetry = parseSymmetry(geneticCode.getAttribute("symmetry")); //$NON-NLS-1$
+			mirror = parseYesNo(geneticCode.getAttribute("mirror"), "Mirror") ? 1 : 0; //$NON-NLS-1$ //$NON-NLS-2$
+			disperse = parseYesNo(geneticCode.getAttribute("disperse"), "Disperse"); //$NON-NLS-1$ //$NON-NLS-2$
 			
 			Node gene = geneticCode.getFirstChild();
 			gene = getNextElement(gene);
@@ -128,24 +186,46 @@ public class BioXMLParser implements ErrorHandler {
 	}
 	
 	public Gene parseGene(Element gene) throws SAXException {
-		double length, theta;
-		Color color;
 		if (gene.getNodeName().equals("gene")) { //$NON-NLS-1$
-			try {
-				length = Double.parseDouble(gene.getAttribute("length")); //$NON-NLS-1$
-				theta = Double.parseDouble(gene.getAttribute("theta")); //$NON-NLS-1$
-			} catch (NumberFormatException e) {
-				throw new SAXException("Attributes length and theta do not exist or have not an allowed value."); //$NON-NLS-1$
-			}
-			try {
-				color = stringToColor(gene.getAttribute("color")); //$NON-NLS-1$
-			} catch (IllegalArgumentException e) {
-				throw new SAXException("Attribute color does not exist or has not an allowed value."); //$NON-NLS-1$
-			}
-			return new Gene(length,theta,color);
+			return parseGene(gene.getAttribute("length"), gene.getAttribute("theta"), gene.getAttribute("color")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 		}
 		throw new SAXException("Parse error. "+gene.getNodeName()+" found but gene expected.");  //$NON-NLS-1$//$NON-NLS-2$
 	}
+
+	private static Gene parseGene(String lengthValue, String thetaValue, String colorValue) throws SAXException {
+		double length, theta;
+		Color color;
+		try {
+			length = Double.parseDouble(lengthValue);
+			theta = Double.parseDouble(thetaValue);
+		} catch (NumberFormatException | NullPointerException e) {
+			throw new SAXException("Attributes length and theta do not exist or have not an allowed value."); //$NON-NLS-1$
+		}
+		try {
+			color = stringToColor(colorValue.trim());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new SAXException("Attribute color does not exist or has not an allowed value."); //$NON-NLS-1$
+		}
+		return new Gene(length,theta,color);
+	}
+
+	// Enumerated attributes are compared after removing surrounding
+	// spaces, as a validating parser does, and only take the values
+	// listed in the DTD.
+	private static int parseSymmetry(String s) throws SAXException {
+		if (s == null || (s = s.trim()).length() != 1 || s.charAt(0) < '1' || s.charAt(0) > '8')
+			throw new SAXException("Symmetry has not an allowed value."); //$NON-NLS-1$
+		return s.charAt(0) - '0';
+	}
+
+	private static boolean parseYesNo(String s, String attribute) throws SAXException {
+		s = s == null ? null : s.trim();
+		if ("yes".equals(s)) //$NON-NLS-1$
+			return true;
+		if ("no".equals(s)) //$NON-NLS-1$
+			return false;
+		throw new SAXException(attribute + " has not an allowed value."); //$NON-NLS-1$
+	}
 	
 	private static Color stringToColor(String s) throws IllegalArgumentException {
 		if (s.equals("green")) return Color.GREEN; //$NON-NLS-1$
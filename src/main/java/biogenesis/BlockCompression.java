@@ -0,0 +1,610 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses a stream of bytes, usually a {@link WorldSnapshot}, in
+ * independent blocks. Blocks are compressed by several threads at the same
+ * time, and any block can be read without reading the ones before it.
+ *
+ * A compressed stream contains, in this order:
+ * <ul>
+ * <li>A header with {@link #MAGIC}, the format version, the {@link Codec}
+ * and the size of blocks before compression.</li>
+ * <li>The blocks. Each one has its size before and after compression,
+ * followed by the compressed bytes. All blocks but the last one have the
+ * size given in the header. Blocks that don't get smaller are stored
+ * as they are, with the same size before and after compression.</li>
+ * <li>A 0, that marks the end of the blocks.</li>
+ * <li>The number of blocks and the position of each one in the stream.</li>
+ * <li>The size of the stream before compression, the position of the
+ * number of blocks and {@link #MAGIC} again.</li>
+ * </ul>
+ * All numbers are big endian. Streams that can't be moved through are read
+ * block after block; the positions at the end are only used to jump to the
+ * block that contains a given byte.
+ */
+public final class BlockCompression {
+	/**
+	 * First four bytes of a compressed stream: "BGWZ".
+	 */
+	public static final int MAGIC = 0x4247575A;
+	/**
+	 * Version of the format written by this class.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Size of blocks before compression.
+	 */
+	static final int BLOCK_SIZE = 1 << 20;
+	/**
+	 * Largest block size accepted when reading a stream.
+	 */
+	private static final int MAX_BLOCK_SIZE = 1 << 26;
+	/**
+	 * Size of the header and of the end of a stream.
+	 */
+	private static final int HEADER_SIZE = 13;
+	private static final int TRAILER_SIZE = 20;
+	/**
+	 * The ways blocks can be compressed.
+	 */
+	public enum Codec {
+		/**
+		 * Blocks are stored without compression. Saves don't use blocks at
+		 * all with this codec.
+		 */
+		NONE(0, Deflater.NO_COMPRESSION),
+		/**
+		 * Deflate at its fastest level. It makes worlds about four times
+		 * smaller at a small cost.
+		 */
+		DEFLATE_FAST(1, Deflater.BEST_SPEED),
+		/**
+		 * Deflate at its default level.
+		 */
+		DEFLATE(2, Deflater.DEFAULT_COMPRESSION),
+		/**
+		 * Deflate at its slowest level, for worlds that are kept for a long
+		 * time.
+		 */
+		DEFLATE_BEST(3, Deflater.BEST_COMPRESSION);
+
+		private final int _id;
+		private final int _level;
+
+		Codec(int id, int level) {
+			_id = id;
+			_level = level;
+		}
+		/**
+		 * Returns the name used in the command line and in preferences:
+		 * the name in lower case with hyphens.
+		 */
+		public String getName() {
+			return name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+		/**
+		 * Returns the codec with a given name, in any case and with
+		 * hyphens or underscores.
+		 *
+		 * @throws IllegalArgumentException  if there is no such codec.
+		 */
+		public static Codec forName(String name) {
+			return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+
+		static Codec forId(int id) throws IOException {
+			for (Codec c : values())
+				if (c._id == id)
+					return c;
+			throw new IOException("Unknown compression " + id); //$NON-NLS-1$
+		}
+		/**
+		 * Compresses some bytes.
+		 *
+		 * @return  The compressed bytes, or null if they are not smaller.
+		 */
+		byte[] compress(byte[] data, int length) {
+			if (this == NONE)
+				return null;
+			Deflater deflater = new Deflater(_level);
+			try {
+				deflater.setInput(data, 0, length);
+				deflater.finish();
+				byte[] packed = new byte[length];
+				int n = 0;
+				while (!deflater.finished() && n < packed.length)
+					n += deflater.deflate(packed, n, packed.length - n);
+				return deflater.finished() && n < length ? Arrays.copyOf(packed, n) : null;
+			} finally {
+				deflater.end();
+			}
+		}
+	}
+
+	private BlockCompression() {
+	}
+	/**
+	 * Checks if a channel contains a compressed stream, without changing
+	 * its position.
+	 */
+	public static boolean isCompressed(SeekableByteChannel channel) throws IOException {
+		long position = channel.position();
+		try {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			channel.position(0);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+				// keep reading
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		} finally {
+			channel.position(position);
+		}
+	}
+	/**
+	 * Returns a channel that reads the bytes of a compressed stream. Closing
+	 * it closes the compressed channel.
+	 *
+	 * @param channel  A channel positioned at the start of a compressed stream.
+	 * @throws IOException  if the channel doesn't contain a compressed stream.
+	 */
+	public static ReadableByteChannel reader(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof SeekableByteChannel)
+			return reader((SeekableByteChannel) channel);
+		return new StreamReader(channel);
+	}
+	/**
+	 * Returns a channel that reads the bytes of a compressed stream and can
+	 * be moved to any of them, only reading the block that contains it.
+	 * Closing it closes the compressed channel.
+	 *
+	 * @param channel  A channel that contains a compressed stream from its
+	 * first byte.
+	 * @throws IOException  if the channel doesn't contain a compressed stream.
+	 */
+	public static SeekableByteChannel reader(SeekableByteChannel channel) throws IOException {
+		return new SeekableReader(channel);
+	}
+	/**
+	 * Writes a compressed stream to a channel. Bytes are collected in blocks,
+	 * which are compressed by a pool of threads and written in order. The
+	 * stream is complete only after {@link #finish()} or {@link #close()}.
+	 */
+	public static final class Writer implements WritableByteChannel {
+		private final WritableByteChannel _channel;
+		private final Codec _codec;
+		/**
+		 * Threads that compress blocks, or null to compress them in the
+		 * thread that writes.
+		 */
+		private final ExecutorService _pool;
+		/**
+		 * Blocks being compressed, in order. Their number is limited, so
+		 * that a slow channel can't fill the memory.
+		 */
+		private final ArrayDeque<Future<ByteBuffer>> _pending = new ArrayDeque<>();
+		private final int _maxPending;
+		private byte[] _block = new byte[BLOCK_SIZE];
+		private int _length;
+		private long[] _positions = new long[16];
+		private int _nBlocks;
+		/**
+		 * Bytes written to the channel, and bytes received before compression.
+		 */
+		private long _written;
+		private long _size;
+		private boolean _finished;
+		private boolean _open = true;
+		/**
+		 * Creates a writer and writes the header of the stream.
+		 *
+		 * @param channel  The channel where the compressed stream is written.
+		 * @param codec  How blocks are compressed.
+		 * @param threads  Number of threads that compress blocks.
+		 * @throws IOException  if the header can't be written.
+		 */
+		public Writer(WritableByteChannel channel, Codec codec, int threads) throws IOException {
+			_channel = channel;
+			_codec = codec;
+			_pool = threads > 1 ? new ForkJoinPool(threads) : null;
+			_maxPending = Math.max(1, threads) * 2;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.put((byte) codec._id);
+			header.putInt(BLOCK_SIZE);
+			header.flip();
+			try {
+				writeFully(header);
+			} catch (IOException | RuntimeException e) {
+				shutdown();
+				throw e;
+			}
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			if (!_open || _finished)
+				throw new ClosedChannelException();
+			int n = src.remaining();
+			while (src.hasRemaining()) {
+				int k = Math.min(src.remaining(), BLOCK_SIZE - _length);
+				src.get(_block, _length, k);
+				_length += k;
+				if (_length == BLOCK_SIZE)
+					submit();
+			}
+			_size += n;
+			return n;
+		}
+		/**
+		 * Writes the last block and the end of the stream, without closing
+		 * the channel.
+		 *
+		 * @throws IOException  if the channel can't be written.
+		 */
+		public void finish() throws IOException {
+			if (_finished)
+				return;
+			_finished = true;
+			try {
+				if (_length > 0)
+					submit();
+				while (!_pending.isEmpty())
+					writeBlock(_pending.poll());
+			} finally {
+				shutdown();
+			}
+			ByteBuffer end = ByteBuffer.allocate(8 + _nBlocks * 8 + TRAILER_SIZE);
+			end.putInt(0);
+			long indexPosition = _written + 4;
+			end.putInt(_nBlocks);
+			for (int i = 0; i < _nBlocks; i++)
+				end.putLong(_positions[i]);
+			end.putLong(_size);
+			end.putLong(indexPosition);
+			end.putInt(MAGIC);
+			end.flip();
+			writeFully(end);
+		}
+
+		@Override
+		public boolean isOpen() {
+			return _open;
+		}
+		/**
+		 * Finishes the stream and closes the channel.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!_open)
+				return;
+			try {
+				finish();
+			} finally {
+				_open = false;
+				_channel.close();
+			}
+		}
+
+		private void submit() throws IOException {
+			byte[] data = _block;
+			int length = _length;
+			_block = new byte[BLOCK_SIZE];
+			_length = 0;
+			if (_pending.size() >= _maxPending)
+				writeBlock(_pending.poll());
+			if (_pool == null)
+				_pending.add(CompletableFuture.completedFuture(compressBlock(data, length)));
+			else
+				_pending.add(_pool.submit(() -> compressBlock(data, length)));
+		}
+
+		private ByteBuffer compressBlock(byte[] data, int length) {
+			byte[] packed = _codec.compress(data, length);
+			int n = packed == null ? length : packed.length;
+			ByteBuffer block = ByteBuffer.allocate(8 + n);
+			block.putInt(length);
+			block.putInt(n);
+			block.put(packed == null ? data : packed, 0, n);
+			block.flip();
+			return block;
+		}
+
+		private void writeBlock(Future<ByteBuffer> f) throws IOException {
+			ByteBuffer block;
+			try {
+				block = f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			if (_nBlocks == _positions.length)
+				_positions = Arrays.copyOf(_positions, _nBlocks * 2);
+			_positions[_nBlocks++] = _written;
+			writeFully(block);
+		}
+
+		private void writeFully(ByteBuffer buffer) throws IOException {
+			_written += buffer.remaining();
+			while (buffer.hasRemaining())
+				_channel.write(buffer);
+		}
+
+		private void shutdown() {
+			if (_pool != null)
+				_pool.shutdownNow();
+		}
+	}
+	/**
+	 * Reads blocks of a compressed stream.
+	 */
+	private abstract static class BlockReader {
+		final ReadableByteChannel _channel;
+		final Codec _codec;
+		final int _blockSize;
+		private final Inflater _inflater = new Inflater();
+		private final ByteBuffer _blockHeader = ByteBuffer.allocate(8);
+		private ByteBuffer _packed = ByteBuffer.allocate(0);
+		/**
+		 * The last block read, and its size.
+		 */
+		final byte[] _block;
+		int _blockLength;
+
+		BlockReader(ReadableByteChannel channel) throws IOException {
+			_channel = channel;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(header);
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a compressed stream"); //$NON-NLS-1$
+			int version = header.getInt();
+			if (version > VERSION)
+				throw new IOException("Unsupported compressed stream version " + version); //$NON-NLS-1$
+			_codec = Codec.forId(header.get());
+			_blockSize = header.getInt();
+			if (_blockSize <= 0 || _blockSize > MAX_BLOCK_SIZE)
+				throw new IOException("Invalid block size " + _blockSize); //$NON-NLS-1$
+			_block = new byte[_blockSize];
+		}
+		/**
+		 * Reads the block at the current position of the channel.
+		 *
+		 * @return  false if it is the end of the blocks.
+		 */
+		boolean readBlock() throws IOException {
+			_blockHeader.clear();
+			readFully(_blockHeader);
+			int length = _blockHeader.getInt();
+			if (length == 0)
+				return false;
+			int n = _blockHeader.getInt();
+			if (length < 0 || length > _blockSize || n <= 0 || n > length)
+				throw new IOException("Invalid block size " + length + "/" + n); //$NON-NLS-1$ //$NON-NLS-2$
+			if (n == length) {
+				readFully(ByteBuffer.wrap(_block, 0, length));
+			} else {
+				if (_packed.capacity() < n)
+					_packed = ByteBuffer.allocate(n);
+				_packed.clear().limit(n);
+				readFully(_packed);
+				inflate(n, length);
+			}
+			_blockLength = length;
+			return true;
+		}
+
+		private void inflate(int n, int length) throws IOException {
+			_inflater.reset();
+			_inflater.setInput(_packed.array(), 0, n);
+			try {
+				int k = 0;
+				while (k < length) {
+					int r = _inflater.inflate(_block, k, length - k);
+					if (r == 0 && (_inflater.finished() || _inflater.needsInput() || _inflater.needsDictionary()))
+						throw new IOException("Corrupt compressed block"); //$NON-NLS-1$
+					k += r;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt compressed block", e); //$NON-NLS-1$
+			}
+		}
+
+		final void readFully(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (_channel.read(buffer) < 0)
+					throw new EOFException("Unexpected end of compressed stream"); //$NON-NLS-1$
+			}
+			buffer.flip();
+		}
+
+		void closeReader() throws IOException {
+			_inflater.end();
+			_channel.close();
+		}
+	}
+	/**
+	 * Reads a compressed stream block after block.
+	 */
+	private static final class StreamReader extends BlockReader implements ReadableByteChannel {
+		private int _offset;
+		private boolean _ended;
+
+		StreamReader(ReadableByteChannel channel) throws IOException {
+			super(channel);
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			while (_offset == _blockLength) {
+				if (_ended || !readBlock()) {
+					_ended = true;
+					return -1;
+				}
+				_offset = 0;
+			}
+			int k = Math.min(dst.remaining(), _blockLength - _offset);
+			dst.put(_block, _offset, k);
+			_offset += k;
+			return k;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return _channel.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			closeReader();
+		}
+	}
+	/**
+	 * Reads a compressed stream from a channel that can be moved through,
+	 * only reading the blocks that contain the bytes asked for.
+	 */
+	private static final class SeekableReader extends BlockReader implements SeekableByteChannel {
+		private final SeekableByteChannel _file;
+		private final long[] _positions;
+		private final long _size;
+		private long _position;
+		/**
+		 * Index of the block in {@link BlockReader#_block}, or -1.
+		 */
+		private int _current = -1;
+
+		SeekableReader(SeekableByteChannel channel) throws IOException {
+			super(positioned(channel));
+			_file = channel;
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE + 8 + TRAILER_SIZE)
+				throw new EOFException("Unexpected end of compressed stream"); //$NON-NLS-1$
+			ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+			channel.position(fileSize - TRAILER_SIZE);
+			readFully(trailer);
+			_size = trailer.getLong();
+			long indexPosition = trailer.getLong();
+			if (trailer.getInt() != MAGIC)
+				throw new IOException("Incomplete compressed stream"); //$NON-NLS-1$
+			long nBlocks = _size == 0 ? 0 : (_size - 1) / _blockSize + 1;
+			if (_size < 0 || indexPosition < HEADER_SIZE ||
+					indexPosition + 4 + nBlocks * 8 + TRAILER_SIZE != fileSize)
+				throw new IOException("Invalid compressed stream index"); //$NON-NLS-1$
+			ByteBuffer index = ByteBuffer.allocate(4 + (int) nBlocks * 8);
+			channel.position(indexPosition);
+			readFully(index);
+			if (index.getInt() != nBlocks)
+				throw new IOException("Invalid number of blocks"); //$NON-NLS-1$
+			_positions = new long[(int) nBlocks];
+			for (int i = 0; i < nBlocks; i++) {
+				_positions[i] = index.getLong();
+				if (_positions[i] < HEADER_SIZE || _positions[i] >= indexPosition)
+					throw new IOException("Invalid block position " + _positions[i]); //$NON-NLS-1$
+			}
+		}
+
+		private static SeekableByteChannel positioned(SeekableByteChannel channel) throws IOException {
+			channel.position(0);
+			return channel;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (_position >= _size)
+				return -1;
+			int i = (int) (_position / _blockSize);
+			if (i != _current) {
+				_current = -1;
+				_file.position(_positions[i]);
+				long expected = Math.min(_blockSize, _size - (long) i * _blockSize);
+				if (!readBlock() || _blockLength != expected)
+					throw new IOException("Invalid block " + i); //$NON-NLS-1$
+				_current = i;
+			}
+			int offset = (int) (_position - (long) i * _blockSize);
+			int k = Math.min(dst.remaining(), _blockLength - offset);
+			dst.put(_block, offset, k);
+			_position += k;
+			return k;
+		}
+
+		@Override
+		public long position() {
+			return _position;
+		}
+
+		@Override
+		public SeekableByteChannel position(long newPosition) {
+			if (newPosition < 0)
+				throw new IllegalArgumentException();
+			_position = newPosition;
+			return this;
+		}
+		/**
+		 * Returns the size of the stream before compression.
+		 */
+		@Override
+		public long size() {
+			return _size;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public SeekableByteChannel truncate(long size) {
+			throw new NonWritableChannelException();
+		}
+
+		@Override
+		public boolean isOpen() {
+			return _file.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			closeReader();
+		}
+	}
+}
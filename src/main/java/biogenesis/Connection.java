@@ -17,7 +17,9 @@
  */
 package biogenesis;
 
+import java.io.IOException;
 import java.net.InetAddress;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 /**
@@ -46,9 +48,9 @@ public class Connection {
 	 */
 	protected int netCode;
 	/**
-	 * A reference to the main application in order to obtain some its information.
+	 * A reference to the application in order to obtain some its information.
 	 */
-	protected MainWindow mainWindow;
+	protected NetHost host;
 	/**
 	 * The time that the connection will wait without receiving any signal from the
 	 * server on the other host before it tries to send a ping signal.
@@ -57,12 +59,16 @@ public class Connection {
 	/**
 	 * The time when the last message from the server on the other host was received
 	 */
-	private long time;
+	private volatile long time;
 	/**
 	 * A timer used to activate ping message to the server on the other host when
 	 * necessary
 	 */
 	private Timer timer;
+	/**
+	 * The network link used to talk with the other host, or null before connecting.
+	 */
+	protected volatile PeerLink link;
 	/**
 	 * The biological corridor used to receive organism from the other host
 	 */
@@ -103,16 +109,16 @@ public class Connection {
 	/**
 	 * Create a new connection to the specified IP address and port
 	 * 
-	 * @param app  Reference to the main application window
+	 * @param app  Reference to the application
 	 * @param a  Address of the remote host
 	 * @param p  Port of the remote host
 	 */	
-	public Connection(MainWindow app, InetAddress a, int p) {
+	public Connection(NetHost app, InetAddress a, int p) {
 		remotePort = p;
 		remoteAddress = a;
 		state = STATE_NOT_INITIALIZED;
 		netCode = Utils.random.nextInt();
-		mainWindow = app;
+		host = app;
 		createCorridors();
 	}
 	/**
@@ -121,67 +127,90 @@ public class Connection {
 	 * to the remote server when this server is already connected with the remote
 	 * client.
 	 * 
-	 * @param app  Reference to the main application window
+	 * @param app  Reference to the application
 	 * @param a  Address of the remote host
 	 * @param p  Port of the remote host
 	 * @param nCode  Identifying code to use for this connection
 	 */
-	public Connection(MainWindow app, InetAddress a, int p, int nCode) {
+	public Connection(NetHost app, InetAddress a, int p, int nCode) {
 		remotePort = p;
 		remoteAddress = a;
 		state = STATE_NOT_INITIALIZED;
 		netCode = nCode;
-		mainWindow = app;
+		host = app;
 		createCorridors();	
 	}
 	/**
 	 * Create the pair of biological corridors, but don't add them to the world yet.
 	 */
 	private void createCorridors() {
-		inCorridor = new InCorridor(mainWindow.getWorld());
-		outCorridor = new OutCorridor(mainWindow.getWorld(), this);
+		inCorridor = new InCorridor(host.getWorld());
+		outCorridor = new OutCorridor(host.getWorld(), this);
 	}
 	/**
-	 * Send a message to the remote host server. The message is send in a new thread and
-	 * the method returns immidiately.
+	 * Send a message to the remote host server. The message is queued in the
+	 * connection's link and the method returns immidiately. Nothing is sent if
+	 * the connection has no link.
 	 * 
 	 * @param m  the message to send. See {@link NetServerThread} to see the possible
 	 * messages to send. 
 	 */
 	public void send(int m) {
-		NetSend n = new NetSend(this, m, null);
-		n.start();
+		PeerLink l = link;
+		if (l != null)
+			l.send(m);
 	}
 	/**
-	 * Send a genetic code to the remote host server. The code is send in a new thread
-	 * and the method returns immidiately.
+	 * Send a batch of genetic codes to the remote host server. The codes are
+	 * queued in the connection's link and the method returns immidiately. The
+	 * remote host answers with a {@link NetServerThread#CODES_RECEIVED} message,
+	 * or {@link NetServerThread#TOO_MANY_CODES} if it has refused the last codes.
 	 * 
-	 * @param c  the genetic code to send.
+	 * @param batch  a number that identifies the batch.
+	 * @param codes  the genetic codes, at most {@link OutCorridor#MAX_BATCH}.
 	 */
-	public void send(GeneticCode c) {
-		NetSend n = new NetSend(this, NetServerThread.SEND_CODE, c);
-		n.start();
+	public void send(int batch, List<GeneticCode> codes) {
+		PeerLink l = link;
+		if (l != null)
+			l.sendCodes(batch, codes);
 	}
 	/**
-	 * Inform the connection that its state has changed. Used by {@link NetSend} and
+	 * Set the link used to talk with the other host. A previous link is closed.
+	 * 
+	 * @param l  the new link.
+	 */
+	public void setLink(PeerLink l) {
+		PeerLink old = link;
+		l.setConnection(this);
+		link = l;
+		if (old != null && old != l) {
+			old.close();
+			// Batches sent through the old link won't be acknowledged
+			outCorridor.linkChanged();
+		}
+	}
+	/**
+	 * Inform the connection that its state has changed. Used by {@link PeerLink} and
 	 * {@link NetServerThread}.
 	 * 
 	 * @param newState  STATE_CONNECTED if the connection has been stablished or 
 	 * STATE_DISCONNECTED if the connection has been closed.
 	 */
-	public void setState(int newState) {
+	public synchronized void setState(int newState) {
 		if (state != newState) {
 			if (newState == STATE_CONNECTED) {
-				mainWindow.getWorld().addCorridors(inCorridor, outCorridor);
+				host.getWorld().addCorridors(inCorridor, outCorridor);
 				keepAliveThread();
-				mainWindow.setStatusMessage(Messages.getString("T_CONNECTION_STABLISHED", remoteAddress.toString())); //$NON-NLS-1$
+				host.setStatusMessage(Messages.getString("T_CONNECTION_STABLISHED", remoteAddress.toString())); //$NON-NLS-1$
 			}
 			if (newState == STATE_DISCONNECTED) {
 				if (timer != null)
 					timer.cancel();
-				mainWindow.setStatusMessage(Messages.getString("T_CONNECTION_LOST", remoteAddress.toString())); //$NON-NLS-1$
-				mainWindow.getWorld().removeCorridors(inCorridor, outCorridor);
-				mainWindow.serverThread.removeConnection(this);
+				if (link != null)
+					link.close();
+				host.setStatusMessage(Messages.getString("T_CONNECTION_LOST", remoteAddress.toString())); //$NON-NLS-1$
+				host.getWorld().removeCorridors(inCorridor, outCorridor);
+				host.getNetServer().removeConnection(this);
 			}
 		}
 		state = newState;
@@ -195,13 +224,21 @@ public class Connection {
 		return state;
 	}
 	/**
-	 * Send a request connection message to the remote host. This is the same
-	 * as calling {@code send(NetServerThread.CONNECT)}.
+	 * Open a link with the remote host and send a request connection message
+	 * through it. The link is completed by the server thread and this method
+	 * returns immidiately.
 	 */
 	public void connect() {
-		// send a connection message
-		NetSend n = new NetSend(this, NetServerThread.CONNECT, null);
-		n.start();
+		try {
+			PeerLink l = PeerLink.open(host.getNetServer(), remoteAddress, remotePort);
+			setLink(l);
+			System.out.println("----- Connecting..."); //$NON-NLS-1$
+			l.send(NetServerThread.CONNECT, Utils.VERSION, Utils.LOCAL_PORT, netCode);
+			l.start();
+		} catch (IOException e) {
+			System.out.println("Connection, IOException: "+e.getMessage()); //$NON-NLS-1$
+			setState(STATE_DISCONNECTED);
+		}
 	}
 	/**
 	 * Inform the connection that a message from the server has been received in
@@ -229,13 +266,11 @@ public class Connection {
 	}
 	/**
 	 * Make sure the connection is alive. If enough time has passed since the last
-	 * message from the remote server, send a ping. This is done in a separated thread
-	 * and this method returns immidiately.
+	 * message from the remote server, send a ping. The ping is queued in the
+	 * connection's link and this method returns immidiately.
 	 */
 	protected void keepAlive() {
-		if (System.currentTimeMillis() - time > CHECK_CONNECTION_TIME) {
-			NetSend n = new NetSend(this, NetServerThread.KEEP_ALIVE, null);
-			n.start();
-		}
+		if (System.currentTimeMillis() - time > CHECK_CONNECTION_TIME)
+			send(NetServerThread.KEEP_ALIVE);
 	}
 }
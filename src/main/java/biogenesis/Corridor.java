@@ -30,8 +30,8 @@ public abstract class Corridor extends Rectangle {
 		world = w;
 		width = Math.min(100, world.getWidth());
 		height = Math.min(100, world.getHeight());
-		x = Utils.random.nextInt(world.getWidth()-width);
-		y = Utils.random.nextInt(world.getHeight()-height);
+		x = world._random.nextInt(world.getWidth()-width);
+		y = world._random.nextInt(world.getHeight()-height);
 	}
 	public Organism getTravellingOrganism() {
 		return travellingOrganism;
@@ -0,0 +1,696 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only binary log of what happens in a {@link World}, tagged with
+ * the frame when it happened. Together with the snapshots written while it
+ * is open, it allows to rebuild the world at any frame with
+ * {@link #rebuild(File, long)}: the nearest previous snapshot is loaded and
+ * the world is run again until that frame.
+ *
+ * As a world with the same random state always evolves in the same way,
+ * births, deaths and infections are only written to know the history of the
+ * world. What must be replayed are the things that don't depend on the world
+ * itself: the interventions of the user (feed, kill, paste, etc.), the
+ * organisms that arrive from or leave to other worlds, and the
+ * {@link #checkpoint(World, File) checkpoints}. Each one of them is written
+ * together with the state of the world's random number generator after it,
+ * so that a replayed world continues exactly as the original one.
+ *
+ * Entries are encoded in the thread that runs the world into an in-memory
+ * buffer, which is written to disk by a background thread when it is full
+ * or every {@link #BATCH_FRAMES} frames. Writing the journal never blocks
+ * the simulation.
+ *
+ * A journal starts with {@link #MAGIC} and its version. Then, every entry
+ * has its type as one byte, the frame as a long and the data of its type.
+ * A journal cut by a crash can still be read up to its last complete entry.
+ */
+public class EventJournal implements WorldListener {
+	/**
+	 * First four bytes of a journal: "BGJL".
+	 */
+	static final int MAGIC = 0x42474A4C;
+	/**
+	 * Version of the format written by this class.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Maximum number of frames that entries wait in memory before being written.
+	 */
+	static final int BATCH_FRAMES = 256;
+	/**
+	 * An organism has been born. Data: child's ID, parent's ID.
+	 */
+	static final int BIRTH = 1;
+	/**
+	 * An organism has died. Data: its ID, killer's ID or -1.
+	 */
+	static final int DEATH = 2;
+	/**
+	 * An organism has been infected. Data: its ID, infecting organism's ID.
+	 */
+	static final int INFECTION = 3;
+	/**
+	 * An organism has arrived from another world. Data: its ID, position,
+	 * angle and genetic code.
+	 */
+	static final int ARRIVAL = 4;
+	/**
+	 * An organism has left to another world. Data: its ID.
+	 */
+	static final int DEPARTURE = 5;
+	/**
+	 * Input corridors have been processed. Data: random state.
+	 */
+	static final int CORRIDORS = 6;
+	/**
+	 * A snapshot has been taken. Data: the file where it is written.
+	 */
+	static final int CHECKPOINT = 7;
+	/**
+	 * Interventions of the user on an organism. Data: its ID, random state.
+	 */
+	static final int FEED = 8;
+	static final int WEAKEN = 9;
+	static final int KILL = 10;
+	static final int REVIVE = 11;
+	static final int DISPERSE = 12;
+	static final int REPRODUCE = 13;
+	static final int REJUVENATE = 14;
+	/**
+	 * The user has put an organism in the world. Data: position, genetic
+	 * code, random state.
+	 */
+	static final int PASTE = 15;
+	/**
+	 * Interventions of the user on the whole world. Data: random state.
+	 */
+	static final int KILL_ALL = 16;
+	static final int DISPERSE_ALL = 17;
+	/**
+	 * The user has changed the amount of CO2. Data: amount, random state.
+	 */
+	static final int CO2 = 18;
+
+	private final WorldSnapshot.Output _out;
+	private final FileChannel _channel;
+	private final ExecutorService _writer = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Biogenesis journal"); //$NON-NLS-1$
+		t.setDaemon(true);
+		return t;
+	});
+	/**
+	 * Frame of the last time the buffer was handed to the writer.
+	 */
+	private long _lastBatch;
+	/**
+	 * The first error found while writing, or null.
+	 */
+	private volatile IOException _error;
+	private boolean _closed = false;
+
+	/**
+	 * Creates a new journal, replacing the file if it exists.
+	 *
+	 * @param f  The file.
+	 * @throws IOException  if the file can't be created.
+	 */
+	public EventJournal(File f) throws IOException {
+		_channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		_out = new WorldSnapshot.Output(new BatchChannel());
+		_out.putInt(MAGIC);
+		_out.putInt(VERSION);
+	}
+	/**
+	 * Receives the buffer of {@link #_out} when it is flushed and gives a
+	 * copy to the writer thread.
+	 */
+	private class BatchChannel implements WritableByteChannel {
+		@Override
+		public int write(ByteBuffer src) {
+			int n = src.remaining();
+			ByteBuffer batch = ByteBuffer.allocate(n);
+			batch.put(src).flip();
+			_writer.execute(() -> {
+				try {
+					while (batch.hasRemaining())
+						_channel.write(batch);
+				} catch (IOException e) {
+					if (_error == null) {
+						_error = e;
+						System.err.println(e.getMessage());
+					}
+				}
+			});
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+			// The file is closed by the journal
+		}
+	}
+	/**
+	 * Returns the first error found while writing the journal.
+	 *
+	 * @return  The error, or null if everything has been written.
+	 */
+	public IOException getError() {
+		return _error;
+	}
+	/**
+	 * Writes a checkpoint: from now on, the world can be rebuilt from the given
+	 * snapshot. It must be called just after copying the world, before any
+	 * other change.
+	 *
+	 * @param world  The world.
+	 * @param snapshot  The file where the copy of the world is written.
+	 */
+	public synchronized void checkpoint(World world, File snapshot) {
+		byte[] path = snapshot.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+		try {
+			begin(CHECKPOINT, world);
+			_out.putInt(path.length);
+			for (byte b : path)
+				_out.putByte(b);
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes an intervention of the user. It must be called after the
+	 * intervention has been done.
+	 *
+	 * @param type  The type of intervention, from {@link #FEED} to {@link #REJUVENATE},
+	 * {@link #KILL_ALL} or {@link #DISPERSE_ALL}.
+	 * @param world  The world.
+	 * @param org  The organism that has received the intervention, or null.
+	 */
+	public synchronized void intervention(int type, World world, Organism org) {
+		try {
+			begin(type, world);
+			_out.putInt(org == null ? -1 : org.getID());
+			_out.putLong(world._random.getState());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes that the user has put an organism in the world.
+	 *
+	 * @param world  The world.
+	 * @param code  The genetic code of the organism.
+	 * @param x  The x coordinate where it has been put.
+	 * @param y  The y coordinate where it has been put.
+	 */
+	public synchronized void paste(World world, GeneticCode code, int x, int y) {
+		try {
+			begin(PASTE, world);
+			_out.putInt(x);
+			_out.putInt(y);
+			WorldSnapshot.writeGeneticCode(_out, code);
+			_out.putLong(world._random.getState());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes that the user has changed the amount of CO2 in the atmosphere.
+	 *
+	 * @param world  The world.
+	 * @param amount  The amount added, or removed if it is negative.
+	 */
+	public synchronized void co2(World world, double amount) {
+		try {
+			begin(CO2, world);
+			_out.putDouble(amount);
+			_out.putLong(world._random.getState());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes that an organism has arrived from another world.
+	 *
+	 * @param world  The world.
+	 * @param org  The organism, already in the world.
+	 */
+	public synchronized void arrival(World world, Organism org) {
+		try {
+			begin(ARRIVAL, world);
+			_out.putInt(org.getID());
+			_out.putInt(org._centerX);
+			_out.putInt(org._centerY);
+			_out.putDouble(org._theta);
+			WorldSnapshot.writeGeneticCode(_out, org.getGeneticCode());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes that an organism has left to another world.
+	 *
+	 * @param world  The world.
+	 * @param org  The organism.
+	 */
+	public synchronized void departure(World world, Organism org) {
+		organismEvent(DEPARTURE, world, org, null);
+	}
+	/**
+	 * Writes the state of the random number generator after processing the
+	 * input corridors, that use it in ways that can't be replayed.
+	 *
+	 * @param world  The world.
+	 */
+	public synchronized void corridors(World world) {
+		try {
+			begin(CORRIDORS, world);
+			_out.putLong(world._random.getState());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+	/**
+	 * Writes all entries in memory and waits until they are on disk.
+	 */
+	public void flush() {
+		synchronized (this) {
+			if (_closed)
+				return;
+			try {
+				_out.flush();
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+		try {
+			_writer.submit(() -> {
+				_channel.force(false);
+				return null;
+			}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			failed(e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause()));
+		}
+	}
+	/**
+	 * Writes all entries in memory and closes the file.
+	 */
+	public void close() {
+		flush();
+		synchronized (this) {
+			_closed = true;
+		}
+		_writer.shutdown();
+		try {
+			_writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			_channel.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+
+	@Override
+	public void worldReset(World world) {
+		// A new world must use a new journal
+	}
+
+	@Override
+	public synchronized void organismAdded(Organism child, Organism parent) {
+		// Organisms without parent are written by paste or arrival
+		if (parent != null)
+			organismEvent(BIRTH, child._world, child, parent);
+	}
+
+	@Override
+	public void organismRemoved(Organism org) {
+		// Always follows its death
+	}
+
+	@Override
+	public synchronized void organismDied(Organism dyingOrganism, Organism killingOrganism) {
+		organismEvent(DEATH, dyingOrganism._world, dyingOrganism, killingOrganism);
+	}
+
+	@Override
+	public synchronized void organismInfected(Organism infectedOrganism, Organism infectingOrganism) {
+		organismEvent(INFECTION, infectedOrganism._world, infectedOrganism, infectingOrganism);
+	}
+
+	@Override
+	public void corridorsRemoved(InCorridor in, OutCorridor out) {
+		// Nothing to write
+	}
+	/**
+	 * Hands the entries in memory to the writer if they have been waiting
+	 * for {@link #BATCH_FRAMES} frames.
+	 */
+	@Override
+	public synchronized void frameFinished(World world) {
+		long frame = world.getFrame();
+		if (frame - _lastBatch >= BATCH_FRAMES || frame < _lastBatch) {
+			_lastBatch = frame;
+			try {
+				_out.flush();
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+	}
+
+	private void organismEvent(int type, World world, Organism org, Organism other) {
+		try {
+			begin(type, world);
+			_out.putInt(org.getID());
+			if (type != DEPARTURE)
+				_out.putInt(other == null ? -1 : other.getID());
+		} catch (IOException e) {
+			failed(e);
+		}
+	}
+
+	private void begin(int type, World world) throws IOException {
+		if (_closed)
+			throw new IOException("The journal is closed"); //$NON-NLS-1$
+		_out.putByte(type);
+		_out.putLong(world.getFrame());
+	}
+
+	private void failed(IOException e) {
+		if (_error == null) {
+			_error = e;
+			System.err.println(e.getMessage());
+		}
+	}
+	/**
+	 * Rebuilds a world as it was at the end of a frame, using the latest
+	 * checkpoint of the journal before that frame whose snapshot can still
+	 * be read. If a snapshot has been replaced by a newer autosave, its
+	 * previous generations are tried too.
+	 *
+	 * @param journal  The journal.
+	 * @param frame  The frame.
+	 * @return  A world without user interface at the given frame.
+	 * @throws IOException  if the journal can't be read or there isn't any
+	 * usable checkpoint before the frame.
+	 */
+	public static World rebuild(File journal, long frame) throws IOException {
+		Replay replay = Replay.read(journal, frame);
+		for (int i = replay._checkpoints.size() - 1; i >= 0; i--) {
+			Entry checkpoint = replay._checkpoints.get(i);
+			World world = loadCheckpoint(checkpoint);
+			if (world != null) {
+				replay.run(world, checkpoint._index, frame);
+				return world;
+			}
+		}
+		throw new IOException("No snapshot available before frame " + frame); //$NON-NLS-1$
+	}
+
+	private static World loadCheckpoint(Entry checkpoint) {
+		File f = new File(checkpoint._path);
+		for (int i = 0; ; i++) {
+			File candidate = Autosave.generation(f.toPath(), i).toFile();
+			if (!candidate.exists())
+				break;
+			try {
+				World world = WorldSnapshot.load(candidate);
+				if (world.getFrame() == checkpoint._frame)
+					return world;
+			} catch (IOException e) {
+				// Try the next one
+			}
+		}
+		return null;
+	}
+	/**
+	 * One entry read from a journal.
+	 */
+	static class Entry {
+		int _type;
+		long _frame;
+		int _id;
+		int _x, _y;
+		double _value;
+		long _random;
+		GeneticCode _code;
+		String _path;
+		/**
+		 * For checkpoints, the number of inputs read before it.
+		 */
+		int _index;
+	}
+	/**
+	 * The entries of a journal that must be applied again to rebuild a world,
+	 * and the hooks used by the {@link World} being rebuilt to apply them.
+	 */
+	static class Replay {
+		/**
+		 * Entries that don't depend on the world, in order.
+		 */
+		final List<Entry> _inputs = new ArrayList<>();
+		final List<Entry> _checkpoints = new ArrayList<>();
+		private Iterator<Entry> _next;
+		private Entry _pending;
+
+		/**
+		 * Reads the entries of a journal up to a frame.
+		 */
+		static Replay read(File f, long lastFrame) throws IOException {
+			Replay replay = new Replay();
+			try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+				WorldSnapshot.Input in = new WorldSnapshot.Input(channel);
+				if (in.getInt() != MAGIC)
+					throw new IOException("Not a Biogenesis journal"); //$NON-NLS-1$
+				int version = in.getInt();
+				if (version > VERSION)
+					throw new IOException("Unsupported journal version " + version); //$NON-NLS-1$
+				try {
+					while (!in.atEnd()) {
+						Entry e = readEntry(in);
+						if (e._frame > lastFrame)
+							break;
+						if (e._type == CHECKPOINT) {
+							e._index = replay._inputs.size();
+							replay._checkpoints.add(e);
+						} else if (e._type >= ARRIVAL) {
+							replay._inputs.add(e);
+						}
+					}
+				} catch (EOFException e) {
+					// The last entry was not completely written
+				}
+			}
+			return replay;
+		}
+
+		private static Entry readEntry(WorldSnapshot.Input in) throws IOException {
+			Entry e = new Entry();
+			e._type = in.getByte();
+			e._frame = in.getLong();
+			switch (e._type) {
+			case BIRTH:
+			case DEATH:
+			case INFECTION:
+				e._id = in.getInt();
+				in.getInt();
+				break;
+			case ARRIVAL:
+				e._id = in.getInt();
+				e._x = in.getInt();
+				e._y = in.getInt();
+				e._value = in.getDouble();
+				e._code = WorldSnapshot.readGeneticCode(in);
+				break;
+			case DEPARTURE:
+				e._id = in.getInt();
+				break;
+			case CORRIDORS:
+				e._random = in.getLong();
+				break;
+			case CHECKPOINT:
+				byte[] path = new byte[in.getInt()];
+				for (int i = 0; i < path.length; i++)
+					path[i] = (byte) in.getByte();
+				e._path = new String(path, StandardCharsets.UTF_8);
+				break;
+			case PASTE:
+				e._x = in.getInt();
+				e._y = in.getInt();
+				e._code = WorldSnapshot.readGeneticCode(in);
+				e._random = in.getLong();
+				break;
+			case CO2:
+				e._value = in.getDouble();
+				e._random = in.getLong();
+				break;
+			default:
+				if (e._type < FEED || e._type > DISPERSE_ALL)
+					throw new IOException("Invalid journal entry " + e._type); //$NON-NLS-1$
+				e._id = in.getInt();
+				e._random = in.getLong();
+			}
+			return e;
+		}
+		/**
+		 * Runs a world from its current frame to the given one, applying
+		 * the inputs from the given position.
+		 */
+		void run(World world, int from, long lastFrame) {
+			_next = _inputs.subList(from, _inputs.size()).iterator();
+			_pending = _next.hasNext() ? _next.next() : null;
+			world._replay = this;
+			try {
+				while (world.getFrame() < lastFrame) {
+					applyInterventions(world);
+					world.time();
+				}
+			} finally {
+				world._replay = null;
+			}
+		}
+		/**
+		 * Applies the interventions done by the user before the next frame.
+		 */
+		private void applyInterventions(World world) {
+			long frame = world.getFrame();
+			skipUntil(frame);
+			while (_pending != null && _pending._frame == frame && _pending._type >= FEED) {
+				Entry e = _pending;
+				Organism org = e._id < 0 ? null : world.findOrganism(e._id);
+				switch (e._type) {
+				case FEED:
+					world.feedOrganism(org);
+					break;
+				case WEAKEN:
+					world.weakenOrganism(org);
+					break;
+				case KILL:
+					world.killOrganism(org);
+					break;
+				case REVIVE:
+					world.reviveOrganism(org);
+					break;
+				case DISPERSE:
+					world.disperseOrganism(org);
+					break;
+				case REPRODUCE:
+					world.reproduceOrganism(org);
+					break;
+				case REJUVENATE:
+					world.rejuvenateOrganism(org);
+					break;
+				case PASTE:
+					world.pasteOrganism(e._code, e._x, e._y);
+					break;
+				case KILL_ALL:
+					world.killAll();
+					break;
+				case DISPERSE_ALL:
+					world.disperseAll();
+					break;
+				case CO2:
+					world.changeCO2(e._value);
+					break;
+				}
+				world._random.setState(e._random);
+				advance();
+			}
+		}
+		/**
+		 * Puts in the world the organisms that arrived from other worlds in
+		 * this frame. Called by {@link World#time()} instead of processing
+		 * the input corridors.
+		 *
+		 * @param world  The world being rebuilt.
+		 */
+		void corridors(World world) {
+			long frame = world.getFrame();
+			skipUntil(frame);
+			while (_pending != null && _pending._frame == frame &&
+					(_pending._type == ARRIVAL || _pending._type == CORRIDORS)) {
+				Entry e = _pending;
+				if (e._type == ARRIVAL) {
+					Organism org = new Organism(world, e._code);
+					org._theta = e._value;
+					if (org.pasteOrganism(e._x, e._y))
+						world.addOrganism(org, null);
+				} else {
+					world._random.setState(e._random);
+				}
+				advance();
+			}
+		}
+		/**
+		 * Checks if an organism left the world at this point of the frame.
+		 * Called by {@link World} instead of checking the output corridors.
+		 *
+		 * @param world  The world being rebuilt.
+		 * @param org  The organism that may leave.
+		 * @return  true if the organism left the world.
+		 */
+		boolean departs(World world, Organism org) {
+			if (_pending != null && _pending._type == DEPARTURE &&
+					_pending._frame == world.getFrame() && _pending._id == org.getID()) {
+				advance();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Discards entries of previous frames that couldn't be applied.
+		 * This only happens if the world doesn't evolve as the original one.
+		 */
+		private void skipUntil(long frame) {
+			while (_pending != null && _pending._frame < frame)
+				advance();
+		}
+
+		private void advance() {
+			_pending = _next.hasNext() ? _next.next() : null;
+		}
+	}
+}
@@ -50,7 +50,7 @@ public class FamilyTreePanel extends JPanel {
 	 */
 	public void display(final Organism organism) {
 		final World world = organism._world;
-		final java.util.List<Organism> familyTree = world.getWorldMemory().getFamilyTree(organism.getID());
+		final java.util.List<WorldMemory.Lineage> familyTree = world.getWorldMemory().getFamilyTree(organism.getID());
 		removeAll();
 
 		add(titleLabel, BorderLayout.NORTH);
@@ -59,10 +59,10 @@ public class FamilyTreePanel extends JPanel {
 		add(new JScrollPane(new JPanel() {
 			{
 				setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
-				Iterator<Organism> iterateFamily = familyTree.iterator();
+				Iterator<WorldMemory.Lineage> iterateFamily = familyTree.iterator();
 				while (iterateFamily.hasNext()) {
-					Organism parent = iterateFamily.next();
-					add(new OrganismEntryPanel(parent));
+					WorldMemory.Lineage parent = iterateFamily.next();
+					add(new OrganismEntryPanel(parent, organism._visibleWorld));
 					if (iterateFamily.hasNext()) {
 						add(new JLabel(Messages.getString("T_FATHERED"), SwingConstants.CENTER));
 					}
@@ -74,7 +74,7 @@ public class FamilyTreePanel extends JPanel {
 	}
 
 	static final class OrganismEntryPanel extends JPanel {
-		public OrganismEntryPanel(Organism organism) {
+		public OrganismEntryPanel(WorldMemory.Lineage organism, VisibleWorld visibleWorld) {
 			setLayout(new BorderLayout(5,5));
 			setMaximumSize(new Dimension(100, 100));
 
@@ -84,7 +84,7 @@ public class FamilyTreePanel extends JPanel {
 			}
 			add(new JLabel(dates), BorderLayout.NORTH);
 
-			final JPanel geneticCodePanel = new GeneticCodePanel(organism.getGeneticCode(), organism._visibleWorld);
+			final JPanel geneticCodePanel = new GeneticCodePanel(organism.getGeneticCode(), visibleWorld);
 			add(geneticCodePanel, BorderLayout.CENTER);
 
 			String label = String.valueOf(organism.getID());
@@ -20,6 +20,7 @@ package biogenesis;
 
 import java.io.*;
 import java.awt.*;
+import java.util.Random;
 
 /**
  * This class implements a single organism's gene. A gene is a colored segment.
@@ -33,6 +34,15 @@ public class Gene implements Cloneable, Serializable {
 	 * The version number of this class
 	 */
 	private static final long serialVersionUID = Utils.FILE_VERSION;
+	/**
+	 * Minimum length of a gene created by {@link #randomizeLength(Random)}.
+	 */
+	static final double MIN_LENGTH = 2.0;
+	/**
+	 * Maximum length of a gene created by {@link #randomizeLength(Random)}
+	 * or set in the lab.
+	 */
+	static final double MAX_LENGTH = 18.0;
 	private double _length = 0;
 	private double _theta = 0;
 	/**
@@ -62,11 +72,11 @@ public class Gene implements Cloneable, Serializable {
 		_color = color;
 	}
 
-	public void randomizeColor() {
+	public void randomizeColor(Random random) {
 		int max_prob = Utils.RED_PROB + Utils.GREEN_PROB + Utils.BLUE_PROB
 				+ Utils.CYAN_PROB + Utils.WHITE_PROB + Utils.GRAY_PROB
 				+ Utils.YELLOW_PROB;
-		int prob = Utils.random.nextInt(max_prob);
+		int prob = random.nextInt(max_prob);
 		int ac_prob = Utils.RED_PROB;
 		if (prob < ac_prob) {
 			_color = Color.RED;
@@ -100,12 +110,12 @@ public class Gene implements Cloneable, Serializable {
 		_color = Color.YELLOW;
 	}
 
-	public void randomizeLength() {
-		_length = 2.0 + Utils.random.nextDouble() * 16.0;
+	public void randomizeLength(Random random) {
+		_length = MIN_LENGTH + random.nextDouble() * (MAX_LENGTH - MIN_LENGTH);
 	}
 
-	public void randomizeTheta() {
-		_theta = Utils.random.nextDouble() * 2.0 * Math.PI;
+	public void randomizeTheta(Random random) {
+		_theta = random.nextDouble() * 2.0 * Math.PI;
 	}
 
 	/**
@@ -115,9 +125,18 @@ public class Gene implements Cloneable, Serializable {
 	 * preferences.
 	 */
 	public void randomize() {
-		randomizeLength();
-		randomizeTheta();
-		randomizeColor();
+		randomize(Utils.random);
+	}
+
+	/**
+	 * Randomize the component of this gene using the given random number generator.
+	 *
+	 * @param random  The random number generator to use.
+	 */
+	public void randomize(Random random) {
+		randomizeLength(random);
+		randomizeTheta(random);
+		randomizeColor(random);
 	}
 
 	/**
@@ -21,6 +21,7 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.io.*;
 import java.util.List;
+import java.util.Random;
 
 /**
  * This class implements a full organism's genetic code. A genetic code is
@@ -92,6 +93,16 @@ public class GeneticCode implements Cloneable, Serializable {
 	 * At the moment, this is the same for all organisms.
 	 */
 	protected int _max_age;
+	/**
+	 * Rotation tables of organisms with this genetic code, for every growth
+	 * ratio. They are created when they are first needed.
+	 */
+	transient private RotationTable[] _rotationTables;
+	/**
+	 * Hash of the contents of this genetic code, calculated when it is first
+	 * needed, or 0 if it hasn't been calculated yet.
+	 */
+	transient private long _genomeId;
 	// Getters
 	/**
 	 * Returns the symmetry applied to organisms with this genetic code
@@ -155,37 +166,37 @@ public class GeneticCode implements Cloneable, Serializable {
 	/**
 	 * Gives mirror a random value (0 or 1)
 	 */
-	private void randomMirror() {
-		_mirror = Utils.random.nextInt(2);
+	private void randomMirror(Random random) {
+		_mirror = random.nextInt(2);
 	}
 	/**
 	 * Gives symmetry a random value (2, 4 or 8)
 	 */
-	private void randomSymmetry() {
-		_symmetry = Utils.random.nextInt(8)+1;
+	private void randomSymmetry(Random random) {
+		_symmetry = random.nextInt(8)+1;
 	}
 	/**
 	 * Create a random genes array making sure that there will be more or equal than
 	 * MIN_SEGMENTS and less or equal than MAX_SEGMENTS segments.
 	 * It needs symmetry to have a valid value. 
 	 */
-	private void randomGenes() {
-		int nSegments = MIN_SEGMENTS + Utils.random.nextInt(MAX_SEGMENTS-MIN_SEGMENTS+1); // 4 - 64
+	private void randomGenes(Random random) {
+		int nSegments = MIN_SEGMENTS + random.nextInt(MAX_SEGMENTS-MIN_SEGMENTS+1); // 4 - 64
 		if (nSegments % _symmetry != 0)
 		    nSegments += (_symmetry - (nSegments % _symmetry));
 		int nGenes = nSegments / _symmetry;
 		_genes = new Gene[nGenes];
 		for (int i=0; i<nGenes; i++) {
 			_genes[i] = new Gene();
-			_genes[i].randomize();
+			_genes[i].randomize(random);
 		}
 	}
 	/**
 	 * Decide randomly if organisms with this genetic code will try to
 	 * disperse their children or not.
 	 */
-	private void randomDisperseChildren() {
-		_disperseChildren =  Utils.random.nextBoolean();
+	private void randomDisperseChildren(Random random) {
+		_disperseChildren =  random.nextBoolean();
 	}
 	/**
 	 * Calculates the energy required to reproduce this genetic code.
@@ -198,10 +209,18 @@ public class GeneticCode implements Cloneable, Serializable {
 	 * Creates a new random genetic code.
 	 */
 	public GeneticCode() {
-		randomMirror(); 
-		randomSymmetry();
-		randomGenes();
-		randomDisperseChildren();
+		this(Utils.random);
+	}
+	/**
+	 * Creates a new random genetic code using the given random number generator.
+	 *
+	 * @param random  The random number generator to use.
+	 */
+	public GeneticCode(Random random) {
+		randomMirror(random);
+		randomSymmetry(random);
+		randomGenes(random);
+		randomDisperseChildren(random);
 		calculateReproduceEnergy();
 		_max_age = Utils.MAX_AGE;
 	}	
@@ -231,6 +250,16 @@ public class GeneticCode implements Cloneable, Serializable {
 	 * @param parentCode  The genetic code that this code will be based on.
 	 */
 	public GeneticCode(GeneticCode parentCode) {
+		this(parentCode, Utils.random);
+	}
+	/**
+	 * Creates a new genetic code based on the father genetic code but
+	 * applying random mutations to it, using the given random number generator.
+	 * 
+	 * @param parentCode  The genetic code that this code will be based on.
+	 * @param random  The random number generator to use.
+	 */
+	public GeneticCode(GeneticCode parentCode, Random random) {
 		int i,j;
 		int addedGene = -1;
 		int removedGene = -1;
@@ -240,16 +269,16 @@ public class GeneticCode implements Cloneable, Serializable {
 		boolean randomColor;
 		boolean randomBack;
 		
-		if (Utils.randomMutation())
-			randomMirror();
+		if (Utils.randomMutation(random))
+			randomMirror(random);
 		else
 			_mirror = parentCode.getMirror();
-		if (Utils.randomMutation()) {
+		if (Utils.randomMutation(random)) {
 			// change symmetry
-			if (Utils.random.nextInt(10) < 2)
-				randomSymmetry();
+			if (random.nextInt(10) < 2)
+				randomSymmetry(random);
 			else
-				_symmetry = Utils.between(_symmetry+Utils.randomSign(), 1, 8);
+				_symmetry = Utils.between(_symmetry+Utils.randomSign(random), 1, 8);
 			nGenes = parentCode.getNGenes();
 			if (nGenes * _symmetry > MAX_SEGMENTS) {
 				_symmetry = parentCode.getSymmetry();
@@ -257,15 +286,15 @@ public class GeneticCode implements Cloneable, Serializable {
 		} else {
 			// keep symmetry
 			_symmetry = parentCode.getSymmetry();
-			if (Utils.randomMutation()) {
+			if (Utils.randomMutation(random)) {
 			// change number of segments
-				if (Utils.random.nextBoolean()) {
+				if (random.nextBoolean()) {
 				// increase segments
 					if (parentCode.getNGenes() * parentCode.getSymmetry() >= MAX_SEGMENTS)
 						nGenes = parentCode.getNGenes();
 					else {
 						nGenes = parentCode.getNGenes() + 1;
-						addedGene = Utils.random.nextInt(nGenes);
+						addedGene = random.nextInt(nGenes);
 					}
 				} else {
 				// decrease segments
@@ -273,7 +302,7 @@ public class GeneticCode implements Cloneable, Serializable {
 						nGenes = parentCode.getNGenes();
 					else {
 						nGenes = parentCode.getNGenes() - 1;
-						removedGene = Utils.random.nextInt(parentCode.getNGenes());
+						removedGene = random.nextInt(parentCode.getNGenes());
 					}
 				}
 			} else {
@@ -290,39 +319,39 @@ public class GeneticCode implements Cloneable, Serializable {
 			}
 			if (addedGene == i) {
 				_genes[i] = new Gene();
-				_genes[i].randomize();
+				_genes[i].randomize(random);
 				j--;
 				continue;
 			}
 			randomLength = randomTheta = randomColor = randomBack = false;
-			if (Utils.randomMutation())
+			if (Utils.randomMutation(random))
 				randomLength = true;
-			if (Utils.randomMutation())
+			if (Utils.randomMutation(random))
 				randomTheta = true;
-			if (Utils.randomMutation())
+			if (Utils.randomMutation(random))
 				randomColor = true;
-			if (Utils.randomMutation())
+			if (Utils.randomMutation(random))
 				randomBack = true;
 			if (randomLength || randomTheta || randomColor || randomBack) {
 				_genes[i] = new Gene();
 				if (randomLength)
-					_genes[i].randomizeLength();
+					_genes[i].randomizeLength(random);
 				else
 					_genes[i].setLength(parentCode.getGene(j).getLength());
 				if (randomTheta)
-					_genes[i].randomizeTheta();
+					_genes[i].randomizeTheta(random);
 				else
 					_genes[i].setTheta(parentCode.getGene(j).getTheta());
 				if (randomColor)
-					_genes[i].randomizeColor();
+					_genes[i].randomizeColor(random);
 				else
 					_genes[i].setColor(parentCode.getGene(j).getColor());
 			} else
 				_genes[i] = parentCode.getGene(j);
 		}
 
-		if (Utils.randomMutation())
-			randomDisperseChildren();
+		if (Utils.randomMutation(random))
+			randomDisperseChildren(random);
 		else
 			_disperseChildren = parentCode.getDisperseChildren();
 		calculateReproduceEnergy();
@@ -340,11 +369,115 @@ public class GeneticCode implements Cloneable, Serializable {
 			newCode._genes = new Gene[_genes.length];
 			for (int i=0; i<_genes.length; i++)
 				newCode._genes[i] = (Gene) _genes[i].clone();
+			newCode._rotationTables = null;
+			newCode._genomeId = 0;
 		} catch (CloneNotSupportedException e) {// We should never reach this
 		}
 		return newCode;
 	}
+	/**
+	 * Returns a 64 bits hash of the contents of this genetic code. Genetic
+	 * codes with the same genes, symmetry, mirroring, dispersion, reproduce
+	 * energy and maximum age have the same identifier in any world, so it
+	 * can be used to refer to a genetic code without sending or storing it
+	 * again. Different genetic codes could have the same identifier, although
+	 * this is very unlikely.
+	 *
+	 * The genetic code must not be changed after calling this method.
+	 *
+	 * @return  The identifier, never 0.
+	 */
+	public long getGenomeId() {
+		long h = _genomeId;
+		if (h == 0) {
+			h = mix(0x6267656E6F6D6531L, _symmetry);
+			h = mix(h, _mirror);
+			h = mix(h, _disperseChildren ? 1 : 0);
+			h = mix(h, _reproduceEnergy);
+			h = mix(h, _max_age);
+			h = mix(h, _genes.length);
+			for (Gene gene : _genes) {
+				h = mix(h, Double.doubleToLongBits(gene.getLength()));
+				h = mix(h, Double.doubleToLongBits(gene.getTheta()));
+				h = mix(h, gene.getColor() == null ? 0 : gene.getColor().getRGB());
+			}
+			// Final avalanche, as in MurmurHash3
+			h ^= h >>> 33;
+			h *= 0xFF51AFD7ED558CCDL;
+			h ^= h >>> 33;
+			h *= 0xC4CEB9FE1A85EC53L;
+			h ^= h >>> 33;
+			if (h == 0)
+				h = 1;
+			_genomeId = h;
+		}
+		return h;
+	}
+
+	private static long mix(long h, long v) {
+		return Long.rotateLeft(h ^ (v * 0x9E3779B97F4A7C15L), 31) * 0xBF58476D1CE4E5B9L;
+	}
+	/**
+	 * Two genetic codes are equal if they have the same genes, symmetry,
+	 * mirroring, dispersion, reproduce energy and maximum age. Organisms with
+	 * equal genetic codes are identical, so they can share the same instance.
+	 *
+	 * @see GenomePool
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o == this)
+			return true;
+		if (!(o instanceof GeneticCode))
+			return false;
+		GeneticCode other = (GeneticCode) o;
+		if (getGenomeId() != other.getGenomeId() || _symmetry != other._symmetry ||
+				_mirror != other._mirror || _disperseChildren != other._disperseChildren ||
+				_reproduceEnergy != other._reproduceEnergy || _max_age != other._max_age ||
+				_genes.length != other._genes.length)
+			return false;
+		for (int i = 0; i < _genes.length; i++) {
+			if (!sameGene(_genes[i], other._genes[i]))
+				return false;
+		}
+		return true;
+	}
+	/**
+	 * Checks if two genes have the same length, angle and color.
+	 */
+	static boolean sameGene(Gene a, Gene b) {
+		return a == b || (Double.doubleToLongBits(a.getLength()) == Double.doubleToLongBits(b.getLength()) &&
+				Double.doubleToLongBits(a.getTheta()) == Double.doubleToLongBits(b.getTheta()) &&
+				java.util.Objects.equals(a.getColor(), b.getColor()));
+	}
+
+	@Override
+	public int hashCode() {
+		long h = getGenomeId();
+		return (int) (h ^ (h >>> 32));
+	}
 	
+	/**
+	 * Returns the rotation table shared by all organisms with this genetic code
+	 * and the given growth ratio. If it doesn't exist yet, it is created from
+	 * the segments of the organism that asks for it.
+	 *
+	 * @param growthRatio  The growth ratio of the organism.
+	 * @param s  The store with the segments of the organism.
+	 * @param base  Position of the first segment of the organism in the store.
+	 * @param segments  The number of segments of the organism.
+	 * @return  The rotation table.
+	 */
+	synchronized RotationTable getRotationTable(int growthRatio, SegmentStore s, int base, int segments) {
+		if (_rotationTables == null)
+			_rotationTables = new RotationTable[Utils.scale.length];
+		RotationTable table = _rotationTables[growthRatio-1];
+		if (table == null || table.getSegments() != segments) {
+			table = new RotationTable(s, base, segments);
+			_rotationTables[growthRatio-1] = table;
+		}
+		return table;
+	}
 	/**
 	 * Draws a representation of this genetic code. This representation
 	 * is equivalent to draw an adult organism with this genetic code and
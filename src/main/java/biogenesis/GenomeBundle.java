@@ -0,0 +1,324 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Reads and writes many genetic codes at once. A collection of genetic
+ * codes can be:
+ * <ul>
+ * <li>A directory with genetic code files, searched recursively.</li>
+ * <li>A zip archive with genetic code files.</li>
+ * <li>A bundle, a file with extension {@link #BUNDLE_EXTENSION} that
+ * contains {@link #MAGIC}, the format version, the number of genetic codes
+ * and, for every one of them, its name and the genetic code in the same
+ * binary format used by {@link WorldSnapshot}.</li>
+ * <li>A single genetic code file, only to be read.</li>
+ * </ul>
+ * Genetic codes are named after their file, relative to the directory or
+ * archive and without extension. Genetic code files are read with
+ * {@link BioXMLParser#readGeneticCode(InputStream)} and read or written by
+ * several threads at the same time.
+ */
+public class GenomeBundle {
+	/**
+	 * First four bytes of a bundle: "BGGB".
+	 */
+	static final int MAGIC = 0x42474742;
+	/**
+	 * Version of the bundle format written by this class.
+	 */
+	static final int VERSION = 1;
+	/**
+	 * Extension of bundles.
+	 */
+	public static final String BUNDLE_EXTENSION = "bgb"; //$NON-NLS-1$
+	/**
+	 * Extension of zip archives.
+	 */
+	public static final String ZIP_EXTENSION = "zip"; //$NON-NLS-1$
+	private static final String GENETIC_CODE_SUFFIX = "." + BioFileFilter.GENETIC_CODE_EXTENSION; //$NON-NLS-1$
+
+	private GenomeBundle() {
+	}
+	/**
+	 * Reads all genetic codes in a collection.
+	 *
+	 * @param source  A directory, zip archive, bundle or genetic code file.
+	 * @param threads  Number of threads used to read genetic code files.
+	 * @return  The genetic codes, by name.
+	 * @throws IOException  if the collection or any of its genetic codes
+	 * can't be read or is not valid.
+	 */
+	public static SortedMap<String,GeneticCode> read(File source, int threads) throws IOException {
+		if (source.isDirectory())
+			return readDirectory(source.toPath(), threads);
+		String name = source.getName();
+		if (hasExtension(name, ZIP_EXTENSION))
+			return readZip(source, threads);
+		if (hasExtension(name, BUNDLE_EXTENSION))
+			return readBundle(source);
+		SortedMap<String,GeneticCode> codes = new TreeMap<>();
+		try (InputStream in = Files.newInputStream(source.toPath())) {
+			codes.put(codeName(name), parse(name, in));
+		}
+		return codes;
+	}
+	/**
+	 * Writes genetic codes to a collection.
+	 *
+	 * @param codes  The genetic codes, by name. Names may contain '/' to
+	 * write them in subdirectories.
+	 * @param target  A zip archive or a bundle, that are replaced if they
+	 * exist, or otherwise a directory, that is created if it doesn't exist.
+	 * @param threads  Number of threads used to write genetic code files.
+	 * @throws IOException  if the collection can't be written.
+	 */
+	public static void write(Map<String,GeneticCode> codes, File target, int threads) throws IOException {
+		String name = target.getName();
+		if (hasExtension(name, ZIP_EXTENSION))
+			writeZip(codes, target, threads);
+		else if (hasExtension(name, BUNDLE_EXTENSION))
+			writeBundle(codes, target);
+		else
+			writeDirectory(codes, target.toPath(), threads);
+	}
+	/**
+	 * Copies all genetic codes from a collection to another one.
+	 *
+	 * @param source  The collection to read.
+	 * @param target  The collection to write.
+	 * @param threads  Number of threads used to read or write genetic code files.
+	 * @return  The number of genetic codes copied.
+	 * @throws IOException  if a collection can't be read or written.
+	 */
+	public static int convert(File source, File target, int threads) throws IOException {
+		SortedMap<String,GeneticCode> codes = read(source, threads);
+		write(codes, target, threads);
+		return codes.size();
+	}
+
+	private static SortedMap<String,GeneticCode> readDirectory(Path root, int threads) throws IOException {
+		List<Path> files;
+		try (Stream<Path> paths = Files.walk(root)) {
+			files = paths.filter(p -> hasExtension(p.getFileName().toString(), BioFileFilter.GENETIC_CODE_EXTENSION) &&
+					Files.isRegularFile(p)).collect(Collectors.toList());
+		}
+		List<GeneticCode> parsed = parallel(files, threads, p -> {
+			try (InputStream in = Files.newInputStream(p)) {
+				return parse(p.toString(), in);
+			}
+		});
+		SortedMap<String,GeneticCode> codes = new TreeMap<>();
+		for (int i = 0; i < files.size(); i++)
+			codes.put(codeName(root.relativize(files.get(i)).toString().replace(File.separatorChar, '/')), parsed.get(i));
+		return codes;
+	}
+
+	private static SortedMap<String,GeneticCode> readZip(File source, int threads) throws IOException {
+		try (ZipFile zip = new ZipFile(source)) {
+			List<ZipEntry> entries = Collections.list(zip.entries()).stream()
+					.filter(e -> !e.isDirectory() && hasExtension(e.getName(), BioFileFilter.GENETIC_CODE_EXTENSION))
+					.collect(Collectors.toList());
+			List<GeneticCode> parsed = parallel(entries, threads, e -> {
+				try (InputStream in = zip.getInputStream(e)) {
+					return parse(e.getName(), in);
+				}
+			});
+			SortedMap<String,GeneticCode> codes = new TreeMap<>();
+			for (int i = 0; i < entries.size(); i++)
+				codes.put(codeName(entries.get(i).getName()), parsed.get(i));
+			return codes;
+		}
+	}
+
+	private static SortedMap<String,GeneticCode> readBundle(File source) throws IOException {
+		try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+			WorldSnapshot.Input in = new WorldSnapshot.Input(channel);
+			if (in.getInt() != MAGIC)
+				throw new IOException("Not a Biogenesis genetic code bundle"); //$NON-NLS-1$
+			int version = in.getInt();
+			if (version > VERSION)
+				throw new IOException("Unsupported bundle version " + version); //$NON-NLS-1$
+			int n = in.getInt();
+			if (n < 0)
+				throw new IOException("Invalid number of genetic codes " + n); //$NON-NLS-1$
+			SortedMap<String,GeneticCode> codes = new TreeMap<>();
+			for (int i = 0; i < n; i++) {
+				String name = in.getString();
+				codes.put(name, WorldSnapshot.readGeneticCode(in));
+			}
+			return codes;
+		}
+	}
+
+	private static void writeDirectory(Map<String,GeneticCode> codes, Path root, int threads) throws IOException {
+		Files.createDirectories(root);
+		List<Map.Entry<String,GeneticCode>> entries = new ArrayList<>(codes.entrySet());
+		parallel(entries, threads, e -> {
+			Path file = root.resolve(e.getKey() + GENETIC_CODE_SUFFIX).normalize();
+			if (!file.startsWith(root.normalize()))
+				throw new IOException("Invalid genetic code name " + e.getKey()); //$NON-NLS-1$
+			Files.createDirectories(file.getParent());
+			Files.write(file, BioXMLParser.toXML(e.getValue()).getBytes(StandardCharsets.UTF_8));
+			return null;
+		});
+	}
+
+	private static void writeZip(Map<String,GeneticCode> codes, File target, int threads) throws IOException {
+		List<Map.Entry<String,GeneticCode>> entries = new ArrayList<>(codes.entrySet());
+		// Documents are built in parallel and compressed in order
+		List<byte[]> documents = parallel(entries, threads,
+				e -> BioXMLParser.toXML(e.getValue()).getBytes(StandardCharsets.UTF_8));
+		try (OutputStream out = Files.newOutputStream(target.toPath());
+				ZipOutputStream zip = new ZipOutputStream(out)) {
+			for (int i = 0; i < entries.size(); i++) {
+				zip.putNextEntry(new ZipEntry(entries.get(i).getKey() + GENETIC_CODE_SUFFIX));
+				zip.write(documents.get(i));
+				zip.closeEntry();
+			}
+		}
+	}
+
+	private static void writeBundle(Map<String,GeneticCode> codes, File target) throws IOException {
+		try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			WorldSnapshot.Output out = new WorldSnapshot.Output(channel);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(codes.size());
+			for (Map.Entry<String,GeneticCode> e : codes.entrySet()) {
+				out.putString(e.getKey());
+				WorldSnapshot.writeGeneticCode(out, e.getValue());
+			}
+			out.flush();
+		}
+	}
+
+	private static GeneticCode parse(String name, InputStream in) throws IOException {
+		try {
+			return BioXMLParser.readGeneticCode(in);
+		} catch (SAXException e) {
+			throw new IOException(name + ": " + e.getMessage(), e); //$NON-NLS-1$
+		}
+	}
+
+	private static boolean hasExtension(String name, String extension) {
+		return name.toLowerCase().endsWith("." + extension); //$NON-NLS-1$
+	}
+
+	private static String codeName(String fileName) {
+		int i = fileName.lastIndexOf('.');
+		return i > 0 ? fileName.substring(0, i) : fileName;
+	}
+	/**
+	 * Something that is done to every element of a list.
+	 */
+	private interface Task<T,R> {
+		R run(T item) throws IOException;
+	}
+	/**
+	 * Does a task for every element of a list using several threads.
+	 *
+	 * @return  The results, in the same order as the list.
+	 * @throws IOException  the first exception thrown by a task, in list order.
+	 */
+	private static <T,R> List<R> parallel(List<T> items, int threads, Task<T,R> task) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+		try {
+			List<Future<R>> futures = new ArrayList<>(items.size());
+			for (T item : items) {
+				Callable<R> callable = () -> task.run(item);
+				futures.add(pool.submit(callable));
+			}
+			List<R> results = new ArrayList<>(items.size());
+			for (Future<R> f : futures)
+				results.add(f.get());
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	/**
+	 * Copies genetic codes between directories, zip archives and bundles.
+	 *
+	 * @param args  Optionally --threads N, the collection to read and the collection to write.
+	 */
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int first = 0;
+		if (args.length == 4 && args[0].equals("--threads")) { //$NON-NLS-1$
+			try {
+				threads = Integer.parseInt(args[1]);
+			} catch (NumberFormatException e) {
+				threads = 0;
+			}
+			first = 2;
+		}
+		if (args.length - first != 2 || threads < 1) {
+			System.err.println("java -cp biogenesis.jar biogenesis.GenomeBundle [--threads N] SOURCE TARGET"); //$NON-NLS-1$
+			System.err.println("SOURCE and TARGET are directories, ." + ZIP_EXTENSION + " archives or ." + //$NON-NLS-1$ //$NON-NLS-2$
+					BUNDLE_EXTENSION + " bundles"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		try {
+			long start = System.nanoTime();
+			int n = convert(new File(args[first]), new File(args[first + 1]), threads);
+			System.out.println(n + " genetic codes copied in " + //$NON-NLS-1$
+					(System.nanoTime() - start) / 1000000 + " ms"); //$NON-NLS-1$
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+}
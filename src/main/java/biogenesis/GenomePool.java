@@ -0,0 +1,62 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps one instance of every different genetic code used in a world, so
+ * that organisms with equal genetic codes share it instead of having their
+ * own copy. Clones, which are born when no mutation happens, are the most
+ * common case.
+ *
+ * Genetic codes are compared by content, using
+ * {@link GeneticCode#getGenomeId()} as hash. They are only weakly
+ * referenced: when no organism uses a genetic code any more it is removed
+ * from the pool. Interned genetic codes must not be changed.
+ */
+public class GenomePool {
+	private final Map<GeneticCode,WeakReference<GeneticCode>> _pool = new WeakHashMap<>();
+
+	/**
+	 * Returns the instance in the pool equal to the given genetic code. If
+	 * there isn't any, the given genetic code is added to the pool.
+	 *
+	 * @param code  The genetic code, or null.
+	 * @return  The shared instance, or null if code is null.
+	 */
+	public synchronized GeneticCode intern(GeneticCode code) {
+		if (code == null)
+			return null;
+		WeakReference<GeneticCode> ref = _pool.get(code);
+		GeneticCode interned = ref == null ? null : ref.get();
+		if (interned == null) {
+			_pool.put(code, new WeakReference<>(code));
+			interned = code;
+		}
+		return interned;
+	}
+	/**
+	 * Returns the number of different genetic codes in the pool.
+	 */
+	public synchronized int size() {
+		return _pool.size();
+	}
+}
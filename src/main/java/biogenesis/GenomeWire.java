@@ -0,0 +1,208 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes the genetic codes sent to other hosts.
+ *
+ * Genetic codes travel in the binary form used by snapshots (see
+ * {@link WorldSnapshot#writeGeneticCode(WorldSnapshot.Output, GeneticCode)}):
+ * symmetry, mirroring, dispersion, reproduce energy, maximum age and the
+ * length, angle and color of each gene. Unlike Java serialization, it
+ * doesn't depend on the classes of the program, and reading it never
+ * creates other objects than genetic codes.
+ *
+ * A batch starts with the format version and the number of codes. Each code
+ * is written as its identifier ({@link GeneticCode#getGenomeId()}), its
+ * length and its bytes. Codes with a length of 0 are references to a code
+ * sent before: both sides of a link keep the last codes sent through it in
+ * a cache of {@link #CACHE_SIZE} entries, indexed by their identifier, and
+ * a code that is still in the cache is only sent as its identifier. As
+ * batches are read in the same order they are written, both caches are
+ * always equal. Bytes after the ones known by this version are skipped, so
+ * fields can be added to the end of a code.
+ *
+ * There is one instance for each link, used by the thread that runs the
+ * world to encode batches and by the network thread to decode them.
+ */
+public class GenomeWire {
+	/**
+	 * Version of the format.
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Number of genetic codes remembered by each side of a link. It must be
+	 * a power of two.
+	 */
+	public static final int CACHE_SIZE = 1024;
+
+	/**
+	 * Identifiers of the codes sent, by position in the cache.
+	 */
+	private final long[] _sent = new long[CACHE_SIZE];
+	/**
+	 * Codes received, by position in the cache.
+	 */
+	private final GeneticCode[] _received = new GeneticCode[CACHE_SIZE];
+
+	/**
+	 * Encodes a batch of genetic codes. Codes still in the cache of
+	 * codes sent are only written as a reference.
+	 *
+	 * @param batch  A number that identifies the batch.
+	 * @param codes  The genetic codes.
+	 * @return  The payload of a {@link NetServerThread#SEND_CODES} message.
+	 */
+	public synchronized byte[] encode(int batch, List<GeneticCode> codes) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSnapshot.Output out = new WorldSnapshot.Output(Channels.newChannel(bytes), 4096);
+		try {
+			out.putInt(batch);
+			out.putByte(VERSION);
+			out.putInt(codes.size());
+			for (GeneticCode code : codes) {
+				long id = code.getGenomeId();
+				int slot = slot(id);
+				if (_sent[slot] == id) {
+					out.putLong(id);
+					out.putInt(0);
+				} else {
+					_sent[slot] = id;
+					put(out, id, code);
+				}
+			}
+			out.flush();
+		} catch (IOException e) {
+			// Not thrown by a ByteArrayOutputStream
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+	/**
+	 * Decodes a batch of genetic codes, after its batch number. All batches
+	 * received through a link must be decoded, in order, even if their codes
+	 * are not used, so that the cache stays equal to the sender's one.
+	 *
+	 * @param data  The payload of a {@link NetServerThread#SEND_CODES} message,
+	 * positioned after the batch number.
+	 * @return  The genetic codes.
+	 * @throws IOException  if the data isn't a valid batch, or a code can't
+	 * {@link #canTravel(GeneticCode) travel}.
+	 */
+	public List<GeneticCode> decode(ByteBuffer data) throws IOException {
+		try {
+			checkVersion(data.get());
+			int count = data.getInt();
+			if (count < 0 || count > OutCorridor.MAX_BATCH)
+				throw new IOException("Wrong number of genetic codes: " + count); //$NON-NLS-1$
+			List<GeneticCode> codes = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				long id = data.getLong();
+				int slot = slot(id);
+				GeneticCode code;
+				if (data.getInt(data.position()) == 0) {
+					data.getInt();
+					code = _received[slot];
+					if (code == null || code.getGenomeId() != id)
+						throw new IOException("Unknown genetic code " + Long.toHexString(id)); //$NON-NLS-1$
+				} else {
+					code = get(data, id);
+					_received[slot] = code;
+				}
+				codes.add(code);
+			}
+			return codes;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Incomplete batch of genetic codes", e); //$NON-NLS-1$
+		}
+	}
+
+	private static int slot(long id) {
+		return (int) (id ^ (id >>> 32)) & (CACHE_SIZE - 1);
+	}
+
+	private static void checkVersion(int version) throws IOException {
+		if (version != VERSION)
+			throw new IOException("Unsupported genetic code format " + version); //$NON-NLS-1$
+	}
+
+	private static void put(WorldSnapshot.Output out, long id, GeneticCode code) throws IOException {
+		int length = WorldSnapshot.geneticCodeSize(code);
+		out.putLong(id);
+		out.putInt(length);
+		long start = out.size();
+		WorldSnapshot.writeGeneticCode(out, code);
+		if (out.size() - start != length)
+			throw new IllegalStateException("Wrong genetic code size"); //$NON-NLS-1$
+	}
+	/**
+	 * Reads the length and the bytes of a genetic code, and checks that its
+	 * identifier is the expected one.
+	 */
+	private static GeneticCode get(ByteBuffer data, long id) throws IOException {
+		int length = data.getInt();
+		if (length <= 0 || length > data.remaining())
+			throw new IOException("Wrong genetic code length " + length); //$NON-NLS-1$
+		WorldSnapshot.Input in = new WorldSnapshot.Input(Channels.newChannel(
+				new ByteArrayInputStream(data.array(), data.arrayOffset() + data.position(), length)), length);
+		GeneticCode code = WorldSnapshot.readGeneticCode(in);
+		data.position(data.position() + length);
+		if (code.getGenomeId() != id)
+			throw new IOException("Wrong genetic code " + Long.toHexString(id)); //$NON-NLS-1$
+		if (!canTravel(code))
+			throw new IOException("Invalid genetic code " + Long.toHexString(id)); //$NON-NLS-1$
+		return code;
+	}
+	/**
+	 * Checks that a genetic code can be sent to other hosts: it has genes, the
+	 * number of segments of random or mutated codes, and the lengths and angles of
+	 * its genes are the ones of genes created by
+	 * {@link Gene#randomize(java.util.Random)} or in the lab. Other hosts close
+	 * the link when they receive any other code, so organisms built in the lab
+	 * or imported with other values stay in this world.
+	 *
+	 * Random and mutated codes only add genes while they have less than
+	 * {@link GeneticCode#MAX_SEGMENTS} segments, so they may have up to
+	 * symmetry - 1 more.
+	 *
+	 * @param code  The genetic code.
+	 * @return  true if the code can be sent.
+	 */
+	public static boolean canTravel(GeneticCode code) {
+		if (code.getNGenes() == 0 ||
+				(code.getNGenes() - 1) * code.getSymmetry() >= GeneticCode.MAX_SEGMENTS)
+			return false;
+		for (int i = 0; i < code.getNGenes(); i++) {
+			Gene gene = code.getGene(i);
+			if (!(gene.getLength() >= Gene.MIN_LENGTH && gene.getLength() <= Gene.MAX_LENGTH &&
+					gene.getTheta() >= 0 && gene.getTheta() < 2 * Math.PI))
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,457 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Runs a {@link World} without user interface, as fast as the CPU allows.
+ * It periodically reports the number of frames executed per second and can
+ * write snapshots of the world that can later be opened with the normal program.
+ * Snapshots are written in the background, so they don't slow down the simulation.
+ *
+ * Usage:
+ * <pre>
+ * java -cp biogenesis.jar biogenesis.HeadlessRunner [options]
+ *   --ticks N           Number of frames to execute. 0 (default) runs forever.
+ *   --seed N            Seed of the world's random number generator.
+ *   --load FILE         Start from a saved world instead of creating a new one.
+ *   --snapshot-every N  Write a snapshot of the world every N frames.
+ *   --snapshot-dir DIR  Directory where snapshots are written. Default is the current one.
+ *   --autosave-every N  Every N frames, write the world to autosave.bgw in the
+ *                       snapshot directory, replacing the oldest autosave.
+ *   --autosave-files N  Number of autosave files kept. Default is 3.
+ *   --journal FILE      Write a journal of the world's events. Snapshots and
+ *                       autosaves are its checkpoints, and a first snapshot is
+ *                       written when the run starts.
+ *   --rebuild N         Instead of running, rebuild the world as it was after
+ *                       frame N from the journal and print its digest.
+ *   --report-every N    Print statistics every N frames. Default is 1000.
+ *   --threads N         Threads used to move organisms. 0 moves them one by one.
+ *   --rotation MODE     How rotated segments are calculated: exact, fast or table.
+ *                       Use exact to compare results with previous versions.
+ *   --cascade-at N      After N frames, kill all organisms and disperse their
+ *                       corpses, and print how long the following frames take.
+ *   --codec CODEC       Compression of snapshots: none, deflate-fast, deflate
+ *                       or deflate-best. Default is the one in the preferences.
+ *   --rewind-every N    Keep in memory a copy of the world every N frames.
+ *   --rewind-copies N   Number of copies kept in memory. Default is 30.
+ *   --rewind-at N       After N frames, rewind the world to the frame given by
+ *                       --rewind-to and print how long it takes. It can't be
+ *                       used with --journal.
+ * </pre>
+ */
+public class HeadlessRunner {
+	/**
+	 * The world being run.
+	 */
+	protected World _world;
+	/**
+	 * Number of frames to execute, or 0 to run forever.
+	 */
+	protected long _ticks = 0;
+	/**
+	 * Number of frames between two snapshots, or 0 to write no snapshots.
+	 */
+	protected long _snapshotEvery = 0;
+	/**
+	 * Directory where snapshots are written.
+	 */
+	protected File _snapshotDir = new File("."); //$NON-NLS-1$
+	/**
+	 * Number of frames between two autosaves, or 0 to not autosave.
+	 */
+	protected long _autosaveEvery = 0;
+	/**
+	 * Number of autosave files kept.
+	 */
+	protected int _autosaveFiles = Utils.DEF_AUTOSAVE_GENERATIONS;
+	/**
+	 * Writes snapshots in the background.
+	 */
+	protected Autosave _saver = new Autosave();
+	/**
+	 * The first error found while writing a snapshot in the background.
+	 */
+	private volatile IOException _saveError = null;
+	/**
+	 * Journal of the world's events, or null.
+	 */
+	protected EventJournal _journal;
+	/**
+	 * Number of frames between two statistics reports.
+	 */
+	protected long _reportEvery = 1000;
+	/**
+	 * Number of frames executed so far.
+	 */
+	protected long _frame = 0;
+	/**
+	 * Frame after which all organisms are killed and dispersed, to measure
+	 * the cost of a mass extinction, or 0 to not do it.
+	 */
+	protected long _cascadeAt = 0;
+	/**
+	 * Copies of the world to rewind it, or null.
+	 */
+	protected SnapshotRing _ring;
+	/**
+	 * Frame after which the world is rewound to {@link #_rewindTo}, or 0 to
+	 * not rewind it.
+	 */
+	protected long _rewindAt = 0;
+	/**
+	 * Frame of the world to rewind to.
+	 */
+	protected long _rewindTo = 0;
+	/**
+	 * Number of frames measured after a cascade.
+	 */
+	private static final int CASCADE_FRAMES = 3;
+
+	/**
+	 * Creates a runner for the given world.
+	 *
+	 * @param world  The world to run. It must not have a {@link VisibleWorld}.
+	 */
+	public HeadlessRunner(World world) {
+		_world = world;
+	}
+
+	public World getWorld() {
+		return _world;
+	}
+
+	public long getFrame() {
+		return _frame;
+	}
+
+	/**
+	 * Executes frames until the requested number of frames is reached,
+	 * writing snapshots and reports when needed.
+	 *
+	 * @throws IOException  if a snapshot can't be written.
+	 */
+	public void run() throws IOException {
+		long startTime = System.nanoTime();
+		long reportTime = startTime;
+		long reportFrame = 0;
+		if (_journal != null)
+			writeSnapshot();
+		while (_ticks == 0 || _frame < _ticks) {
+			_world.time();
+			_frame++;
+			if (_ring != null)
+				_ring.frameFinished(_world);
+			if (_frame == _rewindAt)
+				rewind();
+			if (_snapshotEvery > 0 && _frame % _snapshotEvery == 0)
+				writeSnapshot();
+			if (_autosaveEvery > 0 && _frame % _autosaveEvery == 0
+					&& _saver.autosave(_world, _snapshotDir, _autosaveFiles, this::snapshotWritten)
+					&& _journal != null)
+				_journal.checkpoint(_world, Autosave.autosaveFile(_snapshotDir));
+			if (_saveError != null)
+				throw _saveError;
+			if (_reportEvery > 0 && _frame % _reportEvery == 0) {
+				long now = System.nanoTime();
+				report(_frame - reportFrame, now - reportTime);
+				reportTime = now;
+				reportFrame = _frame;
+			}
+			if (_frame == _cascadeAt)
+				cascade();
+		}
+		long elapsed = System.nanoTime() - startTime;
+		_saver.flush();
+		if (_saveError != null)
+			throw _saveError;
+		if (_journal != null) {
+			_journal.flush();
+			if (_journal.getError() != null)
+				throw _journal.getError();
+		}
+		System.out.println(String.format(Locale.ROOT, "finished frames=%d seconds=%.2f fps=%.1f digest=%016x", //$NON-NLS-1$
+				_frame, elapsed / 1e9, _frame * 1e9 / Math.max(elapsed, 1), stateDigest(_world)));
+	}
+
+	/**
+	 * Prints a line with the speed of the simulation and the state of the world.
+	 *
+	 * @param frames  Frames executed since the last report.
+	 * @param nanos  Time spent executing them.
+	 */
+	protected void report(long frames, long nanos) {
+		System.out.println(String.format(Locale.ROOT, "frame=%d time=%d population=%d O2=%.1f CO2=%.1f fps=%.1f", //$NON-NLS-1$
+				_frame, _world.getTime(), _world.getPopulation(), _world.getO2(), _world.getCO2(),
+				frames * 1e9 / Math.max(nanos, 1)));
+	}
+
+	/**
+	 * Kills all organisms, disperses their corpses and prints the time spent
+	 * in each of the following frames, when the dead organisms are removed
+	 * from the world. These frames count towards the requested number of frames.
+	 */
+	protected void cascade() {
+		int before = _world._organisms.size();
+		_world.killAll();
+		_world.disperseAll();
+		for (int i = 0; i < CASCADE_FRAMES && (_ticks == 0 || _frame < _ticks); i++) {
+			int size = _world._organisms.size();
+			long start = System.nanoTime();
+			_world.time();
+			long nanos = System.nanoTime() - start;
+			_frame++;
+			System.out.println(String.format(Locale.ROOT, "cascade frame=%d organisms=%d removed=%d millis=%.3f", //$NON-NLS-1$
+					_frame, before, size - _world._organisms.size(), nanos / 1e6));
+		}
+	}
+
+	/**
+	 * Rewinds the world to {@link #_rewindTo} and prints the time it takes.
+	 * Frames executed again count towards the requested number of frames.
+	 *
+	 * @throws IOException  if the world can't be rewound.
+	 */
+	protected void rewind() throws IOException {
+		long from = _world.getFrame();
+		long start = System.nanoTime();
+		_world = _ring.rewind(_world, _rewindTo);
+		long nanos = System.nanoTime() - start;
+		_frame -= from - _world.getFrame();
+		_rewindAt = 0;
+		System.out.println(String.format(Locale.ROOT, "rewind from=%d to=%d millis=%.3f", //$NON-NLS-1$
+				from, _world.getFrame(), nanos / 1e6));
+	}
+
+	/**
+	 * Copies the world and writes it in the background to a file in the
+	 * snapshot directory, in the same format used by the program to save
+	 * games. Errors are thrown by {@link #run()} in one of the next frames.
+	 *
+	 * @return  The file that will be written.
+	 */
+	protected File writeSnapshot() {
+		File f = new File(_snapshotDir, String.format(Locale.ROOT, "snapshot-%010d.%s", //$NON-NLS-1$
+				_frame, BioFileFilter.WORLD_EXTENSION));
+		_saver.save(_world, f, this::snapshotWritten);
+		if (_journal != null)
+			_journal.checkpoint(_world, f);
+		return f;
+	}
+
+	private void snapshotWritten(File f, IOException error) {
+		if (error != null && _saveError == null)
+			_saveError = error;
+	}
+
+	/**
+	 * Calculates a checksum of the state of all organisms in the world and
+	 * its atmosphere. Two runs that started with the same seed must give the
+	 * same digest, so it is used to verify that optimizations don't change
+	 * the outcome of the simulation.
+	 *
+	 * @param world  The world to examine.
+	 * @return  The digest of the world.
+	 */
+	public static long stateDigest(World world) {
+		CRC32 crc = new CRC32();
+		long h = 1125899906842597L;
+		synchronized (world._organisms) {
+			for (Organism b : world._organisms) {
+				h = 31 * h + b.getID();
+				h = 31 * h + b.x;
+				h = 31 * h + b.y;
+				h = 31 * h + b.width;
+				h = 31 * h + b.height;
+				h = 31 * h + Double.doubleToLongBits(b._energy);
+				h = 31 * h + Double.doubleToLongBits(b._theta);
+				h = 31 * h + (b.isAlive() ? 1 : 0);
+			}
+		}
+		h = 31 * h + Double.doubleToLongBits(world.getO2());
+		h = 31 * h + Double.doubleToLongBits(world.getCO2());
+		h = 31 * h + world.getPopulation();
+		for (int i = 0; i < 8; i++)
+			crc.update((int) (h >>> (i * 8)));
+		return (h ^ crc.getValue() << 32);
+	}
+
+	private static int rotationMode(String value) {
+		switch (value) {
+		case "exact": //$NON-NLS-1$
+			return Utils.ROTATION_EXACT;
+		case "fast": //$NON-NLS-1$
+			return Utils.ROTATION_FAST;
+		case "table": //$NON-NLS-1$
+			return Utils.ROTATION_TABLE;
+		default:
+			usage();
+			return Utils.DEF_ROTATION_MODE;
+		}
+	}
+
+	private static void usage() {
+		System.err.println("java -cp biogenesis.jar biogenesis.HeadlessRunner [--ticks N] [--seed N] [--load FILE]" //$NON-NLS-1$
+				+ " [--snapshot-every N] [--snapshot-dir DIR] [--autosave-every N] [--autosave-files N]" //$NON-NLS-1$
+				+ " [--journal FILE] [--rebuild N] [--report-every N] [--threads N]" //$NON-NLS-1$
+				+ " [--rotation exact|fast|table] [--cascade-at N]" //$NON-NLS-1$
+				+ " [--codec none|deflate-fast|deflate|deflate-best]" //$NON-NLS-1$
+				+ " [--rewind-every N] [--rewind-copies N] [--rewind-at N --rewind-to N]"); //$NON-NLS-1$
+		System.exit(1);
+	}
+
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+		Utils.readPreferences();
+		long ticks = 0;
+		long snapshotEvery = 0;
+		long autosaveEvery = 0;
+		int autosaveFiles = Utils.DEF_AUTOSAVE_GENERATIONS;
+		long reportEvery = 1000;
+		long cascadeAt = 0;
+		int rewindEvery = 0;
+		int rewindCopies = Utils.DEF_REWIND_COPIES;
+		long rewindAt = 0;
+		long rewindTo = -1;
+		Long seed = null;
+		File snapshotDir = new File("."); //$NON-NLS-1$
+		File load = null;
+		File journal = null;
+		long rebuild = -1;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (i + 1 >= args.length)
+					usage();
+				String value = args[++i];
+				switch (arg) {
+				case "--ticks": //$NON-NLS-1$
+					ticks = Long.parseLong(value);
+					break;
+				case "--seed": //$NON-NLS-1$
+					seed = Long.parseLong(value);
+					break;
+				case "--load": //$NON-NLS-1$
+					load = new File(value);
+					break;
+				case "--snapshot-every": //$NON-NLS-1$
+					snapshotEvery = Long.parseLong(value);
+					break;
+				case "--snapshot-dir": //$NON-NLS-1$
+					snapshotDir = new File(value);
+					break;
+				case "--autosave-every": //$NON-NLS-1$
+					autosaveEvery = Long.parseLong(value);
+					break;
+				case "--autosave-files": //$NON-NLS-1$
+					autosaveFiles = Integer.parseInt(value);
+					break;
+				case "--journal": //$NON-NLS-1$
+					journal = new File(value);
+					break;
+				case "--rebuild": //$NON-NLS-1$
+					rebuild = Long.parseLong(value);
+					break;
+				case "--report-every": //$NON-NLS-1$
+					reportEvery = Long.parseLong(value);
+					break;
+				case "--threads": //$NON-NLS-1$
+					Utils.TICK_THREADS = Integer.parseInt(value);
+					break;
+				case "--cascade-at": //$NON-NLS-1$
+					cascadeAt = Long.parseLong(value);
+					break;
+				case "--rotation": //$NON-NLS-1$
+					Utils.ROTATION_MODE = rotationMode(value);
+					break;
+				case "--codec": //$NON-NLS-1$
+					Utils.COMPRESSION = BlockCompression.Codec.forName(value);
+					break;
+				case "--rewind-every": //$NON-NLS-1$
+					rewindEvery = Integer.parseInt(value);
+					break;
+				case "--rewind-copies": //$NON-NLS-1$
+					rewindCopies = Integer.parseInt(value);
+					break;
+				case "--rewind-at": //$NON-NLS-1$
+					rewindAt = Long.parseLong(value);
+					break;
+				case "--rewind-to": //$NON-NLS-1$
+					rewindTo = Long.parseLong(value);
+					break;
+				default:
+					usage();
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// Also NumberFormatException
+			usage();
+		}
+
+		if (rebuild >= 0 && journal == null)
+			usage();
+		if (rewindAt > 0 && (rewindEvery <= 0 || rewindTo < 0 || journal != null))
+			usage();
+		try {
+			if (rebuild >= 0) {
+				World world = EventJournal.rebuild(journal, rebuild);
+				System.out.println(String.format(Locale.ROOT, "rebuilt frame=%d digest=%016x", //$NON-NLS-1$
+						world.getFrame(), stateDigest(world)));
+				return;
+			}
+			World world;
+			if (load != null) {
+				world = WorldSnapshot.load(load);
+				if (seed != null)
+					world.setSeed(seed);
+			} else {
+				world = new World();
+				if (seed != null)
+					world.setSeed(seed);
+				world.genesis();
+			}
+			HeadlessRunner runner = new HeadlessRunner(world);
+			runner._ticks = ticks;
+			runner._snapshotEvery = snapshotEvery;
+			runner._snapshotDir = snapshotDir;
+			runner._autosaveEvery = autosaveEvery;
+			runner._autosaveFiles = Math.max(1, autosaveFiles);
+			runner._reportEvery = reportEvery;
+			runner._cascadeAt = cascadeAt;
+			if (rewindEvery > 0)
+				runner._ring = new SnapshotRing(Math.max(1, rewindCopies), rewindEvery);
+			runner._rewindAt = rewindAt;
+			runner._rewindTo = rewindTo;
+			snapshotDir.mkdirs();
+			if (journal != null) {
+				runner._journal = new EventJournal(journal);
+				world.setJournal(runner._journal);
+			}
+			runner.run();
+			if (runner._journal != null)
+				runner._journal.close();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+}
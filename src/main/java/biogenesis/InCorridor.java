@@ -19,37 +19,186 @@ package biogenesis;
 
 import java.awt.Color;
 import java.awt.Graphics;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * A biological corridor where organisms arrive from another host.
+ *
+ * Genetic codes received by the network thread wait in a lock-free queue
+ * until the thread that runs the world places them, up to
+ * {@link #MAX_ARRIVALS} in each frame. The queue holds at most
+ * {@link Utils#ARRIVAL_QUEUE_SIZE} codes; what happens to codes that
+ * arrive when it is full depends on {@link Utils#ARRIVAL_OVERFLOW}.
+ * The number of codes received, waiting and lost can be read at any
+ * time.
+ */
 public class InCorridor extends Corridor {
 	private static final long serialVersionUID = Utils.FILE_VERSION;
-	private Queue<GeneticCode> pendingOrganisms = new LinkedList<>();
+	/**
+	 * Maximum number of organisms placed in each frame.
+	 */
+	public static final int MAX_ARRIVALS = 8;
+	/**
+	 * What to do with genetic codes that arrive when the queue is full.
+	 */
+	public enum Overflow {
+		/**
+		 * They are refused, and the other host is told with
+		 * {@link NetServerThread#TOO_MANY_CODES} and sends them again later.
+		 */
+		REJECT,
+		/**
+		 * The oldest code in the queue is dropped to make room for them.
+		 */
+		DROP_OLDEST,
+		/**
+		 * They are dropped if an equal code is already waiting, as it
+		 * will create an identical organism, and refused otherwise.
+		 */
+		COALESCE;
+		/**
+		 * Returns the name used in preferences: the name in lower case
+		 * with hyphens.
+		 */
+		public String getName() {
+			return name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+		/**
+		 * Returns the policy with a given name, in any case and with
+		 * hyphens or underscores.
+		 *
+		 * @throws IllegalArgumentException  if there is no such policy.
+		 */
+		public static Overflow forName(String name) {
+			return valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+
+	private final int _capacity;
+	private final Overflow _overflow;
+	private final ConcurrentLinkedQueue<GeneticCode> _pending = new ConcurrentLinkedQueue<>();
+	/**
+	 * Number of codes in {@link #_pending}. It can be briefly higher while
+	 * a code is being added.
+	 */
+	private final AtomicInteger _depth = new AtomicInteger();
+	/**
+	 * Number of codes waiting for each genome, only with {@link Overflow#COALESCE}.
+	 */
+	private final Map<Long,Integer> _waiting;
+	private final AtomicLong _received = new AtomicLong();
+	private final AtomicLong _rejected = new AtomicLong();
+	private final AtomicLong _dropped = new AtomicLong();
 	private Organism nextOrganism = null;
 	
 	public InCorridor(World w) {
+		this(w, Utils.ARRIVAL_QUEUE_SIZE, Utils.ARRIVAL_OVERFLOW);
+	}
+	/**
+	 * Creates a corridor with a given queue.
+	 *
+	 * @param w  The world.
+	 * @param capacity  Maximum number of codes waiting to be placed.
+	 * @param overflow  What to do with codes that arrive when the queue is full.
+	 */
+	public InCorridor(World w, int capacity, Overflow overflow) {
 		super(w);
+		_capacity = Math.max(1, capacity);
+		_overflow = overflow;
+		_waiting = overflow == Overflow.COALESCE ? new ConcurrentHashMap<>() : null;
+	}
+	/**
+	 * Queues a genetic code that has arrived from the other host. Called by
+	 * the network thread.
+	 *
+	 * @param code  The genetic code.
+	 * @return  false if the code has been refused because the queue is full.
+	 */
+	public boolean receiveOrganism(GeneticCode code) {
+		_received.incrementAndGet();
+		if (_depth.incrementAndGet() > _capacity) {
+			if (_overflow == Overflow.DROP_OLDEST) {
+				if (poll() != null)
+					_dropped.incrementAndGet();
+			} else {
+				_depth.decrementAndGet();
+				if (_overflow == Overflow.COALESCE && _waiting.containsKey(code.getGenomeId())) {
+					_dropped.incrementAndGet();
+					return true;
+				}
+				_rejected.incrementAndGet();
+				return false;
+			}
+		}
+		if (_waiting != null)
+			_waiting.merge(code.getGenomeId(), 1, Integer::sum);
+		_pending.add(code);
+		return true;
+	}
+	/**
+	 * Returns the number of genetic codes waiting to be placed.
+	 *
+	 * @return  The number of codes in the queue.
+	 */
+	public int getDepth() {
+		return Math.min(_depth.get(), _capacity);
+	}
+	/**
+	 * Returns the number of genetic codes received since the corridor was created.
+	 *
+	 * @return  The number of codes received, including the lost ones.
+	 */
+	public long getReceived() {
+		return _received.get();
+	}
+	/**
+	 * Returns the number of genetic codes refused because the queue was full.
+	 *
+	 * @return  The number of codes refused.
+	 */
+	public long getRejected() {
+		return _rejected.get();
+	}
+	/**
+	 * Returns the number of genetic codes dropped because the queue was full.
+	 *
+	 * @return  The number of codes dropped.
+	 */
+	public long getDropped() {
+		return _dropped.get();
 	}
 
-	public synchronized void receiveOrganism(GeneticCode code) {
-		pendingOrganisms.add(code);
+	private GeneticCode poll() {
+		GeneticCode code = _pending.poll();
+		if (code != null) {
+			_depth.decrementAndGet();
+			if (_waiting != null)
+				_waiting.computeIfPresent(code.getGenomeId(), (id, n) -> n == 1 ? null : n - 1);
+		}
+		return code;
 	}
-	
+	/**
+	 * Places the organisms waiting in the queue, up to {@link #MAX_ARRIVALS}.
+	 * An organism that doesn't fit in the corridor waits for the next frame.
+	 */
 	public void frame() {
-		if (nextOrganism == null) {
-			GeneticCode nextCode;
-			synchronized(pendingOrganisms) {
-				nextCode = pendingOrganisms.poll();
-			}
-			if (nextCode != null)
+		for (int i = 0; i < MAX_ARRIVALS; i++) {
+			if (nextOrganism == null) {
+				GeneticCode nextCode = poll();
+				if (nextCode == null)
+					return;
 				nextOrganism = new Organism(world, nextCode);
-		}
-		if (nextOrganism != null) {
-			if (nextOrganism.pasteOrganism(x+Utils.random.nextInt(width), 
-					y+Utils.random.nextInt(height))) {
-				world.addOrganism(nextOrganism, null);
-				nextOrganism = null;
 			}
+			if (!nextOrganism.pasteOrganism(x+world._random.nextInt(width), 
+					y+world._random.nextInt(height)))
+				return;
+			world.organismArrived(nextOrganism);
+			nextOrganism = null;
 		}
 	}
 	
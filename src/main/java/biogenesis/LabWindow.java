@@ -22,14 +22,11 @@ import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
-import org.xml.sax.SAXException;
-
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -226,30 +223,11 @@ public class LabWindow extends JDialog implements ActionListener, ChangeListener
 		importButton.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				GeneticCode g;
-	    		try {
-	    			JFileChooser chooser = mainWindow.getGeneticCodeChooser();
-	    			chooser.setFileFilter(new BioFileFilter(BioFileFilter.GENETIC_CODE_EXTENSION));
-	    			int returnVal = chooser.showOpenDialog(null);
-	    			if (returnVal == JFileChooser.APPROVE_OPTION) {
-	    				try {
-	    					// Read XML code from file
-	    					BioXMLParser parser = new BioXMLParser();
-							g = parser.parseGeneticCode(chooser.getSelectedFile());
-							genesList.clear();
-							importGeneticCode(g);
-							refreshGenesPanel();
-	    				} catch (SAXException ex) {
-	    					System.err.println(ex.getMessage());
-	    					JOptionPane.showMessageDialog(null,Messages.getString("T_WRONG_FILE_VERSION"),Messages.getString("T_READ_ERROR"),JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-	    				} catch (IOException ex) {
-	    					System.err.println(ex.getMessage());
-	    					JOptionPane.showMessageDialog(null,Messages.getString("T_CANT_READ_FILE"),Messages.getString("T_READ_ERROR"),JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-						}
-	    			}
-	    		} catch (SecurityException ex) {
-					System.err.println(ex.getMessage());
-					JOptionPane.showMessageDialog(null,Messages.getString("T_PERMISSION_DENIED"),Messages.getString("T_PERMISSION_DENIED"),JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
+				GeneticCode g = mainWindow.importGeneticCode();
+				if (g != null) {
+					genesList.clear();
+					importGeneticCode(g);
+					refreshGenesPanel();
 				}
 			}
 		});
@@ -18,6 +18,7 @@
  */
 package biogenesis;
 
+import biogenesis.music.MusicPlayer;
 import biogenesis.scripting.ScriptHandler;
 import javax.swing.*;
 import javax.swing.border.EtchedBorder;
@@ -29,8 +30,9 @@ import java.awt.event.*;
 import java.text.NumberFormat;
 import java.util.*;
 import org.jruby.embed.ScriptingContainer;
+import org.xml.sax.SAXException;
 
-public class MainWindow extends JFrame {
+public class MainWindow extends JFrame implements NetHost {
 
 	private static final long serialVersionUID = Utils.FILE_VERSION;
 	protected VisibleWorld _visibleWorld;
@@ -38,8 +40,28 @@ public class MainWindow extends JFrame {
 	protected boolean _isProcessActive = false;
 	protected transient java.util.Timer _timer;
 	protected transient TimerTask updateTask = null;
+	/**
+	 * Writes saved worlds and autosaves in the background.
+	 */
+	protected transient Autosave _autosave = new Autosave();
+	/**
+	 * Journal of the current world, or null if it is not written.
+	 */
+	protected transient EventJournal _journal;
+	/**
+	 * Name of the journal file, in the autosave directory.
+	 */
+	public static final String JOURNAL_NAME = "journal.bgj"; //$NON-NLS-1$
+	/**
+	 * Recent copies of the current world, to rewind it.
+	 */
+	protected transient SnapshotRing _rewindRing = new SnapshotRing(Utils.DEF_REWIND_COPIES, Utils.DEF_REWIND_INTERVAL);
 	protected JFileChooser worldChooser = new JFileChooser();
 	protected JFileChooser geneticCodeChooser = new JFileChooser();
+	/**
+	 * Chooser of genetic code files, directories, zip archives and bundles to import.
+	 */
+	protected JFileChooser geneticCodeImportChooser = new JFileChooser();
 	protected File _gameFile = null;
 	protected JScrollPane scrollPane;
 	protected StdAction newGameAction;
@@ -56,6 +78,7 @@ public class MainWindow extends JFrame {
 	protected StdAction labAction;
 	protected StdAction killAllAction;
 	protected StdAction disperseAllAction;
+	protected StdAction rewindAction;
 	protected StdAction parametersAction;
 	protected StdAction aboutAction;
 	protected StdAction manualAction;
@@ -120,11 +143,13 @@ public class MainWindow extends JFrame {
 		createToolBar();
 		setControls();
 		configureApp();
+		MusicPlayer.getInstance().setEnabled(Utils.SOUND);
 		_world = new World(_visibleWorld);
 		createScriptingContainer();
 
 		startApp();
 		_world.genesis();
+		startJournal();
 		scrollPane.setViewportView(_visibleWorld);
 	}
 
@@ -169,6 +194,7 @@ public class MainWindow extends JFrame {
 		labAction = new LabAction("T_GENETIC_LABORATORY", null, "T_GENETIC_LABORATORY"); //$NON-NLS-1$ //$NON-NLS-2$
 		killAllAction = new KillAllAction("T_KILL_ALL", null, "T_KILL_ALL_ORGANISMS"); //$NON-NLS-1$ //$NON-NLS-2$
 		disperseAllAction = new DisperseAllAction("T_DISPERSE_ALL", null, "T_DISPERSE_ALL_DEAD_ORGANISMS"); //$NON-NLS-1$ //$NON-NLS-2$
+		rewindAction = new RewindAction("T_REWIND", null, "T_REWIND_WORLD"); //$NON-NLS-1$ //$NON-NLS-2$
 		parametersAction = new ParametersAction("T_PARAMETERS", null, "T_EDIT_PARAMETERS"); //$NON-NLS-1$ //$NON-NLS-2$
 		aboutAction = new AboutAction("T_ABOUT", null, "T_ABOUT");  //$NON-NLS-1$//$NON-NLS-2$
 		manualAction = new ManualAction("T_USER_MANUAL", null, "T_USER_MANUAL");  //$NON-NLS-1$//$NON-NLS-2$
@@ -221,6 +247,7 @@ public class MainWindow extends JFrame {
 		_menuWorld.add(menuItem);
 		_menuWorld.add(new JMenuItem(killAllAction));
 		_menuWorld.add(new JMenuItem(disperseAllAction));
+		_menuWorld.add(new JMenuItem(rewindAction));
 		_menuWorld.add(new JMenuItem(parametersAction));
 		_menuNet = new JMenu(Messages.getString("T_NETWORK")); //$NON-NLS-1$
 		_menuNet.setMnemonic(Messages.getMnemonic("T_NETWORK")); //$NON-NLS-1$
@@ -314,7 +341,9 @@ public class MainWindow extends JFrame {
 		@Override
 		public void actionPerformed(ActionEvent e) {
 			_trackedOrganism = null;
+			_rewindRing.clear();
 			_world.genesis();
+			startJournal();
 			scrollPane.setViewportView(_visibleWorld);
 			_isProcessActive = true;
 			startStopAction.setActive(true);
@@ -431,7 +460,7 @@ public class MainWindow extends JFrame {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			_world.addCO2(500);
+			_world.changeCO2(500);
 		}
 	}
 
@@ -445,7 +474,7 @@ public class MainWindow extends JFrame {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			_world.decreaseCO2(500);
+			_world.changeCO2(-500);
 		}
 	}
 
@@ -498,13 +527,10 @@ public class MainWindow extends JFrame {
 						_statisticsWindow = null;
 					}
 					//_world.clean();
-					ObjectInputStream inputStream;
 					try {
 						File f = getWorldChooser().getSelectedFile();
-						FileInputStream fileStream = new FileInputStream(f);
-						inputStream = new ObjectInputStream(fileStream);
-						_world = (World) inputStream.readObject();
-						inputStream.close();
+						_world = WorldSnapshot.load(f);
+						_rewindRing.clear();
 						_gameFile = f;
 						_trackedOrganism = null;
 						processState = true;
@@ -512,15 +538,10 @@ public class MainWindow extends JFrame {
 					} catch (IOException ex) {
 						System.err.println(ex.getMessage());
 						JOptionPane.showMessageDialog(null, Messages.getString("T_CANT_READ_FILE"), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-					} catch (ClassNotFoundException ex) {
-						System.err.println(ex.getMessage());
-						JOptionPane.showMessageDialog(null, Messages.getString("T_WRONG_FILE_TYPE"), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-					} catch (ClassCastException ex) {
-						System.err.println(ex.getMessage());
-						JOptionPane.showMessageDialog(null, Messages.getString("T_WRONG_FILE_VERSION"), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
 					}
 					// Torna a assignar els valors dels camps no guardats a l'objecte world
 					_world.init(_visibleWorld);
+					startJournal();
 					scrollPane.setViewportView(_visibleWorld);
 					// Assegurem que s'ha dibuixat el m�n
 					_visibleWorld.repaint();
@@ -574,6 +595,10 @@ public class MainWindow extends JFrame {
 				}
 			}
 			Utils.quitProgram(this);
+			// Wait for worlds that are still being written
+			_autosave.close();
+			if (_journal != null)
+				_journal.close();
 			if (serverThread != null) {
 				serverThread.closeServer();
 			}
@@ -645,6 +670,51 @@ public class MainWindow extends JFrame {
 		}
 	}
 
+	class RewindAction extends StdAction {
+
+		private static final long serialVersionUID = 1L;
+
+		public RewindAction(String text, String icon_path, String desc) {
+			super(text, icon_path, desc);
+		}
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			long[] frames = _rewindRing.getFrames();
+			if (frames.length == 0) {
+				JOptionPane.showMessageDialog(MainWindow.this, Messages.getString("T_NOTHING_TO_REWIND"), //$NON-NLS-1$
+						Messages.getString("T_REWIND_WORLD"), JOptionPane.INFORMATION_MESSAGE); //$NON-NLS-1$
+				return;
+			}
+			// Newest first
+			Long[] choices = new Long[frames.length];
+			for (int i = 0; i < frames.length; i++)
+				choices[i] = Long.valueOf(frames[frames.length - 1 - i]);
+			Object frame = JOptionPane.showInputDialog(MainWindow.this, Messages.getString("T_REWIND_TO_FRAME"), //$NON-NLS-1$
+					Messages.getString("T_REWIND_WORLD"), JOptionPane.QUESTION_MESSAGE, null, choices, choices[0]); //$NON-NLS-1$
+			if (frame == null)
+				return;
+			try {
+				World world = _rewindRing.rewind(_world, ((Long) frame).longValue());
+				if (_statisticsWindow != null) {
+					_statisticsWindow.dispose();
+					_statisticsWindow = null;
+				}
+				_world = world;
+				_trackedOrganism = null;
+				_world.init(_visibleWorld);
+				startJournal();
+				scrollPane.setViewportView(_visibleWorld);
+				_visibleWorld.repaint();
+				setStatusMessage(Messages.getString("T_WORLD_REWOUND")); //$NON-NLS-1$
+			} catch (IOException | IllegalArgumentException ex) {
+				System.err.println(ex.getMessage());
+				JOptionPane.showMessageDialog(MainWindow.this, Messages.getString("T_CANT_REWIND"), //$NON-NLS-1$
+						Messages.getString("T_REWIND_WORLD"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$
+			}
+		}
+	}
+
 	class ParametersAction extends StdAction {
 
 		private static final long serialVersionUID = 1L;
@@ -788,6 +858,42 @@ public class MainWindow extends JFrame {
 
 		worldChooser.setFileFilter(new BioFileFilter(BioFileFilter.WORLD_EXTENSION));
 		geneticCodeChooser.setFileFilter(new BioFileFilter(BioFileFilter.GENETIC_CODE_EXTENSION));
+		geneticCodeImportChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+		geneticCodeImportChooser.setFileFilter(new BioFileFilter(BioFileFilter.GENETIC_CODE_EXTENSION,
+				GenomeBundle.ZIP_EXTENSION, GenomeBundle.BUNDLE_EXTENSION));
+	}
+	/**
+	 * Asks the user for a genetic code file, or a directory, zip archive or
+	 * bundle of genetic codes, and reads it with {@link GenomeBundle}. If it
+	 * has several genetic codes, the user chooses one of them.
+	 *
+	 * @return  The genetic code, or null if none has been read.
+	 */
+	public GeneticCode importGeneticCode() {
+		try {
+			geneticCodeImportChooser.setCurrentDirectory(geneticCodeChooser.getCurrentDirectory());
+			if (geneticCodeImportChooser.showOpenDialog(null) != JFileChooser.APPROVE_OPTION)
+				return null;
+			SortedMap<String,GeneticCode> codes = GenomeBundle.read(geneticCodeImportChooser.getSelectedFile(),
+					Runtime.getRuntime().availableProcessors());
+			if (codes.isEmpty())
+				throw new IOException("No genetic codes in " + geneticCodeImportChooser.getSelectedFile()); //$NON-NLS-1$
+			if (codes.size() == 1)
+				return codes.get(codes.firstKey());
+			Object name = JOptionPane.showInputDialog(null, Messages.getString("T_CHOOSE_GENETIC_CODE"), //$NON-NLS-1$
+					Messages.getString("T_IMPORT"), JOptionPane.QUESTION_MESSAGE, null, //$NON-NLS-1$
+					codes.keySet().toArray(), codes.firstKey());
+			return name == null ? null : codes.get(name);
+		} catch (IOException ex) {
+			System.err.println(ex.getMessage());
+			// Invalid genetic code files are reported as SAXExceptions
+			String message = ex.getCause() instanceof SAXException ? "T_WRONG_FILE_VERSION" : "T_CANT_READ_FILE"; //$NON-NLS-1$ //$NON-NLS-2$
+			JOptionPane.showMessageDialog(null, Messages.getString(message), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$
+		} catch (SecurityException ex) {
+			System.err.println(ex.getMessage());
+			JOptionPane.showMessageDialog(null, Messages.getString("T_PERMISSION_DENIED"), Messages.getString("T_PERMISSION_DENIED"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return null;
 	}
 
 	public File saveObjectAs(Object obj) {
@@ -818,8 +924,8 @@ public class MainWindow extends JFrame {
 				}
 				if (canWrite == JOptionPane.YES_OPTION) {
 					if (obj instanceof GeneticCode) {
-						try {
-							BioXMLParser.writeGeneticCode(new PrintStream(f), (GeneticCode) obj);
+						try (PrintStream ps = new PrintStream(f)) {
+							BioXMLParser.writeGeneticCode(ps, (GeneticCode) obj);
 							resultFile = f;
 						} catch (FileNotFoundException ex) {
 							System.err.println(ex.getLocalizedMessage());
@@ -840,6 +946,13 @@ public class MainWindow extends JFrame {
 	public boolean saveObject(Object obj, File f) {
 		ObjectOutputStream outputStream;
 		try {
+			if (obj instanceof World) {
+				// The world is copied now and written in the background
+				_autosave.save((World) obj, f, (file, error) -> worldWritten(error, "T_WRITING_COMPLETED")); //$NON-NLS-1$
+				if (_journal != null && obj == _world)
+					_journal.checkpoint(_world, f);
+				return true;
+			}
 			FileOutputStream fileStream = new FileOutputStream(f);
 			outputStream = new ObjectOutputStream(fileStream);
 			outputStream.writeObject(obj);
@@ -856,6 +969,52 @@ public class MainWindow extends JFrame {
 		}
 		return false;
 	}
+	/**
+	 * Copies the world and writes it to the autosave directory in the
+	 * background. The copy is a checkpoint of the journal, if there is one.
+	 */
+	protected void autosave() {
+		File directory = new File(Utils.AUTOSAVE_DIRECTORY);
+		if (_autosave.autosave(_world, directory, Utils.AUTOSAVE_GENERATIONS,
+				(f, error) -> worldWritten(error, "T_AUTOSAVE_COMPLETED")) //$NON-NLS-1$
+				&& _journal != null)
+			_journal.checkpoint(_world, Autosave.autosaveFile(directory));
+	}
+	/**
+	 * Closes the journal of the previous world and, if the user wants it,
+	 * starts a new one in the autosave directory for the current world.
+	 * The world is autosaved to have a first checkpoint.
+	 */
+	protected void startJournal() {
+		if (_journal != null) {
+			_journal.close();
+			_journal = null;
+		}
+		_world.setJournal(null);
+		if (Utils.JOURNAL) {
+			try {
+				File directory = new File(Utils.AUTOSAVE_DIRECTORY);
+				directory.mkdirs();
+				_journal = new EventJournal(new File(directory, JOURNAL_NAME));
+				_world.setJournal(_journal);
+				autosave();
+			} catch (IOException | SecurityException e) {
+				System.err.println(e.getMessage());
+			}
+		}
+	}
+	/**
+	 * Reports the result of writing a world in the background.
+	 * It is called from the thread that writes the file.
+	 *
+	 * @param error  The error found, or null if the world was written.
+	 * @param message  The key of the message shown if it was written.
+	 */
+	protected void worldWritten(IOException error, String message) {
+		if (error != null)
+			System.err.println(error.getMessage());
+		EventQueue.invokeLater(() -> setStatusMessage(Messages.getString(error == null ? message : "T_WRITE_ERROR"))); //$NON-NLS-1$
+	}
 
 	public void configureApp() {
 		setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
@@ -906,10 +1065,14 @@ public class MainWindow extends JFrame {
 			if (_isProcessActive) {
 				// executa un torn
 				_world.time();
+				_rewindRing.frameFinished(_world);
 				nFrames++;
 				if (nFrames % 20 == 0) {
 					updateStatusLabel();
 				}
+				if (Utils.AUTOSAVE_FRAMES > 0 && nFrames % Utils.AUTOSAVE_FRAMES == 0) {
+					autosave();
+				}
 				// dibuixa de nou si cal
 				_world.setPaintingRegion();
 				// tracking
@@ -1054,6 +1217,7 @@ public class MainWindow extends JFrame {
 		labAction.changeLocale();
 		killAllAction.changeLocale();
 		disperseAllAction.changeLocale();
+		rewindAction.changeLocale();
 		_menuHelp.setText(Messages.getString("T_HELP")); //$NON-NLS-1$
 		_menuHelp.setMnemonic(Messages.getMnemonic("T_HELP")); //$NON-NLS-1$
 		manualAction.changeLocale();
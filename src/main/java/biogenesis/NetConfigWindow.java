@@ -34,6 +34,8 @@ public class NetConfigWindow extends JDialog {
 	protected JTextField remotePortText;
 	protected JTextField remoteAddressText;
 	protected JTextField maxConnectionsText;
+	protected JTextField arrivalQueueText;
+	protected JComboBox<String> arrivalOverflowCombo;
 	protected JButton cancelButton;
 	protected JButton okButton;
 	
@@ -122,6 +124,21 @@ public class NetConfigWindow extends JDialog {
 		localPortText = new JTextField(String.valueOf(Utils.LOCAL_PORT),6);
 		panel.add(localPortText);
 		generalPanel.add(panel);
+		panel = new JPanel();
+		label = new JLabel(Messages.getString("T_ARRIVAL_QUEUE_SIZE")); //$NON-NLS-1$
+		panel.add(label);
+		arrivalQueueText = new JTextField(String.valueOf(Utils.ARRIVAL_QUEUE_SIZE),6);
+		panel.add(arrivalQueueText);
+		generalPanel.add(panel);
+		panel = new JPanel();
+		label = new JLabel(Messages.getString("T_ARRIVAL_OVERFLOW")); //$NON-NLS-1$
+		panel.add(label);
+		// Items in the order of InCorridor.Overflow
+		arrivalOverflowCombo = new JComboBox<>(new String[] {Messages.getString("T_OVERFLOW_REJECT"), //$NON-NLS-1$
+				Messages.getString("T_OVERFLOW_DROP_OLDEST"), Messages.getString("T_OVERFLOW_COALESCE")}); //$NON-NLS-1$ //$NON-NLS-2$
+		arrivalOverflowCombo.setSelectedIndex(Utils.ARRIVAL_OVERFLOW.ordinal());
+		panel.add(arrivalOverflowCombo);
+		generalPanel.add(panel);
 		getContentPane().add(generalPanel, BorderLayout.CENTER);
 	}
 	
@@ -149,6 +166,13 @@ public class NetConfigWindow extends JDialog {
 		} catch (NumberFormatException e) {
 			// Keep old value if there is a problem
 		}
+		try {
+			i = Integer.parseInt(arrivalQueueText.getText());
+			if (i>0) Utils.ARRIVAL_QUEUE_SIZE = i;
+		} catch (NumberFormatException e) {
+			// Keep old value if there is a problem
+		}
+		Utils.ARRIVAL_OVERFLOW = InCorridor.Overflow.values()[arrivalOverflowCombo.getSelectedIndex()];
 	}
 	/*
 	protected void defaultPreferences() {
@@ -113,9 +113,13 @@ public class NetConnectionsWindow extends JDialog {
 					connectionsPanel.add(new JLabel(c.getRemoteAddress().toString()), constraints);
 					constraints.gridx = 1;
 					connectionsPanel.add(new JLabel(Integer.toString(c.getRemotePort())), constraints);
+					constraints.gridx = 2;
+					connectionsPanel.add(new JLabel(Messages.getString("T_ARRIVALS_WAITING_LOST", //$NON-NLS-1$
+							Integer.toString(c.inCorridor.getDepth()),
+							Long.toString(c.inCorridor.getRejected() + c.inCorridor.getDropped()))), constraints);
 					JButton button = new JButton(Messages.getString("T_DISCONNECT")); //$NON-NLS-1$
 					button.addActionListener(new disconnectAction(c));
-					constraints.gridx = 2;
+					constraints.gridx = 3;
 					connectionsPanel.add(button, constraints);
 				}
 			}
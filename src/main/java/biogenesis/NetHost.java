@@ -0,0 +1,50 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+/**
+ * The application that runs a {@link NetServerThread} and its
+ * {@link Connection}s. This is all the network code needs from
+ * {@link MainWindow}, so that it can also run without user interface.
+ */
+public interface NetHost {
+	/**
+	 * Returns the world where the corridors of the connections are added.
+	 *
+	 * @return  The world.
+	 */
+	World getWorld();
+	/**
+	 * Shows a message about the state of the network to the user.
+	 *
+	 * @param str  The message.
+	 */
+	void setStatusMessage(String str);
+	/**
+	 * Returns true if other hosts can connect to this one.
+	 *
+	 * @return  true if new connections are accepted.
+	 */
+	boolean isAcceptingConnections();
+	/**
+	 * Returns the server that handles the links of the connections.
+	 *
+	 * @return  The server, or null if it hasn't been started.
+	 */
+	NetServerThread getNetServer();
+}
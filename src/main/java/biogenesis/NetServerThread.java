@@ -19,22 +19,50 @@ package biogenesis;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Accepts the links opened by other hosts and handles the messages received
+ * through all links, in both directions. Each {@link Connection} talks with
+ * the other host through a single {@link PeerLink} that stays open until
+ * the connection is closed.
+ *
+ * A single thread serves all links with a selector: it accepts new links,
+ * completes the ones opened from this host, and reads and writes each link
+ * when its channel is ready, so many hosts can be connected at the same time
+ * and a slow one doesn't delay the others. Links with no traffic for
+ * {@link PeerLink#TIMEOUT} milliseconds are closed.
+ */
 public class NetServerThread extends Thread {
 	protected InetAddress address;
 	protected int port;
-	protected ServerSocket serverSocket;
-	protected Socket listenSocket;
-	protected int state;
+	protected ServerSocketChannel serverChannel;
 	protected int netCode = 0;
-	protected int receivedMessage;
-	protected boolean isActive;
-	protected GeneticCode code;
+	protected volatile boolean isActive;
 	protected List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
-	protected MainWindow mainWindow;
-	private ObjectInputStream ois;
-	private ObjectOutputStream oos;
+	protected NetHost host;
+	/**
+	 * Maximum time to wait in the selector, in milliseconds, so that timeouts
+	 * are checked even if there is no traffic.
+	 */
+	private static final long SELECT_TIME = 1000;
+	/**
+	 * Time given to links to send their last frames once the server is
+	 * closed, in milliseconds.
+	 */
+	private static final long CLOSE_TIME = 2000;
+	private volatile Selector _selector;
+	/**
+	 * Links that must be registered or updated by the server thread.
+	 */
+	private final Queue<PeerLink> _changed = new ConcurrentLinkedQueue<>();
+	/**
+	 * Open links. Only used by the server thread.
+	 */
+	private final Set<PeerLink> _links = new HashSet<>();
 	
 	public static final int CONNECT = 1;
 	public static final int CONNECTED = 2;
@@ -43,15 +71,14 @@ public class NetServerThread extends Thread {
 	public static final int DISCONNECT = 5;
 	public static final int NOT_ACCEPTING_CONNECTIONS = 6;
 	public static final int NOT_CONNECTED = 7;
-	public static final int SEND_CODE = 8;
-	public static final int WAITING_CODE = 9;
-	public static final int CODE_RECEIVED = 10;
 	public static final int TOO_MANY_CODES = 11;
 	public static final int GAME_PAUSED = 12;
 	public static final int KEEP_ALIVE = 13;
 	public static final int ACK_KEEP_ALIVE = 14;
 	public static final int DISCONNECTED = 15;
 	public static final int INCOMPATIBLE_PROGRAM_VERSION = 16;
+	public static final int SEND_CODES = 17;
+	public static final int CODES_RECEIVED = 18;
 	
 	public static final int STATE_DISCONNECTED = 50;
 	public static final int STATE_CONNECTED = 51;
@@ -65,15 +92,14 @@ public class NetServerThread extends Thread {
 		case DISCONNECT: return "DISCONNECT"; //$NON-NLS-1$
 		case NOT_ACCEPTING_CONNECTIONS: return "NOT_ACCEPTING_CONNECTIONS"; //$NON-NLS-1$
 		case NOT_CONNECTED: return "NOT_CONNECTED"; //$NON-NLS-1$
-		case SEND_CODE: return "SEND_CODE"; //$NON-NLS-1$
-		case WAITING_CODE: return "WAITING_CODE"; //$NON-NLS-1$
-		case CODE_RECEIVED: return "CODE_RECEIVED"; //$NON-NLS-1$
 		case TOO_MANY_CODES: return "TOO_MANY_CODES"; //$NON-NLS-1$
 		case GAME_PAUSED: return "GAME_PAUSED"; //$NON-NLS-1$
 		case KEEP_ALIVE: return "KEEP_ALIVE"; //$NON-NLS-1$
 		case ACK_KEEP_ALIVE: return "ACK_KEEP_ALIVE"; //$NON-NLS-1$
 		case DISCONNECTED: return "DISCONNECTED"; //$NON-NLS-1$
 		case INCOMPATIBLE_PROGRAM_VERSION: return "INCOMPATIBLE_PROGRAM_VERSION"; //$NON-NLS-1$
+		case SEND_CODES: return "SEND_CODES"; //$NON-NLS-1$
+		case CODES_RECEIVED: return "CODES_RECEIVED"; //$NON-NLS-1$
 		default: return "Non existant code"; //$NON-NLS-1$
 		}
 	}
@@ -82,20 +108,20 @@ public class NetServerThread extends Thread {
 		return isActive;
 	}
 	
-	public NetServerThread(MainWindow app) {
-		mainWindow = app;
+	public NetServerThread(NetHost app) {
+		host = app;
 	}
 	
 	public List<Connection> getConnections() {
 		return connections;
 	}
 	
-	public Connection newConnection(InetAddress remoteAddress, int remotePort) {
+	public synchronized Connection newConnection(InetAddress remoteAddress, int remotePort) {
 		address = remoteAddress;
 		port = remotePort;
 		Connection c = checkConnectionDuplicity();
 		if (c == null) {
-			c = new Connection(mainWindow, remoteAddress, remotePort);
+			c = new Connection(host, remoteAddress, remotePort);
 			connections.add(c);
 		} else 
 			return null;
@@ -105,7 +131,7 @@ public class NetServerThread extends Thread {
 	private Connection newConnection() {
 		Connection c = checkConnectionDuplicity();
 		if (c == null) {
-			c = new Connection(mainWindow, address, port, netCode);
+			c = new Connection(host, address, port, netCode);
 			connections.add(c);
 		} else
 			return null;
@@ -118,186 +144,252 @@ public class NetServerThread extends Thread {
 
 	public void closeServer() {
 		isActive = false;
+		if (serverChannel != null) {
+			try {
+				serverChannel.close();
+			} catch (IOException e) {
+				System.out.println(e.getMessage());
+			}
+		}
 		// Remove all connections
+		List<Connection> closing;
 		synchronized (connections) {
-			for (Connection connection : connections) {
-				connection.send(DISCONNECT);
-				connection.setState(DISCONNECTED);
-			}
+			closing = new ArrayList<>(connections);
+		}
+		for (Connection connection : closing) {
+			connection.send(DISCONNECT);
+			connection.setState(Connection.STATE_DISCONNECTED);
 		}
 		connections = Collections.synchronizedList(new ArrayList<Connection>());
+		Selector selector = _selector;
+		if (selector != null)
+			selector.wakeup();
+	}
+	/**
+	 * Asks the server thread to register a link or to update it, after
+	 * frames have been queued or it has been closed. Called from any thread.
+	 * 
+	 * @param link  the link.
+	 */
+	void changed(PeerLink link) {
+		_changed.add(link);
+		Selector selector = _selector;
+		if (selector != null)
+			selector.wakeup();
 	}
 	
 	@Override
 	public void run() {
 		isActive = true;
 		try {
-			serverSocket=new ServerSocket(Utils.LOCAL_PORT);
-			mainWindow.setStatusMessage(Messages.getString("T_NET_SERVER_LISTENING_ON_PORT", Integer.toString(Utils.LOCAL_PORT))); //$NON-NLS-1$
+			_selector = Selector.open();
+		} catch (IOException e) {
+			e.printStackTrace();
+			isActive = false;
+			return;
+		}
+		try {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(Utils.LOCAL_PORT));
+			serverChannel.configureBlocking(false);
+			serverChannel.register(_selector, SelectionKey.OP_ACCEPT);
+			host.setStatusMessage(Messages.getString("T_NET_SERVER_LISTENING_ON_PORT", Integer.toString(Utils.LOCAL_PORT))); //$NON-NLS-1$
 		} catch (IOException e) {
 			if (e instanceof BindException) {
-				mainWindow.setStatusMessage(Messages.getString("T_PORT_ALREADY_IN_USE", Integer.toString(Utils.LOCAL_PORT))); //$NON-NLS-1$
+				host.setStatusMessage(Messages.getString("T_PORT_ALREADY_IN_USE", Integer.toString(Utils.LOCAL_PORT))); //$NON-NLS-1$
 			} else
 				e.printStackTrace();
-			isActive = false;
+			// Links opened from this host can still be used
+			if (serverChannel != null) {
+				try {
+					serverChannel.close();
+				} catch (IOException ex) {
+					System.out.println(ex.getMessage());
+				}
+			}
 		}
-		while (isActive) {
+		long stop = 0;
+		while (isActive || (!_links.isEmpty() && System.currentTimeMillis() < stop)) {
+			if (!isActive && stop == 0)
+				stop = System.currentTimeMillis() + CLOSE_TIME;
 			try {
-				listenSocket = serverSocket.accept();
-				ois = new ObjectInputStream(listenSocket.getInputStream());
-				oos = new ObjectOutputStream(listenSocket.getOutputStream());
-				receivedMessage = ois.readInt();
-				System.out.println(messageToString(receivedMessage));
-				switch (receivedMessage) {
-				case CONNECT:
-					handleConnect();
-					break;
-				case SEND_CODE:
-					handleSendCode();
-					break;
-				case KEEP_ALIVE:
-					handleKeepAlive();
-					break;
-				case DISCONNECT:
-					handleDisconnect();
-					break;
-				}
-				ois.close();
-				oos.close();
+				_selector.select(SELECT_TIME);
 			} catch (IOException e) {
-				System.out.println(e.getMessage());
-			} finally {
-				if (listenSocket != null)
-					try {
-						listenSocket.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-			}	
+				e.printStackTrace();
+				break;
+			}
+			long now = System.currentTimeMillis();
+			for (PeerLink link; (link = _changed.poll()) != null; ) {
+				link.update(_selector);
+				if (!link.isDone())
+					_links.add(link);
+			}
+			for (Iterator<SelectionKey> it = _selector.selectedKeys().iterator(); it.hasNext(); ) {
+				SelectionKey key = it.next();
+				it.remove();
+				if (!key.isValid())
+					continue;
+				if (key.attachment() == null)
+					accept();
+				else
+					((PeerLink) key.attachment()).ready(now);
+			}
+			for (Iterator<PeerLink> it = _links.iterator(); it.hasNext(); ) {
+				PeerLink link = it.next();
+				if (!link.isDone() && link.expired(now)) {
+					System.out.println("Timeout: "+link); //$NON-NLS-1$
+					link.abort();
+				}
+				if (link.isDone())
+					it.remove();
+			}
 		}
-	}
-	
-	private void handleDisconnect() {
-		Connection c = null;
+		for (PeerLink link : _links)
+			link.abort();
+		_links.clear();
 		try {
-			netCode = ois.readInt();
-			c = checkConnectionNetCode();
-			if (c != null && c.getState() == Connection.STATE_CONNECTED) {
-				oos.writeInt(DISCONNECTED);
-				oos.flush();
-				System.out.println("->DISCONNECTED"); //$NON-NLS-1$
-				c.setState(Connection.STATE_DISCONNECTED);
-			} else {
-				System.out.println("->NOT_CONNECTED"); //$NON-NLS-1$
-				oos.writeInt(NOT_CONNECTED);
-				oos.flush();
-			}
+			_selector.close();
 		} catch (IOException e) {
-			System.out.println("handleDisconnect: "+e.getMessage()); //$NON-NLS-1$
-			if (c!=null) {
-				c.setState(Connection.STATE_DISCONNECTED);
-				System.out.println("Connection closed with "+c.remoteAddress+":"+c.remotePort);  //$NON-NLS-1$//$NON-NLS-2$
-			}
+			System.out.println(e.getMessage());
 		}
 	}
 	
-	private void handleKeepAlive() {
-		Connection c = null;
+	private void accept() {
+		SocketChannel channel = null;
 		try {
-			netCode = ois.readInt();
-			c = checkConnectionNetCode();
-			if (c != null && c.getState() == Connection.STATE_CONNECTED) {
-				oos.writeInt(ACK_KEEP_ALIVE);
-				oos.flush();
-				System.out.println("->ACK_KEEP_ALIVE"); //$NON-NLS-1$
-			} else {
-				System.out.println("->NOT_CONNECTED"); //$NON-NLS-1$
-				oos.writeInt(NOT_CONNECTED);
-				oos.flush();
-			}
+			channel = serverChannel.accept();
+			if (channel == null)
+				return;
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+			PeerLink link = new PeerLink(this, channel, remote.getAddress(), remote.getPort());
+			link.update(_selector);
+			_links.add(link);
 		} catch (IOException e) {
-			System.out.println("handleKeepAlive: "+e.getMessage()); //$NON-NLS-1$
-			if (c!=null) {
+			if (isActive)
+				System.out.println(e.getMessage());
+			if (channel != null)
+				try {
+					channel.close();
+				} catch (IOException ex) {
+					ex.printStackTrace();
+				}
+		}
+	}
+	/**
+	 * Handles a frame received through a link. Called by the thread that reads
+	 * from the link.
+	 * 
+	 * @param link  the link.
+	 * @param message  the message received.
+	 * @param payload  the rest of the frame.
+	 * @throws IOException  if the payload is wrong. The link is closed.
+	 */
+	public synchronized void received(PeerLink link, int message, byte[] payload) throws IOException {
+		System.out.println(messageToString(message));
+		Connection c = link.getConnection();
+		if (c != null)
+			c.resetTime();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		switch (message) {
+		case CONNECT:
+			handleConnect(link, in);
+			break;
+		case SEND_CODES:
+			handleSendCodes(link, c, payload);
+			break;
+		case CODES_RECEIVED:
+		case TOO_MANY_CODES:
+			if (c != null) {
+				int batch = in.readInt();
+				in.readInt();
+				c.outCorridor.acknowledged(batch, in.readInt());
+			}
+			break;
+		case KEEP_ALIVE:
+			if (c != null && c.getState() == Connection.STATE_CONNECTED)
+				link.send(ACK_KEEP_ALIVE);
+			else
+				link.send(NOT_CONNECTED);
+			break;
+		case DISCONNECT:
+			if (c != null && c.getState() == Connection.STATE_CONNECTED) {
+				link.send(DISCONNECTED);
 				c.setState(Connection.STATE_DISCONNECTED);
-				System.out.println("Connection closed with "+c.remoteAddress+":"+c.remotePort); //$NON-NLS-1$ //$NON-NLS-2$
+			} else
+				link.send(NOT_CONNECTED);
+			break;
+		case CONNECTED:
+		case ALREADY_CONNECTED:
+			if (c != null)
+				c.setState(Connection.STATE_CONNECTED);
+			break;
+		case ACK_KEEP_ALIVE:
+			break;
+		default:
+			// Refused or closed by the other host
+			if (c != null) {
+				c.setState(Connection.STATE_DISCONNECTED);
+				System.out.println("Connection closed with "+c.remoteAddress+":"+c.remotePort);  //$NON-NLS-1$//$NON-NLS-2$
 			}
+			link.close();
+			break;
 		}
 	}
 	
-	private void handleConnect() {
-		try {
-			int program_version = ois.readInt();
-			port = ois.readInt();
-			address = listenSocket.getInetAddress();
-			netCode = ois.readInt();
-			Connection c = checkConnectionNetCode();
-			if (c != null) {
-				oos.writeInt(ALREADY_CONNECTED);
-				oos.flush();
-				System.out.println("->ALREADY_CONNECTED"); //$NON-NLS-1$
-			} else {
-				if (mainWindow.isAcceptingConnections()) {
-					if (connections.size() < Utils.MAX_CONNECTIONS) {
-						if (Utils.VERSION == program_version) {
-							Connection newConnection = newConnection();
-							if (newConnection != null) {
-								oos.writeInt(CONNECTED);
-								newConnection.setState(Connection.STATE_CONNECTED);
-								System.out.println("->CONNECTED"); //$NON-NLS-1$
-							} else {
-								oos.writeInt(ALREADY_CONNECTED);
-								System.out.println("->ALREADY_CONNECTED"); //$NON-NLS-1$
-							}
-							oos.flush();
+	private void handleConnect(PeerLink link, DataInputStream in) throws IOException {
+		int program_version = in.readInt();
+		port = in.readInt();
+		address = link.getRemoteAddress();
+		netCode = in.readInt();
+		Connection c = checkConnectionNetCode();
+		if (c != null) {
+			c.setLink(link);
+			link.send(ALREADY_CONNECTED);
+		} else {
+			if (host.isAcceptingConnections()) {
+				if (connections.size() < Utils.MAX_CONNECTIONS) {
+					if (Utils.VERSION == program_version) {
+						Connection newConnection = newConnection();
+						if (newConnection != null) {
+							newConnection.setLink(link);
+							link.send(CONNECTED);
+							newConnection.setState(Connection.STATE_CONNECTED);
 						} else {
-							oos.writeInt(INCOMPATIBLE_PROGRAM_VERSION);
-							oos.flush();
-							System.out.println("->INCOMPATIBLE_PROGRAM_VERSION"); //$NON-NLS-1$
+							link.send(ALREADY_CONNECTED);
 						}
 					} else {
-						oos.writeInt(TOO_MANY_CONNECTIONS);
-						oos.flush();
-						System.out.println("->TOO_MANY_CONNECTIONS"); //$NON-NLS-1$
+						link.send(INCOMPATIBLE_PROGRAM_VERSION);
+						link.close();
 					}
 				} else {
-					oos.writeInt(NOT_ACCEPTING_CONNECTIONS);
-					oos.flush();
-					System.out.println("->NOT_ACCEPTING_CONNECTIONS"); //$NON-NLS-1$
+					link.send(TOO_MANY_CONNECTIONS);
+					link.close();
 				}
+			} else {
+				link.send(NOT_ACCEPTING_CONNECTIONS);
+				link.close();
 			}
-		} catch (IOException ex) {
-			System.out.println(ex.getMessage());
 		}
 	}
 	
-	private void handleSendCode() {
-		Connection c = null;
-		try {
-			netCode = ois.readInt();
-			c = checkConnectionNetCode();
-			if (c != null && c.getState() == Connection.STATE_CONNECTED) {
-				oos.writeInt(WAITING_CODE);
-				oos.flush();
-				System.out.println("->WAITING_CODE"); //$NON-NLS-1$
-				code = (GeneticCode) ois.readObject();
-				System.out.println("Genetic code"); //$NON-NLS-1$
-				oos.writeInt(CODE_RECEIVED);
-				oos.flush();
-				System.out.println("->CODE_RECEIVED"); //$NON-NLS-1$
-				c.inCorridor.receiveOrganism(code);
-			} else {
-				System.out.println("->NOT_CONNECTED"); //$NON-NLS-1$
-				oos.writeInt(NOT_CONNECTED);
-				oos.flush();
-			}
-		} catch (IOException | ClassNotFoundException e) {
-			System.out.println("handleSendCode: "+e.getMessage()); //$NON-NLS-1$
-			if (c!=null) {
-				c.setState(Connection.STATE_DISCONNECTED);
-				System.out.println("Connection closed with "+c.remoteAddress+":"+c.remotePort);  //$NON-NLS-1$//$NON-NLS-2$
-			}
+	private void handleSendCodes(PeerLink link, Connection c, byte[] payload) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(payload);
+		int batch = data.getInt();
+		// Decoded even if they are not used, to keep the link's cache
+		List<GeneticCode> codes = link.getWire().decode(data);
+		if (c != null && c.getState() == Connection.STATE_CONNECTED) {
+			// Codes after the first refused one are refused too, so that the
+			// other host knows which ones to send again
+			int accepted = 0;
+			while (accepted < codes.size() && c.inCorridor.receiveOrganism(codes.get(accepted)))
+				accepted++;
+			link.send(accepted == codes.size() ? CODES_RECEIVED : TOO_MANY_CODES, batch, codes.size(), accepted);
+		} else {
+			link.send(NOT_CONNECTED);
 		}
-    }
+	}
 	
 	private Connection checkConnectionNetCode() {
 		synchronized (connections) {
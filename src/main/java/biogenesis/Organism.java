@@ -18,21 +18,16 @@
  */
 package biogenesis;
 
-import biogenesis.event.*;
 import java.awt.*;
 import java.awt.image.*;
 import java.awt.geom.*;
-import biogenesis.music.*;
-import org.apache.commons.lang3.event.EventListenerSupport;
+import java.util.Arrays;
+import java.util.Random;
 /**
  * This class implements an organism.
  * The body of the organism is drawn inside the Rectangle from which it inherits.
  */
 public class Organism extends Rectangle {
-	private final EventListenerSupport<OrganismCreatedListener> actionListeners = EventListenerSupport.create(OrganismCreatedListener.class);
-	private final EventListenerSupport<OrganismCollidedListener> actionCollidedListeners = EventListenerSupport.create(OrganismCollidedListener.class);
-
-
 	/**
 	 * The version of this class
 	 */
@@ -85,35 +80,41 @@ public class Organism extends Rectangle {
 	 */
 	protected int _nTotalInfected=0;
 	/**
-	 * X coordinates of the starting point of each organism's segments.
-	 */
-	protected int[] _startPointX;
-	/**
-	 * Y coordinates of the starting point of each organism's segments.
-	 */
-	protected int[] _startPointY;
-	/**
-	 * X coordinates of the ending point of each organism's segments.
+	 * Store where the geometry of this organism's segments is kept, or null
+	 * if the organism has no segments, for example because it has been
+	 * removed from the world.
 	 */
-	protected int[] _endPointX;
+	transient protected SegmentStore _store;
 	/**
-	 * Y coordinates of the ending point of each organism's segments.
+	 * Position of the first segment of this organism in {@link #_store}.
 	 */
-	protected int[] _endPointY;
+	transient protected int _segBase;
 	/**
-	 * Precalculated distance from the origin to the starting point of each segment.
-	 * Used to calculate rotations.
+	 * Position of this organism in the list of owners of {@link #_store}.
 	 */
-	protected double[] _m1;
+	transient protected int _segOwner = -1;
 	/**
-	 * Precalculated distance from the origin to the ending point of each segment.
-	 * Used to calculate rotations.
+	 * Size in bytes of the record written by {@link #writeSnapshot(WorldSnapshot.Output)}.
 	 */
-	protected double[] _m2;
+	static final int SNAPSHOT_RECORD_SIZE = 26 * 4 + 8 * 8 + 2 * 8 + 1;
 	/**
-	 * Precalculated modulus of each segment.
+	 * Rotation table for the current segments of this organism, only used when
+	 * {@link Utils#ROTATION_MODE} is {@link Utils#ROTATION_TABLE}. It is
+	 * forgotten every time the segments change.
 	 */
-	protected double[] _m;
+	transient private RotationTable _rotationTable;
+	/*
+	 * Serialized form of the segments. These arrays are only used while the
+	 * organism is written to or read from a stream; the rest of the time
+	 * segments are in _store. See SegmentStore for their meaning.
+	 */
+	private int[] _startPointX;
+	private int[] _startPointY;
+	private int[] _endPointX;
+	private int[] _endPointY;
+	private double[] _m1;
+	private double[] _m2;
+	private double[] _m;
 	/**
 	 * X coordinate of this organism's centre of gravity.
 	 */
@@ -171,10 +172,10 @@ public class Organism extends Rectangle {
 	 * change between two consecutive frames.
 	 */
 	protected double _lastTheta = -1;
-	/**
-	 * Rotated segments of the last frame, to use when _theta == _lastTheta
+	/*
+	 * Serialized form of the rotated segments of the last frame.
 	 */
-	protected int x1[],y1[],x2[],y2[];
+	private int x1[],y1[],x2[],y2[];
 	/**
 	 * Speed. Variation applied to organism coordinates at every frame.
 	 */
@@ -224,8 +225,49 @@ public class Organism extends Rectangle {
 
 	private long birthTime = -1;
 	private long deathTime = -1;
+	/**
+	 * Indicates if this organism is in the world's {@link SpatialGrid}.
+	 */
+	transient protected boolean _inGrid = false;
+	/**
+	 * Range of grid cells that this organism occupies, as stored by {@link SpatialGrid}.
+	 */
+	transient protected int _gridLeft, _gridTop, _gridRight, _gridBottom;
+	/**
+	 * Order in which this organism was added to the {@link SpatialGrid}.
+	 */
+	transient protected long _gridSequence;
+	/**
+	 * Last {@link SpatialGrid} query that returned this organism.
+	 */
+	transient protected int _gridMark;
 
-	private static transient Vector2D v = new Vector2D();
+	/**
+	 * Speed applied in {@link #prepareMove()}, kept to undo the movement
+	 * in {@link #commitMove()} if there is a collision.
+	 */
+	transient private double _dxbak, _dybak, _dthetabak;
+	/**
+	 * true while this organism is being prepared at the same time than other
+	 * organisms. Then gases are not exchanged with the world but accumulated in
+	 * {@link #_respiredO2} and {@link #_fixedCO2}, and random numbers are taken
+	 * from {@link #_frameRandom}.
+	 */
+	transient private boolean _deferred = false;
+	/**
+	 * Random number generator used while {@link #_deferred}. It is reseeded every
+	 * frame so that the result doesn't depend on the order in which organisms are
+	 * prepared.
+	 */
+	transient private Random _frameRandom;
+	/**
+	 * O2 consumed in the last deferred preparation.
+	 */
+	transient protected double _respiredO2;
+	/**
+	 * CO2 consumed by photosynthesis in the last deferred preparation.
+	 */
+	transient protected double _fixedCO2;
 	/**
 	 * Returns true if this organism is alive, false otherwise.
 	 *
@@ -333,10 +375,8 @@ public class Organism extends Rectangle {
 	public Organism(World world) {
 		_world = world;
 		_visibleWorld = world._visibleWorld;
-		_theta = Utils.random.nextDouble() * Math.PI * 2d;
+		_theta = world._random.nextDouble() * Math.PI * 2d;
 		birthTime = world.getTime();
-		addListener((OrganismCreatedListener)new MusicPlayer());
-		addListener((OrganismCollidedListener)new MusicPlayer());
 	}
 	/**
 	 * Construct an organism with a given genetic code. Doesn't initialize it:
@@ -350,35 +390,49 @@ public class Organism extends Rectangle {
 	public Organism(World world, GeneticCode geneticCode) {
 		_world = world;
 		_visibleWorld = world._visibleWorld;
-		_theta = Utils.random.nextDouble() * Math.PI * 2d;
+		_theta = world._random.nextDouble() * Math.PI * 2d;
 		_geneticCode = geneticCode;
 		birthTime = world.getTime();
-		addListener((OrganismCreatedListener)new MusicPlayer());
-		addListener((OrganismCollidedListener)new MusicPlayer());
+	}
+	/**
+	 * Constructor used to read an organism from a snapshot. Unlike the other
+	 * constructors, it doesn't use the world's random number generator.
+	 *
+	 * @param world  A reference to the world where this organism is in.
+	 * @param geneticCode  A reference to the genetic code of this organism.
+	 * @param birthTime  The time when the organism was born.
+	 */
+	private Organism(World world, GeneticCode geneticCode, long birthTime) {
+		_world = world;
+		_visibleWorld = world._visibleWorld;
+		_geneticCode = geneticCode;
+		this.birthTime = birthTime;
 	}
 	/**
 	 * Creates all data structures of this organism. Must be used after the organism
 	 * has a genetic code assigned.
 	 */
 	protected void create() {
+		releaseSegments();
 		_segments = _geneticCode.getNGenes() * _geneticCode.getSymmetry();
 		_segColor = new Color[_segments];
-		for (int i = 0; i < _segments; i++)
-			_segColor[i] = _geneticCode.getGene(i%_geneticCode.getNGenes()).getColor();
-		_startPointX = new int[_segments];
-		_startPointY = new int[_segments];
-		_endPointX = new int[_segments];
-		_endPointY = new int[_segments];
-		_m1 = new double[_segments];
-		_m2 = new double[_segments];
-		_m = new double[_segments];
-		x1 = new int[_segments];
-		y1 = new int[_segments];
-		x2 = new int[_segments];
-		y2 = new int[_segments];
+		_world.getSegmentStore().allocate(this, _segments);
+		restoreSegmentColors();
 
-		OrganismCreatedEvent event = new OrganismCreatedEvent();
-		actionListeners.fire().perform(event);
+		_world.fireOrganismCreated();
+	}
+	/**
+	 * Sets the color of each segment to the color of its gene, and its type
+	 * to the one that corresponds to that color. Used when the organism is
+	 * created or revived.
+	 */
+	public void restoreSegmentColors() {
+		SegmentStore s = _store;
+		int o = _segBase;
+		for (int i = 0; i < _segments; i++) {
+			_segColor[i] = _geneticCode.getGene(i%_geneticCode.getNGenes()).getColor();
+			s._type[o+i] = getTypeColor(_segColor[i]);
+		}
 	}
 	/**
 	 * Initializes variables for a new random organism and finds a place
@@ -388,7 +442,7 @@ public class Organism extends Rectangle {
 	 */
 	public boolean randomCreate() {
 		// Generates a random genetic code
-		_geneticCode = new GeneticCode();
+		_geneticCode = new GeneticCode(_world._random);
 		// it has no parent
 		_parentID = -1;
 		_generation = 1;
@@ -401,7 +455,10 @@ public class Organism extends Rectangle {
 		create();
 		symmetric();
 		// put it in the world
-		return placeRandom();
+		if (placeRandom())
+			return true;
+		releaseSegments();
+		return false;
 	}
 	/**
 	 * Initializes variables for a new organism born from an existing
@@ -421,7 +478,7 @@ public class Organism extends Rectangle {
 			inheritGeneticCode = parent._infectedGeneticCode;
 		else
 			inheritGeneticCode = parent._geneticCode;
-		_geneticCode = new GeneticCode(inheritGeneticCode);
+		_geneticCode = new GeneticCode(inheritGeneticCode, _world._random);
 		// Take a reference to the parent
 		_parentID = parent.getID();
 		_generation = parent.getGeneration() + 1;
@@ -437,6 +494,8 @@ public class Organism extends Rectangle {
 			ok = placeNear(parent);
 			if (ok && !first)
 				parent.useEnergy(Utils.YELLOW_ENERGY_CONSUMPTION);
+			else if (!ok)
+				releaseSegments();
 		} else
 			ok = false;
 
@@ -472,6 +531,7 @@ public class Organism extends Rectangle {
 			}
 		}
 		// It can't be placed
+		releaseSegments();
 		return false;
 	}
 	/**
@@ -490,7 +550,11 @@ public class Organism extends Rectangle {
 		int left=0, right=0, top=0, bottom=0;
 		int centerX, centerY;
 		double cx, cy;
+		Vector2D v = new Vector2D();
+		SegmentStore s = _store;
+		int o = _segBase;
 
+		_rotationTable = null;
 		for (i=0; i<symmetry; i++) {
 			for (j=0; j<sequence; j++,segment++) {
 				// Here, we take the vector that forms the segment, scale it depending on
@@ -498,8 +562,8 @@ public class Organism extends Rectangle {
 				// symmetry and mirroring.
 				v.setModulus(_geneticCode.getGene(j).getLength()/Utils.scale[_growthRatio-1]);
 				if (j==0) {
-					_startPointX[segment] = 0;
-					_startPointY[segment] = 0;
+					s._startPointX[o+segment] = 0;
+					s._startPointY[o+segment] = 0;
 					if (mirror == 0 || i%2==0)
 						v.setTheta(_geneticCode.getGene(j).getTheta()+i*2*Math.PI/symmetry);
 					else {
@@ -507,21 +571,21 @@ public class Organism extends Rectangle {
 						v.invertX();
 					}
 				} else {
-					_startPointX[segment] = _endPointX[segment - 1];
-					_startPointY[segment] = _endPointY[segment - 1];
+					s._startPointX[o+segment] = s._endPointX[o+segment - 1];
+					s._startPointY[o+segment] = s._endPointY[o+segment - 1];
 					if (mirror == 0 || i%2==0)
 						v.addDegree(_geneticCode.getGene(j).getTheta());
 					else
 						v.addDegree(-_geneticCode.getGene(j).getTheta());
 				}
 				// Apply the vector to the starting point to get the ending point.
-				_endPointX[segment] = (int) Math.round(v.getX() + _startPointX[segment]);
-				_endPointY[segment] = (int) Math.round(v.getY() + _startPointY[segment]);
+				s._endPointX[o+segment] = (int) Math.round(v.getX() + s._startPointX[o+segment]);
+				s._endPointY[o+segment] = (int) Math.round(v.getY() + s._startPointY[o+segment]);
 			    // Calculate the bounding rectangle of this organism
-			    left = Math.min(left, _endPointX[segment]);
-			    right = Math.max(right, _endPointX[segment]);
-			    top = Math.min(top, _endPointY[segment]);
-			    bottom = Math.max(bottom, _endPointY[segment]);
+			    left = Math.min(left, s._endPointX[o+segment]);
+			    right = Math.max(right, s._endPointX[o+segment]);
+			    top = Math.min(top, s._endPointY[o+segment]);
+			    bottom = Math.max(bottom, s._endPointY[o+segment]);
 			}
 		}
 		_sizeRect.setBounds(left, top, right-left+1, bottom-top+1);
@@ -532,23 +596,26 @@ public class Organism extends Rectangle {
 		_I = 0;
 		for (i=0; i<_segments; i++) {
 			// express points relative to the image center
-			_startPointX[i]-=centerX;
-			_startPointY[i]-=centerY;
-			_endPointX[i]-=centerX;
-			_endPointY[i]-=centerY;
+			s._startPointX[o+i]-=centerX;
+			s._startPointY[o+i]-=centerY;
+			s._endPointX[o+i]-=centerX;
+			s._endPointY[o+i]-=centerY;
 			// calculate points distance of the origin and modulus
-			_m1[i] = Math.sqrt(_startPointX[i]*_startPointX[i]+_startPointY[i]*_startPointY[i]);
-			_m2[i] = Math.sqrt(_endPointX[i]*_endPointX[i]+_endPointY[i]*_endPointY[i]);
-			_m[i] = Math.sqrt(Math.pow(_endPointX[i]-_startPointX[i],2) +
-					Math.pow(_endPointY[i]-_startPointY[i],2));
-			_mass += _m[i];
+			s._m1[o+i] = Math.sqrt(s._startPointX[o+i]*s._startPointX[o+i]+s._startPointY[o+i]*s._startPointY[o+i]);
+			s._m2[o+i] = Math.sqrt(s._endPointX[o+i]*s._endPointX[o+i]+s._endPointY[o+i]*s._endPointY[o+i]);
+			// and their angle, so that it isn't calculated every time the organism rotates
+			s._phi1[o+i] = Math.atan2(s._startPointY[o+i], s._startPointX[o+i]);
+			s._phi2[o+i] = Math.atan2(s._endPointY[o+i], s._endPointX[o+i]);
+			s._m[o+i] = Math.sqrt(Math.pow(s._endPointX[o+i]-s._startPointX[o+i],2) +
+					Math.pow(s._endPointY[o+i]-s._startPointY[o+i],2));
+			_mass += s._m[o+i];
 			// calculate inertia moment
 			// the mass center of a segment is its middle point
-			cx = (_startPointX[i] + _endPointX[i]) / 2d;
-			cy = (_startPointY[i] + _endPointY[i]) / 2d;
+			cx = (s._startPointX[o+i] + s._endPointX[o+i]) / 2d;
+			cy = (s._startPointY[o+i] + s._endPointY[o+i]) / 2d;
 			// add the effect of this segment, following the parallel axis theorem
-			_I += Math.pow(_m[i],3)/12d +
-				_m[i] * cx*cx + cy*cy;// mass * length^2 (center is at 0,0)
+			_I += Math.pow(s._m[o+i],3)/12d +
+				s._m[o+i] * cx*cx + cy*cy;// mass * length^2 (center is at 0,0)
 		}
 	}
 
@@ -568,8 +635,8 @@ public class Organism extends Rectangle {
 			 * making sure it is inside the world.
 			 */
 			Point origin = new Point(
-				Utils.random.nextInt(_world.getWidth()-_sizeRect.width),
-				Utils.random.nextInt(_world.getHeight()-_sizeRect.height));
+				_world._random.nextInt(_world.getWidth()-_sizeRect.width),
+				_world._random.nextInt(_world.getHeight()-_sizeRect.height));
 			setBounds(origin.x,origin.y,_sizeRect.width,_sizeRect.height);
 			_dCenterX = _centerX = origin.x + (_sizeRect.width>>1);
 			_dCenterY = _centerY = origin.y + (_sizeRect.height>>1);
@@ -591,7 +658,7 @@ public class Organism extends Rectangle {
 	 * @return  true if a suitable place has been found, false if not.
 	 */
 	private boolean placeNear(Organism parent) {
-		int nPos = Utils.random.nextInt(8);
+		int nPos = _world._random.nextInt(8);
 		// Try to put it in any possible position, starting from a randomly chosen one.
 		for (int nSide = 0; nSide < 8; nSide++) {
 			// Calculate candidate position
@@ -631,34 +698,36 @@ public class Organism extends Rectangle {
 	 */
 	public void draw(Graphics g) {
 		int i;
+		SegmentStore s = _store;
+		int o = _segBase;
 		if (_framesColor > 0) {
 			// Draw all the organism in the same color
 			g.setColor(_color);
 			_framesColor--;
 			for (i=0; i<_segments; i++)
 				g.drawLine(
-					x1[i] + _centerX,
-					y1[i] + _centerY,
-					x2[i] + _centerX,
-					y2[i] + _centerY);
+					s._x1[o+i] + _centerX,
+					s._y1[o+i] + _centerY,
+					s._x2[o+i] + _centerX,
+					s._y2[o+i] + _centerY);
 		} else {
 			if (alive) {
 				for (i=0; i<_segments; i++) {
 					g.setColor(_segColor[i]);
 					g.drawLine(
-							x1[i] + _centerX,
-							y1[i] + _centerY,
-							x2[i] + _centerX,
-							y2[i] + _centerY);
+							s._x1[o+i] + _centerX,
+							s._y1[o+i] + _centerY,
+							s._x2[o+i] + _centerX,
+							s._y2[o+i] + _centerY);
 				}
 			} else {
 				g.setColor(Utils.ColorBROWN);
 				for (i=0; i<_segments; i++) {
 					g.drawLine(
-							x1[i] + _centerX,
-							y1[i] + _centerY,
-							x2[i] + _centerX,
-							y2[i] + _centerY);
+							s._x1[o+i] + _centerX,
+							s._y1[o+i] + _centerY,
+							s._x2[o+i] + _centerX,
+							s._y2[o+i] + _centerY);
 				}
 			}
 		}
@@ -678,28 +747,69 @@ public class Organism extends Rectangle {
 		double left=java.lang.Double.MAX_VALUE, right=java.lang.Double.MIN_VALUE,
 		top=java.lang.Double.MAX_VALUE, bottom=java.lang.Double.MIN_VALUE;
 
-		double theta;
+		SegmentStore s = _store;
+		int o = _segBase;
+		/* Save calculation: if rotation hasn't changed and it is not forced,
+		 * don't calculate points again.
+		 */
+		if (_lastTheta != _theta || force)
+			rotateSegments();
 		for (int i=_segments-1; i>=0; i--) {
-			/* Save calculation: if rotation hasn't changed and it is not forced,
-			 * don't calculate points again.
-			 */
-			if (_lastTheta != _theta || force) {
-				theta=_theta+Math.atan2(_startPointY[i] ,_startPointX[i]);
-				x1[i]=(int)(_m1[i]*Math.cos(theta));
-				y1[i]=(int)(_m1[i]*Math.sin(theta));
-				theta=_theta+Math.atan2(_endPointY[i], _endPointX[i]);
-				x2[i]=(int)(_m2[i]*Math.cos(theta));
-				y2[i]=(int)(_m2[i]*Math.sin(theta));
-			}
 			// Finds the rectangle that comprises the organism
-			left = Utils.min(left, x1[i]+ _dCenterX, x2[i]+ _dCenterX);
-			right = Utils.max(right, x1[i]+ _dCenterX, x2[i]+ _dCenterX);
-			top = Utils.min(top, y1[i]+ _dCenterY, y2[i]+ _dCenterY);
-			bottom = Utils.max(bottom, y1[i]+ _dCenterY, y2[i]+ _dCenterY);
+			left = Utils.min(left, s._x1[o+i]+ _dCenterX, s._x2[o+i]+ _dCenterX);
+			right = Utils.max(right, s._x1[o+i]+ _dCenterX, s._x2[o+i]+ _dCenterX);
+			top = Utils.min(top, s._y1[o+i]+ _dCenterY, s._y2[o+i]+ _dCenterY);
+			bottom = Utils.max(bottom, s._y1[o+i]+ _dCenterY, s._y2[o+i]+ _dCenterY);
 		}
 		setBounds((int)left, (int)top, (int)(right-left+1)+1, (int)(bottom-top+1)+1);
 		_lastTheta = _theta;
 	}
+	/**
+	 * Calculates the position of the segments, relative to the organism's
+	 * center, after rotating them by {@link #_theta}. How it is done depends
+	 * on {@link Utils#ROTATION_MODE}:
+	 * <ul>
+	 * <li>{@link Utils#ROTATION_EXACT} rotates each point using its precalculated
+	 * angle. The result is exactly the same as in previous versions.</li>
+	 * <li>{@link Utils#ROTATION_FAST} calculates the sine and cosine of the rotation
+	 * only once and applies them to all points. Points can be one pixel away
+	 * from the exact calculation due to rounding.</li>
+	 * <li>{@link Utils#ROTATION_TABLE} uses a {@link RotationTable} shared by
+	 * all organisms with the same genetic code and size.</li>
+	 * </ul>
+	 */
+	private void rotateSegments() {
+		SegmentStore s = _store;
+		int o = _segBase;
+		int n = o + _segments;
+		double theta;
+		switch (Utils.ROTATION_MODE) {
+		case Utils.ROTATION_EXACT:
+			for (int i=o; i<n; i++) {
+				theta=_theta+s._phi1[i];
+				s._x1[i]=(int)(s._m1[i]*Math.cos(theta));
+				s._y1[i]=(int)(s._m1[i]*Math.sin(theta));
+				theta=_theta+s._phi2[i];
+				s._x2[i]=(int)(s._m2[i]*Math.cos(theta));
+				s._y2[i]=(int)(s._m2[i]*Math.sin(theta));
+			}
+			break;
+		case Utils.ROTATION_TABLE:
+			if (_rotationTable == null)
+				_rotationTable = _geneticCode.getRotationTable(_growthRatio, s, o, _segments);
+			_rotationTable.rotate(_theta, s, o);
+			break;
+		default:
+			double cos = Math.cos(_theta);
+			double sin = Math.sin(_theta);
+			for (int i=o; i<n; i++) {
+				s._x1[i]=(int)(s._startPointX[i]*cos - s._startPointY[i]*sin);
+				s._y1[i]=(int)(s._startPointX[i]*sin + s._startPointY[i]*cos);
+				s._x2[i]=(int)(s._endPointX[i]*cos - s._endPointY[i]*sin);
+				s._y2[i]=(int)(s._endPointX[i]*sin + s._endPointY[i]*cos);
+			}
+		}
+	}
 	/**
 	 * If its the time for this organism to grow, calculates its new segments and speed.
 	 * An alive organism can grow once every 8 frames until it gets its maximum size.
@@ -761,7 +871,16 @@ public class Organism extends Rectangle {
 	 * @return boolean – true if the organism has energy after this move, false otherwise.
 	 */
 	public boolean move() {
-		boolean collision = false;
+		prepareMove();
+		return commitMove();
+	}
+	/**
+	 * First part of {@link #move()}: segments upkeep and activation, rubbing,
+	 * growth and tentative movement. It only changes this organism, so it can be
+	 * executed for many organisms at the same time using
+	 * {@link #prepareMove(long)}.
+	 */
+	void prepareMove() {
 		hasMoved = false;
 		lastFrame.setBounds(this);
 		if (Math.abs(dx) < Utils.tol) dx = 0;
@@ -774,21 +893,49 @@ public class Organism extends Rectangle {
 		// Check if it can grow or shrink
 		grow();
 		// Movement
-		double dxbak=dx, dybak=dy, dthetabak=dtheta;
+		_dxbak=dx; _dybak=dy; _dthetabak=dtheta;
 		offset(dx,dy,dtheta);
 		calculateBounds(hasGrown!=0);
-
-		if (hasGrown!=0 || dx!=0 || dy!=0 || dtheta!=0) {
+	}
+	/**
+	 * Executes {@link #prepareMove()} without touching the world, so that it is
+	 * safe to call it from several threads for different organisms. The gases
+	 * exchanged are left in {@link #_respiredO2} and {@link #_fixedCO2} and the
+	 * world must apply them before calling {@link #commitMove()}.
+	 *
+	 * @param seed  The seed of the random numbers used by this organism in this frame.
+	 */
+	void prepareMove(long seed) {
+		if (_frameRandom == null)
+			_frameRandom = new Random();
+		_frameRandom.setSeed(seed);
+		_respiredO2 = 0;
+		_fixedCO2 = 0;
+		_deferred = true;
+		try {
+			prepareMove();
+		} finally {
+			_deferred = false;
+		}
+	}
+	/**
+	 * Second part of {@link #move()}: collision detection, reproduction,
+	 * respiration and death. It interacts with other organisms and the world,
+	 * so organisms must commit their movement one by one in a fixed order.
+	 *
+	 * @return boolean – true if the organism has energy after this move, false otherwise.
+	 */
+	boolean commitMove() {
+		boolean collision = false;
+		if (hasGrown!=0 || _dxbak!=0 || _dybak!=0 || _dthetabak!=0) {
 			hasMoved = true;
 			// Check it is inside the world
 			collision = !isInsideWorld();
 			// Collision detection with biological corridors
-			if (alive) {
-				OutCorridor c = _world.checkHitCorridor(this);
-				if (c != null && c.canSendOrganism()) {
-					if (c.sendOrganism(this))
-						return false;
-				}
+			if (alive && _world.sendThroughCorridor(this)) {
+				// The corridor keeps drawing it after it leaves the world
+				new SegmentStore(_segments).moveFrom(this);
+				return false;
 			}
 			// Collision detection with other organisms.
 			if (_world.checkHit(this) != null)
@@ -796,7 +943,7 @@ public class Organism extends Rectangle {
 			// If there is a collision, undo movement.
 			if (collision) {
 				hasMoved = false;
-				offset(-dxbak,-dybak,-dthetabak);
+				offset(-_dxbak,-_dybak,-_dthetabak);
 				if (hasGrown!=0) {
 					_growthRatio+=hasGrown;
 					symmetric();
@@ -804,6 +951,8 @@ public class Organism extends Rectangle {
 				calculateBounds(hasGrown!=0);
 			}
 		}
+		// Keep the collision broadphase up to date with the final position
+		_world.organismMoved(this);
 		// Substract one to the time needed to reproduce
 		if (_timeToReproduce > 0)
 			_timeToReproduce--;
@@ -831,10 +980,44 @@ public class Organism extends Rectangle {
 		if (_energy < q) {
 			return false;
 		}
-		double respiration = _world.respiration(q);
+		double respiration = respiration(q);
 		_energy -= respiration;
 		return respiration >= q;
 	}
+	/**
+	 * Takes O2 from the atmosphere to obtain energy, or from the organism's own view
+	 * of the atmosphere if it is being prepared in parallel.
+	 *
+	 * @param q  The quantity of O2 needed.
+	 * @return  The quantity of O2 obtained.
+	 */
+	private double respiration(double q) {
+		if (!_deferred)
+			return _world.respiration(q);
+		double d = Math.min(q, _world._frameO2 - _respiredO2 + _fixedCO2);
+		_respiredO2 += d;
+		return d;
+	}
+	/**
+	 * Takes CO2 from the atmosphere through photosynthesis, or from the organism's
+	 * own view of the atmosphere if it is being prepared in parallel.
+	 *
+	 * @param q  The total length of green segments.
+	 * @return  The amount of CO2 obtained.
+	 */
+	private double photosynthesis(double q) {
+		if (!_deferred)
+			return _world.photosynthesis(q);
+		q = World.photosynthesisAmount(q, _world._frameCO2 + _respiredO2 - _fixedCO2);
+		_fixedCO2 += q;
+		return q;
+	}
+	/**
+	 * Returns the random number generator that this organism must use while moving.
+	 */
+	private Random random() {
+		return _deferred ? _frameRandom : _world._random;
+	}
 	/**
 	 * Realize the respiration process to maintain its structure.
 	 * Aging is applied here too.
@@ -869,6 +1052,7 @@ public class Organism extends Rectangle {
 		hasMoved = true;
 		for (int i=0; i<_segments; i++) {
 			_segColor[i] = Utils.ColorBROWN;
+			_store._type[_segBase+i] = BROWN;
 		}
 		_world.decreasePopulation();
 		if (killingOrganism != null)
@@ -1002,18 +1186,20 @@ public class Organism extends Rectangle {
 		int i,j;
 		ExLine2DDouble line = new ExLine2DDouble();
 		ExLine2DDouble bline = new ExLine2DDouble();
+		SegmentStore s = _store, os = org._store;
+		int o = _segBase, ob = org._segBase;
 		// Check collisions for all segments
 		for (i = _segments-1; i >= 0; i--) {
 			// Consider only segments with modulus greater than 1
-			if (_m[i]>=1) {
-				line.setLine(x1[i]+_centerX, y1[i]+_centerY, x2[i]+_centerX, y2[i]+_centerY);
+			if (s._m[o+i]>=1) {
+				line.setLine(s._x1[o+i]+_centerX, s._y1[o+i]+_centerY, s._x2[o+i]+_centerX, s._y2[o+i]+_centerY);
 				// First check if the line intersects the bounding box of the other organism
 				if (org.intersectsLine(line)) {
 					// Do the same for the other organism's segments.
 					for (j = org._segments-1; j >= 0; j--) {
-						if (org._m[j]>=1) {
-							bline.setLine(org.x1[j] + org._centerX, org.y1[j] + org._centerY,
-									org.x2[j] + org._centerX, org.y2[j] + org._centerY);
+						if (os._m[ob+j]>=1) {
+							bline.setLine(os._x1[ob+j] + org._centerX, os._y1[ob+j] + org._centerY,
+									os._x2[ob+j] + org._centerX, os._y2[ob+j] + org._centerY);
 							if (intersectsLine(bline) && line.intersectsLine(bline)) {
 								// If we found two intersecting segments, apply effects
 								touchEffects(org,i,j,true);
@@ -1034,8 +1220,7 @@ public class Organism extends Rectangle {
 								else
 									touchMove(org,intersec,line,true);
 
-								OrganismCollidedEvent event = new OrganismCollidedEvent();
-								actionCollidedListeners.fire().perform(event);
+								_world.fireOrganismCollided();
 
 								// Find only one collision to speed up.
 								return true;
@@ -1060,100 +1245,49 @@ public class Organism extends Rectangle {
 	private void touchEffects(Organism org, int seg, int oseg, boolean firstCall) {
 		if ((_parentID == org._ID || _ID == org._parentID) && org.alive)
 			return;
-		double takenEnergy = 0;
-		switch (getTypeColor(_segColor[seg])) {
-		case RED:
-		// Red segment: try to get energy from the other organism
-			// If the other segment is blue, it acts as a shield
-			switch (getTypeColor(org._segColor[oseg])) {
-			case BLUE:
-				if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
-					org.setColor(Color.BLUE);
-				} else {
-					// Doesn't have energy to use the shield
-					if (useEnergy(Utils.RED_ENERGY_CONSUMPTION)) {
-						// Get energy depending on segment length
-						takenEnergy = Utils.between(_m[seg] * Utils.ORGANIC_OBTAINED_ENERGY, 0, org._energy);
-						// The other organism will be shown in yellow
-						org.setColor(Color.YELLOW);
-					}
-				}
-				break;
-			case RED:
-				if (useEnergy(Utils.RED_ENERGY_CONSUMPTION)) {
-					// Get energy depending on segment length
-					takenEnergy = Utils.between(_m[seg] * Utils.ORGANIC_OBTAINED_ENERGY, 0, org._energy);
-					// The other organism will be shown in red
-					org.setColor(Color.RED);
-				}
-				break;
-			default:
-				if (useEnergy(Utils.RED_ENERGY_CONSUMPTION)) {
-					// Get energy depending on segment length
-					takenEnergy = Utils.between(_m[seg] * Utils.ORGANIC_OBTAINED_ENERGY, 0, org._energy);
-					// The other organism will be shown in yellow
-					org.setColor(Color.YELLOW);
-				}
+		switch (TOUCH_EFFECTS[_store._type[_segBase+seg]][org._store._type[org._segBase+oseg]]) {
+		case BITE_SHIELDED:
+			// Red segment against a blue one: it acts as a shield
+			if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
+				org.setColor(Color.BLUE);
+				takeEnergy(org, 0);
+			} else {
+				// Doesn't have energy to use the shield
+				takeEnergy(org, bite(org, seg, Color.YELLOW));
 			}
-			// energy interchange
-			org._energy -= takenEnergy;
-			_energy += takenEnergy;
-			double CO2freed = takenEnergy * Utils.ORGANIC_SUBS_PRODUCED;
-			useEnergy(CO2freed);
-			// This organism will be shown in red
-			setColor(Color.RED);
 			break;
-		case WHITE:
-			// White segment: try to infect the other organism
-			switch (getTypeColor(org._segColor[oseg])) {
-			case BLUE:
-				if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
-					setColor(Color.WHITE);
-					org.setColor(Color.BLUE);
-				} else {
-					if (org._infectedGeneticCode != _geneticCode) {
-						if (useEnergy(Utils.WHITE_ENERGY_CONSUMPTION)) {
-							org.infectedBy(this);
-							org.setColor(Color.YELLOW);
-							setColor(Color.WHITE);
-						}
-					}
-				}
-				break;
-			case BROWN:
-				break;
-			default:
-				if (org._infectedGeneticCode != _geneticCode) {
-					if (useEnergy(Utils.WHITE_ENERGY_CONSUMPTION)) {
-						org.infectedBy(this);
-						org.setColor(Color.YELLOW);
-						setColor(Color.WHITE);
-					}
-				}
+		case BITE_RED:
+			// The other organism will be shown in red
+			takeEnergy(org, bite(org, seg, Color.RED));
+			break;
+		case BITE:
+			// The other organism will be shown in yellow
+			takeEnergy(org, bite(org, seg, Color.YELLOW));
+			break;
+		case INFECT_SHIELDED:
+			// White segment against a blue one
+			if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
+				setColor(Color.WHITE);
+				org.setColor(Color.BLUE);
+			} else {
+				infect(org);
 			}
 			break;
-		case GRAY:
-			switch (getTypeColor(org._segColor[oseg])) {
-			case BLUE:
-				if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
-					org.setColor(Color.BLUE);
-					setColor(Color.GRAY);
-				} else {
-					if (useEnergy(Utils.GRAY_ENERGY_CONSUMPTION)) {
-						org.die(this);
-						setColor(Color.GRAY);
-					}
-				}
-				break;
-			case BROWN:
-				break;
-			default:
-				if (useEnergy(Utils.GRAY_ENERGY_CONSUMPTION)) {
-					org.die(this);
-					setColor(Color.GRAY);
-				}
+		case INFECT:
+			infect(org);
+			break;
+		case KILL_SHIELDED:
+			// Gray segment against a blue one
+			if (org.useEnergy(Utils.BLUE_ENERGY_CONSUMPTION)) {
+				org.setColor(Color.BLUE);
+				setColor(Color.GRAY);
+			} else {
+				kill(org);
 			}
 			break;
+		case KILL:
+			kill(org);
+			break;
 		}
 		// Check if the other organism has died
 		if (org.isAlive() && org._energy < Utils.tol) {
@@ -1184,22 +1318,24 @@ public class Organism extends Rectangle {
 			int i;
 			// Energy obtained through photosynthesis
 			double photosynthesis = 0;
+			SegmentStore s = _store;
+			int o = _segBase;
 			_nChildren = 1;
 			for (i=_segments-1; i>=0; i--) {
 				// Manteniment
-				switch (getTypeColor(_segColor[i])) {
+				switch (s._type[o+i]) {
 				// 	Segments cilis
 				case CYAN:
-					if (Utils.random.nextInt(100)<8 && useEnergy(Utils.CYAN_ENERGY_CONSUMPTION)) {
-						dx=Utils.between(dx+12d*(x2[i]-x1[i])/_mass, -Utils.MAX_VEL, Utils.MAX_VEL);
-						dy=Utils.between(dy+12d*(y2[i]-y1[i])/_mass, -Utils.MAX_VEL, Utils.MAX_VEL);
-						dtheta=Utils.between(dtheta+Utils.randomSign()*_m[i]*Math.PI/_I, -Utils.MAX_ROT, Utils.MAX_ROT);
+					if (random().nextInt(100)<8 && useEnergy(Utils.CYAN_ENERGY_CONSUMPTION)) {
+						dx=Utils.between(dx+12d*(s._x2[o+i]-s._x1[o+i])/_mass, -Utils.MAX_VEL, Utils.MAX_VEL);
+						dy=Utils.between(dy+12d*(s._y2[o+i]-s._y1[o+i])/_mass, -Utils.MAX_VEL, Utils.MAX_VEL);
+						dtheta=Utils.between(dtheta+Utils.randomSign(random())*s._m[o+i]*Math.PI/_I, -Utils.MAX_ROT, Utils.MAX_ROT);
 					}
 					break;
 					// Segments fotosint�tics
 				case GREEN:
 					if (useEnergy(Utils.GREEN_ENERGY_CONSUMPTION))
-						photosynthesis += _m[i];
+						photosynthesis += s._m[o+i];
 					break;
 					// Segments que obtenen energia de subs1
 					// 	Segments relacionats amb la fertilitat
@@ -1210,23 +1346,53 @@ public class Organism extends Rectangle {
 			}
 			// Photosynthesis process
 			//Get sun's energy
-			_energy += _world.photosynthesis(photosynthesis);
+			_energy += photosynthesis(photosynthesis);
 		}
 	}
 
-	private static final int NOCOLOR=-1;
-	private static final int GREEN=0;
-	private static final int RED=1;
-	private static final int CYAN=2;
-	private static final int BLUE=3;
-	private static final int MAGENTA=4;
-	private static final int PINK=5;
-	private static final int ORANGE=6;
-	private static final int WHITE=7;
-	private static final int GRAY=8;
-	private static final int YELLOW=9;
-	private static final int BROWN=10;
-	private static int getTypeColor(Color c) {
+	/*
+	 * Segment types. Each segment's type is kept in SegmentStore._type so that
+	 * colors are only compared when the organism is created.
+	 */
+	private static final byte GREEN=0;
+	private static final byte RED=1;
+	private static final byte CYAN=2;
+	private static final byte BLUE=3;
+	private static final byte MAGENTA=4;
+	private static final byte PINK=5;
+	private static final byte ORANGE=6;
+	private static final byte WHITE=7;
+	private static final byte GRAY=8;
+	private static final byte YELLOW=9;
+	private static final byte BROWN=10;
+	private static final byte NOCOLOR=11;
+	private static final int N_TYPES=12;
+	/*
+	 * Effects of a segment touching another one.
+	 */
+	private static final byte NO_EFFECT=0;
+	private static final byte BITE=1;
+	private static final byte BITE_RED=2;
+	private static final byte BITE_SHIELDED=3;
+	private static final byte INFECT=4;
+	private static final byte INFECT_SHIELDED=5;
+	private static final byte KILL=6;
+	private static final byte KILL_SHIELDED=7;
+	/**
+	 * Effect of a segment touching another segment, indexed by the type of
+	 * the touching segment and the type of the touched one.
+	 */
+	private static final byte[][] TOUCH_EFFECTS = new byte[N_TYPES][N_TYPES];
+	static {
+		for (int t = 0; t < N_TYPES; t++) {
+			// Red segments bite anything, blue segments act as a shield
+			TOUCH_EFFECTS[RED][t] = t == BLUE ? BITE_SHIELDED : t == RED ? BITE_RED : BITE;
+			// White and gray segments have no effect on corpses
+			TOUCH_EFFECTS[WHITE][t] = t == BLUE ? INFECT_SHIELDED : t == BROWN ? NO_EFFECT : INFECT;
+			TOUCH_EFFECTS[GRAY][t] = t == BLUE ? KILL_SHIELDED : t == BROWN ? NO_EFFECT : KILL;
+		}
+	}
+	private static byte getTypeColor(Color c) {
 		if (c.equals(Color.RED) || c.equals(Utils.ColorDARK_RED))
 			return RED;
 		if (c.equals(Color.GREEN) || c.equals(Utils.ColorDARK_GREEN))
@@ -1252,6 +1418,63 @@ public class Organism extends Rectangle {
 		return NOCOLOR;
 	}
 
+	/**
+	 * Red segment effect: tries to get energy from the other organism.
+	 *
+	 * @param org  The organism being bitten.
+	 * @param seg  Index of this organism's red segment.
+	 * @param c  The color the other organism will be shown in.
+	 * @return  The energy that can be taken from the other organism.
+	 */
+	private double bite(Organism org, int seg, Color c) {
+		if (useEnergy(Utils.RED_ENERGY_CONSUMPTION)) {
+			// Get energy depending on segment length
+			org.setColor(c);
+			return Utils.between(_store._m[_segBase+seg] * Utils.ORGANIC_OBTAINED_ENERGY, 0, org._energy);
+		}
+		return 0;
+	}
+	/**
+	 * Moves energy from a bitten organism to this one.
+	 *
+	 * @param org  The organism that has been bitten.
+	 * @param takenEnergy  The energy to take.
+	 */
+	private void takeEnergy(Organism org, double takenEnergy) {
+		// energy interchange
+		org._energy -= takenEnergy;
+		_energy += takenEnergy;
+		double CO2freed = takenEnergy * Utils.ORGANIC_SUBS_PRODUCED;
+		useEnergy(CO2freed);
+		// This organism will be shown in red
+		setColor(Color.RED);
+	}
+	/**
+	 * White segment effect: tries to infect the other organism.
+	 *
+	 * @param org  The organism being infected.
+	 */
+	private void infect(Organism org) {
+		if (org._infectedGeneticCode != _geneticCode) {
+			if (useEnergy(Utils.WHITE_ENERGY_CONSUMPTION)) {
+				org.infectedBy(this);
+				org.setColor(Color.YELLOW);
+				setColor(Color.WHITE);
+			}
+		}
+	}
+	/**
+	 * Gray segment effect: tries to kill the other organism.
+	 *
+	 * @param org  The organism being killed.
+	 */
+	private void kill(Organism org) {
+		if (useEnergy(Utils.GRAY_ENERGY_CONSUMPTION)) {
+			org.die(this);
+			setColor(Color.GRAY);
+		}
+	}
+
 	private void setColor(Color c) {
 		_color = c;
 		_framesColor = 10;
@@ -1262,18 +1485,228 @@ public class Organism extends Rectangle {
 		Graphics2D g = image.createGraphics();
 		g.setBackground(Color.BLACK);
 		g.clearRect(0,0,width,height);
+		SegmentStore s = _store;
+		int o = _segBase;
 		for (int i=_segments-1; i>=0; i--) {
 				g.setColor(_segColor[i]);
-				g.drawLine(x1[i] -x + _centerX, y1[i] - y + _centerY, x2[i] - x + _centerX, y2[i] - y+_centerY);
+				g.drawLine(s._x1[o+i] -x + _centerX, s._y1[o+i] - y + _centerY, s._x2[o+i] - x + _centerX, s._y2[o+i] - y+_centerY);
 		}
 		return image;
 	}
 
-	public void addListener(OrganismCreatedListener listener) {
-		actionListeners.addListener(listener);
+	/**
+	 * Frees the segments of this organism. Used when the organism is not
+	 * going to be in the world anymore, it can't be drawn or moved after this.
+	 */
+	public void releaseSegments() {
+		if (_store != null)
+			_store.release(this);
+	}
+	/**
+	 * Writes this organism to a snapshot as a record of exactly
+	 * {@link #SNAPSHOT_RECORD_SIZE} bytes. Segments are not written, as they
+	 * only depend on the genetic code, the growth ratio and the rotation.
+	 *
+	 * @param out  The snapshot being written.
+	 * @throws IOException  if the organism can't be written.
+	 */
+	void writeSnapshot(WorldSnapshot.Output out) throws java.io.IOException {
+		out.putInt(_ID);
+		out.putInt(_parentID);
+		out.putInt(_generation);
+		out.putInt(_nChildren);
+		out.putInt(_nTotalChildren);
+		out.putInt(_nTotalKills);
+		out.putInt(_nTotalInfected);
+		out.putInt(_segments);
+		out.putInt(_growthRatio);
+		out.putInt(_age);
+		out.putInt(_framesColor);
+		out.putInt(_timeToReproduce);
+		out.putInt(hasGrown);
+		out.putInt(_centerX);
+		out.putInt(_centerY);
+		out.putInt(x);
+		out.putInt(y);
+		out.putInt(width);
+		out.putInt(height);
+		out.putInt(lastFrame.x);
+		out.putInt(lastFrame.y);
+		out.putInt(lastFrame.width);
+		out.putInt(lastFrame.height);
+		out.putGeneticCode(_geneticCode);
+		out.putGeneticCode(_infectedGeneticCode);
+		out.putColor(_color);
+		out.putDouble(_dCenterX);
+		out.putDouble(_dCenterY);
+		out.putDouble(_energy);
+		out.putDouble(_theta);
+		out.putDouble(_lastTheta);
+		out.putDouble(dx);
+		out.putDouble(dy);
+		out.putDouble(dtheta);
+		out.putLong(birthTime);
+		out.putLong(deathTime);
+		out.putByte((alive ? 1 : 0) | (hasMoved ? 2 : 0));
+	}
+	/**
+	 * Reads an organism written by {@link #writeSnapshot(WorldSnapshot.Output)}
+	 * and, if it is in the world, calculates its segments again in the world's store.
+	 *
+	 * @param world  The world where the organism is or was.
+	 * @param in  The snapshot being read.
+	 * @param inWorld  true if the organism is in the world, false if it is
+	 * only remembered by the {@link WorldMemory}.
+	 * @return  The organism.
+	 * @throws IOException  if the organism can't be read or it is not valid.
+	 */
+	static Organism readSnapshot(World world, WorldSnapshot.Input in, boolean inWorld) throws java.io.IOException {
+		int[] ints = new int[23];
+		for (int i = 0; i < ints.length; i++)
+			ints[i] = in.getInt();
+		GeneticCode geneticCode = in.getGeneticCode();
+		GeneticCode infectedGeneticCode = in.getGeneticCode();
+		Color color = in.getColor();
+		double dCenterX = in.getDouble();
+		double dCenterY = in.getDouble();
+		double energy = in.getDouble();
+		double theta = in.getDouble();
+		double lastTheta = in.getDouble();
+		double speedX = in.getDouble();
+		double speedY = in.getDouble();
+		double speedTheta = in.getDouble();
+		long birth = in.getLong();
+		long death = in.getLong();
+		int flags = in.getByte();
+		in.skip(in._recordSize - SNAPSHOT_RECORD_SIZE);
+		if (geneticCode == null ||
+				ints[7] != geneticCode.getNGenes() * geneticCode.getSymmetry() ||
+				ints[8] < 1 || ints[8] > Utils.scale.length)
+			throw new java.io.IOException("Invalid organism " + ints[0]); //$NON-NLS-1$
+
+		Organism org = new Organism(world, geneticCode, birth);
+		org._ID = ints[0];
+		org._parentID = ints[1];
+		org._generation = ints[2];
+		org._nChildren = ints[3];
+		org._nTotalChildren = ints[4];
+		org._nTotalKills = ints[5];
+		org._nTotalInfected = ints[6];
+		org._segments = ints[7];
+		org._growthRatio = ints[8];
+		org._age = ints[9];
+		org._framesColor = ints[10];
+		org._timeToReproduce = ints[11];
+		org.hasGrown = ints[12];
+		org._centerX = ints[13];
+		org._centerY = ints[14];
+		org._infectedGeneticCode = infectedGeneticCode;
+		org._color = color;
+		org._dCenterX = dCenterX;
+		org._dCenterY = dCenterY;
+		org._energy = energy;
+		org.dx = speedX;
+		org.dy = speedY;
+		org.dtheta = speedTheta;
+		org.deathTime = death;
+		org.alive = (flags & 1) != 0;
+		org.hasMoved = (flags & 2) != 0;
+		org.lastFrame.setBounds(ints[19], ints[20], ints[21], ints[22]);
+		org.setBounds(ints[15], ints[16], ints[17], ints[18]);
+		org._theta = theta;
+		org._lastTheta = lastTheta;
+		org._segColor = new Color[org._segments];
+		for (int i=0; i<org._segments; i++)
+			org._segColor[i] = org.alive ? geneticCode.getGene(i%geneticCode.getNGenes()).getColor() : Utils.ColorBROWN;
+		if (!inWorld)
+			return org;
+		// Calculate segments as they were when the organism was written
+		world.getSegmentStore().allocate(org, org._segments);
+		for (int i=0; i<org._segments; i++)
+			org._store._type[org._segBase+i] = getTypeColor(org._segColor[i]);
+		org.symmetric();
+		if (lastTheta != -1) {
+			org._theta = lastTheta;
+			org.rotateSegments();
+			org._theta = theta;
+		} else {
+			// Created by randomCreate and not moved yet: segments are not rotated
+			SegmentStore s = org._store;
+			int o = org._segBase;
+			Arrays.fill(s._x1, o, o + org._segments, 0);
+			Arrays.fill(s._y1, o, o + org._segments, 0);
+			Arrays.fill(s._x2, o, o + org._segments, 0);
+			Arrays.fill(s._y2, o, o + org._segments, 0);
+		}
+		return org;
+	}
+	/**
+	 * Copies this organism's segments to the arrays used to serialize them.
+	 *
+	 * @param out  The stream where the object is written.
+	 * @throws IOException if the object cannot be written.
+	 */
+	private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+		SegmentStore s = _store;
+		if (s != null) {
+			int o = _segBase, n = o + _segments;
+			_startPointX = Arrays.copyOfRange(s._startPointX, o, n);
+			_startPointY = Arrays.copyOfRange(s._startPointY, o, n);
+			_endPointX = Arrays.copyOfRange(s._endPointX, o, n);
+			_endPointY = Arrays.copyOfRange(s._endPointY, o, n);
+			_m1 = Arrays.copyOfRange(s._m1, o, n);
+			_m2 = Arrays.copyOfRange(s._m2, o, n);
+			_m = Arrays.copyOfRange(s._m, o, n);
+			x1 = Arrays.copyOfRange(s._x1, o, n);
+			y1 = Arrays.copyOfRange(s._y1, o, n);
+			x2 = Arrays.copyOfRange(s._x2, o, n);
+			y2 = Arrays.copyOfRange(s._y2, o, n);
+		}
+		try {
+			out.defaultWriteObject();
+		} finally {
+			clearSerializedSegments();
+		}
+	}
+	/**
+	 * Puts the segments read from the stream in a store of their own. The world
+	 * moves them to its store when it is read.
+	 *
+	 * @param in  The stream from where the object comes from.
+	 * @throws ClassNotFoundException if class cannot be found.
+	 * @throws IOException if object cannot be read due to I/O problem.
+	 */
+	private void readObject(java.io.ObjectInputStream in)
+	throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		_segOwner = -1;
+		if (_startPointX != null) {
+			SegmentStore s = new SegmentStore(_segments);
+			s.allocate(this, _segments);
+			System.arraycopy(_startPointX, 0, s._startPointX, 0, _segments);
+			System.arraycopy(_startPointY, 0, s._startPointY, 0, _segments);
+			System.arraycopy(_endPointX, 0, s._endPointX, 0, _segments);
+			System.arraycopy(_endPointY, 0, s._endPointY, 0, _segments);
+			System.arraycopy(_m1, 0, s._m1, 0, _segments);
+			System.arraycopy(_m2, 0, s._m2, 0, _segments);
+			System.arraycopy(_m, 0, s._m, 0, _segments);
+			System.arraycopy(x1, 0, s._x1, 0, _segments);
+			System.arraycopy(y1, 0, s._y1, 0, _segments);
+			System.arraycopy(x2, 0, s._x2, 0, _segments);
+			System.arraycopy(y2, 0, s._y2, 0, _segments);
+			for (int i = 0; i < _segments; i++)
+				s._type[i] = getTypeColor(_segColor[i]);
+			for (int i = 0; i < _segments; i++) {
+				s._phi1[i] = Math.atan2(s._startPointY[i], s._startPointX[i]);
+				s._phi2[i] = Math.atan2(s._endPointY[i], s._endPointX[i]);
+			}
+		}
+		clearSerializedSegments();
 	}
 
-	public void addListener(OrganismCollidedListener listener) {
-		actionCollidedListeners.addListener(listener);
+	private void clearSerializedSegments() {
+		_startPointX = _startPointY = _endPointX = _endPointY = null;
+		_m1 = _m2 = _m = null;
+		x1 = y1 = x2 = y2 = null;
 	}
 }
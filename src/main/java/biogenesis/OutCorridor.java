@@ -19,12 +19,66 @@ package biogenesis;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * A biological corridor that sends organisms to another host.
+ *
+ * Organisms that enter the corridor leave the world at once, and their
+ * genetic codes are queued. At the end of each frame, {@link World#time()}
+ * calls {@link #frame()}, that sends the queued codes in batches of up to
+ * {@link #MAX_BATCH} codes. The other host acknowledges each batch. Codes
+ * queued or sent but not acknowledged yet are limited to {@link #MAX_PENDING},
+ * and organisms don't enter the corridor while that number is reached, so a
+ * slow connection makes organisms wait in this world instead of piling up
+ * in memory. Organisms whose genetic code the other host would refuse (see
+ * {@link GenomeWire#canTravel(GeneticCode)}) don't enter the corridor either.
+ *
+ * The other host accepts the first codes of a batch, until its queue of
+ * arrivals is full, and refuses the rest. Refused codes are sent again, and
+ * no organism enters the corridor until the other host has accepted all of
+ * them, so organisms are not lost because the other world is full.
+ *
+ * The animation of the last organism that has left is only drawn, and
+ * doesn't limit how many organisms can leave.
+ */
 public class OutCorridor extends Corridor {
 	private static final long serialVersionUID = Utils.FILE_VERSION;
+	/**
+	 * Maximum number of genetic codes in a batch.
+	 */
+	public static final int MAX_BATCH = 64;
+	/**
+	 * Maximum number of genetic codes waiting to be sent or to be acknowledged.
+	 */
+	public static final int MAX_PENDING = 4 * MAX_BATCH;
+	/**
+	 * Genetic codes waiting for the end of the frame. Only used by the
+	 * thread that runs the world.
+	 */
+	private List<GeneticCode> _queued = new ArrayList<>();
+	/**
+	 * Genetic codes sent and not acknowledged yet.
+	 */
+	private AtomicInteger _unacknowledged = new AtomicInteger();
+	/**
+	 * Genetic codes of the batches not acknowledged yet, by batch number.
+	 */
+	private Map<Integer,List<GeneticCode>> _sent = new ConcurrentHashMap<>();
+	/**
+	 * Genetic codes refused by the other host, waiting to be sent again.
+	 */
+	private ConcurrentLinkedQueue<GeneticCode> _refused = new ConcurrentLinkedQueue<>();
+	private int _nextBatch;
 	
 	public boolean canSendOrganism() {
-		return travellingOrganism == null;
+		return connection.state == Connection.STATE_CONNECTED && _refused.isEmpty() &&
+				_queued.size() + _unacknowledged.get() < MAX_PENDING;
 	}
 	
 	public OutCorridor(World w, Connection c) {
@@ -33,16 +87,63 @@ public class OutCorridor extends Corridor {
 	}
 	
 	public boolean sendOrganism(Organism org) {
-		if (travellingOrganism == null && connection.state == Connection.STATE_CONNECTED) {
-			connection.send(org.getGeneticCode());
+		if (canSendOrganism() && GenomeWire.canTravel(org.getGeneticCode())) {
+			_queued.add(org.getGeneticCode());
 			travellingOrganism = org;
-			org.useEnergy(org.getEnergy());
-			org.alive = false;
-			world.decreasePopulation();
+			world.organismLeft(org);
 			return true;
 		}
 		return false;
 	}
+	/**
+	 * Sends the genetic codes queued during this frame. Called by
+	 * {@link World#time()} at the end of each frame. Codes refused by the
+	 * other host are sent again once all batches have been acknowledged,
+	 * so they are sent at most once for each round trip.
+	 */
+	public void frame() {
+		if (!_refused.isEmpty() && _sent.isEmpty()) {
+			List<GeneticCode> refused = new ArrayList<>();
+			GeneticCode code;
+			while ((code = _refused.poll()) != null)
+				refused.add(code);
+			_queued.addAll(0, refused);
+		}
+		if (_queued.isEmpty())
+			return;
+		for (int i = 0; i < _queued.size(); i += MAX_BATCH) {
+			List<GeneticCode> batch = new ArrayList<>(_queued.subList(i, Math.min(i + MAX_BATCH, _queued.size())));
+			int number = _nextBatch++;
+			_unacknowledged.addAndGet(batch.size());
+			_sent.put(number, batch);
+			connection.send(number, batch);
+		}
+		_queued.clear();
+	}
+	/**
+	 * Informs that the other host has received a batch. Called by
+	 * {@link NetServerThread}. The codes after the accepted ones will be
+	 * sent again.
+	 *
+	 * @param batch  The number of the batch.
+	 * @param accepted  The number of genetic codes accepted by the other host.
+	 */
+	public void acknowledged(int batch, int accepted) {
+		List<GeneticCode> codes = _sent.remove(batch);
+		if (codes == null)
+			return;
+		if (accepted >= 0 && accepted < codes.size())
+			_refused.addAll(codes.subList(accepted, codes.size()));
+		_unacknowledged.addAndGet(-codes.size());
+	}
+	/**
+	 * Informs that the connection uses a new link, so batches sent before
+	 * will never be acknowledged.
+	 */
+	public void linkChanged() {
+		_sent.clear();
+		_unacknowledged.set(0);
+	}
 	
 	@Override
 	public void draw(Graphics g) {
@@ -17,6 +17,8 @@
  */
 package biogenesis;
 
+import biogenesis.music.MusicPlayer;
+
 import javax.swing.*;
 import javax.swing.border.EtchedBorder;
 import javax.swing.event.ChangeEvent;
@@ -35,6 +37,12 @@ public class ParamDialog extends JDialog {
 	protected JRadioButton hardwareOpenGLRadio = null;
 	private ButtonGroup hardwareGroup = null;
 	protected JCheckBox hardwareFBObjectCheck = null;
+	protected JCheckBox soundCheck = null;
+	protected JTextField autosaveFramesText = null;
+	protected JTextField autosaveGenerationsText = null;
+	protected JCheckBox journalCheck = null;
+	protected JCheckBox deltaGenomesCheck = null;
+	protected JComboBox<String> compressionCombo = null;
 	private JTextField rubbingText = null;
 	private JTextField elasticityText = null;
 	private JTextField initialnumberText = null;
@@ -103,6 +111,12 @@ public class ParamDialog extends JDialog {
 		widthText.setText(String.valueOf(Utils.DEF_WORLD_WIDTH));
 		heightText.setText(String.valueOf(Utils.DEF_WORLD_HEIGHT));
 		delayText.setText(String.valueOf(Utils.DEF_DELAY));
+		soundCheck.setSelected(Utils.DEF_SOUND);
+		autosaveFramesText.setText(String.valueOf(Utils.DEF_AUTOSAVE_FRAMES));
+		autosaveGenerationsText.setText(String.valueOf(Utils.DEF_AUTOSAVE_GENERATIONS));
+		journalCheck.setSelected(Utils.DEF_JOURNAL);
+		deltaGenomesCheck.setSelected(Utils.DEF_DELTA_GENOMES);
+		compressionCombo.setSelectedIndex(Utils.DEF_COMPRESSION.ordinal());
 		rubbingText.setText(String.valueOf(Utils.DEF_RUBBING));
 		elasticityText.setText(String.valueOf(Utils.DEF_ELASTICITY));
 		initialnumberText.setText(String.valueOf(Utils.DEF_INITIAL_ORGANISMS));
@@ -196,6 +210,44 @@ public class ParamDialog extends JDialog {
 		label = new JLabel(Messages.getString("T_MILLISECONDS")); //$NON-NLS-1$
 		panel.add(label);
 		generalPanel.add(panel);
+		// Sound
+		panel = new JPanel();
+		soundCheck = new JCheckBox(Messages.getString("T_PLAY_SOUNDS"), Utils.SOUND); //$NON-NLS-1$
+		panel.add(soundCheck);
+		generalPanel.add(panel);
+		// Autosave
+		panel = new JPanel();
+		label = new JLabel(Messages.getString("T_AUTOSAVE_EVERY")); //$NON-NLS-1$
+		panel.add(label);
+		autosaveFramesText = new JTextField(Integer.toString(Utils.AUTOSAVE_FRAMES),6);
+		panel.add(autosaveFramesText);
+		label = new JLabel(Messages.getString("T_FRAMES_ZERO_DISABLES")); //$NON-NLS-1$
+		panel.add(label);
+		generalPanel.add(panel);
+		panel = new JPanel();
+		label = new JLabel(Messages.getString("T_AUTOSAVE_FILES")); //$NON-NLS-1$
+		panel.add(label);
+		autosaveGenerationsText = new JTextField(Integer.toString(Utils.AUTOSAVE_GENERATIONS),6);
+		panel.add(autosaveGenerationsText);
+		generalPanel.add(panel);
+		panel = new JPanel();
+		journalCheck = new JCheckBox(Messages.getString("T_WRITE_JOURNAL"), Utils.JOURNAL); //$NON-NLS-1$
+		panel.add(journalCheck);
+		generalPanel.add(panel);
+		panel = new JPanel();
+		deltaGenomesCheck = new JCheckBox(Messages.getString("T_DELTA_GENOMES"), Utils.DELTA_GENOMES); //$NON-NLS-1$
+		panel.add(deltaGenomesCheck);
+		generalPanel.add(panel);
+		panel = new JPanel();
+		label = new JLabel(Messages.getString("T_COMPRESSION")); //$NON-NLS-1$
+		panel.add(label);
+		// In the order of BlockCompression.Codec
+		compressionCombo = new JComboBox<>(new String[] {Messages.getString("T_NONE"), //$NON-NLS-1$
+				Messages.getString("T_COMPRESSION_FAST"), Messages.getString("T_COMPRESSION_NORMAL"), //$NON-NLS-1$ //$NON-NLS-2$
+				Messages.getString("T_COMPRESSION_BEST")}); //$NON-NLS-1$
+		compressionCombo.setSelectedIndex(Utils.COMPRESSION.ordinal());
+		panel.add(compressionCombo);
+		generalPanel.add(panel);
 		// OpenGL
 		panel = new JPanel();
 		panel.setLayout(new GridLayout(5,1));
@@ -458,6 +510,23 @@ public class ParamDialog extends JDialog {
 		} catch (NumberFormatException ex) {
 			// Keep old value if there is a problem
 		}
+		Utils.SOUND = soundCheck.isSelected();
+		MusicPlayer.getInstance().setEnabled(Utils.SOUND);
+		try {
+			i = Integer.parseInt(autosaveFramesText.getText());
+			if (i >= 0) Utils.AUTOSAVE_FRAMES = i;
+		} catch (NumberFormatException ex) {
+			// Keep old value if there is a problem
+		}
+		try {
+			i = Integer.parseInt(autosaveGenerationsText.getText());
+			if (i > 0) Utils.AUTOSAVE_GENERATIONS = i;
+		} catch (NumberFormatException ex) {
+			// Keep old value if there is a problem
+		}
+		Utils.JOURNAL = journalCheck.isSelected();
+		Utils.DELTA_GENOMES = deltaGenomesCheck.isSelected();
+		Utils.COMPRESSION = BlockCompression.Codec.values()[compressionCombo.getSelectedIndex()];
 		try {
 			d = Double.parseDouble(initialO2Text.getText());
 			if (d >= 0) Utils.INITIAL_O2 = d;
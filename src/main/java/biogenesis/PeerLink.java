@@ -0,0 +1,435 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long lived network connection with another instance of biogenesis.
+ * There is one link for each {@link Connection}, opened by the host that
+ * connects and accepted by the {@link NetServerThread} of the other host,
+ * and both hosts send all their messages through it, in both directions.
+ *
+ * Messages are sent in frames: the length of the payload, the message
+ * (see {@link NetServerThread}) and the payload. Answers are sent as
+ * frames too, so a host never waits for the other one: frames received
+ * are passed to {@link NetServerThread#received(PeerLink, int, byte[])}
+ * as they arrive.
+ *
+ * Links use non blocking channels. All of them are served by the single
+ * thread of the {@link NetServerThread}, which reads and writes each link
+ * only when its channel is ready, so a slow or stalled host never holds up
+ * the others. Each link has its own input buffer, where partial frames wait
+ * for the rest of their bytes, and its own queue of frames to send, which
+ * {@link #send(int, byte[])} fills from any thread without blocking. Queued
+ * frames are written together, as many as the channel accepts.
+ *
+ * A link is closed if nothing is received or sent for {@link #TIMEOUT}
+ * milliseconds, or if more than {@link #MAX_OUTPUT} bytes are waiting
+ * to be sent.
+ */
+public class PeerLink {
+	/**
+	 * Maximum length of the payload of a frame. Longer frames close the
+	 * link, as they can only come from something that isn't biogenesis.
+	 */
+	public static final int MAX_FRAME = 1 << 20;
+	/**
+	 * Time to wait for a connection or for some traffic, in milliseconds.
+	 * Idle connections send keep alive messages more often than this.
+	 */
+	public static final int TIMEOUT = 90000;
+	/**
+	 * Maximum number of bytes waiting to be sent. A host that doesn't read
+	 * its link fast enough is disconnected when this number is reached.
+	 */
+	public static final int MAX_OUTPUT = 8 << 20;
+	/**
+	 * Initial size of the input buffer. It grows for longer frames.
+	 */
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * Maximum number of frames passed to a single write.
+	 */
+	private static final int MAX_GATHER = 64;
+
+	private final NetServerThread _server;
+	private final SocketChannel _channel;
+	private final InetAddress _address;
+	private final int _port;
+	/**
+	 * Frames sent from any thread, not taken by the server thread yet.
+	 */
+	private final Queue<ByteBuffer> _queue = new ConcurrentLinkedQueue<>();
+	private final AtomicLong _queuedBytes = new AtomicLong();
+	/**
+	 * No more frames can be sent.
+	 */
+	private final AtomicBoolean _closed = new AtomicBoolean(false);
+	/**
+	 * Encodes and decodes the genetic codes sent through this link.
+	 */
+	private final GenomeWire _wire = new GenomeWire();
+	/**
+	 * The link must be dropped without sending queued frames.
+	 */
+	private volatile boolean _aborting;
+	private volatile Connection _connection;
+	// Only used by the server thread
+	private SelectionKey _key;
+	private ByteBuffer _input = ByteBuffer.allocate(BUFFER_SIZE);
+	private final ArrayDeque<ByteBuffer> _output = new ArrayDeque<>();
+	private final ByteBuffer[] _gather = new ByteBuffer[MAX_GATHER];
+	private boolean _outputShutdown;
+	private long _lastActivity = System.currentTimeMillis();
+
+	/**
+	 * Creates a link over a channel, connected or connecting. Nothing is
+	 * read or sent until {@link #start()} is called.
+	 *
+	 * @param server  The server that handles the received frames.
+	 * @param channel  The channel, in non blocking mode.
+	 * @param address  The address of the other host.
+	 * @param port  The port of the other host.
+	 */
+	PeerLink(NetServerThread server, SocketChannel channel, InetAddress address, int port) {
+		_server = server;
+		_channel = channel;
+		_address = address;
+		_port = port;
+	}
+	/**
+	 * Starts connecting to the server of another host. The connection is
+	 * completed by the server thread once the link is started.
+	 *
+	 * @param server  The server that handles the received frames.
+	 * @param address  The address of the other host.
+	 * @param port  The port of the other host.
+	 * @return  The link, not started yet.
+	 * @throws IOException  if the connection can't be started.
+	 */
+	public static PeerLink open(NetServerThread server, InetAddress address, int port) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		try {
+			channel.configureBlocking(false);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			channel.connect(new InetSocketAddress(address, port));
+			return new PeerLink(server, channel, address, port);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	/**
+	 * Hands the link to the server thread, that will read and write it from
+	 * now on.
+	 */
+	public void start() {
+		_server.changed(this);
+	}
+	/**
+	 * Returns the connection that uses this link.
+	 *
+	 * @return  The connection, or null if the other host hasn't connected yet.
+	 */
+	public Connection getConnection() {
+		return _connection;
+	}
+	/**
+	 * Sets the connection that uses this link. Used by {@link Connection#setLink(PeerLink)}.
+	 *
+	 * @param c  The connection.
+	 */
+	void setConnection(Connection c) {
+		_connection = c;
+	}
+	/**
+	 * Returns the address of the other host.
+	 *
+	 * @return  The address.
+	 */
+	public InetAddress getRemoteAddress() {
+		return _address;
+	}
+	/**
+	 * Returns the encoder of the genetic codes sent through this link.
+	 *
+	 * @return  The encoder.
+	 */
+	public GenomeWire getWire() {
+		return _wire;
+	}
+	/**
+	 * Returns true if the link has been closed.
+	 *
+	 * @return  true if no more frames can be sent.
+	 */
+	public boolean isClosed() {
+		return _closed.get();
+	}
+	/**
+	 * Sends a message with some integers as payload. The frame is queued
+	 * and this method returns immediately.
+	 *
+	 * @param message  The message.
+	 * @param values  The payload.
+	 */
+	public void send(int message, int... values) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(values.length * 4);
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			for (int value : values)
+				out.writeInt(value);
+		} catch (IOException e) {
+			// Not thrown by a ByteArrayOutputStream
+		}
+		send(message, bytes.toByteArray());
+	}
+	/**
+	 * Sends a message. The frame is queued and this method returns
+	 * immediately. Nothing is done if the link is closed.
+	 *
+	 * @param message  The message.
+	 * @param payload  The payload.
+	 */
+	public void send(int message, byte[] payload) {
+		if (payload.length > MAX_FRAME)
+			throw new IllegalArgumentException("Frame too long: " + payload.length); //$NON-NLS-1$
+		if (_closed.get())
+			return;
+		ByteBuffer frame = ByteBuffer.allocate(payload.length + 8);
+		frame.putInt(payload.length).putInt(message).put(payload).flip();
+		System.out.println("->" + NetServerThread.messageToString(message)); //$NON-NLS-1$
+		_queue.add(frame);
+		if (_queuedBytes.addAndGet(frame.remaining()) > MAX_OUTPUT) {
+			System.out.println("PeerLink: too many bytes waiting to be sent to " + _address); //$NON-NLS-1$
+			_aborting = true;
+			_closed.set(true);
+		}
+		_server.changed(this);
+	}
+	/**
+	 * Sends a batch of genetic codes. The batch is encoded and queued
+	 * and this method returns immediately.
+	 *
+	 * @param batch  A number that identifies the batch.
+	 * @param codes  The genetic codes, at most {@link OutCorridor#MAX_BATCH}.
+	 */
+	public void sendCodes(int batch, List<GeneticCode> codes) {
+		// Batches must be queued in the same order they are encoded
+		synchronized (_wire) {
+			send(NetServerThread.SEND_CODES, _wire.encode(batch, codes));
+		}
+	}
+	/**
+	 * Closes the link after sending the frames already queued. Frames sent
+	 * after this are ignored.
+	 */
+	public void close() {
+		if (_closed.compareAndSet(false, true))
+			_server.changed(this);
+	}
+	/**
+	 * Registers the link in the selector or updates the operations it waits
+	 * for, after frames have been queued or the link has been closed.
+	 * Called by the server thread.
+	 *
+	 * @param selector  The selector of the server thread.
+	 */
+	void update(Selector selector) {
+		if (!_channel.isOpen())
+			return;
+		if (_aborting) {
+			abort();
+			return;
+		}
+		try {
+			if (_key == null)
+				_key = _channel.register(selector, 0, this);
+			int ops = SelectionKey.OP_READ;
+			if (_channel.isConnectionPending())
+				ops = SelectionKey.OP_CONNECT;
+			else if (!_queue.isEmpty() || !_output.isEmpty())
+				ops |= SelectionKey.OP_WRITE;
+			else if (_closed.get())
+				shutdownOutput();
+			_key.interestOps(ops);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	/**
+	 * Handles the operations the channel is ready for. Called by the server
+	 * thread.
+	 *
+	 * @param now  The current time.
+	 */
+	void ready(long now) {
+		try {
+			if (_key.isConnectable()) {
+				if (!_channel.finishConnect())
+					return;
+				_lastActivity = now;
+			}
+			if (_key.isValid() && _key.isReadable())
+				read(now);
+			if (_key.isValid() && _key.isWritable())
+				write(now);
+			if (_key.isValid())
+				update(_key.selector());
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		}
+	}
+	/**
+	 * Returns true if nothing has been received or sent for too long.
+	 * Called by the server thread.
+	 *
+	 * @param now  The current time.
+	 * @return  true if the link must be closed.
+	 */
+	boolean expired(long now) {
+		return now - _lastActivity > TIMEOUT;
+	}
+	/**
+	 * Returns true once the channel has been closed.
+	 *
+	 * @return  true if the server thread can forget this link.
+	 */
+	boolean isDone() {
+		return !_channel.isOpen();
+	}
+
+	private void read(long now) throws IOException {
+		int n = _channel.read(_input);
+		if (n < 0) {
+			// The other host has closed the link
+			abort();
+			return;
+		}
+		if (n == 0)
+			return;
+		_lastActivity = now;
+		_input.flip();
+		int needed = 0;
+		while (_input.remaining() >= 8) {
+			int start = _input.position();
+			int length = _input.getInt(start);
+			int message = _input.getInt(start + 4);
+			if (length < 0 || length > MAX_FRAME)
+				throw new IOException("Wrong frame length: " + length); //$NON-NLS-1$
+			if (_input.remaining() < length + 8) {
+				needed = length + 8;
+				break;
+			}
+			byte[] payload = new byte[length];
+			_input.position(start + 8);
+			_input.get(payload);
+			if (!_closed.get())
+				_server.received(this, message, payload);
+			if (!_channel.isOpen())
+				return;
+		}
+		_input.compact();
+		if (needed > _input.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocate(needed);
+			_input.flip();
+			bigger.put(_input);
+			_input = bigger;
+		}
+	}
+
+	private void write(long now) throws IOException {
+		for (ByteBuffer frame; (frame = _queue.poll()) != null; )
+			_output.add(frame);
+		while (!_output.isEmpty()) {
+			int n = 0;
+			for (ByteBuffer frame : _output) {
+				_gather[n++] = frame;
+				if (n == MAX_GATHER)
+					break;
+			}
+			long written = _channel.write(_gather, 0, n);
+			Arrays.fill(_gather, 0, n, null);
+			if (written > 0) {
+				_lastActivity = now;
+				_queuedBytes.addAndGet(-written);
+			}
+			while (!_output.isEmpty() && !_output.peek().hasRemaining())
+				_output.poll();
+			if (written == 0)
+				break;
+		}
+	}
+
+	private void shutdownOutput() throws IOException {
+		if (!_outputShutdown) {
+			// Wait for the other host to close its side
+			_outputShutdown = true;
+			_channel.shutdownOutput();
+		}
+	}
+
+	private void fail(Exception e) {
+		if (!_closed.get())
+			System.out.println("PeerLink: " + e.getMessage()); //$NON-NLS-1$
+		abort();
+	}
+	/**
+	 * Closes the channel immediately and informs the connection. Called by
+	 * the server thread.
+	 */
+	void abort() {
+		_closed.set(true);
+		_queue.clear();
+		_output.clear();
+		if (_key != null)
+			_key.cancel();
+		try {
+			_channel.close();
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		}
+		Connection c = _connection;
+		if (c != null && c.link == this)
+			c.setState(Connection.STATE_DISCONNECTED);
+	}
+	/**
+	 * Returns a description of the link, for messages.
+	 */
+	@Override
+	public String toString() {
+		return _address + ":" + _port; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,124 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precalculated positions of the segments of an organism for a fixed number
+ * of rotation angles. All organisms with the same genetic code and growth
+ * ratio have the same segments, so they can share a table, that is kept by
+ * their {@link GeneticCode}.
+ *
+ * The rotation angle is rounded to the nearest of {@link #STEPS} angles, so
+ * segments can be up to one pixel away from their exact position for every
+ * 80 pixels of distance to the organism's center. It is only used when
+ * {@link Utils#ROTATION_MODE} is {@link Utils#ROTATION_TABLE}.
+ *
+ * Positions for an angle are calculated the first time that the angle is
+ * used. Tables can be used by several threads at the same time.
+ */
+public class RotationTable {
+	/**
+	 * Number of different angles in a whole turn. It must be a power of two.
+	 */
+	static final int STEPS = 256;
+	/**
+	 * Converts an angle in radians to a step.
+	 */
+	private static final double STEPS_PER_RADIAN = STEPS / (2 * Math.PI);
+	/**
+	 * Number of segments of the organism.
+	 */
+	private final int _segments;
+	/**
+	 * Distance from the center to the starting and ending point of each segment.
+	 */
+	private final double[] _m1, _m2;
+	/**
+	 * Angle of the starting and ending point of each segment when the organism
+	 * is not rotated.
+	 */
+	private final double[] _phi1, _phi2;
+	/**
+	 * Rotated segments for every step, stored as x1, y1, x2, y2 for each segment.
+	 */
+	private final AtomicReferenceArray<short[]> _rotations = new AtomicReferenceArray<>(STEPS);
+
+	/**
+	 * Creates a table for the segments that an organism has in a store. The
+	 * segments are copied, so the table doesn't depend on the organism.
+	 *
+	 * @param s  The store with the segments of the organism.
+	 * @param base  Position of the first segment in the store.
+	 * @param segments  Number of segments of the organism.
+	 */
+	public RotationTable(SegmentStore s, int base, int segments) {
+		_segments = segments;
+		_m1 = new double[segments];
+		_m2 = new double[segments];
+		_phi1 = new double[segments];
+		_phi2 = new double[segments];
+		System.arraycopy(s._m1, base, _m1, 0, segments);
+		System.arraycopy(s._m2, base, _m2, 0, segments);
+		System.arraycopy(s._phi1, base, _phi1, 0, segments);
+		System.arraycopy(s._phi2, base, _phi2, 0, segments);
+	}
+	/**
+	 * Returns the number of segments of the organisms that use this table.
+	 */
+	public int getSegments() {
+		return _segments;
+	}
+	/**
+	 * Writes to a store the position of the segments rotated by the angle
+	 * that is nearest to the given one.
+	 *
+	 * @param theta  The rotation angle, in radians.
+	 * @param s  The store where rotated segments are written.
+	 * @param base  Position of the first segment in the store.
+	 */
+	public void rotate(double theta, SegmentStore s, int base) {
+		int step = (int) (Math.round(theta * STEPS_PER_RADIAN) & (STEPS - 1));
+		short[] r = _rotations.get(step);
+		if (r == null) {
+			// Other threads may calculate the same values at the same time, but
+			// they are always the same.
+			r = calculate(step);
+			_rotations.lazySet(step, r);
+		}
+		for (int i = 0, k = 0; i < _segments; i++) {
+			s._x1[base+i] = r[k++];
+			s._y1[base+i] = r[k++];
+			s._x2[base+i] = r[k++];
+			s._y2[base+i] = r[k++];
+		}
+	}
+
+	private short[] calculate(int step) {
+		double theta = step / STEPS_PER_RADIAN;
+		short[] r = new short[_segments * 4];
+		for (int i = 0, k = 0; i < _segments; i++) {
+			r[k++] = (short) (_m1[i] * Math.cos(theta + _phi1[i]));
+			r[k++] = (short) (_m1[i] * Math.sin(theta + _phi1[i]));
+			r[k++] = (short) (_m2[i] * Math.cos(theta + _phi2[i]));
+			r[k++] = (short) (_m2[i] * Math.sin(theta + _phi2[i]));
+		}
+		return r;
+	}
+}
@@ -0,0 +1,276 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the geometry of the segments of many organisms in a few big arrays,
+ * instead of having a set of small arrays for every organism. Each organism
+ * owns a contiguous range of positions, starting at {@link Organism#_segBase}
+ * and with length {@link Organism#_segments}, in every array. This way, the
+ * loops over segments that are executed every frame read memory sequentially
+ * and organisms need much less memory.
+ *
+ * A world has one store for all its organisms. When organisms die, their
+ * ranges are left unused until the store is compacted, which also puts the
+ * organisms in the same order than in the world's list.
+ *
+ * Allocating, releasing and compacting must not be done at the same time than
+ * other accesses to the store. Different organisms may change their own
+ * segments at the same time.
+ */
+public class SegmentStore {
+	/**
+	 * Minimum number of unused positions before compaction is worth it.
+	 */
+	private static final int MIN_GARBAGE = 4096;
+	/**
+	 * X coordinates of the starting point of each segment.
+	 */
+	protected int[] _startPointX;
+	/**
+	 * Y coordinates of the starting point of each segment.
+	 */
+	protected int[] _startPointY;
+	/**
+	 * X coordinates of the ending point of each segment.
+	 */
+	protected int[] _endPointX;
+	/**
+	 * Y coordinates of the ending point of each segment.
+	 */
+	protected int[] _endPointY;
+	/**
+	 * Precalculated distance from the origin to the starting point of each segment.
+	 */
+	protected double[] _m1;
+	/**
+	 * Precalculated distance from the origin to the ending point of each segment.
+	 */
+	protected double[] _m2;
+	/**
+	 * Precalculated angle of the starting point of each segment, when the
+	 * organism is not rotated.
+	 */
+	protected double[] _phi1;
+	/**
+	 * Precalculated angle of the ending point of each segment, when the
+	 * organism is not rotated.
+	 */
+	protected double[] _phi2;
+	/**
+	 * Precalculated modulus of each segment.
+	 */
+	protected double[] _m;
+	/**
+	 * Rotated segments, relative to the organism's center.
+	 */
+	protected int[] _x1, _y1, _x2, _y2;
+	/**
+	 * Type of each segment, that determines its behavior. It corresponds
+	 * to the segment's color, but is much faster to compare.
+	 */
+	protected byte[] _type;
+	/**
+	 * Number of positions already given to organisms, including released ones.
+	 */
+	private int _size = 0;
+	/**
+	 * Number of positions owned by organisms.
+	 */
+	private int _live = 0;
+	/**
+	 * Organisms that own a range in this store. The position of each organism
+	 * in this list is kept in {@link Organism#_segOwner}.
+	 */
+	private List<Organism> _owners = new ArrayList<>();
+
+	/**
+	 * Creates an empty store.
+	 *
+	 * @param capacity  The initial number of segments that fit in the store.
+	 */
+	public SegmentStore(int capacity) {
+		resize(Math.max(capacity, 1));
+	}
+	/**
+	 * Gives a new range of segments to an organism. If the organism already
+	 * has segments, in this or another store, they are released first.
+	 *
+	 * @param org  The organism.
+	 * @param n  The number of segments of the organism.
+	 */
+	public void allocate(Organism org, int n) {
+		if (org._store != null)
+			org._store.release(org);
+		if (_size + n > _m.length)
+			resize(Math.max(_m.length * 2, _size + n));
+		org._store = this;
+		org._segBase = _size;
+		org._segOwner = _owners.size();
+		_owners.add(org);
+		_size += n;
+		_live += n;
+	}
+	/**
+	 * Frees the range of segments of an organism. Its geometry is lost.
+	 * Nothing is done if the organism has no segments in this store.
+	 *
+	 * @param org  The organism.
+	 */
+	public void release(Organism org) {
+		if (org._store != this)
+			return;
+		Organism last = _owners.remove(_owners.size() - 1);
+		if (last != org) {
+			_owners.set(org._segOwner, last);
+			last._segOwner = org._segOwner;
+		}
+		_live -= org._segments;
+		org._store = null;
+		org._segOwner = -1;
+	}
+	/**
+	 * Copies the segments of an organism from the store where they are to
+	 * this store, and releases them in the old one.
+	 *
+	 * @param org  The organism.
+	 */
+	public void moveFrom(Organism org) {
+		SegmentStore old = org._store;
+		if (old == this)
+			return;
+		int oldBase = org._segBase;
+		allocate(org, org._segments);
+		if (old != null) {
+			copy(old, oldBase, this, org._segBase, org._segments);
+			old.release(org);
+		}
+	}
+	/**
+	 * Checks if enough segments have been released to make it worth to
+	 * compact the store.
+	 *
+	 * @return  true if {@link #compact(List)} should be called.
+	 */
+	public boolean needsCompaction() {
+		int garbage = _size - _live;
+		return garbage > MIN_GARBAGE && garbage > _live;
+	}
+	/**
+	 * Removes the unused ranges from the store. Organisms in <code>order</code>
+	 * are placed first and in the same order, so that iterating over them reads
+	 * the store sequentially. The rest of owners are placed after them.
+	 *
+	 * @param order  A list with the organisms in the preferred order. It can
+	 * contain organisms that are not in this store.
+	 */
+	public void compact(List<Organism> order) {
+		SegmentStore target = new SegmentStore(Math.max(_live + (_live >> 1), 1));
+		List<Organism> owners = new ArrayList<>(_owners.size());
+		for (Organism org : order) {
+			if (org._store == this)
+				target.place(org, owners, this);
+		}
+		for (Organism org : _owners) {
+			int k = org._segOwner;
+			if (k >= owners.size() || owners.get(k) != org)
+				target.place(org, owners, this);
+		}
+		_startPointX = target._startPointX;
+		_startPointY = target._startPointY;
+		_endPointX = target._endPointX;
+		_endPointY = target._endPointY;
+		_m1 = target._m1;
+		_m2 = target._m2;
+		_phi1 = target._phi1;
+		_phi2 = target._phi2;
+		_m = target._m;
+		_x1 = target._x1;
+		_y1 = target._y1;
+		_x2 = target._x2;
+		_y2 = target._y2;
+		_type = target._type;
+		_size = target._size;
+		_live = target._size;
+		_owners = owners;
+	}
+	/**
+	 * Copies the segments of an organism to the end of this store while
+	 * compacting <code>source</code>. The organism keeps belonging to
+	 * <code>source</code>, that will take the arrays of this store.
+	 */
+	private void place(Organism org, List<Organism> owners, SegmentStore source) {
+		int n = org._segments;
+		copy(source, org._segBase, this, _size, n);
+		org._segBase = _size;
+		org._segOwner = owners.size();
+		owners.add(org);
+		_size += n;
+	}
+	/**
+	 * Returns the number of segments owned by organisms.
+	 */
+	public int getLiveSegments() {
+		return _live;
+	}
+	/**
+	 * Returns the number of positions of the arrays that are being used,
+	 * including the ones released and not yet compacted.
+	 */
+	public int getUsedSegments() {
+		return _size;
+	}
+
+	private void resize(int capacity) {
+		_startPointX = _startPointX == null ? new int[capacity] : Arrays.copyOf(_startPointX, capacity);
+		_startPointY = _startPointY == null ? new int[capacity] : Arrays.copyOf(_startPointY, capacity);
+		_endPointX = _endPointX == null ? new int[capacity] : Arrays.copyOf(_endPointX, capacity);
+		_endPointY = _endPointY == null ? new int[capacity] : Arrays.copyOf(_endPointY, capacity);
+		_m1 = _m1 == null ? new double[capacity] : Arrays.copyOf(_m1, capacity);
+		_m2 = _m2 == null ? new double[capacity] : Arrays.copyOf(_m2, capacity);
+		_phi1 = _phi1 == null ? new double[capacity] : Arrays.copyOf(_phi1, capacity);
+		_phi2 = _phi2 == null ? new double[capacity] : Arrays.copyOf(_phi2, capacity);
+		_m = _m == null ? new double[capacity] : Arrays.copyOf(_m, capacity);
+		_x1 = _x1 == null ? new int[capacity] : Arrays.copyOf(_x1, capacity);
+		_y1 = _y1 == null ? new int[capacity] : Arrays.copyOf(_y1, capacity);
+		_x2 = _x2 == null ? new int[capacity] : Arrays.copyOf(_x2, capacity);
+		_y2 = _y2 == null ? new int[capacity] : Arrays.copyOf(_y2, capacity);
+		_type = _type == null ? new byte[capacity] : Arrays.copyOf(_type, capacity);
+	}
+
+	private static void copy(SegmentStore src, int srcBase, SegmentStore dst, int dstBase, int n) {
+		System.arraycopy(src._startPointX, srcBase, dst._startPointX, dstBase, n);
+		System.arraycopy(src._startPointY, srcBase, dst._startPointY, dstBase, n);
+		System.arraycopy(src._endPointX, srcBase, dst._endPointX, dstBase, n);
+		System.arraycopy(src._endPointY, srcBase, dst._endPointY, dstBase, n);
+		System.arraycopy(src._m1, srcBase, dst._m1, dstBase, n);
+		System.arraycopy(src._m2, srcBase, dst._m2, dstBase, n);
+		System.arraycopy(src._phi1, srcBase, dst._phi1, dstBase, n);
+		System.arraycopy(src._phi2, srcBase, dst._phi2, dstBase, n);
+		System.arraycopy(src._m, srcBase, dst._m, dstBase, n);
+		System.arraycopy(src._x1, srcBase, dst._x1, dstBase, n);
+		System.arraycopy(src._y1, srcBase, dst._y1, dstBase, n);
+		System.arraycopy(src._x2, srcBase, dst._x2, dstBase, n);
+		System.arraycopy(src._y2, srcBase, dst._y2, dstBase, n);
+		System.arraycopy(src._type, srcBase, dst._type, dstBase, n);
+	}
+}
@@ -0,0 +1,155 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.io.IOException;
+
+/**
+ * Keeps in memory copies of a world taken at regular intervals, so that it
+ * can be rewound to any recent frame without reading a file, for example
+ * to try again from a little before a mass extinction.
+ *
+ * Copies are made with {@link WorldSnapshot#freeze(World)}. They don't
+ * contain genetic codes, which are shared with the world and with the other
+ * copies, nor the history of the world, which is kept once in its
+ * {@link WorldMemory} and returned to the right point when the world is
+ * rewound. When the ring is full, the oldest copy is replaced.
+ *
+ * Worlds are rewound to the newest copy before the requested frame, and the
+ * frames in between are executed again. Worlds are deterministic, so the
+ * result is the same world that was running at that frame, as long as
+ * organisms are moved with the same {@link Utils#TICK_THREADS}.
+ */
+public class SnapshotRing {
+	/**
+	 * Copies, from the oldest to the newest, starting at {@link #_first}.
+	 */
+	private final WorldSnapshot.Frozen[] _copies;
+	private int _first;
+	private int _size;
+	/**
+	 * Number of frames between two copies.
+	 */
+	private final int _interval;
+	/**
+	 * The memory where the copies are marked, or null if there are no copies.
+	 */
+	private WorldMemory _memory;
+	/**
+	 * Creates an empty ring.
+	 *
+	 * @param capacity  Maximum number of copies kept.
+	 * @param interval  Number of frames between two copies.
+	 */
+	public SnapshotRing(int capacity, int interval) {
+		if (capacity < 1 || interval < 1)
+			throw new IllegalArgumentException("Invalid capacity or interval"); //$NON-NLS-1$
+		_copies = new WorldSnapshot.Frozen[capacity];
+		_interval = interval;
+	}
+	/**
+	 * Copies the world if its current frame is a multiple of the interval.
+	 * It must be called after every frame, from the thread that runs the world.
+	 *
+	 * @param world  The world.
+	 */
+	public void frameFinished(World world) {
+		if (world.getFrame() % _interval == 0)
+			capture(world);
+	}
+	/**
+	 * Copies the world now, replacing the oldest copy if the ring is full.
+	 * If the world is not the one copied until now, previous copies are
+	 * removed. It must be called between two frames.
+	 *
+	 * @param world  The world.
+	 */
+	public synchronized void capture(World world) {
+		if (world.getWorldMemory() != _memory)
+			clear();
+		if (_size > 0 && newest()._frame == world.getFrame())
+			return;
+		_memory = world.getWorldMemory();
+		WorldSnapshot.Frozen copy = WorldSnapshot.freeze(world);
+		if (_size == _copies.length) {
+			_first = (_first + 1) % _copies.length;
+			_size--;
+			_memory.release(get(0)._mark);
+		}
+		_copies[(_first + _size++) % _copies.length] = copy;
+	}
+	/**
+	 * Returns the frames of all copies, from the oldest to the newest.
+	 */
+	public synchronized long[] getFrames() {
+		long[] frames = new long[_size];
+		for (int i = 0; i < _size; i++)
+			frames[i] = get(i)._frame;
+		return frames;
+	}
+	/**
+	 * Creates the world as it was at a given frame, from the newest copy
+	 * before it. The new world continues the history of the given one,
+	 * which must not be used any more. Copies after the frame are removed.
+	 * It must be called between two frames.
+	 *
+	 * @param world  The world to rewind. It must be the world that has been copied.
+	 * @param frame  The frame, as given by {@link World#getFrame()}.
+	 * @return  The new world, without user interface nor journal.
+	 * @throws IllegalArgumentException  if there are no copies of the world
+	 * before the frame, or the frame is after the current one.
+	 * @throws IOException  if the world's memory can't be rewound.
+	 */
+	public synchronized World rewind(World world, long frame) throws IOException {
+		if (world.getWorldMemory() != _memory || frame > world.getFrame())
+			throw new IllegalArgumentException("Can't rewind to frame " + frame); //$NON-NLS-1$
+		int i = _size - 1;
+		while (i >= 0 && get(i)._frame > frame)
+			i--;
+		if (i < 0)
+			throw new IllegalArgumentException("No copy before frame " + frame); //$NON-NLS-1$
+		WorldSnapshot.Frozen copy = get(i);
+		for (int j = i + 1; j < _size; j++)
+			_copies[(_first + j) % _copies.length] = null;
+		_size = i + 1;
+		World rewound = WorldSnapshot.thaw(copy, _memory);
+		while (rewound.getFrame() < frame)
+			rewound.time();
+		return rewound;
+	}
+	/**
+	 * Removes all copies.
+	 */
+	public synchronized void clear() {
+		if (_memory != null)
+			_memory.release(null);
+		_memory = null;
+		for (int i = 0; i < _size; i++)
+			_copies[(_first + i) % _copies.length] = null;
+		_first = 0;
+		_size = 0;
+	}
+
+	private WorldSnapshot.Frozen get(int i) {
+		return _copies[(_first + i) % _copies.length];
+	}
+
+	private WorldSnapshot.Frozen newest() {
+		return get(_size - 1);
+	}
+}
@@ -0,0 +1,208 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A uniform grid that divides the world in square cells and keeps, for every
+ * cell, the organisms whose bounding rectangle overlaps it. It is used as the
+ * broadphase of collision detection: an organism only needs to be checked
+ * against the organisms that share at least one cell with it.
+ *
+ * Candidates are always returned in the order in which they were added to the
+ * grid, which is the same order they have in the world's organism list, so
+ * using the grid doesn't change which collision is found first.
+ *
+ * This class is not thread safe. {@link World} only uses it while holding the
+ * lock of its organism list.
+ */
+public class SpatialGrid {
+	/**
+	 * Side of a cell, in pixels. Most organisms fit in one or four cells.
+	 */
+	static final int CELL_SIZE = 64;
+	/**
+	 * Used to return candidates in the order they were added to the grid.
+	 */
+	private static final Comparator<Organism> SEQUENCE_ORDER =
+		(a, b) -> Long.compare(a._gridSequence, b._gridSequence);
+	/**
+	 * Number of columns of the grid.
+	 */
+	private final int _columns;
+	/**
+	 * Number of rows of the grid.
+	 */
+	private final int _rows;
+	/**
+	 * Organisms overlapping every cell. Cell (i,j) is at index j*_columns+i.
+	 */
+	private final List<List<Organism>> _cells;
+	/**
+	 * Sequence number given to the next organism added to the grid.
+	 */
+	private long _nextSequence = 0;
+	/**
+	 * Identifies the current query, used to avoid returning the same organism
+	 * twice when it overlaps several cells.
+	 */
+	private int _queryMark = 0;
+
+	/**
+	 * Creates an empty grid covering a world of the given size.
+	 *
+	 * @param width  The world's width.
+	 * @param height  The world's height.
+	 */
+	public SpatialGrid(int width, int height) {
+		_columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+		_rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+		_cells = new ArrayList<>(_columns * _rows);
+		for (int i = _columns * _rows; i > 0; i--)
+			_cells.add(new ArrayList<Organism>(4));
+	}
+	/**
+	 * Adds an organism to the grid using its current bounding rectangle.
+	 *
+	 * @param org  The organism to add.
+	 */
+	public void add(Organism org) {
+		org._gridSequence = _nextSequence++;
+		org._gridMark = 0;
+		insert(org, column(org.x), row(org.y), column(org.x + org.width - 1), row(org.y + org.height - 1));
+	}
+	/**
+	 * Removes an organism from the grid. Nothing is done if the organism
+	 * is not in the grid.
+	 *
+	 * @param org  The organism to remove.
+	 */
+	public void remove(Organism org) {
+		if (org._inGrid) {
+			for (int j = org._gridTop; j <= org._gridBottom; j++)
+				for (int i = org._gridLeft; i <= org._gridRight; i++)
+					removeFromCell(_cells.get(j * _columns + i), org);
+			org._inGrid = false;
+		}
+	}
+	/**
+	 * Moves an organism to the cells that its current bounding rectangle
+	 * overlaps. This must be called every time the organism's bounds change.
+	 * It is cheap if the organism hasn't left its cells.
+	 *
+	 * @param org  The organism that may have moved.
+	 */
+	public void update(Organism org) {
+		if (!org._inGrid)
+			return;
+		int left = column(org.x);
+		int top = row(org.y);
+		int right = column(org.x + org.width - 1);
+		int bottom = row(org.y + org.height - 1);
+		if (left != org._gridLeft || top != org._gridTop ||
+				right != org._gridRight || bottom != org._gridBottom) {
+			remove(org);
+			insert(org, left, top, right, bottom);
+		}
+	}
+	/**
+	 * Finds all organisms in the grid whose cells overlap the given rectangle.
+	 * The result contains only candidates: their bounding rectangle must still
+	 * be checked against the rectangle.
+	 *
+	 * @param r  The rectangle to look for.
+	 * @param result  A list where candidates are stored. It is cleared first.
+	 * @return  {@code result}, with candidates in the order they were added to the grid.
+	 */
+	public List<Organism> query(Rectangle r, List<Organism> result) {
+		return query(r.x, r.y, r.width, r.height, result);
+	}
+	/**
+	 * Finds all organisms in the grid whose cells overlap the given rectangle.
+	 *
+	 * @param x  X coordinate of the rectangle.
+	 * @param y  Y coordinate of the rectangle.
+	 * @param width  Width of the rectangle.
+	 * @param height  Height of the rectangle.
+	 * @param result  A list where candidates are stored. It is cleared first.
+	 * @return  {@code result}, with candidates in the order they were added to the grid.
+	 */
+	public List<Organism> query(int x, int y, int width, int height, List<Organism> result) {
+		result.clear();
+		int left = column(x);
+		int top = row(y);
+		int right = column(x + Math.max(width, 1) - 1);
+		int bottom = row(y + Math.max(height, 1) - 1);
+		if (++_queryMark == 0)
+			_queryMark = 1;
+		for (int j = top; j <= bottom; j++) {
+			for (int i = left; i <= right; i++) {
+				List<Organism> cell = _cells.get(j * _columns + i);
+				for (int k = 0, n = cell.size(); k < n; k++) {
+					Organism org = cell.get(k);
+					if (org._gridMark != _queryMark) {
+						org._gridMark = _queryMark;
+						result.add(org);
+					}
+				}
+			}
+		}
+		if (result.size() > 1)
+			result.sort(SEQUENCE_ORDER);
+		return result;
+	}
+
+	private void insert(Organism org, int left, int top, int right, int bottom) {
+		for (int j = top; j <= bottom; j++)
+			for (int i = left; i <= right; i++)
+				_cells.get(j * _columns + i).add(org);
+		org._gridLeft = left;
+		org._gridTop = top;
+		org._gridRight = right;
+		org._gridBottom = bottom;
+		org._inGrid = true;
+	}
+
+	/**
+	 * Removes an organism from a cell. Organisms are compared by identity, as
+	 * {@link Rectangle#equals(Object)} would consider equal two organisms that
+	 * have the same bounds. The order inside a cell is not relevant.
+	 */
+	private static void removeFromCell(List<Organism> cell, Organism org) {
+		for (int k = cell.size() - 1; k >= 0; k--) {
+			if (cell.get(k) == org) {
+				int last = cell.size() - 1;
+				cell.set(k, cell.get(last));
+				cell.remove(last);
+				return;
+			}
+		}
+	}
+
+	private int column(int x) {
+		return Utils.between(Math.floorDiv(x, CELL_SIZE), 0, _columns - 1);
+	}
+
+	private int row(int y) {
+		return Utils.between(Math.floorDiv(y, CELL_SIZE), 0, _rows - 1);
+	}
+}
@@ -18,6 +18,7 @@
  */
 package biogenesis;
 
+import java.io.File;
 import java.util.*;
 import java.util.prefs.*;
 import java.awt.*;
@@ -193,6 +194,27 @@ public final class Utils {
 	 * This is the default number of miliseconds that pas between frames.
 	 */
 	final static int DEF_DELAY = 50;
+	/**
+	 * This is the default number of threads used to move organisms. 0 means
+	 * that organisms are moved one by one in the calling thread.
+	 */
+	final static int DEF_TICK_THREADS = 0;
+	/**
+	 * Rotation mode that gives the same result as previous versions.
+	 */
+	final static int ROTATION_EXACT = 0;
+	/**
+	 * Rotation mode that calculates only one sine and cosine per organism.
+	 */
+	final static int ROTATION_FAST = 1;
+	/**
+	 * Rotation mode that uses precalculated tables with a limited number of angles.
+	 */
+	final static int ROTATION_TABLE = 2;
+	/**
+	 * This is the default way of calculating the position of rotated segments.
+	 */
+	final static int DEF_ROTATION_MODE = ROTATION_FAST;
 	/**
 	 * This is the default port where the net server will listen for connections.
 	 */
@@ -200,11 +222,59 @@ public final class Utils {
 	/**
 	 * This is the default value for the maximum number of network connections allowed.
 	 */
-	final static int DEF_MAX_CONNECTIONS = 1;
+	final static int DEF_MAX_CONNECTIONS = 8;
 	/**
 	 * This is the default value for accepting or not new connections from other hosts.
 	 */
 	final static boolean DEF_ACCEPT_CONNECTIONS = false;
+	/**
+	 * This is the default maximum number of organisms from another host
+	 * waiting to arrive through a corridor.
+	 */
+	final static int DEF_ARRIVAL_QUEUE_SIZE = 256;
+	/**
+	 * This is the default action when too many organisms arrive from another host.
+	 */
+	final static InCorridor.Overflow DEF_ARRIVAL_OVERFLOW = InCorridor.Overflow.REJECT;
+	/**
+	 * This is the default value for playing sounds when organisms are born or collide.
+	 */
+	final static boolean DEF_SOUND = false;
+	/**
+	 * This is the default number of frames between two autosaves.
+	 */
+	final static int DEF_AUTOSAVE_FRAMES = 6000;
+	/**
+	 * This is the default value for writing or not a journal of the world's events.
+	 */
+	final static boolean DEF_JOURNAL = false;
+	/**
+	 * This is the default value for storing the genetic codes of dead organisms
+	 * as differences with the genetic code they were inherited from.
+	 */
+	final static boolean DEF_DELTA_GENOMES = true;
+	/**
+	 * This is the default compression of saved worlds.
+	 */
+	final static BlockCompression.Codec DEF_COMPRESSION = BlockCompression.Codec.DEFLATE_FAST;
+	/**
+	 * This is the number of frames between two copies of the world kept in
+	 * memory to rewind it.
+	 */
+	final static int DEF_REWIND_INTERVAL = 100;
+	/**
+	 * This is the number of copies of the world kept in memory to rewind it.
+	 */
+	final static int DEF_REWIND_COPIES = 30;
+	/**
+	 * This is the default number of autosave files kept.
+	 */
+	final static int DEF_AUTOSAVE_GENERATIONS = 3;
+	/**
+	 * This is the default directory where autosave files are written.
+	 */
+	final static String DEF_AUTOSAVE_DIRECTORY = System.getProperty("user.home", ".") + //$NON-NLS-1$ //$NON-NLS-2$
+			File.separator + ".biogenesis" + File.separator + "autosave"; //$NON-NLS-1$ //$NON-NLS-2$
 	/**
 	 * This is the default value for using or not a meta-server to find other instances
 	 * of biogenesis running. At the moment it is not used.
@@ -377,6 +447,21 @@ public final class Utils {
 	 * This is the number of miliseconds that pas between frames.
 	 */
 	static int DELAY = DEF_DELAY;
+	/**
+	 * This is the number of threads used to move organisms. When it is 0,
+	 * organisms are moved one by one. Otherwise, the part of the movement
+	 * that only depends on each organism is executed by this number of
+	 * threads and the rest is done in a second, sequential, phase. Any
+	 * number of threads gives the same result for the same seed.
+	 */
+	static int TICK_THREADS = DEF_TICK_THREADS;
+	/**
+	 * This is the way of calculating the position of rotated segments. It
+	 * can be {@link #ROTATION_EXACT}, {@link #ROTATION_FAST} or {@link #ROTATION_TABLE}.
+	 * Use {@link #ROTATION_EXACT} to validate that a simulation gives the same
+	 * results as previous versions.
+	 */
+	static int ROTATION_MODE = DEF_ROTATION_MODE;
 	/**
 	 * This is the port where the net server will listen for connections.
 	 */
@@ -389,6 +474,49 @@ public final class Utils {
 	 * This is the value for accepting or not new connections from other hosts.
 	 */
 	static boolean ACCEPT_CONNECTIONS = DEF_ACCEPT_CONNECTIONS;
+	/**
+	 * This is the maximum number of organisms from another host waiting
+	 * to arrive through a corridor.
+	 */
+	static int ARRIVAL_QUEUE_SIZE = DEF_ARRIVAL_QUEUE_SIZE;
+	/**
+	 * This is what happens to organisms that arrive from another host when
+	 * {@link #ARRIVAL_QUEUE_SIZE} organisms are already waiting.
+	 */
+	static InCorridor.Overflow ARRIVAL_OVERFLOW = DEF_ARRIVAL_OVERFLOW;
+	/**
+	 * This is the value for playing sounds when organisms are born or collide.
+	 */
+	static boolean SOUND = DEF_SOUND;
+	/**
+	 * This is the number of frames between two autosaves. 0 disables autosave.
+	 */
+	static int AUTOSAVE_FRAMES = DEF_AUTOSAVE_FRAMES;
+	/**
+	 * This is the value for writing or not a journal of the world's events
+	 * in the autosave directory. Autosaves are its checkpoints.
+	 */
+	static boolean JOURNAL = DEF_JOURNAL;
+	/**
+	 * This is the value for storing the genetic codes remembered by the
+	 * {@link WorldMemory} as differences with the genetic code they were
+	 * inherited from. It makes worlds with long lineages much smaller.
+	 */
+	static boolean DELTA_GENOMES = DEF_DELTA_GENOMES;
+	/**
+	 * This is the compression of saved worlds. Compressed worlds are several
+	 * times smaller, and they are compressed by all processors at once.
+	 */
+	static BlockCompression.Codec COMPRESSION = DEF_COMPRESSION;
+	/**
+	 * This is the number of autosave files kept. When a new one is written,
+	 * the oldest one is deleted.
+	 */
+	static int AUTOSAVE_GENERATIONS = DEF_AUTOSAVE_GENERATIONS;
+	/**
+	 * This is the directory where autosave files are written.
+	 */
+	static String AUTOSAVE_DIRECTORY = DEF_AUTOSAVE_DIRECTORY;
 	/**
 	 * This is the value for using or not a meta-server to find other instances
 	 * of biogenesis running. At the moment it is not used.
@@ -482,7 +610,9 @@ public final class Utils {
 	 */
 	static final Color ColorLIGHT_RED = new Color(100,0,0);
 	/**
-	 * Used through all program to calculate random numbers
+	 * Used to calculate random numbers outside the simulation, and to
+	 * seed the random number generator of new worlds. Everything that
+	 * happens inside a world uses {@link World#getRandom()}.
 	 */
 	public static final Random random = new Random();
 	/**
@@ -491,7 +621,16 @@ public final class Utils {
 	 * @return  a random -1 or 1
 	 */
 	public static int randomSign() {
-		return (random.nextInt(2)<<1)-1;
+		return randomSign(random);
+	}
+	/**
+	 * Used to get a random -1 or 1 from the given random number generator.
+	 *
+	 * @param r  The random number generator to use.
+	 * @return  a random -1 or 1
+	 */
+	public static int randomSign(Random r) {
+		return (r.nextInt(2)<<1)-1;
 	}
 	/**
 	 * Calculates the minimum of three integers
@@ -547,7 +686,17 @@ public final class Utils {
 	 * @return  true if a mutations is produced and false otherwise
 	 */
 	public static boolean randomMutation() {
-		return (random.nextDouble() < MUTATION_RATE);
+		return randomMutation(random);
+	}
+	/**
+	 * Check if a mutation is produced or not, using a random number from
+	 * the given random number generator.
+	 *
+	 * @param r  The random number generator to use.
+	 * @return  true if a mutations is produced and false otherwise
+	 */
+	public static boolean randomMutation(Random r) {
+		return (r.nextDouble() < MUTATION_RATE);
 	}
 	/**
 	 * Return the localized name of a color.
@@ -608,12 +757,23 @@ public final class Utils {
 			prefs.putDouble("MAX_ROT",MAX_ROT); //$NON-NLS-1$
 			prefs.putDouble("ELASTICITY",ELASTICITY); //$NON-NLS-1$
 			prefs.putInt("DELAY",DELAY); //$NON-NLS-1$
+			prefs.putInt("TICK_THREADS",TICK_THREADS); //$NON-NLS-1$
+			prefs.putInt("ROTATION_MODE",ROTATION_MODE); //$NON-NLS-1$
 			prefs.putInt("LOCAL_PORT",LOCAL_PORT); //$NON-NLS-1$
 			prefs.putBoolean("ACCEPT_CONNECTIONS",ACCEPT_CONNECTIONS); //$NON-NLS-1$
+			prefs.putBoolean("SOUND",SOUND); //$NON-NLS-1$
+			prefs.putInt("AUTOSAVE_FRAMES",AUTOSAVE_FRAMES); //$NON-NLS-1$
+			prefs.putBoolean("JOURNAL",JOURNAL); //$NON-NLS-1$
+			prefs.putBoolean("DELTA_GENOMES",DELTA_GENOMES); //$NON-NLS-1$
+			prefs.put("COMPRESSION",COMPRESSION.getName()); //$NON-NLS-1$
+			prefs.putInt("AUTOSAVE_GENERATIONS",AUTOSAVE_GENERATIONS); //$NON-NLS-1$
+			prefs.put("AUTOSAVE_DIRECTORY",AUTOSAVE_DIRECTORY); //$NON-NLS-1$
 			prefs.putBoolean("CONNECT_TO_SERVER",CONNECT_TO_SERVER); //$NON-NLS-1$
 			prefs.put("SERVER_ADDRESS",SERVER_ADDRESS); //$NON-NLS-1$
 			prefs.putInt("SERVER_PORT",SERVER_PORT); //$NON-NLS-1$
 			prefs.putInt("MAX_CONNECTIONS",MAX_CONNECTIONS); //$NON-NLS-1$
+			prefs.putInt("ARRIVAL_QUEUE_SIZE",ARRIVAL_QUEUE_SIZE); //$NON-NLS-1$
+			prefs.put("ARRIVAL_OVERFLOW",ARRIVAL_OVERFLOW.getName()); //$NON-NLS-1$
 			prefs.putInt("HARDWARE_ACCELERATION", HARDWARE_ACCELERATION); //$NON-NLS-1$
 			prefs.putDouble("DECAY_ENERGY", DECAY_ENERGY); //$NON-NLS-1$
 			prefs.put("LOCALE",Messages.getLanguage()); //$NON-NLS-1$
@@ -673,9 +833,28 @@ public final class Utils {
 			MAX_ROT = prefs.getDouble("MAX_ROT",DEF_MAX_ROT); //$NON-NLS-1$
 			ELASTICITY = prefs.getDouble("ELASTICITY",DEF_ELASTICITY); //$NON-NLS-1$
 			DELAY = prefs.getInt("DELAY",DEF_DELAY); //$NON-NLS-1$
+			TICK_THREADS = prefs.getInt("TICK_THREADS",DEF_TICK_THREADS); //$NON-NLS-1$
+			ROTATION_MODE = prefs.getInt("ROTATION_MODE",DEF_ROTATION_MODE); //$NON-NLS-1$
 			LOCAL_PORT = prefs.getInt("LOCAL_PORT",DEF_LOCAL_PORT); //$NON-NLS-1$
 			MAX_CONNECTIONS = prefs.getInt("MAX_CONNECTIONS",DEF_MAX_CONNECTIONS); //$NON-NLS-1$
+			ARRIVAL_QUEUE_SIZE = prefs.getInt("ARRIVAL_QUEUE_SIZE",DEF_ARRIVAL_QUEUE_SIZE); //$NON-NLS-1$
+			try {
+				ARRIVAL_OVERFLOW = InCorridor.Overflow.forName(prefs.get("ARRIVAL_OVERFLOW",DEF_ARRIVAL_OVERFLOW.getName())); //$NON-NLS-1$
+			} catch (IllegalArgumentException e) {
+				ARRIVAL_OVERFLOW = DEF_ARRIVAL_OVERFLOW;
+			}
 			ACCEPT_CONNECTIONS = prefs.getBoolean("ACCEPT_CONNECTIONS",DEF_ACCEPT_CONNECTIONS); //$NON-NLS-1$
+			SOUND = prefs.getBoolean("SOUND",DEF_SOUND); //$NON-NLS-1$
+			AUTOSAVE_FRAMES = prefs.getInt("AUTOSAVE_FRAMES",DEF_AUTOSAVE_FRAMES); //$NON-NLS-1$
+			JOURNAL = prefs.getBoolean("JOURNAL",DEF_JOURNAL); //$NON-NLS-1$
+			DELTA_GENOMES = prefs.getBoolean("DELTA_GENOMES",DEF_DELTA_GENOMES); //$NON-NLS-1$
+			try {
+				COMPRESSION = BlockCompression.Codec.forName(prefs.get("COMPRESSION",DEF_COMPRESSION.getName())); //$NON-NLS-1$
+			} catch (IllegalArgumentException e) {
+				COMPRESSION = DEF_COMPRESSION;
+			}
+			AUTOSAVE_GENERATIONS = prefs.getInt("AUTOSAVE_GENERATIONS",DEF_AUTOSAVE_GENERATIONS); //$NON-NLS-1$
+			AUTOSAVE_DIRECTORY = prefs.get("AUTOSAVE_DIRECTORY",DEF_AUTOSAVE_DIRECTORY); //$NON-NLS-1$
 			CONNECT_TO_SERVER = prefs.getBoolean("CONNECT_TO_SERVER",DEF_CONNECT_TO_SERVER); //$NON-NLS-1$
 			SERVER_ADDRESS = prefs.get("SERVER_ADDRESS",DEF_SERVER_ADDRESS); //$NON-NLS-1$
 			SERVER_PORT = prefs.getInt("SERVER_PORT",DEF_SERVER_PORT); //$NON-NLS-1$
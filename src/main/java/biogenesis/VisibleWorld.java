@@ -27,8 +27,6 @@ import java.io.IOException;
 
 import javax.imageio.*;
 
-import org.xml.sax.SAXException;
-
 import java.awt.image.*;
 
 /**
@@ -36,7 +34,7 @@ import java.awt.image.*;
  * part: it's the place where organisms are drawn and is in charge of the
  * context menus management.
  */
-public class VisibleWorld extends JPanel {
+public class VisibleWorld extends JPanel implements WorldListener {
 
 	/**
 	 * The version of this class
@@ -193,13 +191,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && b.isAlive()) {
-				double q = Math.min(10, _mainWindow.getWorld().getCO2());
-				_mainWindow.getWorld().addCO2(q);
-				b._energy += q;
-				_mainWindow.getWorld().addO2(q);
-			}
+			_mainWindow.getWorld().feedOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -213,10 +205,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && b.isAlive()) {
-				b.useEnergy(b.getEnergy() / 2);
-			}
+			_mainWindow.getWorld().weakenOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -230,10 +219,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && b.isAlive()) {
-				b.die(null);
-			}
+			_mainWindow.getWorld().killOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -316,13 +302,7 @@ public class VisibleWorld extends JPanel {
 		public void actionPerformed(ActionEvent e) {
 			Organism b = getSelectedOrganism();
 			if (b != null && !b.isAlive()) {
-				for (int i = 0; i < b._segments; i++) {
-					b._segColor[i] = b.getGeneticCode().getGene(i % b.getGeneticCode().getNGenes()).getColor();
-				}
-				b.alive = true;
-				b.hasMoved = true;
-				b._age = 0;
-				_mainWindow.getWorld().increasePopulation();
+				_mainWindow.getWorld().reviveOrganism(b);
 				showAliveToolbar();
 			}
 		}
@@ -338,10 +318,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && !b.isAlive()) {
-				b.useEnergy(b.getEnergy());
-			}
+			_mainWindow.getWorld().disperseOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -355,10 +332,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && b.isAlive()) {
-				b.reproduce();
-			}
+			_mainWindow.getWorld().reproduceOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -372,10 +346,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			Organism b = getSelectedOrganism();
-			if (b != null && b.isAlive()) {
-				b._age = 0;
-			}
+			_mainWindow.getWorld().rejuvenateOrganism(getSelectedOrganism());
 		}
 	}
 
@@ -422,11 +393,7 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			GeneticCode g = new GeneticCode();
-			Organism newBiot = new Organism(_mainWindow.getWorld(), g);
-			if (newBiot.pasteOrganism(mouseX, mouseY)) {
-				_mainWindow.getWorld().addOrganism(newBiot, null);
-			}
+			_mainWindow.getWorld().pasteOrganism(new GeneticCode(), mouseX, mouseY);
 		}
 	}
 
@@ -440,36 +407,13 @@ public class VisibleWorld extends JPanel {
 
 		@Override
 		public void actionPerformed(ActionEvent e) {
-			GeneticCode g;
-			Organism newBiot;
 			boolean processState = _mainWindow._isProcessActive;
 			// Stop time
 			_mainWindow._isProcessActive = false;
-			try {
-				JFileChooser chooser = _mainWindow.getGeneticCodeChooser();
-				int returnVal = chooser.showOpenDialog(null);
-				if (returnVal == JFileChooser.APPROVE_OPTION) {
-					try {
-						// Read XML code from file
-						BioXMLParser parser = new BioXMLParser();
-						g = parser.parseGeneticCode(chooser.getSelectedFile());
-						// Create organism
-						newBiot = new Organism(_mainWindow.getWorld(), g);
-						if (newBiot.pasteOrganism(mouseX, mouseY)) {
-							_mainWindow.getWorld().addOrganism(newBiot, null);
-						}
-					} catch (SAXException ex) {
-						System.err.println(ex.getMessage());
-						JOptionPane.showMessageDialog(null, Messages.getString("T_WRONG_FILE_VERSION"), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-					} catch (IOException ex) {
-						System.err.println(ex.getMessage());
-						JOptionPane.showMessageDialog(null, Messages.getString("T_CANT_READ_FILE"), Messages.getString("T_READ_ERROR"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-					}
-				}
-			} catch (SecurityException ex) {
-				System.err.println(ex.getMessage());
-				JOptionPane.showMessageDialog(null, Messages.getString("T_PERMISSION_DENIED"), Messages.getString("T_PERMISSION_DENIED"), JOptionPane.ERROR_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
-			}
+			GeneticCode g = _mainWindow.importGeneticCode();
+			// Create organism
+			if (g != null)
+				_mainWindow.getWorld().pasteOrganism(g, mouseX, mouseY);
 			_mainWindow._isProcessActive = processState;
 		}
 	}
@@ -634,6 +578,57 @@ public class VisibleWorld extends JPanel {
 		toolBar.repaint();
 	}
 
+	/**
+	 * Number of frames executed by the world, used to update the
+	 * {@link InfoToolbar} every 20 frames.
+	 */
+	private int _nFrames = 0;
+
+	@Override
+	public void worldReset(World world) {
+		setSelectedOrganism(null);
+		setPreferredSize(new Dimension(world.getWidth(), world.getHeight()));
+	}
+
+	@Override
+	public void organismAdded(Organism child, Organism parent) {
+		if (parent == _selectedOrganism)
+			_mainWindow.getInfoPanel().changeNChildren();
+	}
+
+	@Override
+	public void organismRemoved(Organism org) {
+		repaint(org);
+		if (_selectedOrganism == org)
+			setSelectedOrganism(null);
+	}
+
+	@Override
+	public void organismDied(Organism dyingOrganism, Organism killingOrganism) {
+		if (killingOrganism == _selectedOrganism)
+			_mainWindow.getInfoPanel().changeNKills();
+		if (dyingOrganism == _selectedOrganism)
+			showDeadToolbar();
+	}
+
+	@Override
+	public void organismInfected(Organism infectedOrganism, Organism infectingOrganism) {
+		if (infectingOrganism == _selectedOrganism)
+			_mainWindow.getInfoPanel().changeNInfected();
+	}
+
+	@Override
+	public void corridorsRemoved(InCorridor in, OutCorridor out) {
+		repaint(in);
+		repaint(out);
+	}
+
+	@Override
+	public void frameFinished(World world) {
+		if (_nFrames++ % 20 == 0)
+			_mainWindow.getInfoPanel().recalculate();
+	}
+
 	public void showDeadToolbar() {
 		JToolBar toolBar = _mainWindow.toolBar;
 		toolBar.removeAll();
@@ -728,9 +723,8 @@ public class VisibleWorld extends JPanel {
 	 * false otherwise
 	 */
 	public boolean pasteGeneticCode(GeneticCode gc, int x, int y) {
-		Organism newOrganism = new Organism(_mainWindow.getWorld(), gc);
-		if (newOrganism.pasteOrganism(x, y)) {
-			_mainWindow.getWorld().addOrganism(newOrganism, null);
+		Organism newOrganism = _mainWindow.getWorld().pasteOrganism(gc, x, y);
+		if (newOrganism != null) {
 			// select organism that has just been pasted.
 			setSelectedOrganism(newOrganism);
 			return true;
@@ -22,9 +22,21 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Collections;
+import java.util.Objects;
+import java.util.Random;
 import java.io.*;
 import java.awt.*;
 import java.util.Observable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.lang3.event.EventListenerSupport;
+
+import biogenesis.event.OrganismCollidedEvent;
+import biogenesis.event.OrganismCollidedListener;
+import biogenesis.event.OrganismCreatedEvent;
+import biogenesis.event.OrganismCreatedListener;
+import biogenesis.music.MusicPlayer;
 
 /**
  * This class contains all the information needed to run a world:
@@ -47,6 +59,13 @@ public class World extends Observable implements Serializable {
 	 * World height
 	 */
 	protected int _height;
+	/**
+	 * Random number generator used by everything that happens in this world.
+	 * It is saved with the world, so a saved world continues exactly as it
+	 * would have done if it hadn't been saved. Two worlds with the same seed
+	 * evolve in the same way.
+	 */
+	protected WorldRandom _random;
 	/**
 	 * A list of the organisms in the world, even dead ones.
 	 * Note that this must be a synchronized list so it is mandatory to
@@ -77,11 +96,28 @@ public class World extends Observable implements Serializable {
 	 */
 	protected int NEXT_ID;
 	/**
-	 * A reference to the visible world part of this world used basically
-	 * to indicate which parts of the world should be repainted due to
-	 * events in the world.
+	 * A reference to the visible world part of this world, used to draw it.
+	 * It is null when the world runs without user interface.
 	 */
 	transient protected VisibleWorld _visibleWorld;
+	/**
+	 * Listeners that are informed of the events in the world, basically
+	 * to indicate which parts of the world should be repainted.
+	 */
+	transient private EventListenerSupport<WorldListener> _listeners;
+	/**
+	 * Listeners informed every time an organism is created.
+	 */
+	transient private EventListenerSupport<OrganismCreatedListener> _createdListeners;
+	/**
+	 * Listeners informed every time two organisms collide.
+	 */
+	transient private EventListenerSupport<OrganismCollidedListener> _collidedListeners;
+	/**
+	 * Set when at least one organism event listener has been added, so that
+	 * organisms don't create events that nobody will receive.
+	 */
+	transient private boolean _hasOrganismListeners;
 	/**
 	 * Frame counter. 256 frames are a time unit. This value is used to count
 	 * time and to trigger some window updating at regular intervals.
@@ -103,7 +139,53 @@ public class World extends Observable implements Serializable {
 	/**
 	 * keeps track of all the organisms that ever lived in the world.
 	 */
-	private final WorldMemory memory = new WorldMemory();
+	private WorldMemory memory;
+	/**
+	 * Broadphase used to find organisms near a given position without
+	 * iterating over all organisms in the world. It contains the same
+	 * organisms than {@link #_organisms} and it is rebuilt when the world
+	 * is read from a file.
+	 * Access must be synchronized on {@link #_organisms}.
+	 */
+	transient protected SpatialGrid _grid;
+	/**
+	 * Reusable list where {@link #_grid} stores the result of queries.
+	 */
+	transient private List<Organism> _candidates;
+	/**
+	 * Amount of O2 at the beginning of the current frame. Used by organisms
+	 * that are moved in parallel, that can't see the changes made by the others.
+	 */
+	transient protected double _frameO2;
+	/**
+	 * Amount of CO2 at the beginning of the current frame.
+	 *
+	 * @see #_frameO2
+	 */
+	transient protected double _frameCO2;
+	/**
+	 * Threads used to move organisms when {@link Utils#TICK_THREADS} is
+	 * greater than 1. Shared by all worlds, so that worlds that are replaced
+	 * when rewinding or loading don't leave threads behind. Created when needed.
+	 */
+	private static ForkJoinPool _pool;
+	/**
+	 * Geometry of the segments of all organisms in the world.
+	 */
+	transient protected SegmentStore _segmentStore;
+	/**
+	 * Journal where the events of this world are written, or null.
+	 */
+	transient protected EventJournal _journal;
+	/**
+	 * Entries applied to this world while it is being rebuilt from a journal,
+	 * or null if it is not being rebuilt.
+	 */
+	transient EventJournal.Replay _replay;
+	/**
+	 * One shared instance of every genetic code used by organisms in this world.
+	 */
+	transient private GenomePool _genomePool;
 
 	/**
 	 * Called by the JRE when an instance of this class is read from a file
@@ -117,6 +199,83 @@ public class World extends Observable implements Serializable {
 		in.defaultReadObject();
 		inCorridors = Collections.synchronizedList(new ArrayList<InCorridor>());
 		outCorridors = Collections.synchronizedList(new ArrayList<OutCorridor>());
+		_listeners = EventListenerSupport.create(WorldListener.class);
+		_createdListeners = EventListenerSupport.create(OrganismCreatedListener.class);
+		_collidedListeners = EventListenerSupport.create(OrganismCollidedListener.class);
+		// Worlds saved by older versions don't have a random number generator
+		if (_random == null)
+			_random = new WorldRandom(Utils.random.nextLong());
+		_segmentStore = new SegmentStore(Utils.ORGANISMS_VECTOR_SIZE * 16);
+		_genomePool = new GenomePool();
+		synchronized (_organisms) {
+			for (Organism b : _organisms) {
+				_segmentStore.moveFrom(b);
+				b._geneticCode = _genomePool.intern(b._geneticCode);
+				b._infectedGeneticCode = _genomePool.intern(b._infectedGeneticCode);
+			}
+		}
+		buildGrid();
+	}
+	/**
+	 * Writes the state of this world, except organisms and statistics, to a
+	 * snapshot.
+	 *
+	 * @param out  The snapshot being written.
+	 * @throws IOException  if the data can't be written.
+	 */
+	void writeSnapshot(WorldSnapshot.Output out) throws IOException {
+		out.putInt(_width);
+		out.putInt(_height);
+		out.putInt(NEXT_ID);
+		out.putInt(_population);
+		out.putInt(nFrames);
+		out.putDouble(_O2);
+		out.putDouble(_CO2);
+		out.putLong(_random.getState());
+	}
+	/**
+	 * Reads the data written by {@link #writeSnapshot(WorldSnapshot.Output)}.
+	 *
+	 * @param in  The snapshot being read.
+	 * @throws IOException  if the data can't be read.
+	 */
+	void readSnapshot(WorldSnapshot.Input in) throws IOException {
+		_width = in.getInt();
+		_height = in.getInt();
+		NEXT_ID = in.getInt();
+		_population = in.getInt();
+		nFrames = in.getInt();
+		_O2 = in.getDouble();
+		_CO2 = in.getDouble();
+		_random.setState(in.getLong());
+		if (_width <= 0 || _height <= 0)
+			throw new IOException("Invalid world size"); //$NON-NLS-1$
+	}
+	/**
+	 * Puts in this world the organisms and statistics read from a snapshot.
+	 *
+	 * @param organisms  The organisms, whose segments are already in this world's store.
+	 * @param statistics  The statistics.
+	 */
+	void restoreSnapshot(List<Organism> organisms, WorldStatistics statistics) {
+		synchronized (_organisms) {
+			_organisms.clear();
+			_organisms.addAll(organisms);
+		}
+		worldStatistics = statistics;
+		buildGrid();
+	}
+	/**
+	 * Creates a new {@link SpatialGrid} sized for this world and adds to it
+	 * all organisms in the world.
+	 */
+	private void buildGrid() {
+		synchronized (_organisms) {
+			_grid = new SpatialGrid(_width, _height);
+			_candidates = new ArrayList<>();
+			for (Organism b : _organisms)
+				_grid.add(b);
+		}
 	}
 	/**
 	 * Returns a new StatisticsWindow referring to this world.
@@ -141,7 +300,7 @@ public class World extends Observable implements Serializable {
 		Organism b;
 		Organism deadOrganism = null;
 		synchronized(_organisms) {
-			for (Iterator<Organism> it = _organisms.iterator(); it.hasNext(); ) {
+			for (Iterator<Organism> it = _grid.query(x, y, 1, 1, _candidates).iterator(); it.hasNext(); ) {
 				b = it.next();
 				if (b.contains(x,y)) {
 					if (b.isAlive())
@@ -169,6 +328,25 @@ public class World extends Observable implements Serializable {
 	public int getHeight() {
 		return _height;
 	}
+	/**
+	 * Returns the random number generator of this world. Everything that
+	 * happens in the world must use it, so that the same seed always gives
+	 * the same result.
+	 *
+	 * @return  The world's random number generator.
+	 */
+	public Random getRandom() {
+		return _random;
+	}
+	/**
+	 * Sets the seed of the world's random number generator. Calling it before
+	 * {@link #genesis()} makes the whole simulation reproducible.
+	 *
+	 * @param seed  The new seed.
+	 */
+	public void setSeed(long seed) {
+		_random.setSeed(seed);
+	}
 	/**
 	 * Returns the next available organism identification number.
 	 *
@@ -177,6 +355,35 @@ public class World extends Observable implements Serializable {
 	public int getNewId() {
 		return NEXT_ID++;
 	}
+	/**
+	 * Returns the number of frames executed by this world since its genesis.
+	 *
+	 * @return  The current frame.
+	 */
+	public long getFrame() {
+		return worldStatistics.getTime() * 256 + nFrames;
+	}
+	/**
+	 * Starts writing the events of this world to a journal, or stops it.
+	 * The previous journal, if any, is not closed.
+	 *
+	 * @param journal  The journal, or null to stop writing events.
+	 */
+	public void setJournal(EventJournal journal) {
+		if (_journal != null)
+			removeWorldListener(_journal);
+		_journal = journal;
+		if (journal != null)
+			addWorldListener(journal);
+	}
+	/**
+	 * Returns the journal where the events of this world are written.
+	 *
+	 * @return  The journal, or null.
+	 */
+	public EventJournal getJournal() {
+		return _journal;
+	}
 	/**
 	 * Returns the actual time.
 	 *
@@ -195,6 +402,14 @@ public class World extends Observable implements Serializable {
 		return _organisms.size() - _population;
 	}
 
+	/**
+	 * Returns the store where the segments of the organisms of this world are kept.
+	 *
+	 * @return  The segment store.
+	 */
+	public SegmentStore getSegmentStore() {
+		return _segmentStore;
+	}
 	/**
 	 * returns the {@link WorldMemory} for this world
 	 * to retrieve family trees of organisms.
@@ -203,6 +418,14 @@ public class World extends Observable implements Serializable {
 	public WorldMemory getWorldMemory() {
 		return this.memory;
 	}
+	/**
+	 * Returns the pool with the genetic codes of the organisms in this world.
+	 *
+	 * @return  The pool.
+	 */
+	public GenomePool getGenomePool() {
+		return _genomePool;
+	}
 
 	/**
 	 * Returns the number of alive organisms that populate the world.
@@ -315,26 +538,79 @@ public class World extends Observable implements Serializable {
 	 * @return  The amount of CO2 obtained.
 	 */
 	public double photosynthesis(double q) {
-		q /= Utils.GREEN_OBTAINED_ENERGY_DIVISOR;
-		q = Utils.min(q,q*_CO2/Utils.DRAIN_SUBS_DIVISOR,_CO2);
+		q = photosynthesisAmount(q, _CO2);
 		_CO2 -= q;
 		_O2 += q;
 		return q;
 	}
 	/**
-	 * Constructor of the World class. All internal structures are initialized and
-	 * the world's size is obtained from parameters.
+	 * Calculates the CO2 that an organism can get through photosynthesis, as
+	 * explained in {@link #photosynthesis(double)}, without changing the atmosphere.
 	 *
-	 * @param visibleWorld  A reference to the visual representation of this world.
+	 * @param q  The total length of the organism's green segments.
+	 * @param co2  The amount of CO2 in the atmosphere.
+	 * @return  The amount of CO2 that would be obtained.
 	 */
-	public World(VisibleWorld visibleWorld) {
-		_visibleWorld = visibleWorld;
+	static double photosynthesisAmount(double q, double co2) {
+		q /= Utils.GREEN_OBTAINED_ENERGY_DIVISOR;
+		return Utils.min(q,q*co2/Utils.DRAIN_SUBS_DIVISOR,co2);
+	}
+	/**
+	 * Applies to the atmosphere the gases exchanged by an organism that has
+	 * been prepared in parallel with others. Each organism saw the atmosphere
+	 * as it was at the beginning of the frame, so the amounts are limited to
+	 * what is really left.
+	 *
+	 * @param respiredO2  O2 consumed by the organism.
+	 * @param fixedCO2  CO2 consumed by the organism's photosynthesis.
+	 */
+	private void settleAtmosphere(double respiredO2, double fixedCO2) {
+		respiration(respiredO2);
+		double d = Math.min(fixedCO2, _CO2);
+		_CO2 -= d;
+		_O2 += d;
+	}
+	/**
+	 * Constructor of the World class for a world without user interface.
+	 * All internal structures are initialized and the world's size is
+	 * obtained from parameters.
+	 */
+	public World() {
+		this(new WorldMemory());
+	}
+	/**
+	 * Creates a world that continues the history kept in a memory. It is
+	 * used to rewind a world.
+	 *
+	 * @param memory  The memory of the new world.
+	 */
+	World(WorldMemory memory) {
+		this.memory = memory;
 		_width = Utils.WORLD_WIDTH;
 		_height = Utils.WORLD_HEIGHT;
 		_organisms = Collections.synchronizedList(new ArrayList<Organism>(Utils.ORGANISMS_VECTOR_SIZE));
 		inCorridors = Collections.synchronizedList(new ArrayList<InCorridor>());
 		outCorridors = Collections.synchronizedList(new ArrayList<OutCorridor>());
+		_listeners = EventListenerSupport.create(WorldListener.class);
+		_createdListeners = EventListenerSupport.create(OrganismCreatedListener.class);
+		_collidedListeners = EventListenerSupport.create(OrganismCollidedListener.class);
+		_segmentStore = new SegmentStore(Utils.ORGANISMS_VECTOR_SIZE * 16);
+		_random = new WorldRandom(Utils.random.nextLong());
+		_genomePool = new GenomePool();
 		worldStatistics = new WorldStatistics();
+		buildGrid();
+	}
+	/**
+	 * Constructor of the World class. All internal structures are initialized and
+	 * the world's size is obtained from parameters.
+	 *
+	 * @param visibleWorld  A reference to the visual representation of this world.
+	 */
+	public World(VisibleWorld visibleWorld) {
+		this();
+		_visibleWorld = visibleWorld;
+		addWorldListener(visibleWorld);
+		addMusicPlayer();
 	}
 	/**
 	 * When a world object is read from a file, it must be linked with its visualization.
@@ -344,8 +620,76 @@ public class World extends Observable implements Serializable {
 	 */
 	public void init(VisibleWorld visibleWorld) {
 		_visibleWorld = visibleWorld;
+		addWorldListener(visibleWorld);
+		addMusicPlayer();
 		_visibleWorld.setPreferredSize(new Dimension(getWidth(), getHeight()));
 	}
+	/**
+	 * Registers a listener that will be informed of the events in this world.
+	 *
+	 * @param listener  The listener to add.
+	 */
+	public void addWorldListener(WorldListener listener) {
+		_listeners.addListener(listener);
+	}
+	/**
+	 * Unregisters a listener previously added with {@link #addWorldListener(WorldListener)}.
+	 *
+	 * @param listener  The listener to remove.
+	 */
+	public void removeWorldListener(WorldListener listener) {
+		_listeners.removeListener(listener);
+	}
+	/**
+	 * Registers a listener that will be informed every time an organism is created.
+	 *
+	 * @param listener  The listener to add.
+	 */
+	public void addOrganismCreatedListener(OrganismCreatedListener listener) {
+		_createdListeners.addListener(listener);
+		_hasOrganismListeners = true;
+	}
+	/**
+	 * Registers a listener that will be informed every time two organisms collide.
+	 *
+	 * @param listener  The listener to add.
+	 */
+	public void addOrganismCollidedListener(OrganismCollidedListener listener) {
+		_collidedListeners.addListener(listener);
+		_hasOrganismListeners = true;
+	}
+	/**
+	 * Connects this world to the shared {@link MusicPlayer}. Only worlds with a
+	 * user interface make sounds, and only when sound is enabled.
+	 */
+	private void addMusicPlayer() {
+		addOrganismCreatedListener(MusicPlayer.getInstance());
+		addOrganismCollidedListener(MusicPlayer.getInstance());
+	}
+	/**
+	 * Informs listeners that an organism has been created. Called from
+	 * {@link Organism#create()}. Nothing is allocated if there are no listeners.
+	 */
+	void fireOrganismCreated() {
+		if (_hasOrganismListeners)
+			_createdListeners.fire().perform(new OrganismCreatedEvent());
+	}
+	/**
+	 * Informs listeners that two organisms have collided. Called from
+	 * {@link Organism#contact(Organism)}.
+	 */
+	void fireOrganismCollided() {
+		if (_hasOrganismListeners)
+			_collidedListeners.fire().perform(new OrganismCollidedEvent());
+	}
+	/**
+	 * Checks if this world is running without user interface.
+	 *
+	 * @return  true if there is no {@link VisibleWorld} associated with this world.
+	 */
+	public boolean isHeadless() {
+		return _visibleWorld == null;
+	}
 	/**
 	 * Populate the word with a new set of organisms.
 	 * This is used to destroy a world and create a new one.
@@ -357,12 +701,13 @@ public class World extends Observable implements Serializable {
 		_CO2 = Utils.INITIAL_CO2;
 		NEXT_ID = 0;
 		_population = 0;
-		_visibleWorld.setSelectedOrganism(null);
 		_organisms.clear();
 		// Initialize size
 		_width = Utils.WORLD_WIDTH;
 		_height = Utils.WORLD_HEIGHT;
-		_visibleWorld.setPreferredSize(new Dimension(Utils.WORLD_WIDTH, Utils.WORLD_HEIGHT));
+		_segmentStore = new SegmentStore(Utils.ORGANISMS_VECTOR_SIZE * 16);
+		buildGrid();
+		_listeners.fire().worldReset(this);
 		// Create statistics
 		worldStatistics = new WorldStatistics();
 		// Create organisms
@@ -386,6 +731,8 @@ public class World extends Observable implements Serializable {
 					b.useEnergy(b.getEnergy());
 			}
 		}
+		if (_journal != null)
+			_journal.intervention(EventJournal.DISPERSE_ALL, this, null);
 	}
 	/**
 	 * Kill all organisms in the world.
@@ -399,6 +746,151 @@ public class World extends Observable implements Serializable {
 					org.die(null);
 			}
 		}
+		if (_journal != null)
+			_journal.intervention(EventJournal.KILL_ALL, this, null);
+	}
+	/**
+	 * Finds an organism in the world from its identification number.
+	 *
+	 * @param id  The identification number.
+	 * @return  The organism, or null if it is not in the world.
+	 */
+	public Organism findOrganism(int id) {
+		synchronized (_organisms) {
+			for (Organism b : _organisms)
+				if (b.getID() == id)
+					return b;
+		}
+		return null;
+	}
+	/*
+	 * The following methods are the interventions that the user can do on
+	 * organisms. They are here so that they are written to the journal and
+	 * replayed in the same way. Nothing is done if the organism is null or
+	 * not in the right state.
+	 */
+	/**
+	 * Gives an alive organism up to 10 units of energy taken from the CO2.
+	 *
+	 * @param b  The organism to feed.
+	 */
+	public void feedOrganism(Organism b) {
+		if (b != null && b.isAlive()) {
+			double q = Math.min(10, getCO2());
+			addCO2(q);
+			b._energy += q;
+			addO2(q);
+			journal(EventJournal.FEED, b);
+		}
+	}
+	/**
+	 * Makes an alive organism spend half of its energy.
+	 *
+	 * @param b  The organism to weaken.
+	 */
+	public void weakenOrganism(Organism b) {
+		if (b != null && b.isAlive()) {
+			b.useEnergy(b.getEnergy() / 2);
+			journal(EventJournal.WEAKEN, b);
+		}
+	}
+	/**
+	 * Kills an alive organism.
+	 *
+	 * @param b  The organism to kill.
+	 */
+	public void killOrganism(Organism b) {
+		if (b != null && b.isAlive()) {
+			b.die(null);
+			journal(EventJournal.KILL, b);
+		}
+	}
+	/**
+	 * Brings a dead organism back to life.
+	 *
+	 * @param b  The organism to revive.
+	 */
+	public void reviveOrganism(Organism b) {
+		if (b != null && !b.isAlive()) {
+			b.restoreSegmentColors();
+			b.alive = true;
+			b.hasMoved = true;
+			b._age = 0;
+			memory.organismRevived(b.getID());
+			increasePopulation();
+			journal(EventJournal.REVIVE, b);
+		}
+	}
+	/**
+	 * Returns all the energy of a dead organism to the atmosphere, so that
+	 * it disappears.
+	 *
+	 * @param b  The corpse to disperse.
+	 */
+	public void disperseOrganism(Organism b) {
+		if (b != null && !b.isAlive()) {
+			b.useEnergy(b.getEnergy());
+			journal(EventJournal.DISPERSE, b);
+		}
+	}
+	/**
+	 * Makes an alive organism reproduce now.
+	 *
+	 * @param b  The organism that reproduces.
+	 */
+	public void reproduceOrganism(Organism b) {
+		if (b != null && b.isAlive()) {
+			b.reproduce();
+			journal(EventJournal.REPRODUCE, b);
+		}
+	}
+	/**
+	 * Sets the age of an alive organism to 0.
+	 *
+	 * @param b  The organism to rejuvenate.
+	 */
+	public void rejuvenateOrganism(Organism b) {
+		if (b != null && b.isAlive()) {
+			b._age = 0;
+			journal(EventJournal.REJUVENATE, b);
+		}
+	}
+	/**
+	 * Creates a new organism with the given genetic code and puts it in the
+	 * world, at the specified position.
+	 *
+	 * @param gc  The genetic code for the new organism.
+	 * @param x  X coordinate.
+	 * @param y  Y coordinate.
+	 * @return  The new organism, or null if there is no space for it.
+	 */
+	public Organism pasteOrganism(GeneticCode gc, int x, int y) {
+		Organism newOrganism = new Organism(this, gc);
+		boolean placed = newOrganism.pasteOrganism(x, y);
+		if (placed)
+			addOrganism(newOrganism, null);
+		// Also when it fails, as it has used the random number generator
+		if (_journal != null)
+			_journal.paste(this, gc, x, y);
+		return placed ? newOrganism : null;
+	}
+	/**
+	 * Adds CO2 to the atmosphere, or removes it, as requested by the user.
+	 *
+	 * @param q  The amount of CO2 to add, or to remove if it is negative.
+	 */
+	public void changeCO2(double q) {
+		if (q >= 0)
+			addCO2(q);
+		else
+			decreaseCO2(-q);
+		if (_journal != null)
+			_journal.co2(this, q);
+	}
+
+	private void journal(int type, Organism b) {
+		if (_journal != null)
+			_journal.intervention(type, this, b);
 	}
 	/**
 	 * Draws all visible components of the world to a graphic context.
@@ -466,49 +958,163 @@ public class World extends Observable implements Serializable {
 	 * and make them to execute a movement. Here is the place where all action
 	 * occurs: organism movement, interaction, birth and death.
 	 *
-	 * Additionally, every 20 frames the {@link InfoToolbar} is updated, if showed,
-	 * and every 256 frames the time counter is increased by 1.
+	 * Additionally, every 256 frames the time counter is increased by 1, and
+	 * listeners are informed at the end of every frame.
 	 */
 	public void time() {
 		int i;
 		Organism b;
 		InCorridor c;
-		synchronized (inCorridors) {
-			for (InCorridor inCorridor : inCorridors) {
-				c = inCorridor;
-				c.frame();
+		if (_replay != null) {
+			_replay.corridors(this);
+		} else {
+			synchronized (inCorridors) {
+				for (InCorridor inCorridor : inCorridors) {
+					c = inCorridor;
+					c.frame();
+				}
+				if (_journal != null && !inCorridors.isEmpty())
+					_journal.corridors(this);
 			}
 		}
 		synchronized (_organisms) {
 			/* We can't use an Iterator here because this list has to be changed
-			 * inside Organism.move (when new organisms are born) and we need to
-			 * remove organisms with no energy, so a ConcurrentModificationException
-			 * will be thrown.
+			 * inside Organism.move (when new organisms are born), so a
+			 * ConcurrentModificationException will be thrown.
+			 * Organisms with no energy are replaced by null and removed all
+			 * together at the end, as removing them one by one would move the
+			 * rest of the list every time.
 			 */
 			int l = _organisms.size();
+			int removed = 0;
+			boolean prepared = Utils.TICK_THREADS > 0;
+			if (prepared)
+				prepareOrganisms(l);
 			for (i=0; i<l; i++) {
 				b = _organisms.get(i);
-				if (!b.move()) {
-					// Organism has no energy -> remove from the list
-					_visibleWorld.repaint(b);
-					_organisms.remove(i);
-					if (_visibleWorld.getSelectedOrganism() == b)
-						_visibleWorld.setSelectedOrganism(null);
-					l--;
-					i--;
+				if (!(prepared ? b.commitMove() : b.move())) {
+					// Organism has no energy -> remove from the world
+					_organisms.set(i, null);
+					_grid.remove(b);
+					// Organisms that have left through a corridor have already
+					// moved their segments to their own store, to be drawn there
+					_segmentStore.release(b);
+					_listeners.fire().organismRemoved(b);
+					removed++;
 				}
 			}
+			if (removed > 0)
+				_organisms.removeIf(Objects::isNull);
+			if (_segmentStore.needsCompaction())
+				_segmentStore.compact(_organisms);
 		}
-		if (nFrames++ % 20 == 0)
-			_visibleWorld._mainWindow.getInfoPanel().recalculate();
-		if (nFrames % 256 == 0) {
+		if (_replay == null) {
+			synchronized (outCorridors) {
+				for (OutCorridor outCorridor : outCorridors)
+					outCorridor.frame();
+			}
+		}
+		if (++nFrames % 256 == 0) {
 			nFrames = 0;
 			worldStatistics.eventTime(_population, _O2, _CO2);
 		}
+		_listeners.fire().frameFinished(this);
 
 		setChanged();
 		notifyObservers();
 	}
+	/**
+	 * Executes the first part of the movement, {@link Organism#prepareMove(long)},
+	 * of the first <code>l</code> organisms using {@link Utils#TICK_THREADS} threads.
+	 * Then applies their gas exchanges and updates their positions in the grid,
+	 * in the same order than they are in the list, so that the result doesn't
+	 * depend on the number of threads.
+	 *
+	 * Must be called while holding the lock of {@link #_organisms}.
+	 *
+	 * @param l  The number of organisms to prepare.
+	 */
+	private void prepareOrganisms(int l) {
+		Organism[] orgs = _organisms.subList(0, l).toArray(new Organism[l]);
+		long seed = _random.nextLong();
+		_frameO2 = _O2;
+		_frameCO2 = _CO2;
+		ForkJoinPool pool = l > PrepareTask.THRESHOLD ? tickPool() : null;
+		if (pool != null) {
+			pool.invoke(new PrepareTask(orgs, 0, l, seed));
+		} else {
+			for (int i=0; i<l; i++)
+				orgs[i].prepareMove(frameSeed(seed, i));
+		}
+		for (int i=0; i<l; i++) {
+			settleAtmosphere(orgs[i]._respiredO2, orgs[i]._fixedCO2);
+			_grid.update(orgs[i]);
+		}
+	}
+	/**
+	 * Returns the pool used to prepare organisms, creating it again if
+	 * {@link Utils#TICK_THREADS} has changed.
+	 *
+	 * @return  The pool, or null if organisms must be prepared in the calling thread.
+	 */
+	private static synchronized ForkJoinPool tickPool() {
+		int threads = Utils.TICK_THREADS;
+		if (threads <= 1)
+			return null;
+		if (_pool == null || _pool.getParallelism() != threads) {
+			if (_pool != null)
+				_pool.shutdown();
+			_pool = new ForkJoinPool(threads);
+		}
+		return _pool;
+	}
+	/**
+	 * Calculates the seed of the random numbers used by an organism in a frame.
+	 * It only depends on the position of the organism in the list so that it
+	 * doesn't matter which thread prepares it.
+	 *
+	 * @param seed  The seed of the frame.
+	 * @param index  The position of the organism in the list.
+	 * @return  The seed for this organism.
+	 */
+	static long frameSeed(long seed, int index) {
+		long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	/**
+	 * Prepares a range of organisms, splitting it between the threads of the pool.
+	 */
+	private static class PrepareTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		/**
+		 * Below this number of organisms, a task is not split again.
+		 */
+		private static final int THRESHOLD = 32;
+		private final Organism[] _orgs;
+		private final int _from, _to;
+		private final long _seed;
+
+		PrepareTask(Organism[] orgs, int from, int to, long seed) {
+			_orgs = orgs;
+			_from = from;
+			_to = to;
+			_seed = seed;
+		}
+
+		@Override
+		protected void compute() {
+			if (_to - _from <= THRESHOLD) {
+				for (int i=_from; i<_to; i++)
+					_orgs[i].prepareMove(frameSeed(_seed, i));
+			} else {
+				int mid = (_from + _to) >>> 1;
+				invokeAll(new PrepareTask(_orgs, _from, mid, _seed),
+						new PrepareTask(_orgs, mid, _to, _seed));
+			}
+		}
+	}
 	/**
 	 * Add a pair of biological corridors to the world.
 	 * This method is called by {@link biogenesis.Connection#setState(int)} when
@@ -538,8 +1144,7 @@ public class World extends Observable implements Serializable {
 		in.height++;
 		out.width++;
 		out.height++;
-		_visibleWorld.repaint(in);
-		_visibleWorld.repaint(out);
+		_listeners.fire().corridorsRemoved(in, out);
 	}
 	/**
 	 * Checks if an organism enters an output corridor. It is considered
@@ -561,6 +1166,52 @@ public class World extends Observable implements Serializable {
 		}
 		return null;
 	}
+	/**
+	 * Sends an organism to another world if it has entered an output corridor
+	 * that can send it.
+	 * Called from {@link Organism#commitMove()}.
+	 *
+	 * @param org  The organism that has moved.
+	 * @return  true if the organism has left this world.
+	 */
+	boolean sendThroughCorridor(Organism org) {
+		if (_replay != null) {
+			if (!_replay.departs(this, org))
+				return false;
+			organismLeft(org);
+			return true;
+		}
+		OutCorridor c = checkHitCorridor(org);
+		if (c != null && c.canSendOrganism() && c.sendOrganism(org)) {
+			if (_journal != null)
+				_journal.departure(this, org);
+			return true;
+		}
+		return false;
+	}
+	/**
+	 * Removes from this world an organism that has been sent to another one.
+	 * Its energy is returned to the atmosphere.
+	 *
+	 * @param org  The organism that has left.
+	 */
+	void organismLeft(Organism org) {
+		org.useEnergy(org.getEnergy());
+		org.alive = false;
+		memory.organismDied(org.getID(), getTime());
+		decreasePopulation();
+	}
+	/**
+	 * Adds to this world an organism that has arrived from another world
+	 * through an input corridor.
+	 *
+	 * @param org  The organism, already placed with {@link Organism#pasteOrganism(int, int)}.
+	 */
+	void organismArrived(Organism org) {
+		addOrganism(org, null);
+		if (_journal != null)
+			_journal.arrival(this, org);
+	}
 	/**
 	 * Checks if an organism has a high probability of being in touch with
 	 * another organism. This is done by checking if the bounding rectangles
@@ -573,7 +1224,7 @@ public class World extends Observable implements Serializable {
 	public Organism fastCheckHit(Organism b1) {
 		Organism b;
 		synchronized (_organisms) {
-			for (Iterator<Organism> it = _organisms.iterator(); it.hasNext(); ) {
+			for (Iterator<Organism> it = _grid.query(b1, _candidates).iterator(); it.hasNext(); ) {
 				b = it.next();
 				if (b1 != b) {
 					if (b1.intersects(b)) {
@@ -594,7 +1245,7 @@ public class World extends Observable implements Serializable {
 	public Organism checkHit(Organism org1) {
 		Organism org;
 		synchronized(_organisms) {
-			for (Iterator<Organism> it = _organisms.iterator(); it.hasNext(); ) {
+			for (Iterator<Organism> it = _grid.query(org1, _candidates).iterator(); it.hasNext(); ) {
 				org = it.next();
 				if (org1 != org) {
 					// First check if the bounding boxes intersect
@@ -608,6 +1259,18 @@ public class World extends Observable implements Serializable {
 		}
 		return null;
 	}
+	/**
+	 * Informs the world that an organism may have changed its position or size,
+	 * so that collision detection can find it at its new place.
+	 * Called from {@link Organism#move()}.
+	 *
+	 * @param org  The organism that has moved.
+	 */
+	public void organismMoved(Organism org) {
+		synchronized (_organisms) {
+			_grid.update(org);
+		}
+	}
 	/**
 	 * Adds an organism to the world. Once added, the new organism will move at every
 	 * frame and interact with other organisms in the world.
@@ -618,15 +1281,19 @@ public class World extends Observable implements Serializable {
 	 * @param parent  The parent of the added organism, or null if there is no parent.
 	 */
 	public void addOrganism(Organism child, Organism parent) {
-		_organisms.add(child);
-		memory.addOrganism(child);
-		if (parent == _visibleWorld.getSelectedOrganism())
-			_visibleWorld._mainWindow.getInfoPanel().changeNChildren();
+		child._geneticCode = _genomePool.intern(child._geneticCode);
+		synchronized (_organisms) {
+			_organisms.add(child);
+			_grid.add(child);
+		}
+		memory.addOrganism(child, parent == null ? null :
+			parent._infectedGeneticCode != null ? parent._infectedGeneticCode : parent._geneticCode);
 		if (parent != null) {
 			worldStatistics.eventOrganismBorn(child, parent);
 		}
 		worldStatistics.eventOrganismCreated();
 		increasePopulation();
+		_listeners.fire().organismAdded(child, parent);
 	}
 	/**
 	 * Informs the world of a defunction event. This will update statistics.
@@ -635,11 +1302,9 @@ public class World extends Observable implements Serializable {
 	 * @param killingOrganism  The organism that has killed the other organism, if any.
 	 */
 	public void organismHasDied(Organism dyingOrganism, Organism killingOrganism) {
+		memory.organismDied(dyingOrganism.getID(), getTime());
 		worldStatistics.eventOrganismDie(dyingOrganism, killingOrganism);
-		if (killingOrganism == _visibleWorld.getSelectedOrganism())
-			_visibleWorld._mainWindow.getInfoPanel().changeNKills();
-		if (dyingOrganism == _visibleWorld.getSelectedOrganism())
-			_visibleWorld.showDeadToolbar();
+		_listeners.fire().organismDied(dyingOrganism, killingOrganism);
 	}
 	/**
 	 * Informs the world of an infection event. This will update statistics.
@@ -649,7 +1314,6 @@ public class World extends Observable implements Serializable {
 	 */
 	public void organismHasBeenInfected(Organism infectedOrganism, Organism infectingOrganism) {
 		worldStatistics.eventOrganismInfects(infectedOrganism, infectingOrganism);
-		if (infectingOrganism == _visibleWorld.getSelectedOrganism())
-			_visibleWorld._mainWindow.getInfoPanel().changeNInfected();
+		_listeners.fire().organismInfected(infectedOrganism, infectingOrganism);
 	}
 }
@@ -0,0 +1,78 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.util.EventListener;
+
+/**
+ * Receives the events of a {@link World} that are of interest to its user
+ * interface. A world doesn't need any listener to run, so this is the only
+ * link between the simulation and Swing. {@link VisibleWorld} implements it
+ * to repaint the world and keep the {@link InfoToolbar} up to date.
+ *
+ * Methods are called from the thread that is running the world.
+ */
+public interface WorldListener extends EventListener {
+	/**
+	 * Called by {@link World#genesis()} when all organisms have been removed
+	 * and before the new ones are created.
+	 *
+	 * @param world  The world that is being populated again.
+	 */
+	void worldReset(World world);
+	/**
+	 * Called when an organism has been added to the world.
+	 *
+	 * @param child  The new organism.
+	 * @param parent  Its parent, or null if it has no parent.
+	 */
+	void organismAdded(Organism child, Organism parent);
+	/**
+	 * Called when an organism with no energy left has been removed from the world.
+	 *
+	 * @param org  The removed organism.
+	 */
+	void organismRemoved(Organism org);
+	/**
+	 * Called when an organism has died.
+	 *
+	 * @param dyingOrganism  The organism that has just died.
+	 * @param killingOrganism  The organism that has killed it, if any.
+	 */
+	void organismDied(Organism dyingOrganism, Organism killingOrganism);
+	/**
+	 * Called when an organism has been infected by another one.
+	 *
+	 * @param infectedOrganism  The organism that has just been infected.
+	 * @param infectingOrganism  The organism that has infected it.
+	 */
+	void organismInfected(Organism infectedOrganism, Organism infectingOrganism);
+	/**
+	 * Called when a pair of biological corridors has been removed from the world.
+	 *
+	 * @param in  The removed input corridor.
+	 * @param out  The removed output corridor.
+	 */
+	void corridorsRemoved(InCorridor in, OutCorridor out);
+	/**
+	 * Called at the end of every frame, after all organisms have moved.
+	 *
+	 * @param world  The world that has executed the frame.
+	 */
+	void frameFinished(World world);
+}
@@ -17,17 +17,241 @@
  */
 package biogenesis;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * This class keeps track of all the organisms that have lived in the world.
  *
+ * Organisms are not kept in memory: for every organism only a small
+ * fixed-width record is kept, with its parent, generation, birth and death
+ * time and a reference to its genetic code. Records are indexed by
+ * identification number and stored in a memory-mapped file, so the family
+ * tree of an organism is found by following parents without reading
+ * anything else. Genetic codes are appended to a second file and only read
+ * when they are shown; organisms with equal genetic codes share the same
+ * one. If {@link Utils#DELTA_GENOMES} is set, a genetic code is written as its
+ * differences with the one it was inherited from, which usually are one or
+ * two mutated genes. Every {@link #KEYFRAME_INTERVAL} generations it is
+ * written in full, so that reading it never needs more than a few steps.
+ * Both files are temporary and are deleted when the program exits.
+ *
+ * When a world is loaded from a file, its history is copied from the file
+ * by another thread while the world is already running. New organisms are
+ * remembered at once; deaths of older organisms are kept until the copy
+ * is finished, and reading their records waits for it.
+ *
+ * A {@link Mark} can be taken at any time to later return to that point
+ * with {@link #rewind(Mark)}, when a world is rewound by a
+ * {@link SnapshotRing}. While there are marks, the previous death time of
+ * every death or revival is kept so that it can be undone.
+ *
+ * The same log lets {@link #copyHistory()} take a copy of the history in
+ * constant time, when a world is saved in the background: the copy only
+ * keeps the number of organisms, the size of the genetic codes file and a
+ * mark, and the records are read from the files when it is written.
+ *
  * @author Sebastien Le Callonnec
  */
-public class WorldMemory {
-	private final List<Organism> memory = new ArrayList<>();
+public class WorldMemory implements Serializable {
+	/**
+	 * Version number of the class
+	 */
+	private static final long serialVersionUID = Utils.FILE_VERSION;
+	/**
+	 * Previous versions kept the organisms in a list called memory. It is
+	 * still declared to read their files. Now it is always written as null
+	 * and followed by the records.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("memory", List.class) //$NON-NLS-1$
+	};
+	/**
+	 * Size of a record: parent, generation, birth time, death time and
+	 * position of the genetic code.
+	 */
+	private static final int RECORD_SIZE = 32;
+	private static final int PARENT = 0;
+	private static final int GENERATION = 4;
+	private static final int BIRTH = 8;
+	private static final int DEATH = 16;
+	private static final int GENOME = 24;
+	/**
+	 * The records file is mapped in chunks of 2^CHUNK_BITS records.
+	 */
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_RECORDS = 1 << CHUNK_BITS;
+	private static final long CHUNK_SIZE = (long) CHUNK_RECORDS * RECORD_SIZE;
+	/**
+	 * First byte of a genetic code written as differences. It is followed by
+	 * the position of the base genetic code and the differences. Genetic
+	 * codes written in full start with their symmetry, that is never negative.
+	 */
+	private static final int DELTA_ENTRY = -1;
+	/**
+	 * Maximum number of genetic codes written as differences in a row.
+	 */
+	static final int KEYFRAME_INTERVAL = 16;
+	/**
+	 * Bits used to keep, with the position of a genetic code, how many
+	 * genetic codes written as differences must be read to get it.
+	 */
+	private static final int DEPTH_BITS = 4;
+	/**
+	 * Number of genetic codes read recently that are kept.
+	 */
+	private static final int DECODED_CACHE_SIZE = 256;
+
+	private transient FileChannel _records;
+	private transient List<MappedByteBuffer> _chunks;
+	private transient FileChannel _genomeChannel;
+	private transient WorldSnapshot.Output _genomes;
+	/**
+	 * Position of the genetic codes already written, so that organisms with
+	 * the same genetic code share it, shifted {@link #DEPTH_BITS} to the
+	 * left and followed by its depth. Codes are removed when they are not
+	 * used any more.
+	 */
+	private transient Map<GeneticCode,Long> _genomePositions;
+	/**
+	 * Genetic codes read recently, by position. Ancestors of an organism
+	 * usually share most of their bases, so reading a family tree only reads
+	 * each of them once.
+	 */
+	private transient Map<Long,GeneticCode> _decoded;
+	/**
+	 * Number of organisms remembered.
+	 */
+	private transient int _count;
+	/**
+	 * Number of organisms whose records are being copied from a file, or 0.
+	 */
+	private transient int _loading;
+	/**
+	 * Deaths of organisms whose records are being copied, as identification
+	 * number and time, to be written when the copy is finished.
+	 */
+	private transient List<long[]> _pendingDeaths;
+	/**
+	 * The error that happened copying records from a file, or null.
+	 */
+	private transient IOException _loadError;
+	/**
+	 * Deaths and revivals since the oldest mark in use, as pairs of
+	 * identification number and previous death time. It is null when there
+	 * are no marks.
+	 */
+	private transient long[] _undo;
+	/**
+	 * Number of values used in {@link #_undo}.
+	 */
+	private transient int _undoSize;
+	/**
+	 * Number of changes removed from the start of {@link #_undo}.
+	 */
+	private transient long _undoBase;
+	/**
+	 * Incremented every time everything is forgotten, so that older marks
+	 * can't be used.
+	 */
+	private transient int _epoch;
+	/**
+	 * True if marks have been taken with {@link #mark()} and not all of
+	 * them have been released with {@link #release(Mark)}.
+	 */
+	private transient boolean _marked;
+	/**
+	 * The oldest mark still in use, as given to {@link #release(Mark)}, or
+	 * null if it is not known.
+	 */
+	private transient Mark _oldest;
+	/**
+	 * Copies of the history that are being written, or null.
+	 */
+	private transient List<History> _histories;
+	/**
+	 * A point in the history of the world that can be returned to.
+	 */
+	static final class Mark {
+		final int _epoch;
+		/**
+		 * Number of organisms remembered.
+		 */
+		final int _count;
+		/**
+		 * Number of changes made to death times before the mark.
+		 */
+		final long _change;
+
+		Mark(int epoch, int count, long change) {
+			_epoch = epoch;
+			_count = count;
+			_change = change;
+		}
+	}
+
+	/**
+	 * The history of the world at a given point, made by {@link #copyHistory()}.
+	 * It must be written or released, as the changes made after it are kept
+	 * until then.
+	 */
+	static final class History {
+		private final WorldMemory _memory;
+		private final Mark _mark;
+		/**
+		 * Size of the genetic codes file. It is only appended to, so the
+		 * first bytes are always the same.
+		 */
+		private final long _genomesSize;
+
+		History(WorldMemory memory, Mark mark, long genomesSize) {
+			_memory = memory;
+			_mark = mark;
+			_genomesSize = genomesSize;
+		}
+		/**
+		 * Writes the history as {@link WorldMemory#writeSnapshot(WorldSnapshot.Output)}
+		 * would have written it when it was copied, and releases it. It can
+		 * be called from any thread while the world keeps running.
+		 *
+		 * @param out  The snapshot being written.
+		 * @throws IOException  if the snapshot or the temporary files can't be written.
+		 */
+		void write(WorldSnapshot.Output out) throws IOException {
+			try {
+				_memory.writeHistory(this, out);
+			} finally {
+				release();
+			}
+		}
+		/**
+		 * Releases the history without writing it.
+		 */
+		void release() {
+			_memory.releaseHistory(this);
+		}
+	}
 
 	/**
 	 * Adds an organism to the {@link WorldMemory}.
@@ -35,32 +259,682 @@ public class WorldMemory {
 	 * @param organism {@link Organism} to remember.
 	 */
 	public void addOrganism(Organism organism) {
-		memory.add(organism.getID(), organism);
+		addOrganism(organism, null);
+	}
+	/**
+	 * Adds an organism to the {@link WorldMemory}, with the genetic code
+	 * it was inherited from.
+	 *
+	 * @param organism {@link Organism} to remember.
+	 * @param base  The genetic code its genetic code was inherited from, or null.
+	 */
+	public synchronized void addOrganism(Organism organism, GeneticCode base) {
+		int id = organism.getID();
+		if (id < 0 || id > _count)
+			throw new IndexOutOfBoundsException("Organism " + id + " is not the next one: " + _count); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			long genome = appendGeneticCode(organism.getGeneticCode(), base);
+			put(id, organism.getParentID(), organism.getGeneration(), organism.getBirthTime(),
+					organism.isAlive() ? -1 : organism.getDeathTime(), genome);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	/**
+	 * Records the death of an organism.
+	 *
+	 * @param id  The identification number of the organism.
+	 * @param time  The time when it died.
+	 */
+	public synchronized void organismDied(int id, long time) {
+		if (id < _loading) {
+			// Its previous death time will be known when it is loaded
+			_pendingDeaths.add(new long[] {id, time, _undo == null ? -1 : logChange(id, -1)});
+		} else if (id >= 0 && id < _count) {
+			try {
+				ByteBuffer chunk = chunk(id);
+				if (_undo != null)
+					logChange(id, chunk.getLong(offset(id) + DEATH));
+				chunk.putLong(offset(id) + DEATH, time);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+	/**
+	 * Records that a dead organism has been brought back to life.
+	 *
+	 * @param id  The identification number of the organism.
+	 */
+	public void organismRevived(int id) {
+		organismDied(id, -1);
+	}
+	/**
+	 * Marks the current point in the history, so that it can be returned to
+	 * with {@link #rewind(Mark)}.
+	 *
+	 * @return  The mark.
+	 */
+	synchronized Mark mark() {
+		_marked = true;
+		return newMark();
 	}
 
-	private Organism getOrganismById(int id) {
-		return memory.get(id);
+	private Mark newMark() {
+		if (_undo == null) {
+			_undo = new long[64];
+			_undoSize = 0;
+		}
+		return new Mark(_epoch, _count, _undoBase + _undoSize / 2);
+	}
+	/**
+	 * Forgets the changes made before a mark. Marks older than it can't be
+	 * used any more.
+	 *
+	 * @param oldest  The oldest mark still in use, or null if there are no
+	 * marks in use.
+	 */
+	synchronized void release(Mark oldest) {
+		if (oldest == null || oldest._epoch != _epoch) {
+			_marked = false;
+			_oldest = null;
+		} else {
+			_oldest = oldest;
+		}
+		forgetChanges();
+	}
+	/**
+	 * Forgets the changes made before the oldest mark and the oldest copy
+	 * of the history still in use.
+	 */
+	private void forgetChanges() {
+		Mark oldest = _oldest;
+		if (_marked && oldest == null)
+			// The oldest mark in use is not known yet
+			return;
+		if (_histories != null) {
+			for (History history : _histories) {
+				if (oldest == null || history._mark._change < oldest._change)
+					oldest = history._mark;
+			}
+		}
+		if (oldest == null) {
+			_undoBase += _undoSize / 2;
+			_undo = null;
+			_undoSize = 0;
+		} else if (_undo != null && oldest._change > _undoBase) {
+			int drop = (int) Math.min(oldest._change - _undoBase, _undoSize / 2);
+			System.arraycopy(_undo, drop * 2, _undo, 0, _undoSize - drop * 2);
+			_undoSize -= drop * 2;
+			_undoBase += drop;
+		}
+	}
+	/**
+	 * Copies the history as it is now, so that it can be written later by
+	 * another thread with {@link History#write(WorldSnapshot.Output)}. It
+	 * doesn't read nor copy any record, so it can be called between two
+	 * frames even if the history is very long.
+	 *
+	 * @return  The copy.
+	 * @throws IOException  if the genetic codes file can't be written.
+	 */
+	synchronized History copyHistory() throws IOException {
+		long genomesSize = 0;
+		if (_genomes != null) {
+			_genomes.flush();
+			genomesSize = _genomes.size();
+		}
+		History history = new History(this, newMark(), genomesSize);
+		if (_histories == null)
+			_histories = new ArrayList<>();
+		_histories.add(history);
+		return history;
 	}
 
+	private synchronized void releaseHistory(History history) {
+		if (_histories != null && _histories.remove(history)) {
+			forgetChanges();
+			notifyAll();
+		}
+	}
+	/**
+	 * Writes the records as they were when a history was copied. They are
+	 * read in blocks of one chunk, holding the lock only while the block is
+	 * copied and the deaths and revivals made after the copy are undone in it.
+	 */
+	private void writeHistory(History history, WorldSnapshot.Output out) throws IOException {
+		Mark mark = history._mark;
+		out.putInt(mark._count);
+		ByteBuffer block = ByteBuffer.allocate((int) Math.min(CHUNK_SIZE, (long) mark._count * RECORD_SIZE));
+		for (int first = 0; first < mark._count; first += CHUNK_RECORDS) {
+			int n = Math.min(CHUNK_RECORDS, mark._count - first);
+			block.clear();
+			synchronized (this) {
+				awaitLoaded();
+				// Records are copied as they are, that is big endian like snapshots
+				ByteBuffer records = chunk(first).duplicate();
+				records.limit(n * RECORD_SIZE);
+				block.put(records);
+				// From the newest change to the oldest, so that the time before the first one remains
+				for (int i = _undoSize / 2 - 1; i >= mark._change - _undoBase; i--) {
+					int id = (int) _undo[2 * i];
+					if (id >= first && id < first + n)
+						block.putLong((id - first) * RECORD_SIZE + DEATH, _undo[2 * i + 1]);
+				}
+			}
+			block.flip();
+			out.put(block);
+		}
+		out.putLong(history._genomesSize);
+		if (history._genomesSize > 0)
+			out.transferFrom(_genomeChannel, 0, history._genomesSize);
+	}
+	/**
+	 * Waits until all copies of the history have been written or released.
+	 */
+	private void awaitHistories() {
+		boolean interrupted = false;
+		while (_histories != null && !_histories.isEmpty()) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+	/**
+	 * Returns to the point in the history given by a mark: organisms added
+	 * after it are forgotten and deaths and revivals after it are undone.
+	 * Marks taken after it can't be used any more.
+	 *
+	 * @param mark  The mark.
+	 * @throws IOException  if the mark is not valid any more or the records
+	 * can't be written.
+	 */
+	synchronized void rewind(Mark mark) throws IOException {
+		awaitLoaded();
+		// Copies of the history may need changes that would be undone
+		awaitHistories();
+		if (mark._epoch != _epoch || _undo == null || mark._change < _undoBase
+				|| mark._change > _undoBase + _undoSize / 2 || mark._count > _count)
+			throw new IOException("The history of the world can't be rewound to this point"); //$NON-NLS-1$
+		int first = (int) (mark._change - _undoBase);
+		for (int i = _undoSize / 2 - 1; i >= first; i--) {
+			int id = (int) _undo[2 * i];
+			chunk(id).putLong(offset(id) + DEATH, _undo[2 * i + 1]);
+		}
+		_undoSize = first * 2;
+		_count = mark._count;
+	}
+	/**
+	 * Keeps the previous death time of an organism.
+	 *
+	 * @return  The number of the change.
+	 */
+	private long logChange(int id, long death) {
+		if (_undoSize == _undo.length)
+			_undo = Arrays.copyOf(_undo, _undoSize * 2);
+		_undo[_undoSize++] = id;
+		_undo[_undoSize++] = death;
+		return _undoBase + _undoSize / 2 - 1;
+	}
+	/**
+	 * Returns the number of organisms remembered.
+	 */
+	public synchronized int size() {
+		return _count;
+	}
+	/**
+	 * Returns what is remembered about an organism.
+	 *
+	 * @param id  The identification number of the organism.
+	 * @return  Its record.
+	 */
+	public synchronized Lineage getLineage(int id) {
+		if (id < 0 || id >= _count)
+			throw new IndexOutOfBoundsException("Unknown organism " + id); //$NON-NLS-1$
+		try {
+			awaitLoaded();
+			ByteBuffer chunk = chunk(id);
+			int offset = offset(id);
+			int parent = chunk.getInt(offset + PARENT);
+			// Records read from a snapshot are checked when they are used
+			if (parent < -1 || parent >= id)
+				throw new IOException("Invalid organism " + id); //$NON-NLS-1$
+			return new Lineage(this, id, parent, chunk.getInt(offset + GENERATION),
+					chunk.getLong(offset + BIRTH), chunk.getLong(offset + DEATH), chunk.getLong(offset + GENOME));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	/**
+	 * Replaces all remembered organisms with the ones read from a
+	 * {@link WorldSnapshot} written by a previous version, or from a world
+	 * saved with Java serialization.
+	 *
+	 * @param organisms  The organisms, indexed by their identification number.
+	 */
+	synchronized void restore(List<Organism> organisms) {
+		clear();
+		for (Organism organism : organisms)
+			addOrganism(organism);
+	}
 	/**
 	 * Gives the family tree of a given organism.
 	 *
 	 * Trees only go upwards, i.e. we only return ancestors, not descendants.
 	 *
 	 * @param id
-	 * @return List&lt;Organism&gt; - List of {@link Organism} ancestry.
+	 * @return List&lt;Lineage&gt; - List of ancestors, the oldest first.
 	 */
-	public List<Organism> getFamilyTree(int id) {
-		List<Organism> tree = new ArrayList<>();
+	public synchronized List<Lineage> getFamilyTree(int id) {
+		List<Lineage> tree = new ArrayList<>();
 		int parentId = id;
 		while (parentId >= 0) {
-			Organism o = getOrganismById(parentId);
-			tree.add(o);
-			parentId = o.getParentID();
+			Lineage l = getLineage(parentId);
+			tree.add(l);
+			parentId = l.getParentID();
 		}
 
 		// Reverse to have ancestors first.
 		Collections.reverse(tree);
 		return tree;
 	}
+	/**
+	 * Writes all records and genetic codes.
+	 *
+	 * @param out  The snapshot being written.
+	 * @throws IOException  if the snapshot or the temporary files can't be written.
+	 */
+	synchronized void writeSnapshot(WorldSnapshot.Output out) throws IOException {
+		copyHistory().write(out);
+	}
+	/**
+	 * Replaces all remembered organisms with the ones written by
+	 * {@link #writeSnapshot(WorldSnapshot.Output)}.
+	 *
+	 * @param in  The snapshot being read.
+	 * @throws IOException  if the snapshot can't be read or isn't valid.
+	 */
+	synchronized void readSnapshot(WorldSnapshot.Input in) throws IOException {
+		clear();
+		int count = in.getInt();
+		if (count < 0)
+			throw new IOException("Invalid number of organisms " + count); //$NON-NLS-1$
+		open();
+		long recordsSize = (long) count * RECORD_SIZE;
+		long recordsPosition = in._file == null ? -1 : in.position();
+		if (recordsPosition >= 0) {
+			in.skipBytes(recordsSize);
+		} else {
+			// Records are copied as they are and checked when they are used
+			in.transferTo(_records, 0, recordsSize);
+		}
+		long size = in.getLong();
+		if (size < 0)
+			throw new IOException("Invalid genetic codes size " + size); //$NON-NLS-1$
+		if (recordsPosition >= 0) {
+			long genomesPosition = in.position();
+			in.skipBytes(size);
+			startLoading(WorldSnapshot.open(in._file), recordsPosition, count, genomesPosition, size);
+		} else {
+			in.transferTo(_genomeChannel, 0, size);
+		}
+		_count = count;
+		_genomeChannel.position(size);
+		_genomes = new WorldSnapshot.Output(_genomeChannel, size);
+	}
+	/**
+	 * Starts copying records and genetic codes from a snapshot file in
+	 * another thread.
+	 *
+	 * @param source  The snapshot file, uncompressed. It is closed when the
+	 * copy finishes.
+	 */
+	private void startLoading(SeekableByteChannel source, long recordsPosition, int count, long genomesPosition, long size) {
+		_loading = count;
+		_pendingDeaths = new ArrayList<>();
+		final FileChannel genomes = _genomeChannel;
+		Thread loader = new Thread(() -> {
+			IOException error = null;
+			try (SeekableByteChannel s = source) {
+				loadRecords(s, recordsPosition, count);
+				copy(s, genomesPosition, genomes, size);
+			} catch (IOException e) {
+				error = e;
+			}
+			finishLoading(error);
+		}, "WorldMemory loader"); //$NON-NLS-1$
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Reads records from a snapshot file. They are written through the
+	 * mapped chunks, like the records of new organisms that are added at
+	 * the same time by the thread that runs the world, as changes written to
+	 * the file in other ways may not be seen through mappings that already exist.
+	 */
+	private void loadRecords(SeekableByteChannel source, long position, int count) throws IOException {
+		source.position(position);
+		for (int first = 0; first < count; first += CHUNK_RECORDS) {
+			ByteBuffer records;
+			synchronized (this) {
+				records = chunk(first).duplicate();
+			}
+			records.limit(Math.min(CHUNK_RECORDS, count - first) * RECORD_SIZE);
+			while (records.hasRemaining()) {
+				if (source.read(records) < 0)
+					throw new EOFException("Unexpected end of snapshot"); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private static void copy(SeekableByteChannel source, long position, FileChannel target, long count) throws IOException {
+		source.position(position);
+		long done = 0;
+		while (done < count) {
+			long n = target.transferFrom(source, done, count - done);
+			if (n <= 0)
+				throw new EOFException("Unexpected end of snapshot"); //$NON-NLS-1$
+			done += n;
+		}
+	}
+
+	private synchronized void finishLoading(IOException error) {
+		_loading = 0;
+		_loadError = error;
+		if (error != null) {
+			System.err.println("Could not read the history of the world: " + error.getMessage()); //$NON-NLS-1$
+		} else {
+			try {
+				for (long[] death : _pendingDeaths) {
+					int id = (int) death[0];
+					ByteBuffer chunk = chunk(id);
+					long change = death[2] - _undoBase;
+					if (death[2] >= 0 && _undo != null && change >= 0 && change < _undoSize / 2)
+						_undo[(int) change * 2 + 1] = chunk.getLong(offset(id) + DEATH);
+					chunk.putLong(offset(id) + DEATH, death[1]);
+				}
+			} catch (IOException e) {
+				_loadError = e;
+			}
+		}
+		_pendingDeaths = null;
+		notifyAll();
+	}
+	/**
+	 * Waits until records being copied from a file are available.
+	 *
+	 * @throws IOException  if they couldn't be copied.
+	 */
+	private void awaitLoaded() throws IOException {
+		boolean interrupted = false;
+		while (_loading > 0) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		if (_loadError != null)
+			throw new IOException("The history of the world could not be read", _loadError); //$NON-NLS-1$
+	}
+	/**
+	 * Returns the genetic code stored at a position of the genetic codes file.
+	 */
+	synchronized GeneticCode readGeneticCode(long position) {
+		try {
+			awaitLoaded();
+			_genomes.flush();
+			// Follow the bases until a genetic code written in full
+			List<WorldSnapshot.Input> deltas = new ArrayList<>();
+			List<Long> positions = new ArrayList<>();
+			GeneticCode code;
+			for (;;) {
+				code = _decoded.get(position);
+				if (code != null)
+					break;
+				if (position < 0 || position >= _genomes.size())
+					throw new IOException("Invalid genetic code position " + position); //$NON-NLS-1$
+				WorldSnapshot.Input in = new WorldSnapshot.Input(new Reader(_genomeChannel, position), 512);
+				int first = in.getByte();
+				if (first != DELTA_ENTRY) {
+					code = WorldSnapshot.readGeneticCode(in, first);
+					break;
+				}
+				long base = in.getLong();
+				if (base < 0 || base >= position)
+					throw new IOException("Invalid base genetic code " + base); //$NON-NLS-1$
+				deltas.add(in);
+				positions.add(position);
+				position = base;
+			}
+			_decoded.put(position, code);
+			for (int i = deltas.size() - 1; i >= 0; i--) {
+				code = WorldSnapshot.readGeneticCodeDelta(deltas.get(i), code);
+				_decoded.put(positions.get(i), code);
+			}
+			return code;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private long appendGeneticCode(GeneticCode code, GeneticCode base) throws IOException {
+		open();
+		Long written = _genomePositions.get(code);
+		if (written != null)
+			return written >>> DEPTH_BITS;
+		long position = _genomes.size();
+		Long baseWritten = base != null && Utils.DELTA_GENOMES ? _genomePositions.get(base) : null;
+		int depth = 0;
+		if (baseWritten != null && (baseWritten & ((1 << DEPTH_BITS) - 1)) + 1 < KEYFRAME_INTERVAL) {
+			depth = (int) (baseWritten & ((1 << DEPTH_BITS) - 1)) + 1;
+			_genomes.putByte(DELTA_ENTRY);
+			_genomes.putLong(baseWritten >>> DEPTH_BITS);
+			WorldSnapshot.writeGeneticCodeDelta(_genomes, code, base);
+		} else {
+			WorldSnapshot.writeGeneticCode(_genomes, code);
+		}
+		_genomePositions.put(code, position << DEPTH_BITS | depth);
+		return position;
+	}
+
+	private void put(int id, int parent, int generation, long birth, long death, long genome) throws IOException {
+		ByteBuffer chunk = chunk(id);
+		int offset = offset(id);
+		chunk.putInt(offset + PARENT, parent);
+		chunk.putInt(offset + GENERATION, generation);
+		chunk.putLong(offset + BIRTH, birth);
+		chunk.putLong(offset + DEATH, death);
+		chunk.putLong(offset + GENOME, genome);
+		_count = Math.max(_count, id + 1);
+	}
+
+	private ByteBuffer chunk(int id) throws IOException {
+		int c = id >>> CHUNK_BITS;
+		while (_chunks.size() <= c)
+			_chunks.add(_records.map(FileChannel.MapMode.READ_WRITE, _chunks.size() * CHUNK_SIZE, CHUNK_SIZE));
+		return _chunks.get(c);
+	}
+
+	private static int offset(int id) {
+		return (id & (CHUNK_RECORDS - 1)) * RECORD_SIZE;
+	}
+	/**
+	 * Creates the temporary files, if they don't exist yet.
+	 */
+	private void open() throws IOException {
+		if (_records != null)
+			return;
+		_records = openTemporary("biogenesis-lineage"); //$NON-NLS-1$
+		_genomeChannel = openTemporary("biogenesis-genomes"); //$NON-NLS-1$
+		_genomes = new WorldSnapshot.Output(_genomeChannel);
+		_chunks = new ArrayList<>();
+		_genomePositions = new WeakHashMap<>();
+		_decoded = new LinkedHashMap<Long,GeneticCode>(DECODED_CACHE_SIZE * 2, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long,GeneticCode> eldest) {
+				return size() > DECODED_CACHE_SIZE;
+			}
+		};
+	}
+
+	private static FileChannel openTemporary(String prefix) throws IOException {
+		Path path = Files.createTempFile(prefix, ".bin"); //$NON-NLS-1$
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			// Where open files can be deleted, nothing is left behind if the program dies.
+			Files.delete(path);
+		} catch (IOException e) {
+			path.toFile().deleteOnExit();
+		}
+		return channel;
+	}
+	/**
+	 * Forgets all organisms and closes the temporary files.
+	 */
+	private void clear() {
+		try {
+			awaitLoaded();
+		} catch (IOException e) {
+			// It is being forgotten anyway
+		}
+		awaitHistories();
+		_loadError = null;
+		_epoch++;
+		_marked = false;
+		_oldest = null;
+		_undo = null;
+		_undoSize = 0;
+		_undoBase = 0;
+		try {
+			if (_records != null)
+				_records.close();
+			if (_genomeChannel != null)
+				_genomeChannel.close();
+		} catch (IOException e) {
+			// Nothing else can be done with a temporary file
+		}
+		_records = null;
+		_genomeChannel = null;
+		_genomes = null;
+		_chunks = null;
+		_genomePositions = null;
+		_decoded = null;
+		_count = 0;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.putFields().put("memory", null); //$NON-NLS-1$
+		out.writeFields();
+		WorldSnapshot.Output o = new WorldSnapshot.Output(Channels.newChannel(out));
+		writeSnapshot(o);
+		o.flush();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		List<Organism> organisms = (List<Organism>) in.readFields().get("memory", null); //$NON-NLS-1$
+		if (organisms != null)
+			restore(organisms);
+		else
+			readSnapshot(new WorldSnapshot.Input(Channels.newChannel(in)));
+	}
+	/**
+	 * Reads a file from a given position, without changing the position of
+	 * the file, that is used to append to it.
+	 */
+	private static final class Reader implements ReadableByteChannel {
+		private final FileChannel _channel;
+		private long _position;
+
+		Reader(FileChannel channel, long position) {
+			_channel = channel;
+			_position = position;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			int n = _channel.read(dst, _position);
+			if (n > 0)
+				_position += n;
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+			// The file belongs to the WorldMemory
+		}
+	}
+	/**
+	 * What is remembered about an organism that lives or has lived in the world.
+	 */
+	public static final class Lineage {
+		private final WorldMemory _memory;
+		private final int _id;
+		private final int _parentID;
+		private final int _generation;
+		private final long _birthTime;
+		private final long _deathTime;
+		private final long _genome;
+
+		Lineage(WorldMemory memory, int id, int parentID, int generation, long birthTime,
+				long deathTime, long genome) {
+			_memory = memory;
+			_id = id;
+			_parentID = parentID;
+			_generation = generation;
+			_birthTime = birthTime;
+			_deathTime = deathTime;
+			_genome = genome;
+		}
+
+		public int getID() {
+			return _id;
+		}
+		/**
+		 * Returns the identification number of the parent, or -1 if the
+		 * organism has no parent.
+		 */
+		public int getParentID() {
+			return _parentID;
+		}
+
+		public int getGeneration() {
+			return _generation;
+		}
+
+		public long getBirthTime() {
+			return _birthTime;
+		}
+		/**
+		 * Returns the time when the organism died, or -1 if it is alive.
+		 */
+		public long getDeathTime() {
+			return _deathTime;
+		}
+
+		public boolean isAlive() {
+			return _deathTime < 0;
+		}
+		/**
+		 * Reads the genetic code of the organism. It is read again every time.
+		 */
+		public GeneticCode getGeneticCode() {
+			return _memory.readGeneticCode(_genome);
+		}
+	}
 }
@@ -0,0 +1,76 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.util.Random;
+
+/**
+ * The random number generator of a {@link World}. It generates exactly the
+ * same numbers as {@link Random} with the same seed, but its internal state
+ * can be read and restored, so that it can be saved in a {@link WorldSnapshot}
+ * and a loaded world continues generating the same numbers.
+ */
+public class WorldRandom extends Random {
+	private static final long serialVersionUID = Utils.FILE_VERSION;
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+	/**
+	 * Current state of the generator.
+	 */
+	private long _state;
+
+	/**
+	 * Creates a generator with the given seed.
+	 *
+	 * @param seed  The initial seed.
+	 */
+	public WorldRandom(long seed) {
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		super.setSeed(seed);
+		_state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected synchronized int next(int bits) {
+		_state = (_state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (_state >>> (48 - bits));
+	}
+	/**
+	 * Returns the internal state of the generator. It is not the seed used
+	 * to create it, but the value that must be given to {@link #setState(long)}
+	 * to continue the same sequence.
+	 *
+	 * @return  The state of the generator.
+	 */
+	public synchronized long getState() {
+		return _state;
+	}
+	/**
+	 * Restores a state obtained with {@link #getState()}.
+	 *
+	 * @param state  The state to restore.
+	 */
+	public synchronized void setState(long state) {
+		_state = state & MASK;
+	}
+}
@@ -0,0 +1,1003 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes worlds in a compact binary format, much faster than Java
+ * serialization and independent of the internal structure of the classes.
+ *
+ * A snapshot contains, in this order:
+ * <ul>
+ * <li>A header with {@link #MAGIC}, the format version and the size of the
+ * organism records.</li>
+ * <li>The world's size, atmosphere, counters and random number generator
+ * state, written by {@link World#writeSnapshot(Output)}.</li>
+ * <li>All genetic codes referenced by organisms or statistics. Each genetic
+ * code is stored only once, even if it is used by many organisms. When they
+ * are read they are interned in the world's {@link GenomePool}.</li>
+ * <li>One fixed-width record per organism, written by
+ * {@link Organism#writeSnapshot(Output)}. Segments are not stored: they are
+ * calculated again from the genetic code when the world is loaded.</li>
+ * <li>The {@link WorldMemory}: one record with the parent, generation, birth
+ * and death time for every organism that has lived in the world, followed by
+ * all their genetic codes, written by {@link WorldMemory#writeSnapshot(Output)}.
+ * Since version 3 genetic codes can be written as differences with another one.
+ * Version 1 stored instead, for every organism, its position in the previous
+ * list or, if it was not in the world anymore, -1 followed by its record.</li>
+ * <li>The world's statistics, written by {@link WorldStatistics#writeSnapshot(Output, List)}.</li>
+ * </ul>
+ * All numbers are big endian. Readers skip the part of organism records
+ * that they don't know, so fields can be added at the end of the record
+ * without breaking older readers.
+ *
+ * Files can be compressed with {@link BlockCompression}, in blocks that are
+ * compressed by several threads. A compressed file is read the same way,
+ * and the world's history is still only read when it is needed.
+ *
+ * Files written with {@link java.io.ObjectOutputStream} by previous versions
+ * can still be loaded with {@link #load(File)}, and converted to this format
+ * with {@link #convert(File, File)} or by running this class.
+ */
+public class WorldSnapshot {
+	/**
+	 * First four bytes of a snapshot: "BGWS".
+	 */
+	static final int MAGIC = 0x42475753;
+	/**
+	 * Version of the format written by this class.
+	 */
+	static final int VERSION = 3;
+	/**
+	 * First two bytes of a file written by Java serialization.
+	 */
+	private static final int SERIALIZATION_MAGIC = 0xACED;
+	/**
+	 * Size of the buffer used to read and write files.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+	/**
+	 * Operations in a genetic code written as differences: copy a run of
+	 * genes from the base genetic code, or read a mutated gene.
+	 */
+	private static final int DELTA_COPY = 0;
+	private static final int DELTA_GENE = 1;
+
+	private WorldSnapshot() {
+	}
+	/**
+	 * Writes a world to a file in snapshot format, compressed as chosen by
+	 * the user.
+	 *
+	 * @param world  The world to write.
+	 * @param f  The file. It is replaced if it exists.
+	 * @throws IOException  if the file can't be written.
+	 */
+	public static void save(World world, File f) throws IOException {
+		save(world, f, Utils.COMPRESSION);
+	}
+	/**
+	 * Writes a world to a file in snapshot format.
+	 *
+	 * @param world  The world to write.
+	 * @param f  The file. It is replaced if it exists.
+	 * @param codec  How the file is compressed. With {@link BlockCompression.Codec#NONE}
+	 * the snapshot is written as it is.
+	 * @throws IOException  if the file can't be written.
+	 */
+	public static void save(World world, File f, BlockCompression.Codec codec) throws IOException {
+		try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (codec == BlockCompression.Codec.NONE) {
+				write(world, channel);
+			} else {
+				BlockCompression.Writer writer = new BlockCompression.Writer(channel, codec,
+						Runtime.getRuntime().availableProcessors());
+				write(world, writer);
+				writer.finish();
+			}
+		}
+	}
+	/**
+	 * Writes a world in snapshot format. The channel is not closed.
+	 *
+	 * @param world  The world to write.
+	 * @param channel  The channel where the world is written.
+	 * @throws IOException  if the world can't be written.
+	 */
+	public static void write(World world, WritableByteChannel channel) throws IOException {
+		Output out = new Output(channel);
+		write(world, out, true);
+		out.flush();
+	}
+	/**
+	 * Writes a world in snapshot format.
+	 *
+	 * @param world  The world to write.
+	 * @param out  Where it is written.
+	 * @param complete  If false, genetic codes and the world's memory are not
+	 * written: codes are left in {@link Output#_codes}.
+	 * @throws IOException  if the world can't be written.
+	 */
+	private static void write(World world, Output out, boolean complete) throws IOException {
+		synchronized (world._organisms) {
+			writeOrganisms(world, out, complete);
+			if (complete)
+				world.getWorldMemory().writeSnapshot(out);
+			world.worldStatistics.writeSnapshot(out, world._organisms);
+		}
+	}
+	/**
+	 * Writes the part of a snapshot before the world's memory. Must be
+	 * called while holding the lock of the world's organisms.
+	 */
+	private static void writeOrganisms(World world, Output out, boolean complete) throws IOException {
+		// Collect genetic codes first, so that they can be read before organisms
+		for (Organism org : world._organisms) {
+			out.addGeneticCode(org._geneticCode);
+			out.addGeneticCode(org._infectedGeneticCode);
+		}
+		for (GeneticCode code : world.worldStatistics.getGeneticCodes())
+			out.addGeneticCode(code);
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putInt(Organism.SNAPSHOT_RECORD_SIZE);
+		world.writeSnapshot(out);
+		if (complete) {
+			out.putInt(out._codes.size());
+			for (GeneticCode code : out._codes)
+				writeGeneticCode(out, code);
+		}
+		out.putInt(world._organisms.size());
+		for (Organism org : world._organisms)
+			org.writeSnapshot(out);
+	}
+	/**
+	 * Writes a world in snapshot format to memory.
+	 *
+	 * @param world  The world to write.
+	 * @return  The snapshot.
+	 */
+	public static byte[] toByteArray(World world) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+		try {
+			write(world, Channels.newChannel(bytes));
+		} catch (IOException e) {
+			// Memory streams don't throw IOException
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+	/**
+	 * Copies a world to memory, except its history, that is only marked in
+	 * the world's memory by {@link WorldMemory#copyHistory()}. This takes a
+	 * consistent copy of the world between two frames, in a time that
+	 * doesn't depend on the length of the history, that is later written by
+	 * another thread.
+	 *
+	 * @param world  The world to copy.
+	 * @return  The copy.
+	 */
+	static Capture capture(World world) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+		Output out = new Output(Channels.newChannel(bytes));
+		int head;
+		WorldMemory.History history;
+		try {
+			synchronized (world._organisms) {
+				writeOrganisms(world, out, true);
+				out.flush();
+				head = bytes.size();
+				history = world.getWorldMemory().copyHistory();
+				world.worldStatistics.writeSnapshot(out, world._organisms);
+				out.flush();
+			}
+		} catch (IOException e) {
+			// Memory streams don't throw IOException, but the history may
+			throw new UncheckedIOException(e);
+		}
+		return new Capture(bytes.toByteArray(), head, history);
+	}
+	/**
+	 * A world copied by {@link #capture(World)}. It must be written or
+	 * released, as the world's memory keeps what is needed to write it until then.
+	 */
+	static final class Capture {
+		/**
+		 * The snapshot without the history, that goes after the first
+		 * {@link #_head} bytes.
+		 */
+		private final byte[] _data;
+		private final int _head;
+		private final WorldMemory.History _history;
+
+		Capture(byte[] data, int head, WorldMemory.History history) {
+			_data = data;
+			_head = head;
+			_history = history;
+		}
+		/**
+		 * Writes the snapshot and releases the copy.
+		 *
+		 * @param channel  Where it is written. It is not closed.
+		 * @throws IOException  if it can't be written.
+		 */
+		void write(WritableByteChannel channel) throws IOException {
+			try {
+				Output out = new Output(channel);
+				out.put(ByteBuffer.wrap(_data, 0, _head));
+				_history.write(out);
+				out.flush();
+				out.put(ByteBuffer.wrap(_data, _head, _data.length - _head));
+			} finally {
+				release();
+			}
+		}
+		/**
+		 * Releases the copy without writing it.
+		 */
+		void release() {
+			_history.release();
+		}
+	}
+	/**
+	 * Copies a world to memory like {@link #toByteArray(World)}, but without
+	 * its genetic codes and its history. Genetic codes are kept as they are,
+	 * so copies share those that don't change, and the history is marked in
+	 * the world's memory.
+	 *
+	 * @param world  The world to copy.
+	 * @return  The copy.
+	 */
+	static Frozen freeze(World world) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+		Output out = new Output(Channels.newChannel(bytes));
+		try {
+			write(world, out, false);
+			out.flush();
+		} catch (IOException e) {
+			// Memory streams don't throw IOException
+			throw new IllegalStateException(e);
+		}
+		return new Frozen(world.getFrame(), bytes.toByteArray(),
+				out._codes.toArray(new GeneticCode[out._codes.size()]), world.getWorldMemory().mark());
+	}
+	/**
+	 * Creates a world from a copy made by {@link #freeze(World)}. The new
+	 * world takes the memory of the world that was copied, which is returned
+	 * to the point where the copy was made.
+	 *
+	 * @param frozen  The copy.
+	 * @param memory  The memory of the world that was copied.
+	 * @return  The new world.
+	 * @throws IOException  if the memory can't be returned to that point.
+	 */
+	static World thaw(Frozen frozen, WorldMemory memory) throws IOException {
+		memory.rewind(frozen._mark);
+		Input in = new Input(Channels.newChannel(new ByteArrayInputStream(frozen._data)));
+		in._codes = frozen._codes;
+		return read(in, memory);
+	}
+	/**
+	 * A world copied by {@link #freeze(World)}.
+	 */
+	static final class Frozen {
+		final long _frame;
+		final byte[] _data;
+		final GeneticCode[] _codes;
+		final WorldMemory.Mark _mark;
+
+		Frozen(long frame, byte[] data, GeneticCode[] codes, WorldMemory.Mark mark) {
+			_frame = frame;
+			_data = data;
+			_codes = codes;
+			_mark = mark;
+		}
+	}
+	/**
+	 * Reads a world from a file. The file can be a snapshot, compressed or
+	 * not, or a world saved with Java serialization by a previous version.
+	 *
+	 * @param f  The file.
+	 * @return  The world read from the file.
+	 * @throws IOException  if the file can't be read or it isn't a valid world.
+	 */
+	public static World load(File f) throws IOException {
+		try (SeekableByteChannel channel = open(f.toPath())) {
+			ByteBuffer magic = ByteBuffer.allocate(2);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+				// keep reading
+			}
+			channel.position(0);
+			if (magic.position() == 2 && (magic.getShort(0) & 0xFFFF) == SERIALIZATION_MAGIC)
+				return readSerialized(Channels.newInputStream(channel));
+			return read(channel, f.toPath());
+		}
+	}
+	/**
+	 * Opens a file for reading. If it is compressed, the returned channel
+	 * reads it uncompressed.
+	 *
+	 * @param file  The file.
+	 * @return  A channel positioned at its first byte.
+	 * @throws IOException  if the file can't be opened.
+	 */
+	static SeekableByteChannel open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (BlockCompression.isCompressed(channel))
+				return BlockCompression.reader(channel);
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	/**
+	 * Reads a world in snapshot format. The channel is not closed.
+	 *
+	 * @param channel  The channel from where the world is read.
+	 * @return  The world.
+	 * @throws IOException  if the world can't be read or the data is not a
+	 * valid snapshot.
+	 */
+	public static World read(ReadableByteChannel channel) throws IOException {
+		return read(channel, null);
+	}
+	/**
+	 * Reads a world in snapshot format from a channel that may be a file.
+	 * If it is, the world's history is not read now: it is copied later from
+	 * the file, while the world is already running.
+	 */
+	private static World read(ReadableByteChannel channel, Path file) throws IOException {
+		Input in = new Input(channel);
+		in._file = file;
+		return read(in, null);
+	}
+	/**
+	 * Reads a world in snapshot format.
+	 *
+	 * @param in  The snapshot.
+	 * @param memory  If it is not null, the snapshot was written by
+	 * {@link #freeze(World)}: its genetic codes are already in {@link Input#_codes}
+	 * and this is the memory of the new world.
+	 */
+	private static World read(Input in, WorldMemory memory) throws IOException {
+		if (in.getInt() != MAGIC)
+			throw new IOException("Not a Biogenesis world snapshot"); //$NON-NLS-1$
+		int version = in.getInt();
+		if (version > VERSION)
+			throw new IOException("Unsupported snapshot version " + version); //$NON-NLS-1$
+		in._recordSize = in.getInt();
+		if (in._recordSize < Organism.SNAPSHOT_RECORD_SIZE)
+			throw new IOException("Invalid organism record size " + in._recordSize); //$NON-NLS-1$
+		World world = memory == null ? new World() : new World(memory);
+		world.readSnapshot(in);
+		if (memory == null) {
+			int nCodes = in.getInt();
+			in._codes = new GeneticCode[nCodes];
+			for (int i = 0; i < nCodes; i++)
+				in._codes[i] = world.getGenomePool().intern(readGeneticCode(in));
+		} else {
+			for (GeneticCode code : in._codes)
+				world.getGenomePool().intern(code);
+		}
+		int nOrganisms = in.getInt();
+		List<Organism> organisms = new ArrayList<>(nOrganisms);
+		for (int i = 0; i < nOrganisms; i++)
+			organisms.add(Organism.readSnapshot(world, in, true));
+		if (memory != null) {
+			// The memory is already at this point
+		} else if (version >= 2) {
+			world.getWorldMemory().readSnapshot(in);
+		} else {
+			int nRemembered = in.getInt();
+			List<Organism> remembered = new ArrayList<>(nRemembered);
+			for (int i = 0; i < nRemembered; i++) {
+				int position = in.getInt();
+				if (position == -1)
+					remembered.add(Organism.readSnapshot(world, in, false));
+				else if (position >= 0 && position < nOrganisms)
+					remembered.add(organisms.get(position));
+				else
+					throw new IOException("Invalid organism reference " + position); //$NON-NLS-1$
+			}
+			world.getWorldMemory().restore(remembered);
+		}
+		WorldStatistics statistics = new WorldStatistics();
+		statistics.readSnapshot(in, organisms);
+		world.restoreSnapshot(organisms, statistics);
+		return world;
+	}
+	/**
+	 * Converts a world saved with Java serialization to snapshot format.
+	 *
+	 * @param source  The file with the serialized world.
+	 * @param target  The file where the snapshot is written.
+	 * @throws IOException  if a file can't be read or written, or the source
+	 * is not a valid world.
+	 */
+	public static void convert(File source, File target) throws IOException {
+		save(load(source), target);
+	}
+	/**
+	 * Converts a world to snapshot format, compressed with a given codec.
+	 * It can also be used to compress or uncompress a snapshot.
+	 *
+	 * @param source  The file with the world.
+	 * @param target  The file where the snapshot is written.
+	 * @param codec  How the snapshot is compressed.
+	 * @throws IOException  if a file can't be read or written, or the source
+	 * is not a valid world.
+	 */
+	public static void convert(File source, File target, BlockCompression.Codec codec) throws IOException {
+		save(load(source), target, codec);
+	}
+
+	private static World readSerialized(InputStream stream) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(stream)) {
+			return (World) in.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Not a Biogenesis world", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written by {@link #writeGeneticCode(Output, GeneticCode)}.
+	 */
+	static int geneticCodeSize(GeneticCode code) {
+		return 15 + 20 * code._genes.length;
+	}
+
+	static void writeGeneticCode(Output out, GeneticCode code) throws IOException {
+		out.putByte(code._symmetry);
+		out.putByte(code._mirror);
+		out.putBoolean(code._disperseChildren);
+		out.putInt(code._reproduceEnergy);
+		out.putInt(code._max_age);
+		out.putInt(code._genes.length);
+		for (Gene gene : code._genes) {
+			out.putDouble(gene.getLength());
+			out.putDouble(gene.getTheta());
+			out.putColor(gene.getColor());
+		}
+	}
+
+	static GeneticCode readGeneticCode(Input in) throws IOException {
+		return readGeneticCode(in, in.getByte());
+	}
+	/**
+	 * Reads a genetic code whose first byte, the symmetry, has already been read.
+	 */
+	static GeneticCode readGeneticCode(Input in, int symmetry) throws IOException {
+		int mirror = in.getByte();
+		boolean disperseChildren = in.getBoolean();
+		int reproduceEnergy = in.getInt();
+		int maxAge = in.getInt();
+		int nGenes = in.getInt();
+		checkGeneticCode(symmetry, mirror, nGenes);
+		List<Gene> genes = new ArrayList<>(nGenes);
+		for (int i = 0; i < nGenes; i++)
+			genes.add(readGene(in));
+		return newGeneticCode(genes, symmetry, mirror, disperseChildren, reproduceEnergy, maxAge);
+	}
+	/**
+	 * Checks the values read at the start of a genetic code, before reading
+	 * its genes. Genetic codes also come from other hosts, so values that
+	 * would break the organisms built from them are rejected. Codes without
+	 * genes are valid, as mutations can remove the last gene.
+	 */
+	private static void checkGeneticCode(int symmetry, int mirror, int nGenes) throws IOException {
+		if (symmetry < 1 || symmetry > 8)
+			throw new IOException("Invalid symmetry " + symmetry); //$NON-NLS-1$
+		if (mirror != 0 && mirror != 1)
+			throw new IOException("Invalid mirror " + mirror); //$NON-NLS-1$
+		if (nGenes < 0 || nGenes > GeneticCode.MAX_SEGMENTS)
+			throw new IOException("Invalid number of genes " + nGenes); //$NON-NLS-1$
+	}
+
+	private static Gene readGene(Input in) throws IOException {
+		double length = in.getDouble();
+		double theta = in.getDouble();
+		Color color = in.getColor();
+		if (!Double.isFinite(length) || !Double.isFinite(theta))
+			throw new IOException("Invalid gene " + length + "," + theta); //$NON-NLS-1$ //$NON-NLS-2$
+		if (color == null)
+			throw new IOException("Gene without color"); //$NON-NLS-1$
+		return new Gene(length, theta, color);
+	}
+	/**
+	 * Creates a genetic code read from a snapshot, checking that its reproduce
+	 * energy is the one of its segments and its maximum age is positive.
+	 */
+	private static GeneticCode newGeneticCode(List<Gene> genes, int symmetry, int mirror,
+			boolean disperseChildren, int reproduceEnergy, int maxAge) throws IOException {
+		GeneticCode code = new GeneticCode(genes, symmetry, mirror, disperseChildren);
+		if (reproduceEnergy != code._reproduceEnergy)
+			throw new IOException("Invalid reproduce energy " + reproduceEnergy); //$NON-NLS-1$
+		if (maxAge <= 0)
+			throw new IOException("Invalid maximum age " + maxAge); //$NON-NLS-1$
+		code._max_age = maxAge;
+		return code;
+	}
+
+	/**
+	 * Writes a genetic code as the differences with another one, usually the
+	 * genetic code it was inherited from. Genes are written as runs copied
+	 * from the base genetic code and, only if they have mutated, in full.
+	 *
+	 * @param out  Where the code is written.
+	 * @param code  The genetic code.
+	 * @param base  The genetic code that will be available when it is read.
+	 * @throws IOException  if it can't be written.
+	 */
+	static void writeGeneticCodeDelta(Output out, GeneticCode code, GeneticCode base) throws IOException {
+		out.putByte(code._symmetry);
+		out.putByte(code._mirror);
+		out.putBoolean(code._disperseChildren);
+		out.putInt(code._reproduceEnergy);
+		out.putInt(code._max_age);
+		out.putByte(code._genes.length);
+		int next = 0;
+		for (int i = 0; i < code._genes.length; ) {
+			// Look for the longest run of genes in the base, starting with the
+			// one after the previous run, as mutations seldom move genes.
+			int start = -1;
+			int length = 0;
+			for (int k = 0; k < base._genes.length; k++) {
+				int j = (next + k) % base._genes.length;
+				int n = 0;
+				while (i + n < code._genes.length && j + n < base._genes.length &&
+						GeneticCode.sameGene(code._genes[i + n], base._genes[j + n]))
+					n++;
+				if (n > length) {
+					start = j;
+					length = n;
+				}
+			}
+			if (length > 0) {
+				out.putByte(DELTA_COPY);
+				out.putByte(start);
+				out.putByte(length);
+				i += length;
+				next = start + length;
+			} else {
+				Gene gene = code._genes[i++];
+				out.putByte(DELTA_GENE);
+				out.putDouble(gene.getLength());
+				out.putDouble(gene.getTheta());
+				out.putColor(gene.getColor());
+			}
+		}
+	}
+	/**
+	 * Reads a genetic code written by {@link #writeGeneticCodeDelta(Output, GeneticCode, GeneticCode)}.
+	 *
+	 * @param in  Where the code is read from.
+	 * @param base  The genetic code used when it was written.
+	 * @return  The genetic code. Genes that haven't mutated are shared with base.
+	 * @throws IOException  if it can't be read or it is not valid.
+	 */
+	static GeneticCode readGeneticCodeDelta(Input in, GeneticCode base) throws IOException {
+		int symmetry = in.getByte();
+		int mirror = in.getByte();
+		boolean disperseChildren = in.getBoolean();
+		int reproduceEnergy = in.getInt();
+		int maxAge = in.getInt();
+		int nGenes = in.getByte();
+		checkGeneticCode(symmetry, mirror, nGenes);
+		List<Gene> genes = new ArrayList<>(nGenes);
+		while (genes.size() < nGenes) {
+			int op = in.getByte();
+			if (op == DELTA_COPY) {
+				int start = in.getByte();
+				int length = in.getByte();
+				if (start < 0 || length <= 0 || start + length > base._genes.length || genes.size() + length > nGenes)
+					throw new IOException("Invalid genes copied " + start + "+" + length); //$NON-NLS-1$ //$NON-NLS-2$
+				for (int j = start; j < start + length; j++)
+					genes.add(base._genes[j]);
+			} else if (op == DELTA_GENE) {
+				genes.add(readGene(in));
+			} else {
+				throw new IOException("Invalid genetic code difference " + op); //$NON-NLS-1$
+			}
+		}
+		return newGeneticCode(genes, symmetry, mirror, disperseChildren, reproduceEnergy, maxAge);
+	}
+
+	/**
+	 * Converts worlds saved with Java serialization to snapshots.
+	 *
+	 * @param args  Optionally --codec and the compression to use, the file
+	 * to convert and the file to write.
+	 */
+	public static void main(String[] args) {
+		BlockCompression.Codec codec = Utils.COMPRESSION;
+		int first = 0;
+		try {
+			if (args.length == 4 && args[0].equals("--codec")) { //$NON-NLS-1$
+				codec = BlockCompression.Codec.forName(args[1]);
+				first = 2;
+			}
+		} catch (IllegalArgumentException e) {
+			first = -1;
+		}
+		if (first < 0 || args.length != first + 2) {
+			System.err.println("java -cp biogenesis.jar biogenesis.WorldSnapshot [--codec none|deflate-fast|deflate|deflate-best] OLD_WORLD NEW_WORLD"); //$NON-NLS-1$
+			System.exit(1);
+		}
+		try {
+			convert(new File(args[first]), new File(args[first + 1]), codec);
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Writes the values of a snapshot to a channel, through a buffer.
+	 */
+	static class Output {
+		private final WritableByteChannel _channel;
+		private final ByteBuffer _buffer;
+		/**
+		 * Genetic codes that will be written, in order.
+		 */
+		final List<GeneticCode> _codes = new ArrayList<>();
+		/**
+		 * Position of every genetic code in {@link #_codes}. Equal codes are
+		 * only written once.
+		 */
+		private final Map<GeneticCode,Integer> _codeIndex = new HashMap<>();
+		/**
+		 * Number of bytes already written to the channel.
+		 */
+		private long _written;
+
+		Output(WritableByteChannel channel) {
+			this(channel, 0L);
+		}
+		/**
+		 * Creates an output that appends to a channel that already has some bytes.
+		 *
+		 * @param channel  The channel.
+		 * @param written  Number of bytes already in the channel.
+		 */
+		Output(WritableByteChannel channel, long written) {
+			this(channel, written, ByteBuffer.allocateDirect(BUFFER_SIZE));
+		}
+		/**
+		 * Creates an output with a small buffer, to write a few values.
+		 */
+		Output(WritableByteChannel channel, int bufferSize) {
+			this(channel, 0, ByteBuffer.allocate(bufferSize));
+		}
+
+		private Output(WritableByteChannel channel, long written, ByteBuffer buffer) {
+			_channel = channel;
+			_written = written;
+			_buffer = buffer;
+		}
+
+		void addGeneticCode(GeneticCode code) {
+			if (code != null && !_codeIndex.containsKey(code)) {
+				_codeIndex.put(code, _codes.size());
+				_codes.add(code);
+			}
+		}
+
+		void putByte(int v) throws IOException {
+			ensure(1);
+			_buffer.put((byte) v);
+		}
+
+		void putBoolean(boolean v) throws IOException {
+			putByte(v ? 1 : 0);
+		}
+
+		void putInt(int v) throws IOException {
+			ensure(4);
+			_buffer.putInt(v);
+		}
+
+		void putLong(long v) throws IOException {
+			ensure(8);
+			_buffer.putLong(v);
+		}
+
+		void putDouble(double v) throws IOException {
+			ensure(8);
+			_buffer.putDouble(v);
+		}
+		/**
+		 * Writes a string as its length in UTF-8 followed by its bytes.
+		 */
+		void putString(String v) throws IOException {
+			byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			for (byte b : bytes)
+				putByte(b);
+		}
+		/**
+		 * Writes a color as its RGB value, or 0 for null.
+		 */
+		void putColor(Color c) throws IOException {
+			putInt(c == null ? 0 : c.getRGB());
+		}
+		/**
+		 * Writes a reference to a genetic code, that must have been added with
+		 * {@link #addGeneticCode(GeneticCode)}, or -1 for null.
+		 */
+		void putGeneticCode(GeneticCode code) throws IOException {
+			putInt(code == null ? -1 : _codeIndex.get(code));
+		}
+
+		/**
+		 * Writes the remaining bytes of a buffer, without passing them
+		 * through this output's buffer.
+		 */
+		void put(ByteBuffer bytes) throws IOException {
+			flush();
+			_written += bytes.remaining();
+			while (bytes.hasRemaining())
+				_channel.write(bytes);
+		}
+		/**
+		 * Copies bytes from a file, without passing them through the buffer.
+		 *
+		 * @param source  The file.
+		 * @param position  Position of the first byte to copy in the file.
+		 * @param count  Number of bytes to copy.
+		 */
+		void transferFrom(FileChannel source, long position, long count) throws IOException {
+			flush();
+			long end = position + count;
+			while (position < end) {
+				long n = source.transferTo(position, end - position, _channel);
+				if (n <= 0)
+					throw new EOFException("Unexpected end of file"); //$NON-NLS-1$
+				position += n;
+			}
+			_written += count;
+		}
+		/**
+		 * Returns the number of bytes written so far, including the ones that
+		 * are still in the buffer.
+		 */
+		long size() {
+			return _written + _buffer.position();
+		}
+
+		void flush() throws IOException {
+			_buffer.flip();
+			_written += _buffer.remaining();
+			while (_buffer.hasRemaining())
+				_channel.write(_buffer);
+			_buffer.clear();
+		}
+
+		private void ensure(int n) throws IOException {
+			if (_buffer.remaining() < n)
+				flush();
+		}
+	}
+
+	/**
+	 * Reads the values of a snapshot from a channel, through a buffer.
+	 */
+	static class Input {
+		private final ReadableByteChannel _channel;
+		private final ByteBuffer _buffer;
+		/**
+		 * Genetic codes already read.
+		 */
+		GeneticCode[] _codes = new GeneticCode[0];
+		/**
+		 * Size of organism records in the snapshot being read.
+		 */
+		int _recordSize;
+		/**
+		 * The file being read, if it is known and the channel can be moved
+		 * through it, or null.
+		 */
+		Path _file;
+
+		Input(ReadableByteChannel channel) {
+			this(channel, ByteBuffer.allocateDirect(BUFFER_SIZE));
+		}
+		/**
+		 * Creates an input with a small buffer, to read a few values.
+		 */
+		Input(ReadableByteChannel channel, int bufferSize) {
+			this(channel, ByteBuffer.allocate(bufferSize));
+		}
+
+		private Input(ReadableByteChannel channel, ByteBuffer buffer) {
+			_channel = channel;
+			_buffer = buffer;
+			_buffer.limit(0);
+		}
+
+		int getByte() throws IOException {
+			ensure(1);
+			return _buffer.get();
+		}
+
+		boolean getBoolean() throws IOException {
+			return getByte() != 0;
+		}
+
+		int getInt() throws IOException {
+			ensure(4);
+			return _buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			ensure(8);
+			return _buffer.getLong();
+		}
+
+		double getDouble() throws IOException {
+			ensure(8);
+			return _buffer.getDouble();
+		}
+		/**
+		 * Reads a string written by {@link Output#putString(String)}.
+		 */
+		String getString() throws IOException {
+			int n = getInt();
+			if (n < 0 || n > BUFFER_SIZE)
+				throw new IOException("Invalid string length " + n); //$NON-NLS-1$
+			byte[] bytes = new byte[n];
+			for (int i = 0; i < n; i++)
+				bytes[i] = (byte) getByte();
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		/**
+		 * Reads a color written by {@link Output#putColor(Color)}.
+		 */
+		Color getColor() throws IOException {
+			int rgb = getInt();
+			return rgb == 0 ? null : new Color(rgb, true);
+		}
+		/**
+		 * Reads a reference to a genetic code written by
+		 * {@link Output#putGeneticCode(GeneticCode)}.
+		 */
+		GeneticCode getGeneticCode() throws IOException {
+			int i = getInt();
+			if (i == -1)
+				return null;
+			if (i < 0 || i >= _codes.length)
+				throw new IOException("Invalid genetic code reference " + i); //$NON-NLS-1$
+			return _codes[i];
+		}
+
+		/**
+		 * Checks if all the data has been read.
+		 */
+		boolean atEnd() throws IOException {
+			if (_buffer.hasRemaining())
+				return false;
+			_buffer.clear();
+			int n;
+			do {
+				n = _channel.read(_buffer);
+			} while (n == 0);
+			_buffer.flip();
+			return n < 0;
+		}
+
+		/**
+		 * Copies bytes to a file, without passing them through the buffer
+		 * if they haven't been read yet.
+		 *
+		 * @param target  The file.
+		 * @param position  Position in the file where the first byte is written.
+		 * @param count  Number of bytes to copy.
+		 */
+		void transferTo(FileChannel target, long position, long count) throws IOException {
+			long end = position + count;
+			if (_buffer.hasRemaining()) {
+				ByteBuffer buffered = _buffer.duplicate();
+				buffered.limit(buffered.position() + (int) Math.min(count, buffered.remaining()));
+				_buffer.position(buffered.limit());
+				while (buffered.hasRemaining())
+					position += target.write(buffered, position);
+			}
+			while (position < end) {
+				long n = target.transferFrom(_channel, position, end - position);
+				if (n <= 0)
+					throw new EOFException("Unexpected end of snapshot"); //$NON-NLS-1$
+				position += n;
+			}
+		}
+
+		/**
+		 * Returns the position in the channel of the next value, or -1 if
+		 * the channel can't be moved through.
+		 */
+		long position() throws IOException {
+			if (!(_channel instanceof SeekableByteChannel))
+				return -1;
+			return ((SeekableByteChannel) _channel).position() - _buffer.remaining();
+		}
+		/**
+		 * Skips a number of bytes, without reading them if possible.
+		 */
+		void skipBytes(long n) throws IOException {
+			if (n > _buffer.remaining() && _channel instanceof SeekableByteChannel) {
+				SeekableByteChannel channel = (SeekableByteChannel) _channel;
+				long target = channel.position() - _buffer.remaining() + n;
+				if (target > channel.size())
+					throw new EOFException("Unexpected end of snapshot"); //$NON-NLS-1$
+				channel.position(target);
+				_buffer.clear();
+				_buffer.limit(0);
+			} else {
+				while (n > 0) {
+					int k = (int) Math.min(n, Integer.MAX_VALUE);
+					skip(k);
+					n -= k;
+				}
+			}
+		}
+
+		void skip(int n) throws IOException {
+			while (n > 0) {
+				ensure(1);
+				int k = Math.min(n, _buffer.remaining());
+				_buffer.position(_buffer.position() + k);
+				n -= k;
+			}
+		}
+
+		private void ensure(int n) throws IOException {
+			if (_buffer.remaining() >= n)
+				return;
+			_buffer.compact();
+			while (_buffer.position() < n) {
+				if (_channel.read(_buffer) < 0)
+					throw new EOFException("Unexpected end of snapshot"); //$NON-NLS-1$
+			}
+			_buffer.flip();
+		}
+	}
+}
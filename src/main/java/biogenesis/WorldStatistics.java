@@ -17,8 +17,10 @@
  */
 package biogenesis;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class WorldStatistics implements Serializable {
@@ -483,4 +485,153 @@ public class WorldStatistics implements Serializable {
 			}
 		}
 	}
+
+	/**
+	 * Returns all genetic codes referenced by these statistics. Used to store
+	 * them in a {@link WorldSnapshot}.
+	 */
+	List<GeneticCode> getGeneticCodes() {
+		return Arrays.asList(aliveBeingMostChildren, aliveBeingMostKills, aliveBeingMostInfections,
+				beingMostChildren, beingMostKills, beingMostInfections,
+				lastBornBeing, lastDeadBeing, lastInfectedBeing);
+	}
+	/**
+	 * Writes these statistics to a snapshot.
+	 *
+	 * @param out  The snapshot being written.
+	 * @param organisms  The world's organisms, used to store the oldest
+	 * alive organism as a position in this list.
+	 * @throws IOException  if the statistics can't be written.
+	 */
+	void writeSnapshot(WorldSnapshot.Output out, List<Organism> organisms) throws IOException {
+		out.putLong(time);
+		out.putInt(maxPopulation);
+		out.putInt(maxBirths);
+		out.putInt(maxDeaths);
+		out.putLong(maxPopulationTime);
+		out.putInt(minPopulation);
+		out.putLong(minPopulationTime);
+		out.putInt(massExtintions);
+		out.putInt(massExtintionState);
+		out.putInt(createdOrganisms);
+		out.putLong(populationSum);
+		out.putLong(deathSum);
+		out.putInt(deathLastTime);
+		out.putLong(birthSum);
+		out.putInt(birthLastTime);
+		out.putLong(infectionsSum);
+		out.putDouble(maxOxygen);
+		out.putLong(maxOxygenTime);
+		out.putDouble(minOxygen);
+		out.putLong(minOxygenTime);
+		out.putDouble(maxCarbonDioxide);
+		out.putLong(maxCarbonDioxideTime);
+		out.putDouble(minCarbonDioxide);
+		out.putLong(minCarbonDioxideTime);
+		out.putGeneticCode(aliveBeingMostChildren);
+		out.putInt(aliveBeingMostChildrenNumber);
+		out.putGeneticCode(aliveBeingMostKills);
+		out.putInt(aliveBeingMostKillsNumber);
+		out.putGeneticCode(aliveBeingMostInfections);
+		out.putInt(aliveBeingMostInfectionsNumber);
+		out.putGeneticCode(beingMostChildren);
+		out.putInt(beingMostChildrenNumber);
+		out.putLong(beingMostChildrenTime);
+		out.putGeneticCode(beingMostKills);
+		out.putInt(beingMostKillsNumber);
+		out.putLong(beingMostKillsTime);
+		out.putGeneticCode(beingMostInfections);
+		out.putInt(beingMostInfectionsNumber);
+		out.putLong(beingMostInfectionsTime);
+		out.putGeneticCode(lastBornBeing);
+		out.putGeneticCode(lastDeadBeing);
+		out.putGeneticCode(lastInfectedBeing);
+		int oldest = -1;
+		for (int i = 0; i < organisms.size(); i++) {
+			if (organisms.get(i) == oldestAliveBeing)
+				oldest = i;
+		}
+		out.putInt(oldest);
+		out.putInt(massExtinctionLists.size());
+		for (long t : massExtinctionLists)
+			out.putLong(t);
+		writeList(out, populationList);
+		writeList(out, deathList);
+		writeList(out, birthList);
+		writeList(out, oxygenList);
+		writeList(out, carbonDioxideList);
+	}
+	/**
+	 * Reads statistics written by {@link #writeSnapshot(WorldSnapshot.Output, List)}.
+	 *
+	 * @param in  The snapshot being read.
+	 * @param organisms  The organisms already read from the snapshot.
+	 * @throws IOException  if the statistics can't be read.
+	 */
+	void readSnapshot(WorldSnapshot.Input in, List<Organism> organisms) throws IOException {
+		time = in.getLong();
+		maxPopulation = in.getInt();
+		maxBirths = in.getInt();
+		maxDeaths = in.getInt();
+		maxPopulationTime = in.getLong();
+		minPopulation = in.getInt();
+		minPopulationTime = in.getLong();
+		massExtintions = in.getInt();
+		massExtintionState = in.getInt();
+		createdOrganisms = in.getInt();
+		populationSum = in.getLong();
+		deathSum = in.getLong();
+		deathLastTime = in.getInt();
+		birthSum = in.getLong();
+		birthLastTime = in.getInt();
+		infectionsSum = in.getLong();
+		maxOxygen = in.getDouble();
+		maxOxygenTime = in.getLong();
+		minOxygen = in.getDouble();
+		minOxygenTime = in.getLong();
+		maxCarbonDioxide = in.getDouble();
+		maxCarbonDioxideTime = in.getLong();
+		minCarbonDioxide = in.getDouble();
+		minCarbonDioxideTime = in.getLong();
+		aliveBeingMostChildren = in.getGeneticCode();
+		aliveBeingMostChildrenNumber = in.getInt();
+		aliveBeingMostKills = in.getGeneticCode();
+		aliveBeingMostKillsNumber = in.getInt();
+		aliveBeingMostInfections = in.getGeneticCode();
+		aliveBeingMostInfectionsNumber = in.getInt();
+		beingMostChildren = in.getGeneticCode();
+		beingMostChildrenNumber = in.getInt();
+		beingMostChildrenTime = in.getLong();
+		beingMostKills = in.getGeneticCode();
+		beingMostKillsNumber = in.getInt();
+		beingMostKillsTime = in.getLong();
+		beingMostInfections = in.getGeneticCode();
+		beingMostInfectionsNumber = in.getInt();
+		beingMostInfectionsTime = in.getLong();
+		lastBornBeing = in.getGeneticCode();
+		lastDeadBeing = in.getGeneticCode();
+		lastInfectedBeing = in.getGeneticCode();
+		int oldest = in.getInt();
+		oldestAliveBeing = oldest >= 0 && oldest < organisms.size() ? organisms.get(oldest) : null;
+		massExtinctionLists.clear();
+		for (int i = in.getInt(); i > 0; i--)
+			massExtinctionLists.add(in.getLong());
+		readList(in, populationList);
+		readList(in, deathList);
+		readList(in, birthList);
+		readList(in, oxygenList);
+		readList(in, carbonDioxideList);
+	}
+
+	private static void writeList(WorldSnapshot.Output out, List<Double> list) throws IOException {
+		out.putInt(list.size());
+		for (double d : list)
+			out.putDouble(d);
+	}
+
+	private static void readList(WorldSnapshot.Input in, List<Double> list) throws IOException {
+		list.clear();
+		for (int i = in.getInt(); i > 0; i--)
+			list.add(in.getDouble());
+	}
 }
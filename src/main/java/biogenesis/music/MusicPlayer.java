@@ -21,36 +21,123 @@ import biogenesis.event.OrganismCollidedEvent;
 import biogenesis.event.OrganismCollidedListener;
 import biogenesis.event.OrganismCreatedEvent;
 import biogenesis.event.OrganismCreatedListener;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import org.jfugue.player.Player;
 
 /**
  * Plays music on different events, using JFugue.
  *
+ * There is only one instance, shared by all worlds. Events are put in a
+ * small bounded queue and played by a single worker thread, so the thread
+ * running the world never waits for the sound. Events that arrive while a
+ * note is being played are merged and play at most one note of each kind,
+ * and events that don't fit in the queue are discarded.
+ *
+ * It is disabled by default. While disabled, events are ignored.
+ *
  * @author Sébastien Le Callonnec
  */
 public class MusicPlayer implements OrganismCreatedListener, OrganismCollidedListener {
+	private static final MusicPlayer INSTANCE = new MusicPlayer();
+	/**
+	 * Maximum number of events waiting to be played.
+	 */
+	private static final int QUEUE_SIZE = 64;
+	private static final Integer CREATED = 0;
+	private static final Integer COLLIDED = 1;
 
-	final Player player = new Player();
 	final String[] notes = {"A", "B", "C", "D", "E", "F", "G"};
+	private final BlockingQueue<Integer> events = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private volatile boolean enabled = false;
+	private Thread worker = null;
+
+	private MusicPlayer() {
+	}
+
+	/**
+	 * Returns the shared music player.
+	 *
+	 * @return the music player.
+	 */
+	public static MusicPlayer getInstance() {
+		return INSTANCE;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns the sound on or off. The worker thread is started the first
+	 * time the sound is turned on.
+	 *
+	 * @param enabled true to play sounds.
+	 */
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			events.clear();
+		} else if (worker == null) {
+			worker = new Thread(this::playEvents, "Biogenesis music player"); //$NON-NLS-1$
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
 
 	@Override
 	public void perform(OrganismCreatedEvent event) {
-		new Thread(() -> {
-			Random rand = new Random();
-			String note = notes[rand.nextInt(notes.length)];
-			player.play(note);
-		}).start();
-
+		if (enabled) {
+			events.offer(CREATED);
+		}
 	}
 
 	@Override
 	public void perform(OrganismCollidedEvent event) {
-		new Thread(() -> {
-			Random rand = new Random();
-			String note = notes[rand.nextInt(notes.length)];
-			player.play(note +"6");
-		}).start();
+		if (enabled) {
+			events.offer(COLLIDED);
+		}
 	}
 
+	/**
+	 * Body of the worker thread: waits for events and plays them.
+	 */
+	private void playEvents() {
+		Player player = new Player();
+		Random rand = new Random();
+		List<Integer> batch = new ArrayList<>(QUEUE_SIZE);
+		try {
+			while (true) {
+				batch.add(events.take());
+				events.drainTo(batch);
+				StringBuilder pattern = new StringBuilder();
+				if (batch.contains(CREATED)) {
+					pattern.append(notes[rand.nextInt(notes.length)]);
+				}
+				if (batch.contains(COLLIDED)) {
+					if (pattern.length() > 0) {
+						pattern.append('+');
+					}
+					pattern.append(notes[rand.nextInt(notes.length)]).append('6');
+				}
+				batch.clear();
+				if (enabled) {
+					player.play(pattern.toString());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			// No sound device available
+			System.err.println(e.getMessage());
+			enabled = false;
+		} finally {
+			synchronized (this) {
+				worker = null;
+			}
+		}
+	}
 }
@@ -0,0 +1,137 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that a world copied by {@link WorldSnapshot#capture(World)} is
+ * written as it was when it was copied, even if the world keeps running
+ * and its history changes before it is written.
+ */
+public class AutosaveTest {
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private World _world;
+
+	@Before
+	public void createWorld() {
+		_world = new World();
+		_world.setSeed(13);
+		_world.genesis();
+		run(_world, 1000);
+	}
+
+	private static void run(World world, int frames) {
+		for (int i = 0; i < frames; i++)
+			world.time();
+	}
+
+	private static byte[] write(WorldSnapshot.Capture capture) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		capture.write(Channels.newChannel(bytes));
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void captureIsTheWorldWhenItWasCaptured() throws IOException {
+		byte[] expected = WorldSnapshot.toByteArray(_world);
+		WorldSnapshot.Capture capture = WorldSnapshot.capture(_world);
+		// Organisms are born and die, and deaths are written in the history
+		run(_world, 500);
+		assertArrayEquals(expected, write(capture));
+	}
+
+	@Test
+	public void severalCapturesWithASnapshotRing() throws IOException {
+		SnapshotRing ring = new SnapshotRing(3, 50);
+		run(_world, 100);
+		byte[] first = WorldSnapshot.toByteArray(_world);
+		WorldSnapshot.Capture firstCapture = WorldSnapshot.capture(_world);
+		for (int i = 0; i < 300; i++) {
+			_world.time();
+			ring.frameFinished(_world);
+		}
+		byte[] second = WorldSnapshot.toByteArray(_world);
+		WorldSnapshot.Capture secondCapture = WorldSnapshot.capture(_world);
+		for (int i = 0; i < 300; i++) {
+			_world.time();
+			ring.frameFinished(_world);
+		}
+		assertArrayEquals(second, write(secondCapture));
+		assertArrayEquals(first, write(firstCapture));
+		// The ring can still rewind the world after the copies are written
+		long frame = ring.getFrames()[0];
+		World rewound = ring.rewind(_world, frame);
+		assertEquals(frame, rewound.getFrame());
+	}
+
+	@Test
+	public void rewindWaitsForCaptures() throws Exception {
+		SnapshotRing ring = new SnapshotRing(2, 10);
+		for (int i = 0; i < 50; i++) {
+			_world.time();
+			ring.frameFinished(_world);
+		}
+		byte[] expected = WorldSnapshot.toByteArray(_world);
+		WorldSnapshot.Capture capture = WorldSnapshot.capture(_world);
+		AtomicReference<byte[]> written = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				Thread.sleep(200);
+				written.set(write(capture));
+			} catch (IOException | InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		writer.start();
+		// Rewinding to a frame before the capture would undo changes that it needs
+		ring.rewind(_world, ring.getFrames()[0]);
+		writer.join();
+		assertArrayEquals(expected, written.get());
+	}
+
+	@Test
+	public void autosaveWritesTheCapturedWorld() throws IOException {
+		Autosave autosave = new Autosave();
+		File directory = _folder.newFolder();
+		byte[] expected = WorldSnapshot.toByteArray(_world);
+		AtomicReference<IOException> error = new AtomicReference<>();
+		autosave.autosave(_world, directory, 2, (f, e) -> error.set(e));
+		run(_world, 200);
+		autosave.flush();
+		assertNull(error.get());
+		World loaded = WorldSnapshot.load(Autosave.autosaveFile(directory));
+		assertArrayEquals(expected, WorldSnapshot.toByteArray(loaded));
+		autosave.close();
+	}
+}
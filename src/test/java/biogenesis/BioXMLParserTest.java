@@ -0,0 +1,116 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+/**
+ * Checks that the streaming reader of genetic code files reads the same
+ * genetic codes as the validating parser, and refuses the same files.
+ */
+public class BioXMLParserTest {
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private File write(String document) throws IOException {
+		File f = _folder.newFile();
+		Files.write(f.toPath(), document.getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+
+	private static GeneticCode stream(File f) throws IOException, SAXException {
+		try (InputStream in = Files.newInputStream(f.toPath())) {
+			return BioXMLParser.readGeneticCode(in);
+		}
+	}
+
+	@Test
+	public void readsTheSameCodes() throws IOException, SAXException {
+		Random random = new Random(11);
+		for (int i = 0; i < 200; i++) {
+			GeneticCode code = new GeneticCode(random);
+			File f = write(BioXMLParser.toXML(code));
+			assertEquals(code, new BioXMLParser().parseGeneticCode(f));
+			assertEquals(code, stream(f));
+		}
+	}
+
+	@Test
+	public void acceptTheSameSpaces() throws IOException, SAXException {
+		GeneticCode code = new GeneticCode(new Random(3));
+		String document = BioXMLParser.toXML(code)
+				.replace("symmetry=\"", "symmetry=\" ") //$NON-NLS-1$ //$NON-NLS-2$
+				.replace("mirror=\"", "mirror=\"  ") //$NON-NLS-1$ //$NON-NLS-2$
+				.replaceAll("color=\"([a-z]*)\"", "color=\"$1 \""); //$NON-NLS-1$ //$NON-NLS-2$
+		File f = write(document);
+		assertEquals(code, new BioXMLParser().parseGeneticCode(f));
+		assertEquals(code, stream(f));
+	}
+
+	private void assertBothRefuse(String document) throws IOException {
+		File f = write(document);
+		try {
+			new BioXMLParser().parseGeneticCode(f);
+			fail("Parser accepted " + document); //$NON-NLS-1$
+		} catch (SAXException e) {
+			// Expected
+		}
+		try {
+			stream(f);
+			fail("Streaming reader accepted " + document); //$NON-NLS-1$
+		} catch (SAXException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void refuseTheSameFiles() throws IOException {
+		String valid = BioXMLParser.toXML(new GeneticCode(new Random(3)));
+		String root = valid.substring(valid.indexOf("<genetic_code ")); //$NON-NLS-1$
+		String gene = root.substring(root.indexOf("<gene "), root.indexOf("/>") + 2); //$NON-NLS-1$ //$NON-NLS-2$
+		String symmetry = root.substring(root.indexOf("symmetry=\""), root.indexOf("\" mirror") + 1); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replace(symmetry, "symmetry=\"9\"")); //$NON-NLS-1$
+		assertBothRefuse(valid.replace(symmetry, "symmetry=\"two\"")); //$NON-NLS-1$
+		assertBothRefuse(valid.replace(symmetry, "symmetry=\"+3\"")); //$NON-NLS-1$
+		assertBothRefuse(valid.replace(symmetry, "symmetry=\"03\"")); //$NON-NLS-1$
+		assertBothRefuse(valid.replace(symmetry, "")); //$NON-NLS-1$
+		assertBothRefuse(valid.replace("mirror=\"", "mirror=\"maybe")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replace("disperse=\"", "disperse=\"x")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replaceFirst("color=\"[a-z]*\"", "color=\"purple\"")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replaceFirst("length=\"[^\"]*\"", "length=\"long\"")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replaceFirst("theta=\"[^\"]*\" ", "")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replace(gene, gene.replace("/>", "><gene/></gene>"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replace(gene, gene.replace("<gene ", "<segment "))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.replaceAll("\\s*<gene [^>]*/>", "")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertBothRefuse(valid.substring(0, valid.length() / 2));
+		assertBothRefuse("This is not a genetic code"); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,90 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that organisms that leave the world through a corridor are still
+ * drawn by it.
+ */
+public class CorridorTest {
+	/**
+	 * A corridor that covers the whole world and lets every organism leave,
+	 * without a connection.
+	 */
+	private static class OpenCorridor extends OutCorridor {
+		private static final long serialVersionUID = Utils.FILE_VERSION;
+		final List<Organism> _left = new ArrayList<>();
+
+		OpenCorridor(World w) {
+			super(w, null);
+			setBounds(0, 0, w.getWidth(), w.getHeight());
+		}
+
+		@Override
+		public boolean canSendOrganism() {
+			return true;
+		}
+
+		@Override
+		public boolean sendOrganism(Organism org) {
+			_left.add(org);
+			travellingOrganism = org;
+			world.organismLeft(org);
+			return true;
+		}
+
+		@Override
+		public void frame() {
+			// Nothing to send
+		}
+	}
+
+	@Test
+	public void departedOrganismsAreDrawn() {
+		World world = new World();
+		world.setSeed(7);
+		world.genesis();
+		OpenCorridor out = new OpenCorridor(world);
+		world.addCorridors(new InCorridor(world), out);
+		BufferedImage image = new BufferedImage(world.getWidth(), world.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		for (int i = 0; i < 100 && out._left.isEmpty(); i++)
+			world.time();
+		assertFalse(out._left.isEmpty());
+		for (Organism org : out._left) {
+			assertNotNull(org._store);
+			assertNotSame(world.getSegmentStore(), org._store);
+			assertFalse(world._organisms.contains(org));
+		}
+		// The animation of the last one grows it and rotates it for 16 frames
+		for (int i = 0; i < 20; i++)
+			out.draw(g);
+		g.dispose();
+	}
+}
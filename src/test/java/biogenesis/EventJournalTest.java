@@ -0,0 +1,156 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that a world rebuilt from a journal and its checkpoints is the same
+ * as the world that wrote them, at any frame.
+ */
+public class EventJournalTest {
+	private static final long SEED = 7;
+	private static final int FRAMES = 700;
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private File _journal;
+	/**
+	 * Digests of the original world at the end of each frame, before the
+	 * interventions done after it.
+	 */
+	private final Map<Long,Long> _digests = new HashMap<>();
+	private Organism _killed;
+
+	private static Organism alive(World world) {
+		synchronized (world._organisms) {
+			for (Organism b : world._organisms)
+				if (b.isAlive())
+					return b;
+		}
+		return null;
+	}
+
+	private void intervene(World world, long frame) throws IOException {
+		switch ((int) frame) {
+		case 50:
+			world.feedOrganism(alive(world));
+			world.rejuvenateOrganism(alive(world));
+			break;
+		case 120:
+			assertNotNull(world.pasteOrganism(new GeneticCode(new Random(1)), world.getWidth() / 2, world.getHeight() / 2));
+			break;
+		case 200:
+		case 450:
+			File snapshot = _folder.newFile("frame" + frame + ".bgw"); //$NON-NLS-1$ //$NON-NLS-2$
+			WorldSnapshot.save(world, snapshot);
+			world.getJournal().checkpoint(world, snapshot);
+			break;
+		case 260:
+			_killed = alive(world);
+			world.killOrganism(_killed);
+			world.weakenOrganism(alive(world));
+			world.changeCO2(-world.getCO2() / 2);
+			break;
+		case 300:
+			world.reviveOrganism(_killed);
+			world.reproduceOrganism(alive(world));
+			break;
+		case 380:
+			world.killOrganism(_killed);
+			world.disperseOrganism(_killed);
+			world.changeCO2(500);
+			break;
+		case 520:
+			world.disperseAll();
+			break;
+		case 600:
+			world.killAll();
+			break;
+		}
+	}
+
+	@Before
+	public void runWithJournal() throws IOException {
+		_journal = new File(_folder.getRoot(), "journal.bgj"); //$NON-NLS-1$
+		EventJournal journal = new EventJournal(_journal);
+		World world = new World();
+		world.setSeed(SEED);
+		world.genesis();
+		world.setJournal(journal);
+		// The journal can't rebuild frames before its first checkpoint
+		File start = _folder.newFile("start.bgw"); //$NON-NLS-1$
+		WorldSnapshot.save(world, start);
+		journal.checkpoint(world, start);
+		while (world.getFrame() < FRAMES) {
+			world.time();
+			_digests.put(world.getFrame(), HeadlessRunner.stateDigest(world));
+			intervene(world, world.getFrame());
+		}
+		// The last entry, that is cut below
+		world.pasteOrganism(new GeneticCode(new Random(2)), world.getWidth() / 3, world.getHeight() / 3);
+		journal.close();
+		assertNull(journal.getError());
+	}
+
+	private void assertRebuilt(File journal, long frame) throws IOException {
+		World world = EventJournal.rebuild(journal, frame);
+		assertEquals(frame, world.getFrame());
+		assertEquals("frame " + frame, _digests.get(frame).longValue(), HeadlessRunner.stateDigest(world)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void rebuildsAnyFrame() throws IOException {
+		// From the start, from each checkpoint, on the checkpoints and just
+		// after each intervention
+		for (long frame : new long[] {1, 51, 121, 199, 200, 201, 261, 301, 381, 450, 451, 521, 601, FRAMES})
+			assertRebuilt(_journal, frame);
+	}
+
+	@Test
+	public void rebuildsFromAJournalCutByACrash() throws IOException {
+		File cut = new File(_folder.getRoot(), "cut.bgj"); //$NON-NLS-1$
+		Files.copy(_journal.toPath(), cut.toPath());
+		// Leaves the last paste without its random state
+		try (RandomAccessFile f = new RandomAccessFile(cut, "rw")) { //$NON-NLS-1$
+			f.setLength(f.length() - 3);
+		}
+		EventJournal.Replay full = EventJournal.Replay.read(_journal, Long.MAX_VALUE);
+		EventJournal.Replay replay = EventJournal.Replay.read(cut, Long.MAX_VALUE);
+		assertEquals(full._inputs.size() - 1, replay._inputs.size());
+		assertEquals(full._checkpoints.size(), replay._checkpoints.size());
+		for (long frame : new long[] {121, 451, 601, FRAMES})
+			assertRebuilt(cut, frame);
+	}
+}
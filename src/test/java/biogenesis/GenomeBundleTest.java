@@ -0,0 +1,85 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that genetic codes survive being copied between directories,
+ * zip archives and bundles.
+ */
+public class GenomeBundleTest {
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private static SortedMap<String,GeneticCode> codes() {
+		Random random = new Random(5);
+		SortedMap<String,GeneticCode> codes = new TreeMap<>();
+		for (int i = 0; i < 40; i++)
+			codes.put((i % 4 == 0 ? "family" + i % 3 + "/" : "") + "code" + i, new GeneticCode(random)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return codes;
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		SortedMap<String,GeneticCode> codes = codes();
+		File directory = new File(_folder.getRoot(), "codes"); //$NON-NLS-1$
+		File zip = _folder.newFile("codes.zip"); //$NON-NLS-1$
+		File bundle = _folder.newFile("codes.bgb"); //$NON-NLS-1$
+		File copy = new File(_folder.getRoot(), "copy"); //$NON-NLS-1$
+		GenomeBundle.write(codes, directory, 3);
+		assertEquals(codes, GenomeBundle.read(directory, 3));
+		assertEquals(codes.size(), GenomeBundle.convert(directory, zip, 3));
+		assertEquals(codes, GenomeBundle.read(zip, 3));
+		assertEquals(codes.size(), GenomeBundle.convert(zip, bundle, 3));
+		assertEquals(codes, GenomeBundle.read(bundle, 3));
+		assertEquals(codes.size(), GenomeBundle.convert(bundle, copy, 3));
+		assertEquals(codes, GenomeBundle.read(copy, 1));
+		// A single genetic code file is a collection of one
+		File single = new File(copy, "family0/code0.bgg"); //$NON-NLS-1$
+		assertEquals(codes.get("family0/code0"), GenomeBundle.read(single, 1).get("code0")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void refusesInvalidCodes() throws IOException {
+		File directory = new File(_folder.getRoot(), "codes"); //$NON-NLS-1$
+		GenomeBundle.write(codes(), directory, 2);
+		Files.write(new File(directory, "broken.bgg").toPath(), //$NON-NLS-1$
+				BioXMLParser.toXML(new GeneticCode(new Random(1))).replace("symmetry=\"", "symmetry=\"0") //$NON-NLS-1$ //$NON-NLS-2$
+				.getBytes(StandardCharsets.UTF_8));
+		try {
+			GenomeBundle.convert(directory, _folder.newFile("codes.zip"), 2); //$NON-NLS-1$
+			fail("Invalid genetic code accepted"); //$NON-NLS-1$
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+}
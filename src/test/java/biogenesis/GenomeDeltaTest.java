@@ -0,0 +1,197 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that genetic codes written as differences with the code they were
+ * inherited from are read back equal to the codes written in full.
+ */
+public class GenomeDeltaTest {
+	/**
+	 * Generations in the tested lineage, enough to cross several keyframes.
+	 */
+	private static final int GENERATIONS = 3 * WorldMemory.KEYFRAME_INTERVAL + 5;
+
+	private boolean _deltaGenomes;
+	private World _world;
+	private List<GeneticCode> _codes;
+
+	@Before
+	public void createLineage() {
+		_deltaGenomes = Utils.DELTA_GENOMES;
+		_world = new World();
+		_world.setSeed(5);
+		Random random = new Random(5);
+		_codes = new ArrayList<>();
+		GeneticCode code = new GeneticCode(random);
+		_codes.add(code);
+		while (_codes.size() < GENERATIONS) {
+			GeneticCode child;
+			do {
+				child = new GeneticCode(code, random);
+			} while (child.equals(code));
+			_codes.add(child);
+			code = child;
+		}
+	}
+
+	@After
+	public void restoreDeltaGenomes() {
+		Utils.DELTA_GENOMES = _deltaGenomes;
+	}
+
+	/**
+	 * Remembers an organism for every code of the lineage, each one the child
+	 * of the previous one.
+	 */
+	private WorldMemory remember(boolean deltas) {
+		Utils.DELTA_GENOMES = deltas;
+		WorldMemory memory = new WorldMemory();
+		for (int i = 0; i < _codes.size(); i++) {
+			Organism org = new Organism(_world, _codes.get(i));
+			org._ID = i;
+			org._parentID = i - 1;
+			org._generation = i + 1;
+			memory.addOrganism(org, i == 0 ? null : _codes.get(i - 1));
+		}
+		return memory;
+	}
+
+	private static byte[] write(WorldMemory memory) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSnapshot.Output out = new WorldSnapshot.Output(Channels.newChannel(bytes));
+		memory.writeSnapshot(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static WorldSnapshot.Input input(byte[] bytes) {
+		return new WorldSnapshot.Input(Channels.newChannel(new ByteArrayInputStream(bytes)));
+	}
+
+	@Test
+	public void deltasAreReadAsTheFullCodes() throws IOException {
+		WorldMemory full = remember(false);
+		WorldMemory delta = remember(true);
+		for (int i = 0; i < _codes.size(); i++) {
+			assertEquals("generation " + i, _codes.get(i), full.getLineage(i).getGeneticCode()); //$NON-NLS-1$
+			assertEquals("generation " + i, _codes.get(i), delta.getLineage(i).getGeneticCode()); //$NON-NLS-1$
+		}
+		assertTrue(write(delta).length < write(full).length);
+	}
+
+	@Test
+	public void deltasAreReadFromASnapshot() throws IOException {
+		byte[] snapshot = write(remember(true));
+		WorldMemory memory = new WorldMemory();
+		memory.readSnapshot(input(snapshot));
+		// Read the youngest first, so that no base is already decoded
+		for (int i = _codes.size() - 1; i >= 0; i--)
+			assertEquals("generation " + i, _codes.get(i), memory.getLineage(i).getGeneticCode()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void deltaRoundTrip() throws IOException {
+		for (int i = 1; i < _codes.size(); i++) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			WorldSnapshot.Output out = new WorldSnapshot.Output(Channels.newChannel(bytes));
+			WorldSnapshot.writeGeneticCodeDelta(out, _codes.get(i), _codes.get(i - 1));
+			out.flush();
+			GeneticCode code = WorldSnapshot.readGeneticCodeDelta(input(bytes.toByteArray()), _codes.get(i - 1));
+			assertEquals(_codes.get(i), code);
+			assertTrue(bytes.size() < WorldSnapshot.geneticCodeSize(_codes.get(i)));
+		}
+	}
+
+	@Test
+	public void deltaAgainstAnUnrelatedCode() throws IOException {
+		GeneticCode unrelated = new GeneticCode(new Random(99));
+		GeneticCode code = _codes.get(_codes.size() - 1);
+		assertNotEquals(unrelated, code);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSnapshot.Output out = new WorldSnapshot.Output(Channels.newChannel(bytes));
+		WorldSnapshot.writeGeneticCodeDelta(out, code, unrelated);
+		out.flush();
+		assertEquals(code, WorldSnapshot.readGeneticCodeDelta(input(bytes.toByteArray()), unrelated));
+	}
+
+	/**
+	 * Writes a genetic code with nGenes genes and a single run copied from the base.
+	 */
+	private static byte[] copy(int start, int length, int nGenes) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSnapshot.Output out = new WorldSnapshot.Output(Channels.newChannel(bytes));
+		out.putByte(2);
+		out.putByte(0);
+		out.putBoolean(false);
+		out.putInt(40 + 3 * 2 * nGenes);
+		out.putInt(10);
+		out.putByte(nGenes);
+		out.putByte(0);
+		out.putByte(start);
+		out.putByte(length);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private void assertRejected(byte[] bytes) {
+		try {
+			WorldSnapshot.readGeneticCodeDelta(input(bytes), _codes.get(0));
+			fail("Invalid copy was accepted"); //$NON-NLS-1$
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void rejectsInvalidCopies() throws IOException {
+		int n = _codes.get(0)._genes.length;
+		assertEquals(2, WorldSnapshot.readGeneticCodeDelta(input(copy(0, 2, 2)), _codes.get(0))._genes.length);
+		assertRejected(copy(-1, 2, 2));
+		assertRejected(copy(0, 0, 2));
+		assertRejected(copy(0, -1, 2));
+		assertRejected(copy(n - 1, 2, 2));
+		assertRejected(copy(n, 1, 1));
+		assertRejected(copy(0, 2, 1));
+		assertRejected(copy(0, 1, -1));
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsUnknownOperations() throws IOException {
+		byte[] bytes = copy(0, 2, 2);
+		bytes[bytes.length - 3] = 7;
+		WorldSnapshot.readGeneticCodeDelta(input(bytes), _codes.get(0));
+	}
+}
@@ -0,0 +1,158 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+/**
+ * Checks that genetic codes received from other hosts are decoded, and that
+ * crafted codes that would break this host are refused.
+ */
+public class GenomeWireTest {
+	/**
+	 * Creates a valid genetic code with 2 genes and a symmetry of 2.
+	 */
+	private static GeneticCode code() {
+		List<Gene> genes = new ArrayList<>();
+		genes.add(new Gene(2.0, 0.0, Color.GREEN));
+		genes.add(new Gene(18.0, 6.0, Color.RED));
+		return new GeneticCode(genes, 2, 1, false);
+	}
+	/**
+	 * Creates a genetic code changed by tamper. Its identifier is calculated
+	 * after the change, so it is only refused because of its values.
+	 */
+	private static GeneticCode tampered(Consumer<GeneticCode> tamper) {
+		GeneticCode code = code();
+		tamper.accept(code);
+		return code;
+	}
+
+	private static List<GeneticCode> decodeBatch(List<GeneticCode> codes) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(new GenomeWire().encode(3, codes));
+		assertEquals(3, data.getInt());
+		return new GenomeWire().decode(data);
+	}
+
+	private static void assertRefused(GeneticCode code) {
+		try {
+			decodeBatch(Arrays.asList(code(), code));
+			fail("Invalid genetic code was decoded in a batch"); //$NON-NLS-1$
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void decodesValidCodes() throws IOException {
+		Random random = new Random(3);
+		List<GeneticCode> codes = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			GeneticCode code = new GeneticCode(random);
+			codes.add(code);
+			// And some of its mutations
+			for (int j = 0; j < 10; j++)
+				codes.add(code = new GeneticCode(code, random));
+		}
+		codes.add(code());
+		// Mutations may remove the last gene, and those codes don't travel
+		codes.removeIf(code -> code.getNGenes() == 0);
+		// Through a single link, so that repeated codes are sent as references
+		GenomeWire sender = new GenomeWire(), receiver = new GenomeWire();
+		for (int i = 0; i < codes.size(); i += OutCorridor.MAX_BATCH) {
+			List<GeneticCode> batch = codes.subList(i, Math.min(i + OutCorridor.MAX_BATCH, codes.size()));
+			for (GeneticCode code : batch)
+				assertTrue(GenomeWire.canTravel(code));
+			ByteBuffer data = ByteBuffer.wrap(sender.encode(i, batch));
+			assertEquals(i, data.getInt());
+			assertEquals(batch, receiver.decode(data));
+		}
+	}
+
+	@Test
+	public void refusesInvalidSymmetries() {
+		assertRefused(tampered(c -> c._symmetry = 0));
+		assertRefused(tampered(c -> c._symmetry = -1));
+		assertRefused(tampered(c -> c._symmetry = 9));
+	}
+
+	@Test
+	public void refusesInvalidMirrors() {
+		assertRefused(tampered(c -> c._mirror = 2));
+		assertRefused(tampered(c -> c._mirror = -1));
+	}
+
+	@Test
+	public void refusesInvalidNumbersOfGenes() {
+		assertRefused(tampered(c -> c._genes = new Gene[0]));
+		// 8 genes with a symmetry of 8 already have MAX_SEGMENTS segments
+		assertRefused(tampered(c -> {
+			c._genes = new Gene[9];
+			Arrays.fill(c._genes, new Gene(5.0, 1.0, Color.GREEN));
+			c._symmetry = 8;
+			c._reproduceEnergy = 40 + 3 * 9 * 8;
+		}));
+	}
+
+	@Test
+	public void refusesInvalidGenes() {
+		assertRefused(tampered(c -> c._genes[1] = new Gene(Double.NaN, 1.0, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(Double.POSITIVE_INFINITY, 1.0, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(1.9, 1.0, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(18.1, 1.0, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(5.0, Double.NaN, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(5.0, Double.NEGATIVE_INFINITY, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(5.0, -0.1, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(5.0, 2 * Math.PI, Color.RED)));
+		assertRefused(tampered(c -> c._genes[1] = new Gene(5.0, 1.0, null)));
+	}
+
+	@Test
+	public void refusesInvalidEnergiesAndAges() {
+		assertRefused(tampered(c -> c._reproduceEnergy = -1000));
+		assertRefused(tampered(c -> c._reproduceEnergy++));
+		assertRefused(tampered(c -> c._max_age = 0));
+		assertRefused(tampered(c -> c._max_age = -1));
+	}
+
+	@Test
+	public void detectsCodesThatCantTravel() {
+		GeneticCode code = tampered(c -> c._genes[0] = new Gene(5.0, -1.0, Color.GREEN));
+		assertFalse(GenomeWire.canTravel(code));
+		assertFalse(GenomeWire.canTravel(tampered(c -> c._genes = new Gene[0])));
+		assertFalse(GenomeWire.canTravel(tampered(c -> {
+			c._genes = new Gene[9];
+			Arrays.fill(c._genes, new Gene(5.0, 1.0, Color.GREEN));
+			c._symmetry = 8;
+		})));
+	}
+}
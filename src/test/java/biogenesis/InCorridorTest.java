@@ -0,0 +1,128 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks what each overflow policy does with the genetic codes that arrive
+ * when the queue of an {@link InCorridor} is full, and the counters.
+ */
+public class InCorridorTest {
+	private static final int CAPACITY = 4;
+
+	private World _world;
+	private GeneticCode[] _codes;
+
+	@Before
+	public void createCodes() {
+		_world = new World();
+		_world.setSeed(3);
+		_world.genesis();
+		_codes = new GeneticCode[10];
+		for (int i = 0; i < _codes.length; i++)
+			_codes[i] = new GeneticCode(_world._random);
+	}
+
+	private static void assertCounters(InCorridor in, int depth, long received, long rejected, long dropped) {
+		assertEquals(depth, in.getDepth());
+		assertEquals(received, in.getReceived());
+		assertEquals(rejected, in.getRejected());
+		assertEquals(dropped, in.getDropped());
+	}
+
+	/**
+	 * Calls {@link InCorridor#frame()} until n organisms have arrived, as
+	 * organisms that don't fit in the corridor wait for the next frame.
+	 */
+	private void place(InCorridor in, int n) {
+		int population = _world._organisms.size() + n;
+		for (int i = 0; i < 1000 && _world._organisms.size() < population; i++)
+			in.frame();
+		assertEquals(population, _world._organisms.size());
+		assertEquals(0, in.getDepth());
+	}
+
+	@Test
+	public void rejectRefusesCodesWhenFull() {
+		InCorridor in = new InCorridor(_world, CAPACITY, InCorridor.Overflow.REJECT);
+		assertCounters(in, 0, 0, 0, 0);
+		for (int i = 0; i < CAPACITY; i++) {
+			assertTrue(in.receiveOrganism(_codes[i]));
+			assertCounters(in, i + 1, i + 1, 0, 0);
+		}
+		for (int i = CAPACITY; i < _codes.length; i++)
+			assertFalse(in.receiveOrganism(_codes[i]));
+		assertCounters(in, CAPACITY, _codes.length, _codes.length - CAPACITY, 0);
+		// The first codes are placed, in order
+		place(in, CAPACITY);
+		for (int i = 0; i < CAPACITY; i++)
+			assertSame(_codes[i], _world._organisms.get(_world._organisms.size() - CAPACITY + i).getGeneticCode());
+		assertTrue(in.receiveOrganism(_codes[CAPACITY]));
+		assertCounters(in, 1, _codes.length + 1, _codes.length - CAPACITY, 0);
+	}
+
+	@Test
+	public void dropOldestKeepsTheNewestCodes() {
+		InCorridor in = new InCorridor(_world, CAPACITY, InCorridor.Overflow.DROP_OLDEST);
+		for (int i = 0; i < _codes.length; i++)
+			assertTrue(in.receiveOrganism(_codes[i]));
+		assertCounters(in, CAPACITY, _codes.length, 0, _codes.length - CAPACITY);
+		place(in, CAPACITY);
+		for (int i = 0; i < CAPACITY; i++)
+			assertSame(_codes[_codes.length - CAPACITY + i],
+					_world._organisms.get(_world._organisms.size() - CAPACITY + i).getGeneticCode());
+	}
+
+	@Test
+	public void coalesceDropsCodesAlreadyWaiting() {
+		InCorridor in = new InCorridor(_world, CAPACITY, InCorridor.Overflow.COALESCE);
+		// Codes 0 and 1 twice, then 2 and 3, fill the queue
+		assertTrue(in.receiveOrganism(_codes[0]));
+		assertTrue(in.receiveOrganism(_codes[0]));
+		assertTrue(in.receiveOrganism(_codes[1]));
+		assertTrue(in.receiveOrganism(_codes[1]));
+		assertCounters(in, CAPACITY, 4, 0, 0);
+		// Equal codes are dropped, as they are already waiting, and other codes refused
+		assertTrue(in.receiveOrganism(_codes[0]));
+		assertTrue(in.receiveOrganism(_codes[1]));
+		assertFalse(in.receiveOrganism(_codes[2]));
+		assertCounters(in, CAPACITY, 7, 1, 2);
+		// Once placed, they aren't waiting anymore
+		place(in, CAPACITY);
+		for (int i = 0; i < CAPACITY; i++)
+			assertTrue(in.receiveOrganism(_codes[2 + i]));
+		assertFalse(in.receiveOrganism(_codes[0]));
+		assertTrue(in.receiveOrganism(_codes[2]));
+		assertCounters(in, CAPACITY, 13, 2, 3);
+	}
+
+	@Test
+	public void overflowNames() {
+		for (InCorridor.Overflow overflow : InCorridor.Overflow.values())
+			assertSame(overflow, InCorridor.Overflow.forName(overflow.getName()));
+		assertSame(InCorridor.Overflow.DROP_OLDEST, InCorridor.Overflow.forName("drop-oldest")); //$NON-NLS-1$
+		assertSame(InCorridor.Overflow.DROP_OLDEST, InCorridor.Overflow.forName("DROP_OLDEST")); //$NON-NLS-1$
+	}
+}
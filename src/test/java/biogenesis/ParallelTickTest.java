@@ -0,0 +1,76 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that moving organisms on several threads gives exactly the same
+ * world as moving them on one thread.
+ */
+public class ParallelTickTest {
+	private static final long SEED = 7;
+	private static final int FRAMES = 2000;
+
+	private int _threads;
+
+	@Before
+	public void saveThreads() {
+		_threads = Utils.TICK_THREADS;
+	}
+
+	@After
+	public void restoreThreads() {
+		Utils.TICK_THREADS = _threads;
+	}
+
+	private static long run(int threads, long seed, int frames) {
+		Utils.TICK_THREADS = threads;
+		World world = new World();
+		world.setSeed(seed);
+		world.genesis();
+		for (int i = 0; i < frames; i++)
+			world.time();
+		return HeadlessRunner.stateDigest(world);
+	}
+
+	@Test
+	public void sameDigestWithOneAndFourThreads() {
+		assertEquals(run(1, SEED, FRAMES), run(4, SEED, FRAMES));
+	}
+
+	@Test
+	public void sameDigestWithDifferentSeeds() {
+		for (long seed = 1; seed <= 3; seed++)
+			assertEquals("seed " + seed, run(1, seed, FRAMES / 4), run(4, seed, FRAMES / 4)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void worldsShareTheirThreads() {
+		run(4, SEED, 10);
+		int threads = Thread.activeCount();
+		for (int i = 0; i < 10; i++)
+			run(4, SEED + i, 10);
+		assertTrue(Thread.activeCount() <= threads);
+	}
+}
@@ -0,0 +1,407 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the frames of {@link PeerLink} and the handshake of
+ * {@link NetServerThread}, talking to a server on this host through a
+ * plain socket.
+ */
+public class PeerLinkTest {
+	private static final int WAIT = 10000;
+
+	private int _localPort;
+	private int _maxConnections;
+	private boolean _acceptConnections;
+	private NetServerThread _server;
+	private final World _world = new World();
+
+	/**
+	 * A host without user interface.
+	 */
+	private class Host implements NetHost {
+		@Override
+		public World getWorld() {
+			return _world;
+		}
+
+		@Override
+		public void setStatusMessage(String str) {
+			// Nobody to show it to
+		}
+
+		@Override
+		public boolean isAcceptingConnections() {
+			return Utils.ACCEPT_CONNECTIONS;
+		}
+
+		@Override
+		public NetServerThread getNetServer() {
+			return _server;
+		}
+	}
+	/**
+	 * A frame received by {@link Recorder}.
+	 */
+	private static class Frame {
+		final PeerLink _link;
+		final int _message;
+		final byte[] _payload;
+
+		Frame(PeerLink link, int message, byte[] payload) {
+			_link = link;
+			_message = message;
+			_payload = payload;
+		}
+	}
+	/**
+	 * A server that keeps the frames it receives instead of handling them.
+	 */
+	private class Recorder extends NetServerThread {
+		final BlockingQueue<Frame> _frames = new LinkedBlockingQueue<>();
+
+		Recorder() {
+			super(new Host());
+		}
+
+		@Override
+		public synchronized void received(PeerLink link, int message, byte[] payload) {
+			_frames.add(new Frame(link, message, payload));
+		}
+
+		Frame next() throws InterruptedException {
+			Frame f = _frames.poll(WAIT, TimeUnit.MILLISECONDS);
+			assertNotNull("No frame received", f); //$NON-NLS-1$
+			return f;
+		}
+	}
+
+	@Before
+	public void saveSettings() throws IOException {
+		_localPort = Utils.LOCAL_PORT;
+		_maxConnections = Utils.MAX_CONNECTIONS;
+		_acceptConnections = Utils.ACCEPT_CONNECTIONS;
+		try (ServerSocket free = new ServerSocket(0)) {
+			Utils.LOCAL_PORT = free.getLocalPort();
+		}
+	}
+
+	@After
+	public void restoreSettings() throws InterruptedException {
+		if (_server != null) {
+			_server.closeServer();
+			_server.join(WAIT);
+		}
+		Utils.LOCAL_PORT = _localPort;
+		Utils.MAX_CONNECTIONS = _maxConnections;
+		Utils.ACCEPT_CONNECTIONS = _acceptConnections;
+	}
+
+	private <T extends NetServerThread> T start(T server) {
+		_server = server;
+		server.start();
+		return server;
+	}
+
+	private static Socket connect() throws IOException, InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT;
+		while (true) {
+			try {
+				Socket s = new Socket(InetAddress.getLoopbackAddress(), Utils.LOCAL_PORT);
+				s.setTcpNoDelay(true);
+				s.setSoTimeout(WAIT);
+				return s;
+			} catch (ConnectException e) {
+				// The server may not be listening yet
+				if (System.currentTimeMillis() > deadline)
+					throw e;
+				Thread.sleep(20);
+			}
+		}
+	}
+
+	private static byte[] frame(int message, byte[] payload) {
+		byte[] frame = new byte[payload.length + 8];
+		ByteBuffer.wrap(frame).putInt(payload.length).putInt(message).put(payload);
+		return frame;
+	}
+
+	private static byte[] payload(int length, long seed) {
+		byte[] payload = new byte[length];
+		new Random(seed).nextBytes(payload);
+		return payload;
+	}
+
+	private static void send(Socket s, int message, int... values) throws IOException {
+		DataOutputStream out = new DataOutputStream(s.getOutputStream());
+		out.writeInt(values.length * 4);
+		out.writeInt(message);
+		for (int value : values)
+			out.writeInt(value);
+		out.flush();
+	}
+	/**
+	 * Reads the next frame sent by the server and returns its message.
+	 */
+	private static int receive(Socket s) throws IOException {
+		DataInputStream in = new DataInputStream(s.getInputStream());
+		int length = in.readInt();
+		int message = in.readInt();
+		in.readFully(new byte[length]);
+		return message;
+	}
+	/**
+	 * Checks that the server closes the socket, after the frames it has
+	 * already sent.
+	 */
+	private static void assertClosed(Socket s) throws IOException {
+		try {
+			while (s.getInputStream().read() >= 0) {
+				// Skip the rest
+			}
+		} catch (SocketException e) {
+			// Reset by the server
+		}
+	}
+
+	private static void waitFor(PeerLink link) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT;
+		while (!link.isDone() && System.currentTimeMillis() < deadline)
+			Thread.sleep(20);
+		assertTrue("The link is still open", link.isDone()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void readsSplitFrames() throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			OutputStream out = s.getOutputStream();
+			byte[] first = frame(NetServerThread.KEEP_ALIVE, payload(3, 1));
+			byte[] second = frame(NetServerThread.SEND_CODES, payload(100, 2));
+			byte[] third = frame(NetServerThread.DISCONNECT, new byte[0]);
+			// Byte by byte, then the end of a frame and the start of the
+			// next one together, then several frames in one write
+			for (byte b : first) {
+				out.write(b);
+				out.flush();
+				Thread.sleep(2);
+			}
+			out.write(second, 0, 5);
+			out.flush();
+			Thread.sleep(20);
+			byte[] rest = new byte[second.length - 5 + 6];
+			System.arraycopy(second, 5, rest, 0, second.length - 5);
+			System.arraycopy(third, 0, rest, second.length - 5, 6);
+			out.write(rest);
+			out.flush();
+			Thread.sleep(20);
+			byte[] last = new byte[2 + first.length + third.length];
+			System.arraycopy(third, 6, last, 0, 2);
+			System.arraycopy(first, 0, last, 2, first.length);
+			System.arraycopy(third, 0, last, 2 + first.length, third.length);
+			out.write(last);
+			out.flush();
+			Frame f = server.next();
+			assertEquals(NetServerThread.KEEP_ALIVE, f._message);
+			assertArrayEquals(payload(3, 1), f._payload);
+			f = server.next();
+			assertEquals(NetServerThread.SEND_CODES, f._message);
+			assertArrayEquals(payload(100, 2), f._payload);
+			assertEquals(NetServerThread.DISCONNECT, server.next()._message);
+			assertEquals(NetServerThread.KEEP_ALIVE, server.next()._message);
+			assertEquals(NetServerThread.DISCONNECT, server.next()._message);
+		}
+	}
+
+	@Test
+	public void readsAndWritesLongFrames() throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			OutputStream out = s.getOutputStream();
+			// Longer than the initial input buffer, and the longest allowed
+			out.write(frame(NetServerThread.SEND_CODES, payload(20000, 3)));
+			out.write(frame(NetServerThread.SEND_CODES, payload(PeerLink.MAX_FRAME, 4)));
+			out.write(frame(NetServerThread.KEEP_ALIVE, new byte[0]));
+			out.flush();
+			Frame f = server.next();
+			assertArrayEquals(payload(20000, 3), f._payload);
+			assertArrayEquals(payload(PeerLink.MAX_FRAME, 4), server.next()._payload);
+			assertEquals(NetServerThread.KEEP_ALIVE, server.next()._message);
+			// And back
+			f._link.send(NetServerThread.SEND_CODES, payload(PeerLink.MAX_FRAME, 5));
+			DataInputStream in = new DataInputStream(s.getInputStream());
+			assertEquals(PeerLink.MAX_FRAME, in.readInt());
+			assertEquals(NetServerThread.SEND_CODES, in.readInt());
+			byte[] received = new byte[PeerLink.MAX_FRAME];
+			in.readFully(received);
+			assertArrayEquals(payload(PeerLink.MAX_FRAME, 5), received);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void refusesToSendTooLongFrames() throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			send(s, NetServerThread.KEEP_ALIVE);
+			server.next()._link.send(NetServerThread.SEND_CODES, new byte[PeerLink.MAX_FRAME + 1]);
+		}
+	}
+
+	private void assertWrongLengthCloses(int length) throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			send(s, NetServerThread.KEEP_ALIVE);
+			PeerLink link = server.next()._link;
+			DataOutputStream out = new DataOutputStream(s.getOutputStream());
+			out.writeInt(length);
+			out.writeInt(NetServerThread.SEND_CODES);
+			out.flush();
+			assertClosed(s);
+			waitFor(link);
+			assertTrue(server._frames.isEmpty());
+		}
+	}
+
+	@Test
+	public void closesOnTooLongFrames() throws Exception {
+		assertWrongLengthCloses(PeerLink.MAX_FRAME + 1);
+	}
+
+	@Test
+	public void closesOnNegativeLengths() throws Exception {
+		assertWrongLengthCloses(-1);
+	}
+
+	@Test
+	public void closesWhenThePeerStopsReading() throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			send(s, NetServerThread.KEEP_ALIVE);
+			PeerLink link = server.next()._link;
+			byte[] payload = new byte[PeerLink.MAX_FRAME];
+			// Nothing is read from the socket, so frames pile up in the link
+			for (int i = 0; i < 1000 && !link.isClosed(); i++)
+				link.send(NetServerThread.SEND_CODES, payload);
+			assertTrue(link.isClosed());
+			waitFor(link);
+		}
+	}
+
+	@Test
+	public void expiresWithoutTraffic() throws Exception {
+		Recorder server = start(new Recorder());
+		try (Socket s = connect()) {
+			send(s, NetServerThread.KEEP_ALIVE);
+			PeerLink link = server.next()._link;
+			long now = System.currentTimeMillis();
+			assertFalse(link.expired(now));
+			assertTrue(link.expired(now + PeerLink.TIMEOUT + 1));
+		}
+	}
+
+	private static void connectMessage(Socket s, int version, int port, int netCode) throws IOException {
+		send(s, NetServerThread.CONNECT, version, port, netCode);
+	}
+
+	@Test
+	public void refusesConnections() throws Exception {
+		start(new NetServerThread(new Host()));
+		Utils.ACCEPT_CONNECTIONS = false;
+		try (Socket s = connect()) {
+			connectMessage(s, Utils.VERSION, 1, 1);
+			assertEquals(NetServerThread.NOT_ACCEPTING_CONNECTIONS, receive(s));
+			assertClosed(s);
+		}
+		Utils.ACCEPT_CONNECTIONS = true;
+		try (Socket s = connect()) {
+			connectMessage(s, Utils.VERSION + 1, 1, 1);
+			assertEquals(NetServerThread.INCOMPATIBLE_PROGRAM_VERSION, receive(s));
+			assertClosed(s);
+		}
+		try (Socket s = connect()) {
+			send(s, NetServerThread.KEEP_ALIVE);
+			assertEquals(NetServerThread.NOT_CONNECTED, receive(s));
+			send(s, NetServerThread.DISCONNECT);
+			assertEquals(NetServerThread.NOT_CONNECTED, receive(s));
+		}
+		assertTrue(_server.getConnections().isEmpty());
+	}
+
+	@Test
+	public void connectsAndDisconnects() throws Exception {
+		NetServerThread server = start(new NetServerThread(new Host()));
+		Utils.ACCEPT_CONNECTIONS = true;
+		Utils.MAX_CONNECTIONS = 1;
+		try (Socket first = connect(); Socket second = connect(); Socket third = connect()) {
+			connectMessage(first, Utils.VERSION, 1, 42);
+			assertEquals(NetServerThread.CONNECTED, receive(first));
+			assertEquals(1, server.getConnections().size());
+			Connection c = server.getConnections().get(0);
+			assertEquals(Connection.STATE_CONNECTED, c.getState());
+			send(first, NetServerThread.KEEP_ALIVE);
+			assertEquals(NetServerThread.ACK_KEEP_ALIVE, receive(first));
+			// Another host can't connect
+			connectMessage(third, Utils.VERSION, 2, 43);
+			assertEquals(NetServerThread.TOO_MANY_CONNECTIONS, receive(third));
+			assertClosed(third);
+			// The same host connects again and replaces its link
+			PeerLink old = c.link;
+			connectMessage(second, Utils.VERSION, 1, 42);
+			assertEquals(NetServerThread.ALREADY_CONNECTED, receive(second));
+			assertClosed(first);
+			// The old link is dropped once the host closes its side too
+			first.close();
+			waitFor(old);
+			assertEquals(1, server.getConnections().size());
+			assertEquals(Connection.STATE_CONNECTED, c.getState());
+			send(second, NetServerThread.DISCONNECT);
+			assertEquals(NetServerThread.DISCONNECTED, receive(second));
+			assertClosed(second);
+			assertEquals(Connection.STATE_DISCONNECTED, c.getState());
+			assertTrue(server.getConnections().isEmpty());
+		} catch (EOFException e) {
+			throw new AssertionError("Link closed too early", e); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the history of a world loaded from a file, that is copied
+ * in the background, ends up the same as if it had been read at once,
+ * while the world runs and adds organisms to it.
+ */
+public class WorldMemoryTest {
+	/**
+	 * Organisms added to the history, so that copying it takes a while.
+	 */
+	private static final int HISTORY = 300000;
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private static World createWorld() {
+		World world = new World();
+		world.setSeed(17);
+		world.genesis();
+		WorldMemory memory = world.getWorldMemory();
+		GeneticCode code = world._organisms.get(0).getGeneticCode();
+		// Organisms born and dead long ago
+		for (int id = memory.size(); id < HISTORY; id++) {
+			Organism org = new Organism(world, code);
+			org._ID = id;
+			org._parentID = id - 1;
+			org.alive = false;
+			memory.addOrganism(org);
+		}
+		world.NEXT_ID = HISTORY;
+		for (int i = 0; i < 200; i++)
+			world.time();
+		return world;
+	}
+
+	@Test
+	public void lazyHistoryWhileTheWorldRuns() throws IOException {
+		World world = createWorld();
+		File f = _folder.newFile("history.bgw"); //$NON-NLS-1$
+		WorldSnapshot.save(world, f, BlockCompression.Codec.NONE);
+		byte[] snapshot = WorldSnapshot.toByteArray(world);
+		World eager = WorldSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+		World lazy = WorldSnapshot.load(f);
+		// New organisms are added and old ones die while the history is copied
+		for (int i = 0; i < 300; i++) {
+			lazy.time();
+			eager.time();
+		}
+		assertArrayEquals(WorldSnapshot.toByteArray(eager), WorldSnapshot.toByteArray(lazy));
+		WorldMemory memory = lazy.getWorldMemory();
+		assertEquals(HISTORY - 2, memory.getLineage(HISTORY - 1).getParentID());
+		assertEquals(eager.getWorldMemory().size(), memory.size());
+	}
+}
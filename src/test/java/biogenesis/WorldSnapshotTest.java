@@ -0,0 +1,122 @@
+/* Copyright (c) 2026  Biogenesis Development team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ *
+ */
+package biogenesis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that worlds written by {@link WorldSnapshot} are read back exactly
+ * as they were, so that writing them again gives the same bytes.
+ */
+public class WorldSnapshotTest {
+	private static final int FRAMES = 1500;
+
+	@Rule
+	public TemporaryFolder _folder = new TemporaryFolder();
+
+	private static World _world;
+	private static byte[] _snapshot;
+
+	@BeforeClass
+	public static void createWorld() {
+		_world = new World();
+		_world.setSeed(11);
+		_world.genesis();
+		// Let organisms be born and die, so that there is some history
+		for (int i = 0; i < FRAMES; i++)
+			_world.time();
+		_snapshot = WorldSnapshot.toByteArray(_world);
+	}
+
+	private static World read(byte[] snapshot) throws IOException {
+		return WorldSnapshot.read(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+	}
+
+	@Test
+	public void writeReadWriteGivesSameBytes() throws IOException {
+		World copy = read(_snapshot);
+		assertArrayEquals(_snapshot, WorldSnapshot.toByteArray(copy));
+		assertEquals(HeadlessRunner.stateDigest(_world), HeadlessRunner.stateDigest(copy));
+	}
+
+	@Test
+	public void copyRunsLikeTheOriginal() throws IOException {
+		World original = read(_snapshot);
+		World copy = read(_snapshot);
+		for (int i = 0; i < 200; i++) {
+			original.time();
+			copy.time();
+		}
+		assertEquals(HeadlessRunner.stateDigest(original), HeadlessRunner.stateDigest(copy));
+		assertArrayEquals(WorldSnapshot.toByteArray(original), WorldSnapshot.toByteArray(copy));
+	}
+
+	@Test
+	public void fileRoundTripWithEveryCodec() throws IOException {
+		for (BlockCompression.Codec codec : BlockCompression.Codec.values()) {
+			File f = _folder.newFile(codec.getName() + ".bgw"); //$NON-NLS-1$
+			WorldSnapshot.save(_world, f, codec);
+			World loaded = WorldSnapshot.load(f);
+			// The history is copied from the file in the background
+			assertEquals(_world.getWorldMemory().size(), loaded.getWorldMemory().size());
+			assertArrayEquals(codec.getName(), _snapshot, WorldSnapshot.toByteArray(loaded));
+		}
+	}
+
+	@Test
+	public void legacyWorldIsConverted() throws IOException {
+		File legacy = _folder.newFile("legacy.bgw"); //$NON-NLS-1$
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(legacy))) {
+			out.writeObject(_world);
+		}
+		File converted = _folder.newFile("converted.bgw"); //$NON-NLS-1$
+		WorldSnapshot.convert(legacy, converted, BlockCompression.Codec.NONE);
+		World loaded = WorldSnapshot.load(converted);
+		byte[] snapshot = WorldSnapshot.toByteArray(loaded);
+		assertArrayEquals(_snapshot, snapshot);
+		assertEquals(HeadlessRunner.stateDigest(_world), HeadlessRunner.stateDigest(loaded));
+		assertEquals(_world.getWorldMemory().size(), loaded.getWorldMemory().size());
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		byte[] bytes = _snapshot.clone();
+		bytes[0] = 0;
+		read(bytes);
+	}
+
+	@Test(expected = IOException.class)
+	public void rejectsNewerVersions() throws IOException {
+		byte[] bytes = _snapshot.clone();
+		bytes[7] = (byte) (WorldSnapshot.VERSION + 1);
+		read(bytes);
+	}
+}